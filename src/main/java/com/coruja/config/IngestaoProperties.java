@@ -0,0 +1,53 @@
+package com.coruja.config;
+
+import com.coruja.enums.DialetoArquivo;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ✅ REGISTRO DE FONTES DE INGESTÃO (ingestao.fontes[n].*)
+ * Cada fonte é um FTP de concessionária com credenciais, diretório, padrão de data no nome do arquivo,
+ * dialeto do parser, intervalo de varredura e orçamento de concorrência próprios.
+ * Sem fontes configuradas, as propriedades legadas ftp.* viram a fonte "cart".
+ */
+@Data
+@ConfigurationProperties(prefix = "ingestao")
+public class IngestaoProperties {
+
+    // Arquivos em processamento ao mesmo tempo somando todas as fontes (fila justa entre elas)
+    private int concorrenciaGlobal = 8;
+
+    private List<Fonte> fontes = new ArrayList<>();
+
+    @Data
+    public static class Fonte {
+        // Identificador estável (chave em ftp_arquivos)
+        private String nome;
+        // Nome enviado nas mensagens do RabbitMQ (padrão: nome em maiúsculas)
+        private String concessionaria;
+        private String host;
+        private int porta = 21;
+        private String usuario;
+        private String senha;
+        private String diretorio = "/";
+        private String diretorioLocal;
+        // Data no nome do arquivo: regex que a localiza e formato para convertê-la
+        private String padraoData = "\\d{2}-\\d{2}-\\d{4}";
+        private String formatoData = "dd-MM-yyyy";
+        private DialetoArquivo dialeto = DialetoArquivo.SQLSERVER_EXPORT;
+        private String charset = "ISO-8859-1";
+        // Política de varredura: intervalo entre listagens e quantos dias para trás aceitar
+        private long intervaloMs = 300000;
+        private int diasRetroativos = 1;
+        // Arquivos desta fonte processados em paralelo nesta instância
+        private int concorrencia = 1;
+        private boolean habilitada = true;
+
+        public String concessionariaOuPadrao() {
+            return concessionaria == null || concessionaria.isBlank() ? nome.toUpperCase() : concessionaria;
+        }
+    }
+}
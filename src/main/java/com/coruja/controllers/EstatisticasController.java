@@ -0,0 +1,217 @@
+package com.coruja.controllers;
+
+import com.coruja.dto.OrigemDestinoDTO;
+import com.coruja.dto.PlacaFrequenteDTO;
+import com.coruja.dto.PlacasDistintasDTO;
+import com.coruja.dto.SaudeParticaoDTO;
+import com.coruja.dto.SerieHorariaDTO;
+import com.coruja.dto.TotalRollupDTO;
+import com.coruja.services.CompactacaoService;
+import com.coruja.services.GestaoParticoesService;
+import com.coruja.services.OrigemDestinoService;
+import com.coruja.services.PlacasDistintasService;
+import com.coruja.services.PlacasFrequentesService;
+import com.coruja.services.RetencaoService;
+import com.coruja.services.RollupHorarioService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "${cors.origins}")
+@RestController
+@RequestMapping(value = "/radares/estatisticas")
+@RequiredArgsConstructor
+@Slf4j
+public class EstatisticasController {
+
+    private final RollupHorarioService rollupHorarioService;
+    private final PlacasDistintasService placasDistintasService;
+    private final PlacasFrequentesService placasFrequentesService;
+    private final OrigemDestinoService origemDestinoService;
+    private final GestaoParticoesService gestaoParticoesService;
+    private final RetencaoService retencaoService;
+    private final CompactacaoService compactacaoService;
+
+    /**
+     * ✅ SÉRIE HORÁRIA DE PASSAGENS
+     * Servida pelo rollup horário (não varre radars_cart).
+     * Exemplo: GET /radares/estatisticas/serie-horaria?dataInicial=2026-01-01&dataFinal=2026-01-07&praca=LINS
+     */
+    @GetMapping("/serie-horaria")
+    public ResponseEntity<List<SerieHorariaDTO>> serieHoraria(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(required = false) String praca,
+            @RequestParam(required = false) String rodovia,
+            @RequestParam(required = false) String sentido
+    ) {
+        log.info("📈 [Cart] Série horária | {} a {} | Praça: {} | Rodovia: {}", dataInicial, dataFinal, praca, rodovia);
+        return ResponseEntity.ok(rollupHorarioService.serieHoraria(dataInicial, dataFinal, praca, rodovia, sentido));
+    }
+
+    /**
+     * ✅ TOTAIS DO PERÍODO POR PRAÇA / RODOVIA / SENTIDO
+     */
+    @GetMapping("/totais")
+    public ResponseEntity<List<TotalRollupDTO>> totais(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(required = false) String praca,
+            @RequestParam(required = false) String rodovia,
+            @RequestParam(required = false) String sentido
+    ) {
+        log.info("📊 [Cart] Totais | {} a {} | Praça: {} | Rodovia: {}", dataInicial, dataFinal, praca, rodovia);
+        return ResponseEntity.ok(rollupHorarioService.totais(dataInicial, dataFinal, praca, rodovia, sentido));
+    }
+
+    /**
+     * ✅ RECONSTRUÇÃO DO ROLLUP (BACKFILL)
+     * Recalcula o agregado a partir de radars_cart, dia a dia.
+     */
+    @PostMapping("/rollup/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal
+    ) {
+        log.info("🔁 [Cart] Reconstruindo rollup horário de {} a {}", dataInicial, dataFinal);
+        int chaves = rollupHorarioService.reconstruir(dataInicial, dataFinal);
+        return ResponseEntity.ok(Map.of(
+                "dataInicial", dataInicial,
+                "dataFinal", dataFinal,
+                "chaves", chaves
+        ));
+    }
+
+    /**
+     * ✅ VEÍCULOS ÚNICOS (ESTIMATIVA HYPERLOGLOG)
+     * Erro relativo padrão de ~1,6%, informado na resposta junto ao intervalo de ~95%.
+     * Exemplo: GET /radares/estatisticas/placas-distintas?dataInicial=2026-01-01&dataFinal=2026-01-31&pracas=LINS,PROMISSAO
+     */
+    @GetMapping("/placas-distintas")
+    public ResponseEntity<PlacasDistintasDTO> placasDistintas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(required = false) List<String> pracas,
+            @RequestParam(required = false) String sentido,
+            @RequestParam(required = false) Integer horaInicial,
+            @RequestParam(required = false) Integer horaFinal
+    ) {
+        log.info("🔢 [Cart] Placas distintas | {} a {} | Praças: {}", dataInicial, dataFinal, pracas);
+        return ResponseEntity.ok(placasDistintasService.estimar(dataInicial, dataFinal, pracas, sentido, horaInicial, horaFinal));
+    }
+
+    /**
+     * ✅ VEÍCULOS ÚNICOS (CONTAGEM EXATA PARA AUDITORIA)
+     * Executa COUNT(DISTINCT placa) em radars_cart: usar com períodos curtos.
+     */
+    @GetMapping("/placas-distintas/exato")
+    public ResponseEntity<PlacasDistintasDTO> placasDistintasExato(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(required = false) List<String> pracas,
+            @RequestParam(required = false) String sentido,
+            @RequestParam(required = false) Integer horaInicial,
+            @RequestParam(required = false) Integer horaFinal
+    ) {
+        log.info("🧮 [Cart] Placas distintas (exato) | {} a {} | Praças: {}", dataInicial, dataFinal, pracas);
+        return ResponseEntity.ok(placasDistintasService.contarExato(dataInicial, dataFinal, pracas, sentido, horaInicial, horaFinal));
+    }
+
+    /**
+     * ✅ PLACAS MAIS FREQUENTES (TOP-N)
+     * Servido dos resumos Space-Saving: contagem estimada e erro máximo de cada placa.
+     * Exemplo: GET /radares/estatisticas/placas-frequentes?data=2026-01-15&praca=LINS&n=20
+     */
+    @GetMapping("/placas-frequentes")
+    public ResponseEntity<List<PlacaFrequenteDTO>> placasFrequentes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data,
+            @RequestParam(required = false) String praca,
+            @RequestParam(defaultValue = "20") int n
+    ) {
+        log.info("🏆 [Cart] Placas frequentes | Data: {} | Praça: {} | Top {}", data, praca, n);
+        return ResponseEntity.ok(placasFrequentesService.topN(data, praca, n));
+    }
+
+    /**
+     * ✅ MATRIZ ORIGEM-DESTINO ENTRE PRAÇAS
+     * Viagens e tempos típicos (médio, mediana, p85) por par de praças, a partir do agregado incremental.
+     * Exemplo: GET /radares/estatisticas/origem-destino?dataInicial=2026-01-01&dataFinal=2026-01-31&horaInicial=6&horaFinal=9
+     */
+    @GetMapping("/origem-destino")
+    public ResponseEntity<List<OrigemDestinoDTO>> origemDestino(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(required = false) Integer horaInicial,
+            @RequestParam(required = false) Integer horaFinal,
+            @RequestParam(required = false) String origem,
+            @RequestParam(required = false) String destino
+    ) {
+        log.info("🚗 [Cart] Origem-destino | {} a {} | Origem: {} | Destino: {}", dataInicial, dataFinal, origem, destino);
+        return ResponseEntity.ok(origemDestinoService.matriz(dataInicial, dataFinal, horaInicial, horaFinal, origem, destino));
+    }
+
+    /**
+     * ✅ RECONSTRUÇÃO DA MATRIZ ORIGEM-DESTINO (BACKFILL)
+     * Repareia as passagens de radars_cart dia a dia. Usar em dias já fechados.
+     */
+    @PostMapping("/origem-destino/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirOrigemDestino(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal
+    ) {
+        log.info("🔁 [Cart] Reconstruindo origem-destino de {} a {}", dataInicial, dataFinal);
+        int pares = origemDestinoService.reconstruir(dataInicial, dataFinal);
+        return ResponseEntity.ok(Map.of(
+                "dataInicial", dataInicial,
+                "dataFinal", dataFinal,
+                "pares", pares
+        ));
+    }
+
+    /**
+     * ✅ SAÚDE DAS PARTIÇÕES DE radars_cart
+     * Faixa, linhas estimadas e tamanho de cada partição (a DEFAULT deve ficar vazia).
+     */
+    @GetMapping("/particoes")
+    public ResponseEntity<List<SaudeParticaoDTO>> particoes() {
+        return ResponseEntity.ok(gestaoParticoesService.saude());
+    }
+
+    /**
+     * ✅ MANUTENÇÃO DE PARTIÇÕES SOB DEMANDA
+     * Mesmo ciclo do agendamento noturno: esvazia a DEFAULT, recorta as grossas e cria as futuras.
+     */
+    @PostMapping("/particoes/manter")
+    public ResponseEntity<Map<String, Integer>> manterParticoes() {
+        log.info("🗂️ [Cart] Manutenção de partições solicitada");
+        return ResponseEntity.ok(gestaoParticoesService.manter());
+    }
+
+    /**
+     * ✅ RETENÇÃO SOB DEMANDA
+     * Desanexa as partições além da retenção, exporta para o arquivo frio e remove as já conferidas.
+     */
+    @PostMapping("/retencao/executar")
+    public ResponseEntity<Map<String, Object>> executarRetencao() {
+        log.info("🧊 [Cart] Retenção solicitada");
+        return ResponseEntity.ok(retencaoService.executar());
+    }
+
+    /**
+     * ✅ COMPACTAÇÃO SOB DEMANDA
+     * Reescreve ordenadas as partições fechadas ainda não compactadas (fora da janela só com forcar=true).
+     */
+    @PostMapping("/compactacao/executar")
+    public ResponseEntity<Map<String, Object>> executarCompactacao(
+            @RequestParam(defaultValue = "false") boolean forcar
+    ) {
+        log.info("🧱 [Cart] Compactação solicitada (forcar={})", forcar);
+        return ResponseEntity.ok(compactacaoService.executar(forcar));
+    }
+}
@@ -3,8 +3,15 @@ package com.coruja.controllers;
 import com.coruja.dto.*;
 import com.coruja.entities.KmRodovia;
 import com.coruja.entities.Rodovia;
+import com.coruja.services.BuscaLocalPeriodoService;
+import com.coruja.services.BuscaPlacaAproximadaService;
+import com.coruja.services.BuscaPlacaProgressivaService;
+import com.coruja.services.BuscaPlacasService;
+import com.coruja.services.ComboioService;
+import com.coruja.services.DensidadeService;
 import com.coruja.services.GestaoRodoviaService;
 import com.coruja.services.RadarsService;
+import com.coruja.services.TrajetoriaService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -12,8 +19,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -29,6 +38,13 @@ public class RadarsController {
 
     private final RadarsService radarsService;
     private final GestaoRodoviaService gestaoRodoviaService;
+    private final DensidadeService densidadeService;
+    private final TrajetoriaService trajetoriaService;
+    private final ComboioService comboioService;
+    private final BuscaPlacasService buscaPlacasService;
+    private final BuscaPlacaAproximadaService buscaPlacaAproximadaService;
+    private final BuscaPlacaProgressivaService buscaPlacaProgressivaService;
+    private final BuscaLocalPeriodoService buscaLocalPeriodoService;
 
     /**
      * ✅ BUSCA POR PLACA
@@ -43,24 +59,121 @@ public class RadarsController {
         return ResponseEntity.ok(radarsService.buscarPorPlaca(placa, pageable));
     }
 
+    /**
+     * ✅ BUSCA PROGRESSIVA POR PLACA (MAIS RECENTES PRIMEIRO)
+     * Varre janelas de data crescentes a partir do dia mais recente e para quando a página enche.
+     * Para a próxima página, repita a chamada com o 'proximoCursor' devolvido (ausente = fim do histórico).
+     * Exemplo: GET /radares/busca-placa/progressiva?placa=ABC1D23&tamanho=20
+     */
+    @GetMapping("/busca-placa/progressiva")
+    public ResponseEntity<BuscaProgressivaDTO> buscarPlacaProgressiva(
+            @RequestParam String placa,
+            @RequestParam(defaultValue = "20") int tamanho,
+            @RequestParam(required = false) String cursor
+    ) {
+        log.info("⏩ [Cart] Busca progressiva de placa: {} | Tamanho: {} | Cursor: {}", placa, tamanho, cursor != null);
+        return ResponseEntity.ok(buscaPlacaProgressivaService.buscar(placa, tamanho, cursor));
+    }
+
+    /**
+     * ✅ BUSCA APROXIMADA (TOLERANTE A OCR)
+     * Considera iguais O/0, I/1, B/8 e S/5; aceita curingas '?' (um caractere) e '*' (qualquer sequência).
+     * Retorna as placas candidatas ranqueadas pela distância ao padrão digitado.
+     * Exemplo: GET /radares/busca-placa/aproximada?padrao=AB?1*34&dataInicial=2026-01-01
+     */
+    @GetMapping("/busca-placa/aproximada")
+    public ResponseEntity<List<PlacaAproximadaDTO>> buscarPlacaAproximada(
+            @RequestParam String padrao,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(defaultValue = "50") int limite
+    ) {
+        log.info("🔎 [Cart] Busca aproximada de placa: {} | {} a {}", padrao, dataInicial, dataFinal);
+        return ResponseEntity.ok(buscaPlacaAproximadaService.buscar(padrao, dataInicial, dataFinal, limite));
+    }
+
+    /**
+     * ✅ BUSCA DE VÁRIAS PLACAS (WATCHLIST)
+     * Placas exatas, período opcional; resposta em stream agrupada por placa.
+     * modo=RESUMO devolve apenas total, primeira e última passagem de cada placa.
+     */
+    @PostMapping("/busca-placas")
+    public ResponseEntity<StreamingResponseBody> buscarPorPlacas(@RequestBody BuscaPlacasRequestDTO request) {
+        BuscaPlacasService.Busca busca = buscaPlacasService.preparar(request);
+        log.info("📋 [Cart] Busca de {} placas | {} a {} | Modo: {}",
+                busca.placas().size(), busca.dataInicial(), busca.dataFinal(), busca.modo());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> buscaPlacasService.escrever(busca, out));
+    }
+
+    /**
+     * ✅ TRAJETÓRIA DE UMA PLACA
+     * Passagens em ordem cronológica com coordenadas e, para cada trecho, distância, tempo e velocidade média.
+     * Exemplo: GET /radares/placa/ABC1D23/trajetoria?dataInicial=2026-01-01&dataFinal=2026-01-31
+     */
+    @GetMapping("/placa/{placa}/trajetoria")
+    public ResponseEntity<TrajetoriaDTO> trajetoria(
+            @PathVariable String placa,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal
+    ) {
+        log.info("🧭 [Cart] Trajetória da placa {} | {} a {}", placa, dataInicial, dataFinal);
+        return ResponseEntity.ok(trajetoriaService.trajetoria(placa, dataInicial, dataFinal));
+    }
+
+    /**
+     * ✅ COMBOIO: PLACAS QUE ACOMPANHAM A PLACA-ALVO
+     * Para cada passagem do alvo, quem passou na mesma praça em ±janelaSegundos; ranking por passagens em comum.
+     * Exemplo: GET /radares/placa/ABC1D23/comboio?dataInicial=2026-01-01&dataFinal=2026-01-07&janelaSegundos=60
+     */
+    @GetMapping("/placa/{placa}/comboio")
+    public ResponseEntity<ComboioDTO> comboio(
+            @PathVariable String placa,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(defaultValue = "60") int janelaSegundos,
+            @RequestParam(defaultValue = "2") int minOcorrencias,
+            @RequestParam(defaultValue = "50") int limite
+    ) {
+        log.info("🚙 [Cart] Comboio da placa {} | {} a {} | Janela: ±{}s", placa, dataInicial, dataFinal, janelaSegundos);
+        return ResponseEntity.ok(comboioService.buscar(placa, dataInicial, dataFinal, janelaSegundos, minOcorrencias, limite));
+    }
+
     /**
      * ✅ BUSCA POR LOCAL (FILTROS)
      * Endpoint para consulta operacional (Dia, Rodovia, Km, Hora).
-     * 'Data' é obrigatória para performance (cai na partição correta).
+     * 'Data' (ou o período dataInicial/dataFinal) é obrigatória para performance (cai na partição correta).
+     * Com período, a busca é feita dia a dia em paralelo e paginada por 'cursor' (campo proximoCursor da resposta).
+     * Faixa de KM: kmInicial/kmFinal ("100", "100+500" ou "100.5"), comparada em metros.
      */
     @GetMapping("/busca-local")
     public ResponseEntity<RadarPageDTO> buscarPorLocal(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime horaInicial,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime horaFinal,
             @RequestParam(required = false) String rodovia,
             @RequestParam(required = false) String km,
+            @RequestParam(required = false) String kmInicial,
+            @RequestParam(required = false) String kmFinal,
             @RequestParam(required = false) String sentido,
             @RequestParam(required = false) String praca,
 
             // Paginação Padrão
             @PageableDefault(size = 20, sort = {"data", "hora"}, direction = Sort.Direction.DESC) Pageable pageable
     ) {
+        if (dataInicial != null || dataFinal != null || cursor != null) {
+            LocalDate de = dataInicial != null ? dataInicial : data;
+            LocalDate ate = dataFinal != null ? dataFinal : data;
+            log.info("🔍 [Cart Controller] Buscando Local | Período: {} a {} | Rodovia: {} | Sentido: {}", de, ate, rodovia, sentido);
+            return ResponseEntity.ok(buscaLocalPeriodoService.buscar(
+                    de, ate, horaInicial, horaFinal, rodovia, km, kmInicial, kmFinal, sentido, pageable.getPageSize(), cursor));
+        }
+        if (data == null) throw new IllegalArgumentException("Informe a data ou o período (dataInicial/dataFinal)");
+
         // Log para debug (verifique se o sentido aparece aqui no console)
         log.info("🔍 [Cart Controller] Buscando Local | Data: {} | Rodovia: {} | Sentido: {}", data, rodovia, sentido);
         RadarPageDTO resultado = radarsService.buscarPorLocal(
@@ -69,6 +182,8 @@ public class RadarsController {
                 horaFinal,
                 rodovia,
                 km,
+                kmInicial,
+                kmFinal,
                 sentido,
                 pageable
         );
@@ -76,6 +191,28 @@ public class RadarsController {
         return ResponseEntity.ok(resultado);
     }
 
+    /**
+     * ✅ DIAGNÓSTICO DA BUSCA LOCAL
+     * Mostra o formato dos filtros, o SQL gerado para ele e o plano do Postgres (analisar=true executa EXPLAIN ANALYZE).
+     * Exemplo: GET /radares/busca-local/plano?data=2026-01-10&rodovia=SP270&km=100&analisar=true
+     */
+    @GetMapping("/busca-local/plano")
+    public ResponseEntity<PlanoConsultaDTO> planoBuscaLocal(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime horaInicial,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime horaFinal,
+            @RequestParam(required = false) String rodovia,
+            @RequestParam(required = false) String km,
+            @RequestParam(required = false) String kmInicial,
+            @RequestParam(required = false) String kmFinal,
+            @RequestParam(required = false) String sentido,
+            @RequestParam(defaultValue = "20") int tamanho,
+            @RequestParam(defaultValue = "false") boolean analisar
+    ) {
+        return ResponseEntity.ok(radarsService.planoBuscaLocal(
+                data, horaInicial, horaFinal, rodovia, km, kmInicial, kmFinal, sentido, tamanho, analisar));
+    }
+
     /**
      * Endpoint para busca Geoespacial (Latitude/Longitude).
      * Exemplo de chamada:
@@ -216,6 +353,21 @@ public class RadarsController {
         return ResponseEntity.ok(locations);
     }
 
+    /**
+     * ✅ DENSIDADE (HEATMAP) POR RADAR E FAIXA DE HORÁRIO
+     * Servida do cubo em memória (rollup horário): uma resposta compacta para o slider de tempo do mapa.
+     * Exemplo: GET /radares/densidade?dataInicial=2026-01-01&dataFinal=2026-01-01&bucketHoras=1
+     */
+    @GetMapping("/densidade")
+    public ResponseEntity<DensidadeDTO> getDensidade(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicial,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFinal,
+            @RequestParam(defaultValue = "1") int bucketHoras
+    ) {
+        log.info("🔥 [Cart] Densidade | {} a {} | Bucket: {}h", dataInicial, dataFinal, bucketHoras);
+        return ResponseEntity.ok(densidadeService.consultar(dataInicial, dataFinal, bucketHoras));
+    }
+
     // ==================================================================================
     // MÉTODOS AUXILIARES DE CONVERSÃO
     // ==================================================================================
@@ -237,6 +389,7 @@ public class RadarsController {
         return KmRodoviaDTO.builder()
                 .id(km.getId())
                 .valor(km.getValor())
+                .kmMetros(km.getKmMetros())
                 .rodoviaId(km.getRodovia().getId())
                 .build();
     }
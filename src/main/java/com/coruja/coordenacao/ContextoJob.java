@@ -0,0 +1,26 @@
+package com.coruja.coordenacao;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lease em uso pela thread do job: fatia a processar e token de fencing.
+ * {@code perdido} é marcado pela renovação quando o lease deixa de ser desta instância.
+ */
+public record ContextoJob(String job, int fatia, int fatias, long token, AtomicBoolean perdido) {
+
+    private static final ThreadLocal<ContextoJob> ATUAL = new ThreadLocal<>();
+
+    public static Optional<ContextoJob> atual() {
+        return Optional.ofNullable(ATUAL.get());
+    }
+
+    static void definir(ContextoJob contexto) {
+        if (contexto == null) ATUAL.remove();
+        else ATUAL.set(contexto);
+    }
+
+    public boolean valido() {
+        return !perdido.get();
+    }
+}
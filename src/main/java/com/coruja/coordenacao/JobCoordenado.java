@@ -0,0 +1,25 @@
+package com.coruja.coordenacao;
+
+import com.coruja.enums.ModoCoordenacao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca um método {@code @Scheduled} para execução coordenada entre instâncias (lease em job_lease).
+ * SHARDABLE: o método é chamado uma vez por fatia obtida; a fatia corrente está em {@link ContextoJob#atual()}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JobCoordenado {
+
+    /** Nome estável do job (chave do lease). */
+    String nome();
+
+    ModoCoordenacao modo() default ModoCoordenacao.SINGLETON;
+
+    /** Número de fatias (só SHARDABLE). */
+    int fatias() default 1;
+}
@@ -0,0 +1,75 @@
+package com.coruja.coordenacao;
+
+import com.coruja.enums.ModoCoordenacao;
+import com.coruja.services.CoordenacaoJobsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Executa métodos {@link JobCoordenado} apenas sob lease.
+ * SINGLETON: só a instância com o lease executa. SHARDABLE: percorre as fatias em ordem aleatória
+ * (réplicas que disparam juntas tendem a pegar fatias diferentes) e executa até 'max-fatias' delas.
+ * Com radares.jobs.coordenacao=false todas as instâncias executam tudo (instância única / desenvolvimento).
+ */
+@Aspect
+@Component
+@Slf4j
+public class JobCoordenadoAspect {
+
+    private final CoordenacaoJobsService coordenacao;
+    private final MeterRegistry meterRegistry;
+    private final boolean habilitado;
+    private final int maxFatias;
+
+    public JobCoordenadoAspect(CoordenacaoJobsService coordenacao,
+                               MeterRegistry meterRegistry,
+                               @Value("${radares.jobs.coordenacao:true}") boolean habilitado,
+                               @Value("${radares.jobs.max-fatias:2}") int maxFatias) {
+        this.coordenacao = coordenacao;
+        this.meterRegistry = meterRegistry;
+        this.habilitado = habilitado;
+        this.maxFatias = maxFatias;
+    }
+
+    @Around("@annotation(job)")
+    public Object coordenar(ProceedingJoinPoint pjp, JobCoordenado job) throws Throwable {
+        if (!habilitado) return pjp.proceed();
+
+        int fatias = job.modo() == ModoCoordenacao.SHARDABLE ? Math.max(1, job.fatias()) : 1;
+        List<Integer> ordem = new ArrayList<>(IntStream.range(0, fatias).boxed().toList());
+        Collections.shuffle(ordem);
+        int limite = job.modo() == ModoCoordenacao.SHARDABLE ? maxFatias : 1;
+
+        int executadas = 0;
+        for (int fatia : ordem) {
+            if (executadas >= limite) break;
+            Optional<ContextoJob> lease = coordenacao.adquirir(job.nome(), fatia, fatias);
+            if (lease.isEmpty()) continue;
+
+            ContextoJob.definir(lease.get());
+            Timer.Sample amostra = Timer.start(meterRegistry);
+            try {
+                pjp.proceed();
+                executadas++;
+            } finally {
+                amostra.stop(Timer.builder("radares.jobs.execucao").tag("job", job.nome()).register(meterRegistry));
+                ContextoJob.definir(null);
+                coordenacao.liberar(lease.get());
+            }
+        }
+        if (executadas == 0) log.debug("⏭️ Job {} em execução em outra instância", job.nome());
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AcompanhanteDTO implements Serializable {
+    private String placa;
+    private int avistamentosEmComum;        // Passagens da placa-alvo com esta placa dentro da janela
+    private double percentualDoAlvo;        // avistamentosEmComum / passagens da placa-alvo
+    private long diferencaMediaSegundos;    // Distância média (absoluta) no tempo em relação à placa-alvo
+    private List<String> pracas;
+}
@@ -0,0 +1,19 @@
+package com.coruja.dto;
+
+import com.coruja.enums.ModoBuscaPlacas;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BuscaPlacasRequestDTO {
+    private List<String> placas;
+    private LocalDate dataInicial;     // Opcional
+    private LocalDate dataFinal;       // Opcional
+    private ModoBuscaPlacas modo = ModoBuscaPlacas.COMPLETO;
+}
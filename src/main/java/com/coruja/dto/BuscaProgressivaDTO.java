@@ -0,0 +1,25 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Página da busca progressiva por placa (mais recentes primeiro, sem COUNT).
+ * proximoCursor nulo = histórico esgotado.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BuscaProgressivaDTO implements Serializable {
+    private List<RadarsDTO> content;
+    private String proximoCursor;
+    private LocalDate varridoAte;     // Dia mais antigo já percorrido nesta página
+    private int consultas;            // Janelas de data consultadas para montar a página
+}
@@ -0,0 +1,24 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ComboioDTO implements Serializable {
+    private String placaAlvo;
+    private LocalDate dataInicial;
+    private LocalDate dataFinal;
+    private int janelaSegundos;
+    private int avistamentosAlvo;
+    private boolean truncado;          // true = limite de passagens da placa-alvo atingido
+    private List<AcompanhanteDTO> acompanhantes;
+}
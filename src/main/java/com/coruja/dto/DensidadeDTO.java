@@ -0,0 +1,26 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Matriz compacta de densidade para o mapa.
+ * contagens[i][b] = passagens do radar localizacoes[i] no bucket b
+ * (bucket 0 começa em dataInicial 00:00; cada bucket dura bucketHoras).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DensidadeDTO implements Serializable {
+    private LocalDate dataInicial;
+    private LocalDate dataFinal;
+    private int bucketHoras;
+    private int totalBuckets;
+    private List<Long> localizacoes;
+    private long[][] contagens;
+}
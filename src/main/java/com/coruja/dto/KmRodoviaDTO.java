@@ -14,5 +14,6 @@ import java.io.Serializable;
 public class KmRodoviaDTO implements Serializable {
     private Long id;
     private String valor;
+    private Integer kmMetros; // Posição em metros (ordenação e faixas)
     private Long rodoviaId; // Trazemos apenas o ID, evitando o loop/erro do Hibernate
 }
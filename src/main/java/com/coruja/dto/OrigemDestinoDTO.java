@@ -0,0 +1,26 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Uma célula da matriz origem-destino no período consultado.
+ * Quantis estimados a partir do histograma de faixas (erro limitado à largura da faixa).
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrigemDestinoDTO implements Serializable {
+    private String pracaOrigem;
+    private String pracaDestino;
+    private long viagens;
+    private long tempoMedioSegundos;
+    private long tempoMedianoSegundos;
+    private long tempoP85Segundos;
+    private long[] histograma;
+}
@@ -0,0 +1,18 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlacaAproximadaDTO implements Serializable {
+    private String placa;
+    private int distancia;          // Edições em relação ao padrão digitado (0 = grafia exata)
+    private long totalPassagens;
+    private LocalDateTime ultimaPassagem;
+}
@@ -0,0 +1,16 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlacaFrequenteDTO implements Serializable {
+    private String placa;
+    private long contagemEstimada; // Limite superior da contagem real
+    private long erroMaximo;       // Contagem real >= contagemEstimada - erroMaximo
+}
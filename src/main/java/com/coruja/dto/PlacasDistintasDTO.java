@@ -0,0 +1,27 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlacasDistintasDTO implements Serializable {
+    private LocalDate dataInicial;
+    private LocalDate dataFinal;
+    private List<String> pracas;
+    private String sentido;
+    private long placasDistintas;
+    private boolean exato;          // true = COUNT(DISTINCT) na tabela (auditoria)
+    private double erroRelativo;    // Erro padrão relativo da estimativa (0 quando exato)
+    private long limiteInferior95;  // Intervalo de ~95% de confiança
+    private long limiteSuperior95;
+    private int sketchesMesclados;
+}
@@ -0,0 +1,22 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Diagnóstico de uma consulta gerada: formato dos filtros, SQL e plano do Postgres (uma linha por nó).
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlanoConsultaDTO implements Serializable {
+    private String formato;
+    private String sql;
+    private List<String> plano;
+}
@@ -0,0 +1,33 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Uma passagem da trajetória. Os campos do trecho (distância, tempo, velocidade) referem-se
+ * ao deslocamento desde a passagem anterior e ficam nulos no primeiro ponto ou sem coordenadas.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PontoTrajetoriaDTO implements Serializable {
+    private LocalDate data;
+    private LocalTime hora;
+    private String praca;
+    private String rodovia;
+    private String km;
+    private String sentido;
+    private Long localizacaoId;
+    private Double latitude;
+    private Double longitude;
+    private Double distanciaKm;
+    private Long segundosDesdeAnterior;
+    private Double velocidadeMediaKmh;
+}
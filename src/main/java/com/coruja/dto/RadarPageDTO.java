@@ -17,4 +17,11 @@ public class RadarPageDTO implements Serializable {
 
     // As informações de paginação
     private PageMetadata page;
+
+    // Token keyset da próxima página (apenas buscas por período; null = fim)
+    private String proximoCursor;
+
+    public RadarPageDTO(List<RadarsDTO> content, PageMetadata page) {
+        this(content, page, null);
+    }
 }
\ No newline at end of file
@@ -1,25 +1,23 @@
 package com.coruja.dto;
 
-import com.coruja.entities.Radars;
 import com.coruja.enums.Sentido;
-import lombok.*;
-import org.springframework.beans.BeanUtils;
+import lombok.Builder;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
-@Getter
-@Setter
-@NoArgsConstructor
-@AllArgsConstructor
+/**
+ * Passagem devolvida pelas buscas. Imutável: montada direto da linha do banco (sem entidade gerenciada).
+ */
 @Builder
-public class RadarsDTO {
-    private Long id;
-    private LocalDate data;
-    private LocalTime hora;
-    private String placa;
-    private String praca;
-    private String rodovia;
-    private String km;
-    private Sentido sentido;
-}
+public record RadarsDTO(
+        Long id,
+        LocalDate data,
+        LocalTime hora,
+        String placa,
+        String praca,
+        String rodovia,
+        String km,
+        Sentido sentido
+) implements Serializable { }
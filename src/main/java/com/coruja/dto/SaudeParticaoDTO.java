@@ -0,0 +1,22 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SaudeParticaoDTO implements Serializable {
+    private String nome;
+    private LocalDate inicio;   // null = MINVALUE
+    private LocalDate fim;      // exclusivo; null = MAXVALUE
+    private boolean padrao;
+    private long linhasEstimadas;
+    private long tamanhoBytes;
+}
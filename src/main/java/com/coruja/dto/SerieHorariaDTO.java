@@ -0,0 +1,17 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SerieHorariaDTO implements Serializable {
+    private LocalDate data;
+    private int hora;    // 0..23
+    private long total;  // Passagens registradas na hora
+}
@@ -0,0 +1,17 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TotalRollupDTO implements Serializable {
+    private String praca;
+    private String rodovia;
+    private String sentido;
+    private long total;
+}
@@ -0,0 +1,24 @@
+package com.coruja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrajetoriaDTO implements Serializable {
+    private String placa;
+    private LocalDate dataInicial;
+    private LocalDate dataFinal;
+    private int totalPassagens;
+    private boolean truncado;          // true = limite de passagens atingido (estreite o período)
+    private double distanciaTotalKm;   // Soma dos trechos com coordenadas conhecidas
+    private List<PontoTrajetoriaDTO> pontos;
+}
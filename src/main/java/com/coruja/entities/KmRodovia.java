@@ -1,12 +1,15 @@
 package com.coruja.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.coruja.utils.KmParser;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
 @Table(name = "kms_rodovia", indexes = {
         @Index(name = "idx_km_valor", columnList = "valor")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uq_kms_rodovia_rodovia_valor", columnNames = {"rodovia_id", "valor"})
 })
 @Getter
 @Setter
@@ -21,9 +24,19 @@ public class KmRodovia {
     @Column(nullable = false)
     private String valor;
 
+    @Column(name = "km_metros")
+    private Integer kmMetros;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "rodovia_id", nullable = false)
     @JsonIgnore // <--- ADICIONADO: Impede o erro de serialização do Proxy
     @ToString.Exclude // <--- ADICIONADO: Evita loops no Lombok
     private Rodovia rodovia;
+
+    // Posição numérica do KM, calculada na gravação (filtros por faixa e ordenação sem regex)
+    @PrePersist
+    @PreUpdate
+    void calcularKmMetros() {
+        this.kmMetros = KmParser.metros(valor);
+    }
 }
@@ -1,5 +1,6 @@
 package com.coruja.entities;
 
+import com.coruja.utils.KmParser;
 import jakarta.persistence.*;
 import lombok.*;
 import org.locationtech.jts.geom.Point;
@@ -19,9 +20,19 @@ public class LocalizacaoRadar {
     private String concessionaria;
     private String rodovia;
     private String km;
+
+    @Column(name = "km_metros")
+    private Integer kmMetros;
     private String praca;
 
     // Campo com as coordenadas geográficas que vamos buscar
     @Column(columnDefinition = "geography(Point,4326)")
     private Point localizacao;
+
+    // Posição numérica do KM, calculada na gravação (filtros por faixa e ordenação sem regex)
+    @PrePersist
+    @PreUpdate
+    void calcularKmMetros() {
+        this.kmMetros = KmParser.metros(km);
+    }
 }
@@ -1,5 +1,6 @@
 package com.coruja.entities;
 
+import com.coruja.utils.KmParser;
 import jakarta.persistence.*;
 import lombok.*;
 import org.locationtech.jts.geom.Point;
@@ -41,6 +42,9 @@ public class Radars {
     @Column(nullable = false)
     private String km;
 
+    @Column(name = "km_metros")
+    private Integer kmMetros;
+
     @Column(nullable = false)
     private String sentido;
 
@@ -65,4 +69,11 @@ public class Radars {
         this.sentido = sentido;
         this.localizacao = localizacao;
     }
+
+    // Posição numérica do KM, calculada na gravação (filtros por faixa e ordenação sem regex)
+    @PrePersist
+    @PreUpdate
+    void calcularKmMetros() {
+        this.kmMetros = KmParser.metros(km);
+    }
 }
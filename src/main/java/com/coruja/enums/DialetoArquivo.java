@@ -0,0 +1,11 @@
+package com.coruja.enums;
+
+/**
+ * Layout das linhas do arquivo de passagens de uma fonte (ver LinhaRadarParser).
+ */
+public enum DialetoArquivo {
+    // Export texto do SQL Server: "data hora placa praça sentido SPxxx KMxxx", separado por espaços
+    SQLSERVER_EXPORT,
+    // CSV com ';': data;hora;placa;praca;sentido;rodovia;km (cabeçalho opcional)
+    CSV
+}
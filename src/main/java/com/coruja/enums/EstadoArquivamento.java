@@ -0,0 +1,10 @@
+package com.coruja.enums;
+
+public enum EstadoArquivamento {
+    // Fora de radars_cart, dados ainda na tabela avulsa
+    DESANEXADA,
+    // Todos os dias exportados e conferidos: tabela pode ser removida
+    EXPORTADA,
+    // Tabela removida; dados só no arquivo frio
+    REMOVIDA
+}
@@ -0,0 +1,12 @@
+package com.coruja.enums;
+
+public enum EstadoArquivoFtp {
+    // Listado no FTP, aguardando uma instância
+    PENDENTE,
+    // Reivindicado por uma instância (dono + heartbeat)
+    EM_PROCESSAMENTO,
+    // Linhas gravadas em radars_cart
+    CONCLUIDO,
+    // Excedeu o número máximo de tentativas
+    FALHOU
+}
@@ -0,0 +1,35 @@
+package com.coruja.enums;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public enum GranularidadeParticao {
+    // Uma partição por dia: consultas de um dia varrem só os índices daquele dia
+    DIARIA(DateTimeFormatter.ofPattern("yyyyMMdd")),
+    // Uma partição por mês: menos tabelas, índices ainda pequenos
+    MENSAL(DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final DateTimeFormatter sufixo;
+
+    GranularidadeParticao(DateTimeFormatter sufixo) {
+        this.sufixo = sufixo;
+    }
+
+    /**
+     * Início do período que contém a data.
+     */
+    public LocalDate inicio(LocalDate data) {
+        return this == DIARIA ? data : data.withDayOfMonth(1);
+    }
+
+    /**
+     * Início do período seguinte ao que começa em 'inicio' (limite exclusivo da partição).
+     */
+    public LocalDate proximo(LocalDate inicio) {
+        return this == DIARIA ? inicio.plusDays(1) : inicio.plusMonths(1);
+    }
+
+    public String nome(LocalDate inicio) {
+        return "radars_cart_p" + sufixo.format(inicio);
+    }
+}
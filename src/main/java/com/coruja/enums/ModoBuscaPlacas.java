@@ -0,0 +1,8 @@
+package com.coruja.enums;
+
+public enum ModoBuscaPlacas {
+    // Todas as passagens de cada placa (limitadas por placa), da mais recente para a mais antiga
+    COMPLETO,
+    // Apenas total, primeira e última passagem de cada placa
+    RESUMO
+}
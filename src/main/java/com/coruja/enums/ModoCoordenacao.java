@@ -0,0 +1,11 @@
+package com.coruja.enums;
+
+/**
+ * Como um job agendado se comporta com várias instâncias do serviço.
+ */
+public enum ModoCoordenacao {
+    /** Uma única instância executa por vez (lease da fatia 0). */
+    SINGLETON,
+    /** O trabalho é dividido em fatias; cada fatia é executada por uma instância por vez. */
+    SHARDABLE
+}
@@ -3,6 +3,10 @@ package com.coruja.enums;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum Sentido {
     NORTE("Norte"),
     SUL("Sul"),
@@ -13,6 +17,16 @@ public enum Sentido {
 
     private final String descricao;
 
+    // Tabela pré-calculada: nome e descrição em maiúsculas -> enum (sem laço nem exceção por linha lida)
+    private static final Map<String, Sentido> POR_TEXTO = new HashMap<>();
+
+    static {
+        for (Sentido s : values()) {
+            POR_TEXTO.put(s.name(), s);
+            POR_TEXTO.put(s.descricao.toUpperCase(Locale.ROOT), s);
+        }
+    }
+
     Sentido(String descricao) {
         this.descricao = descricao;
     }
@@ -36,13 +50,17 @@ public enum Sentido {
             return null; // ou NAO_IDENTIFICADO se preferir não permitir nulos
         }
 
-        for (Sentido s : Sentido.values()) {
-            // Verifica se bate com a descrição ("Leste") ou com o nome ("LESTE")
-            if (s.descricao.equalsIgnoreCase(value) || s.name().equalsIgnoreCase(value)) {
-                return s;
-            }
-        }
+        // Verifica se bate com a descrição ("Leste") ou com o nome ("LESTE")
+        Sentido sentido = POR_TEXTO.get(value.trim().toUpperCase(Locale.ROOT));
+        if (sentido == null) throw new IllegalArgumentException("Sentido inválido: " + value);
+        return sentido;
+    }
 
-        throw new IllegalArgumentException("Sentido inválido: " + value);
+    /**
+     * Decodificação tolerante para leitura do banco: vazio ou desconhecido vira NAO_IDENTIFICADO.
+     */
+    public static Sentido decodificar(String value) {
+        if (value == null) return NAO_IDENTIFICADO;
+        return POR_TEXTO.getOrDefault(value.trim().toUpperCase(Locale.ROOT), NAO_IDENTIFICADO);
     }
 }
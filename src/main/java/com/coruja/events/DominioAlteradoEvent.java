@@ -0,0 +1,14 @@
+package com.coruja.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Publicado por {@code GestaoRodoviaService} quando rodovias/KMs mudam, com a nova versão do domínio.
+ * Tratado após o commit ({@code @TransactionalEventListener}): avisa as demais instâncias e recarrega o snapshot local.
+ */
+@Getter
+@AllArgsConstructor
+public class DominioAlteradoEvent {
+    private final long versao;
+}
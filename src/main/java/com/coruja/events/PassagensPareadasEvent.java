@@ -0,0 +1,29 @@
+package com.coruja.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Publicado por {@code UltimasPassagensService} dentro da transação do lote: cada passagem do lote
+ * com a passagem anterior da mesma placa (de qualquer réplica, lida com a linha travada).
+ * Listeners síncronos gravam na mesma transação; {@code @TransactionalEventListener} só vê lotes confirmados.
+ */
+@Getter
+@AllArgsConstructor
+public class PassagensPareadasEvent {
+
+    public record Par(String placa,
+                      String pracaAnterior, LocalDateTime instanteAnterior,
+                      String pracaAtual, LocalDateTime instanteAtual) {
+
+        /** Passagem mais antiga que a última registrada: não substituiu a última. */
+        public boolean atrasada() {
+            return instanteAtual.isBefore(instanteAnterior);
+        }
+    }
+
+    private final List<Par> pares;
+}
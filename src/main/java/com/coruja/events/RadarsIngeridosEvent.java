@@ -0,0 +1,18 @@
+package com.coruja.events;
+
+import com.coruja.entities.Radars;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Publicado por {@code RadarsService.saveRadars} com cada lote recém persistido.
+ * Listeners síncronos ({@code @EventListener}) rodam dentro da mesma transação do insert;
+ * listeners de memória devem usar {@code @TransactionalEventListener} (após o commit).
+ */
+@Getter
+@AllArgsConstructor
+public class RadarsIngeridosEvent {
+    private final List<Radars> radars;
+}
@@ -0,0 +1,110 @@
+package com.coruja.repositories;
+
+import com.coruja.enums.EstadoArquivamento;
+import com.coruja.repositories.ParticoesRepository.Particao;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Catálogo do arquivo frio: partições retiradas de radars_cart (arquivo_particoes)
+ * e os arquivos colunares já conferidos de cada dia (arquivo_dias).
+ */
+@Repository
+public class ArquivoRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ArquivoRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record ParticaoArquivada(String nome, LocalDate inicio, LocalDate fim, EstadoArquivamento estado) { }
+
+    public record ArquivoDia(String particao, LocalDate data, String caminho, long linhas, long bytes, long crc32) { }
+
+    /**
+     * Deve rodar na mesma transação do DETACH: partição fora de radars_cart sempre tem registro aqui.
+     */
+    public void registrarDesanexada(Particao particao) {
+        jdbcTemplate.update("""
+            INSERT INTO arquivo_particoes (nome, inicio, fim, estado) VALUES (?, ?, ?, ?)
+            ON CONFLICT (nome) DO UPDATE SET inicio = EXCLUDED.inicio, fim = EXCLUDED.fim,
+                                             estado = EXCLUDED.estado, linhas = 0, atualizado_em = now()
+            """, particao.nome(), data(particao.inicio()), data(particao.fim()), EstadoArquivamento.DESANEXADA.name());
+    }
+
+    public void atualizarEstado(String nome, EstadoArquivamento estado, long linhas) {
+        jdbcTemplate.update("UPDATE arquivo_particoes SET estado = ?, linhas = ?, atualizado_em = now() WHERE nome = ?",
+                estado.name(), linhas, nome);
+    }
+
+    /**
+     * Partições ainda com tabela no banco (exportação ou DROP pendente), das mais antigas para as mais novas.
+     */
+    public List<ParticaoArquivada> pendentes() {
+        return jdbcTemplate.query("""
+            SELECT nome, inicio, fim, estado FROM arquivo_particoes
+            WHERE estado <> 'REMOVIDA'
+            ORDER BY inicio NULLS FIRST
+            """, (rs, i) -> new ParticaoArquivada(
+                        rs.getString("nome"),
+                        rs.getObject("inicio", LocalDate.class),
+                        rs.getObject("fim", LocalDate.class),
+                        EstadoArquivamento.valueOf(rs.getString("estado"))));
+    }
+
+    public void registrarArquivo(ArquivoDia arquivo) {
+        jdbcTemplate.update("""
+            INSERT INTO arquivo_dias (particao, data, caminho, linhas, bytes, crc32) VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (particao, data) DO UPDATE SET caminho = EXCLUDED.caminho, linhas = EXCLUDED.linhas,
+                                                       bytes = EXCLUDED.bytes, crc32 = EXCLUDED.crc32, criado_em = now()
+            """, arquivo.particao(), Date.valueOf(arquivo.data()), arquivo.caminho(),
+                arquivo.linhas(), arquivo.bytes(), arquivo.crc32());
+    }
+
+    public Set<LocalDate> diasExportados(String particao) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT data FROM arquivo_dias WHERE particao = ?", LocalDate.class, particao));
+    }
+
+    public long linhasExportadas(String particao) {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(linhas), 0) FROM arquivo_dias WHERE particao = ?", Long.class, particao);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Todos os arquivos, do dia mais recente para o mais antigo.
+     */
+    /**
+     * Registra o marcador do volume do arquivo frio se ainda não houver um.
+     * @return o marcador registrado (o proposto, ou o de quem registrou antes)
+     */
+    public String registrarVolume(String marcador) {
+        jdbcTemplate.update("INSERT INTO arquivo_volume (id, marcador) VALUES (1, ?) ON CONFLICT (id) DO NOTHING", marcador);
+        return jdbcTemplate.queryForObject("SELECT marcador FROM arquivo_volume WHERE id = 1", String.class);
+    }
+
+    public List<ArquivoDia> arquivos() {
+        return jdbcTemplate.query("""
+            SELECT particao, data, caminho, linhas, bytes, crc32 FROM arquivo_dias
+            ORDER BY data DESC, particao
+            """, (rs, i) -> new ArquivoDia(
+                        rs.getString("particao"),
+                        rs.getObject("data", LocalDate.class),
+                        rs.getString("caminho"),
+                        rs.getLong("linhas"),
+                        rs.getLong("bytes"),
+                        rs.getLong("crc32")));
+    }
+
+    private static Date data(LocalDate data) {
+        return data == null ? null : Date.valueOf(data);
+    }
+}
@@ -0,0 +1,48 @@
+package com.coruja.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Preenchimento em lotes de colunas derivadas em radars_cart, com progresso persistido (manutencao_progresso).
+ */
+@Repository
+public class BackfillRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BackfillRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Próximo dia a processar da tarefa (vazio = tarefa ainda não iniciada).
+     */
+    public Optional<LocalDate> progresso(String tarefa) {
+        List<LocalDate> ate = jdbcTemplate.query("SELECT ate FROM manutencao_progresso WHERE tarefa = ?",
+                (rs, i) -> rs.getObject("ate", LocalDate.class), tarefa);
+        return ate.isEmpty() ? Optional.empty() : Optional.ofNullable(ate.get(0));
+    }
+
+    public void salvarProgresso(String tarefa, LocalDate ate) {
+        jdbcTemplate.update("""
+            INSERT INTO manutencao_progresso (tarefa, ate) VALUES (?, ?)
+            ON CONFLICT (tarefa) DO UPDATE SET ate = EXCLUDED.ate, atualizado_em = now()
+            """, tarefa, Date.valueOf(ate));
+    }
+
+    /**
+     * km_metros das passagens do dia ainda sem valor (uma partição, um dia por comando).
+     */
+    public int preencherKmMetros(LocalDate dia) {
+        return jdbcTemplate.update("""
+            UPDATE radars_cart SET km_metros = radares_km_metros(km)
+            WHERE data = ? AND km_metros IS NULL AND radares_km_metros(km) IS NOT NULL
+            """, Date.valueOf(dia));
+    }
+}
@@ -0,0 +1,175 @@
+package com.coruja.repositories;
+
+import com.coruja.dto.RadarsDTO;
+import com.coruja.utils.CursorPassagem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ✅ BUSCA LOCAL COM SQL POR FORMATO DE FILTRO
+ * Em vez de uma consulta genérica "(CAST(:x AS TEXT) IS NULL OR ...)", cada combinação de filtros informados
+ * gera o seu próprio SQL, só com os predicados presentes e igualdade onde o valor é exato.
+ * O texto é montado uma vez por formato e reaproveitado: o driver passa a usar um prepared statement
+ * nomeado no servidor e o planner enxerga predicados reais (idx_radars_filtros_main, poda de partição).
+ */
+@Repository
+public class BuscaLocalRepository {
+
+    private static final int HORA_INICIAL = 1;
+    private static final int HORA_FINAL = 1 << 1;
+    private static final int RODOVIA_EXATA = 1 << 2;
+    private static final int RODOVIA_PARCIAL = 1 << 3;
+    private static final int KM = 1 << 4;
+    private static final int SENTIDO = 1 << 5;
+    private static final int CURSOR = 1 << 6;
+    private static final int KM_INICIAL = 1 << 7;
+    private static final int KM_FINAL = 1 << 8;
+    private static final int CURSOR_DIA = 1 << 9;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, String> sqlListagem = new ConcurrentHashMap<>();
+    private final Map<Integer, String> sqlContagem = new ConcurrentHashMap<>();
+
+    public BuscaLocalRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Filtros já normalizados; nulos ficam fora do SQL.
+     * @param rodoviaExata true quando 'rodovia' é o nome cadastrado (igualdade em vez de ILIKE '%...%')
+     * @param kmInicial    faixa de KM em metros (km_metros), inclusiva
+     */
+    public record Filtro(LocalDate data, LocalTime horaInicial, LocalTime horaFinal,
+                         String rodovia, boolean rodoviaExata, String km,
+                         Integer kmInicial, Integer kmFinal, String sentido) {
+
+        public Filtro {
+            if (data == null) throw new IllegalArgumentException("Data é obrigatória");
+            if (kmInicial != null && kmFinal != null && kmInicial > kmFinal) {
+                throw new IllegalArgumentException("KM inicial maior que o KM final");
+            }
+        }
+
+        int formato() {
+            int f = 0;
+            if (horaInicial != null) f |= HORA_INICIAL;
+            if (horaFinal != null) f |= HORA_FINAL;
+            if (rodovia != null) f |= rodoviaExata ? RODOVIA_EXATA : RODOVIA_PARCIAL;
+            if (km != null) f |= KM;
+            if (kmInicial != null) f |= KM_INICIAL;
+            if (kmFinal != null) f |= KM_FINAL;
+            if (sentido != null) f |= SENTIDO;
+            return f;
+        }
+    }
+
+    /**
+     * Página ordenada do mais recente para o mais antigo.
+     * Com cursor, retoma após a última linha entregue (keyset) e o offset deve ser 0.
+     */
+    public List<RadarsDTO> listar(Filtro filtro, CursorPassagem cursor, long offset, int limite) {
+        String sql = sqlListagem(filtro.formato() | (cursor == null ? 0 : cursor.limiteDeDia() ? CURSOR_DIA : CURSOR));
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = vincular(ps, filtro, cursor);
+            ps.setInt(i++, limite);
+            ps.setLong(i, offset);
+            return ps;
+        }, RadarsLeituraRepository.MAPPER);
+    }
+
+    public long contar(Filtro filtro) {
+        String sql = sqlContagem.computeIfAbsent(filtro.formato(), f ->
+                "SELECT COUNT(DISTINCT (r.data, r.hora, r.placa)) FROM radars_cart r" + where(f));
+        Long total = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            vincular(ps, filtro, null);
+            return ps;
+        }, rs -> rs.next() ? rs.getLong(1) : 0L);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * ✅ DIAGNÓSTICO: plano do Postgres para o formato dos filtros (mesmo SQL da listagem).
+     * @param analisar true = EXPLAIN ANALYZE (executa a consulta)
+     */
+    public List<String> explicar(Filtro filtro, int limite, boolean analisar) {
+        String sql = (analisar ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ") + sqlListagem(filtro.formato());
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = vincular(ps, filtro, null);
+            ps.setInt(i++, limite);
+            ps.setLong(i, 0);
+            return ps;
+        }, (rs, n) -> rs.getString(1));
+    }
+
+    public String sql(Filtro filtro) {
+        return sqlListagem(filtro.formato());
+    }
+
+    private String sqlListagem(int formato) {
+        return sqlListagem.computeIfAbsent(formato, f -> "SELECT DISTINCT ON (r.data, r.hora, r.placa) " + RadarsLeituraRepository.COLUNAS
+                + " FROM radars_cart r" + where(f)
+                + RadarsLeituraRepository.ORDEM_MAIS_RECENTE + " LIMIT ? OFFSET ?");
+    }
+
+    /**
+     * Nome legível do formato (ex: "data+rodovia(=)+km+hora"), usado nos logs e no diagnóstico.
+     */
+    public static String descrever(Filtro filtro) {
+        int f = filtro.formato();
+        StringBuilder nome = new StringBuilder("data");
+        if ((f & RODOVIA_EXATA) != 0) nome.append("+rodovia(=)");
+        if ((f & RODOVIA_PARCIAL) != 0) nome.append("+rodovia(ilike)");
+        if ((f & KM) != 0) nome.append("+km");
+        if ((f & (KM_INICIAL | KM_FINAL)) != 0) nome.append("+faixa-km");
+        if ((f & SENTIDO) != 0) nome.append("+sentido");
+        if ((f & (HORA_INICIAL | HORA_FINAL)) != 0) nome.append("+hora");
+        return nome.toString();
+    }
+
+    private static String where(int formato) {
+        StringBuilder where = new StringBuilder(" WHERE r.data = ?");
+        // Ordem das colunas de idx_radars_filtros_main (rodovia, km, data, hora)
+        if ((formato & RODOVIA_EXATA) != 0) where.append(" AND r.rodovia = ?");
+        if ((formato & RODOVIA_PARCIAL) != 0) where.append(" AND r.rodovia ILIKE CONCAT('%', ?, '%')");
+        if ((formato & KM) != 0) where.append(" AND r.km = ?");
+        // Faixa de KM: idx_radars_rodovia_data_km_metros (rodovia, data, km_metros, hora)
+        if ((formato & KM_INICIAL) != 0) where.append(" AND r.km_metros >= ?");
+        if ((formato & KM_FINAL) != 0) where.append(" AND r.km_metros <= ?");
+        if ((formato & HORA_INICIAL) != 0) where.append(" AND r.hora >= ?");
+        if ((formato & HORA_FINAL) != 0) where.append(" AND r.hora <= ?");
+        if ((formato & SENTIDO) != 0) where.append(" AND r.sentido ILIKE ?");
+        if ((formato & CURSOR) != 0) where.append(RadarsLeituraRepository.APOS_CURSOR);
+        if ((formato & CURSOR_DIA) != 0) where.append(RadarsLeituraRepository.ANTES_DO_DIA);
+        return where.toString();
+    }
+
+    /**
+     * Vincula na mesma ordem de {@link #where(int)}; devolve o próximo índice livre.
+     */
+    private static int vincular(PreparedStatement ps, Filtro filtro, CursorPassagem cursor) throws SQLException {
+        int i = 1;
+        ps.setDate(i++, Date.valueOf(filtro.data()));
+        if (filtro.rodovia() != null) ps.setString(i++, filtro.rodovia());
+        if (filtro.km() != null) ps.setString(i++, filtro.km());
+        if (filtro.kmInicial() != null) ps.setInt(i++, filtro.kmInicial());
+        if (filtro.kmFinal() != null) ps.setInt(i++, filtro.kmFinal());
+        if (filtro.horaInicial() != null) ps.setObject(i++, filtro.horaInicial());
+        if (filtro.horaFinal() != null) ps.setObject(i++, filtro.horaFinal());
+        if (filtro.sentido() != null) ps.setString(i++, filtro.sentido());
+        if (cursor != null) i = RadarsLeituraRepository.vincularCursor(ps, i, cursor);
+        return i;
+    }
+}
@@ -0,0 +1,59 @@
+package com.coruja.repositories;
+
+import com.coruja.repositories.ParticoesRepository.Particao;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Registro das compactações de partições (compactacao_log).
+ */
+@Repository
+public class CompactacaoRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CompactacaoRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long iniciar(Particao particao, String ordem, long bytesAntes) {
+        Long id = jdbcTemplate.queryForObject("""
+            INSERT INTO compactacao_log (particao, inicio, fim, ordem, status, bytes_antes)
+            VALUES (?, ?, ?, ?, 'EM_ANDAMENTO', ?) RETURNING id
+            """, Long.class, particao.nome(), data(particao.inicio()), data(particao.fim()), ordem, bytesAntes);
+        return id == null ? 0 : id;
+    }
+
+    public void concluir(long id, String status, Long linhas, Long bytesDepois, String erro) {
+        jdbcTemplate.update("""
+            UPDATE compactacao_log SET status = ?, linhas = ?, bytes_depois = ?, erro = ?, concluido_em = now()
+            WHERE id = ?
+            """, status, linhas, bytesDepois, erro, id);
+    }
+
+    /**
+     * Partições já compactadas com a faixa atual (uma partição recortada volta a ser candidata).
+     */
+    public Set<String> compactadas() {
+        Set<String> chaves = new HashSet<>();
+        jdbcTemplate.query("SELECT DISTINCT particao, inicio, fim FROM compactacao_log WHERE status = 'CONCLUIDA'",
+                rs -> {
+                    chaves.add(chave(rs.getString("particao"),
+                            rs.getObject("inicio", LocalDate.class), rs.getObject("fim", LocalDate.class)));
+                });
+        return chaves;
+    }
+
+    public static String chave(String particao, LocalDate inicio, LocalDate fim) {
+        return particao + "|" + inicio + "|" + fim;
+    }
+
+    private static Date data(LocalDate data) {
+        return data == null ? null : Date.valueOf(data);
+    }
+}
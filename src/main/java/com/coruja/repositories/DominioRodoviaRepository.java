@@ -0,0 +1,142 @@
+package com.coruja.repositories;
+
+import com.coruja.dto.KmRodoviaDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upserts em conjunto do domínio (rodovias e kms_rodovia): um comando por lote, com unnest de arrays.
+ * A unicidade fica no banco (ON CONFLICT DO NOTHING), então instâncias concorrentes não duplicam linhas.
+ * As entradas são ordenadas antes do INSERT para que transações concorrentes travem as chaves na mesma ordem.
+ */
+@Repository
+public class DominioRodoviaRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DominioRodoviaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record KmNovo(long rodoviaId, String valor) {}
+
+    /**
+     * Valores distintos de radars_cart.rodovia, como gravados (varredura "loose" de idx_radars_filtros_main:
+     * um salto no índice por rodovia, sem ler as passagens).
+     */
+    public List<String> rodoviasGravadas() {
+        return jdbcTemplate.queryForList("""
+            WITH RECURSIVE gravadas AS (
+                SELECT MIN(rodovia) AS rodovia FROM radars_cart
+                UNION ALL
+                SELECT (SELECT MIN(r.rodovia) FROM radars_cart r WHERE r.rodovia > g.rodovia)
+                FROM gravadas g WHERE g.rodovia IS NOT NULL
+            )
+            SELECT rodovia FROM gravadas WHERE rodovia IS NOT NULL
+            """, String.class);
+    }
+
+    /**
+     * Garante as rodovias e devolve nome -> id de todas elas (novas e já existentes).
+     */
+    public Map<String, Long> garantirRodovias(Collection<String> nomes) {
+        String[] array = nomes.stream().distinct().sorted().toArray(String[]::new);
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                WITH entrada AS (SELECT unnest(?::text[]) AS nome),
+                novas AS (
+                    INSERT INTO rodovias (nome)
+                    SELECT nome FROM entrada ORDER BY nome
+                    ON CONFLICT (nome) DO NOTHING
+                    RETURNING id, nome
+                )
+                SELECT id, nome FROM novas
+                UNION ALL
+                SELECT r.id, r.nome FROM rodovias r JOIN entrada e ON e.nome = r.nome
+                """);
+            ps.setArray(1, con.createArrayOf("text", array));
+            return ps;
+        }, rs -> {
+            ids.put(rs.getString("nome"), rs.getLong("id"));
+        });
+
+        // Rodovia gravada por outra instância depois do início do comando: o INSERT não a vê como nova
+        // e o SELECT ainda não a enxerga. Um novo comando (novo snapshot) resolve.
+        if (ids.size() < array.length) {
+            String[] faltantes = Arrays.stream(array).filter(n -> !ids.containsKey(n)).toArray(String[]::new);
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement("SELECT id, nome FROM rodovias WHERE nome = ANY(?::text[])");
+                ps.setArray(1, con.createArrayOf("text", faltantes));
+                return ps;
+            }, rs -> {
+                ids.put(rs.getString("nome"), rs.getLong("id"));
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Insere os KMs que ainda não existem (km_metros calculado pela mesma função da V14).
+     * Devolve apenas os que foram de fato inseridos por este comando.
+     */
+    public List<KmNovo> inserirKms(List<KmNovo> kms) {
+        List<KmNovo> ordenados = kms.stream()
+                .distinct()
+                .sorted(Comparator.comparingLong(KmNovo::rodoviaId).thenComparing(KmNovo::valor))
+                .toList();
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO kms_rodovia (rodovia_id, valor, km_metros)
+                SELECT k.rodovia_id, k.valor, radares_km_metros(k.valor)
+                FROM unnest(?::bigint[], ?::text[]) WITH ORDINALITY AS k(rodovia_id, valor, ordem)
+                ORDER BY k.ordem
+                ON CONFLICT (rodovia_id, valor) DO NOTHING
+                RETURNING rodovia_id, valor
+                """);
+            ps.setArray(1, con.createArrayOf("bigint", ordenados.stream().map(KmNovo::rodoviaId).toArray()));
+            ps.setArray(2, con.createArrayOf("text", ordenados.stream().map(KmNovo::valor).toArray()));
+            return ps;
+        }, (rs, i) -> new KmNovo(rs.getLong("rodovia_id"), rs.getString("valor")));
+    }
+
+    /**
+     * Versão atual do domínio (V16).
+     */
+    public long versao() {
+        Long versao = jdbcTemplate.queryForObject("SELECT versao FROM dominio_versao WHERE id = 1", Long.class);
+        return versao == null ? 0 : versao;
+    }
+
+    /**
+     * Incrementa a versão dentro da transação da alteração (a linha fica travada até o commit,
+     * o que também serializa alterações concorrentes do domínio).
+     */
+    public long incrementarVersao() {
+        Long versao = jdbcTemplate.queryForObject("UPDATE dominio_versao SET versao = versao + 1 WHERE id = 1 RETURNING versao", Long.class);
+        return versao == null ? 0 : versao;
+    }
+
+    /**
+     * Todos os KMs, em ordem numérica por rodovia (carga do snapshot em um único comando).
+     */
+    public List<KmRodoviaDTO> listarKms() {
+        return jdbcTemplate.query("""
+            SELECT id, valor, km_metros, rodovia_id FROM kms_rodovia
+            ORDER BY rodovia_id, km_metros NULLS LAST, valor
+            """, (rs, i) -> KmRodoviaDTO.builder()
+                .id(rs.getLong("id"))
+                .valor(rs.getString("valor"))
+                .kmMetros(rs.getObject("km_metros", Integer.class))
+                .rodoviaId(rs.getLong("rodovia_id"))
+                .build());
+    }
+}
@@ -0,0 +1,131 @@
+package com.coruja.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fila de arquivos do FTP (ftp_arquivos) compartilhada entre instâncias, separada por fonte de ingestão.
+ * Estados: ver {@link com.coruja.enums.EstadoArquivoFtp}.
+ */
+@Repository
+public class FtpArquivosRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FtpArquivosRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Registra os arquivos listados no FTP (os já conhecidos ficam como estão). Um comando por listagem.
+     */
+    public int registrar(String fonte, Map<String, LocalDate> arquivos, String estado) {
+        if (arquivos.isEmpty()) return 0;
+        List<String> nomes = arquivos.keySet().stream().sorted().toList();
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO ftp_arquivos (fonte, nome, data_arquivo, estado)
+                SELECT ?, a.nome, a.data_arquivo, ? FROM unnest(?::text[], ?::date[]) AS a(nome, data_arquivo)
+                ON CONFLICT (fonte, nome) DO NOTHING
+                """);
+            ps.setString(1, fonte);
+            ps.setString(2, estado);
+            ps.setArray(3, con.createArrayOf("text", nomes.toArray()));
+            ps.setArray(4, con.createArrayOf("date", nomes.stream().map(n -> Date.valueOf(arquivos.get(n))).toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Arquivos que estouraram as tentativas saem da fila.
+     */
+    public int marcarFalhas(String fonte, int maxTentativas, long ttlMs) {
+        return jdbcTemplate.update("""
+            UPDATE ftp_arquivos SET estado = 'FALHOU', dono = NULL
+            WHERE fonte = ? AND tentativas >= ?
+              AND (estado = 'PENDENTE' OR (estado = 'EM_PROCESSAMENTO' AND heartbeat_em < now() - ? * INTERVAL '1 millisecond'))
+            """, fonte, maxTentativas, ttlMs);
+    }
+
+    /**
+     * ✅ REIVINDICAÇÃO: até 'limite' arquivos pendentes ou abandonados (heartbeat vencido).
+     * SKIP LOCKED: instâncias concorrentes nunca esperam umas pelas outras nem pegam o mesmo arquivo.
+     */
+    public List<String> reivindicar(String fonte, String dono, int limite, long ttlMs) {
+        return jdbcTemplate.queryForList("""
+            UPDATE ftp_arquivos f
+               SET estado = 'EM_PROCESSAMENTO', dono = ?, heartbeat_em = now(), tentativas = f.tentativas + 1
+             WHERE f.fonte = ? AND f.nome IN (
+                   SELECT nome FROM ftp_arquivos
+                   WHERE fonte = ?
+                     AND (estado = 'PENDENTE'
+                          OR (estado = 'EM_PROCESSAMENTO' AND heartbeat_em < now() - ? * INTERVAL '1 millisecond'))
+                   ORDER BY data_arquivo, nome
+                   LIMIT ?
+                   FOR UPDATE SKIP LOCKED)
+            RETURNING f.nome
+            """, String.class, dono, fonte, fonte, ttlMs, limite);
+    }
+
+    public int heartbeat(String fonte, List<String> nomes, String dono) {
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                UPDATE ftp_arquivos SET heartbeat_em = now()
+                WHERE fonte = ? AND nome = ANY(?::text[]) AND dono = ? AND estado = 'EM_PROCESSAMENTO'
+                """);
+            ps.setString(1, fonte);
+            ps.setArray(2, con.createArrayOf("text", nomes.toArray()));
+            ps.setString(3, dono);
+            return ps;
+        });
+    }
+
+    /**
+     * Fencing: trava a linha do arquivo e confirma que ainda pertence a este dono.
+     * Usar na mesma transação da gravação das passagens.
+     */
+    public boolean confirmarDono(String fonte, String nome, String dono) {
+        return !jdbcTemplate.queryForList("""
+            SELECT 1 FROM ftp_arquivos WHERE fonte = ? AND nome = ? AND dono = ? AND estado = 'EM_PROCESSAMENTO' FOR UPDATE
+            """, Integer.class, fonte, nome, dono).isEmpty();
+    }
+
+    public void concluir(String fonte, String nome, int linhas) {
+        jdbcTemplate.update("""
+            UPDATE ftp_arquivos SET estado = 'CONCLUIDO', linhas = ?, erro = NULL, concluido_em = now()
+            WHERE fonte = ? AND nome = ?
+            """, linhas, fonte, nome);
+    }
+
+    /**
+     * Falha recuperável: o arquivo volta para a fila (qualquer instância pode pegar).
+     */
+    public void devolver(String fonte, String nome, String dono, String erro) {
+        jdbcTemplate.update("""
+            UPDATE ftp_arquivos SET estado = 'PENDENTE', dono = NULL, erro = ?
+            WHERE fonte = ? AND nome = ? AND dono = ? AND estado = 'EM_PROCESSAMENTO'
+            """, erro, fonte, nome, dono);
+    }
+
+    /**
+     * Arquivos pendentes ou em processamento por fonte (gauge de atraso da ingestão).
+     */
+    public Map<String, Long> pendentesPorFonte() {
+        Map<String, Long> pendentes = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT fonte, count(*) AS n FROM ftp_arquivos
+            WHERE estado IN ('PENDENTE', 'EM_PROCESSAMENTO')
+            GROUP BY fonte
+            """, rs -> {
+            pendentes.put(rs.getString("fonte"), rs.getLong("n"));
+        });
+        return pendentes;
+    }
+}
@@ -0,0 +1,71 @@
+package com.coruja.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Leases de jobs (job_lease). Todas as operações são um único comando atômico (sem transação explícita).
+ */
+@Repository
+public class JobLeaseRepository {
+
+    /**
+     * Condição de fencing para escritas de jobs: parâmetros (job, fatia, token).
+     * FOR SHARE faz a tomada do lease por outra instância esperar o commit da escrita em curso.
+     */
+    public static final String CERCA = """
+        EXISTS (SELECT 1 FROM job_lease l
+                WHERE l.job = ? AND l.fatia = ? AND l.token = ? AND l.expira_em > now()
+                FOR SHARE)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobLeaseRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Obtém o lease se estiver livre, expirado ou já for deste dono; cada aquisição gera um novo token.
+     */
+    public OptionalLong adquirir(String job, int fatia, String dono, long ttlMs) {
+        List<Long> token = jdbcTemplate.queryForList("""
+            INSERT INTO job_lease (job, fatia, dono, token, expira_em)
+            VALUES (?, ?, ?, 1, now() + ? * INTERVAL '1 millisecond')
+            ON CONFLICT (job, fatia) DO UPDATE
+               SET dono = EXCLUDED.dono, token = job_lease.token + 1,
+                   adquirido_em = now(), expira_em = EXCLUDED.expira_em
+             WHERE job_lease.expira_em <= now() OR job_lease.dono = EXCLUDED.dono
+            RETURNING token
+            """, Long.class, job, fatia, dono, ttlMs);
+        return token.isEmpty() ? OptionalLong.empty() : OptionalLong.of(token.get(0));
+    }
+
+    /**
+     * Estende o lease; false = o lease não é mais deste token (expirou e foi tomado).
+     */
+    public boolean renovar(String job, int fatia, long token, long ttlMs) {
+        return jdbcTemplate.update("""
+            UPDATE job_lease SET expira_em = now() + ? * INTERVAL '1 millisecond'
+            WHERE job = ? AND fatia = ? AND token = ? AND expira_em > now()
+            """, ttlMs, job, fatia, token) == 1;
+    }
+
+    public boolean valido(String job, int fatia, long token) {
+        Boolean ok = jdbcTemplate.queryForObject("""
+            SELECT EXISTS (SELECT 1 FROM job_lease WHERE job = ? AND fatia = ? AND token = ? AND expira_em > now())
+            """, Boolean.class, job, fatia, token);
+        return Boolean.TRUE.equals(ok);
+    }
+
+    /**
+     * Libera o lease (expira agora); a linha fica para preservar a sequência de tokens.
+     */
+    public void liberar(String job, int fatia, long token) {
+        jdbcTemplate.update("UPDATE job_lease SET expira_em = now() WHERE job = ? AND fatia = ? AND token = ?",
+                job, fatia, token);
+    }
+}
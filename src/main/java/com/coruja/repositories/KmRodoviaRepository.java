@@ -9,4 +9,7 @@ import java.util.List;
 @Repository
 public interface KmRodoviaRepository extends JpaRepository<KmRodovia, Long> {
     List<KmRodovia> findByRodoviaId(Long rodoviaId);
+
+    // Ordem numérica pelo índice (rodovia_id, km_metros)
+    List<KmRodovia> findByRodoviaIdOrderByKmMetrosAscValorAsc(Long rodoviaId);
 }
@@ -0,0 +1,177 @@
+package com.coruja.repositories;
+
+import com.coruja.utils.HistogramaViagem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistência da matriz origem-destino por hora (origem_destino_hora).
+ */
+@Repository
+public class OrigemDestinoRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrigemDestinoRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Chave(LocalDate data, int hora, String origem, String destino) implements Comparable<Chave> {
+        // Ordem estável de locks no upsert (mesmo critério do rollup horário)
+        @Override
+        public int compareTo(Chave o) {
+            int c = data.compareTo(o.data);
+            if (c != 0) return c;
+            c = Integer.compare(hora, o.hora);
+            if (c != 0) return c;
+            c = origem.compareTo(o.origem);
+            if (c != 0) return c;
+            return destino.compareTo(o.destino);
+        }
+    }
+
+    /**
+     * Acumulador de um par origem-destino.
+     */
+    public static final class Acumulado {
+        private long viagens;
+        private long somaSegundos;
+        private final long[] histograma = new long[HistogramaViagem.FAIXAS];
+
+        public void adicionar(long segundos) {
+            viagens++;
+            somaSegundos += segundos;
+            histograma[HistogramaViagem.faixa(segundos)]++;
+        }
+
+        public long viagens() {
+            return viagens;
+        }
+
+        public long somaSegundos() {
+            return somaSegundos;
+        }
+
+        public long[] histograma() {
+            return histograma;
+        }
+    }
+
+    /**
+     * ✅ UPSERT INCREMENTAL: soma viagens, tempos e histogramas (elemento a elemento).
+     * As chaves devem chegar ordenadas.
+     */
+    public void incrementar(List<Map.Entry<Chave, Acumulado>> agregados) {
+        String sql = """
+            INSERT INTO origem_destino_hora (data, hora, praca_origem, praca_destino, viagens, soma_segundos, histograma)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (data, hora, praca_origem, praca_destino)
+            DO UPDATE SET viagens = origem_destino_hora.viagens + EXCLUDED.viagens,
+                          soma_segundos = origem_destino_hora.soma_segundos + EXCLUDED.soma_segundos,
+                          histograma = ARRAY(
+                              SELECT a + b FROM unnest(origem_destino_hora.histograma, EXCLUDED.histograma) AS t(a, b)
+                          ),
+                          atualizado_em = now()
+            """;
+        jdbcTemplate.batchUpdate(sql, agregados, 500, (ps, e) -> {
+            Chave k = e.getKey();
+            Acumulado a = e.getValue();
+            ps.setDate(1, Date.valueOf(k.data()));
+            ps.setShort(2, (short) k.hora());
+            ps.setString(3, k.origem());
+            ps.setString(4, k.destino());
+            ps.setLong(5, a.viagens());
+            ps.setLong(6, a.somaSegundos());
+            ps.setArray(7, ps.getConnection().createArrayOf("bigint", boxed(a.histograma())));
+        });
+    }
+
+    public void apagarDia(LocalDate dia) {
+        jdbcTemplate.update("DELETE FROM origem_destino_hora WHERE data = ?", Date.valueOf(dia));
+    }
+
+    /**
+     * Percorre as passagens de {@code dia} até {@code ate} (inclusive) ordenadas por placa e horário (cursor com
+     * fetch size, sem materializar o dia em memória). O trecho após o dia fecha viagens que viram a meia-noite.
+     * Deve rodar dentro de transação (exigência do driver para cursor).
+     */
+    public void percorrerPassagens(LocalDate dia, LocalDateTime ate, PassagemConsumer consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT placa, data, hora, praca
+                FROM radars_cart
+                WHERE data BETWEEN ? AND ? AND data + hora <= ?
+                ORDER BY placa, data, hora
+                """);
+            ps.setDate(1, Date.valueOf(dia));
+            ps.setDate(2, Date.valueOf(ate.toLocalDate()));
+            ps.setTimestamp(3, Timestamp.valueOf(ate));
+            ps.setFetchSize(5000);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(
+                rs.getString("placa"),
+                rs.getObject("data", LocalDate.class),
+                rs.getObject("hora", LocalTime.class),
+                rs.getString("praca")));
+    }
+
+    @FunctionalInterface
+    public interface PassagemConsumer {
+        void accept(String placa, LocalDate data, LocalTime hora, String praca);
+    }
+
+    /**
+     * Soma o período por par, faixa a faixa (unnest WITH ORDINALITY), sem trazer as linhas horárias.
+     */
+    public void somarPeriodo(LocalDate dataInicial, LocalDate dataFinal, int horaInicial, int horaFinal,
+                             String origem, String destino, FaixaConsumer consumer) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT od.praca_origem, od.praca_destino, f.faixa,
+                   SUM(f.contagem) AS contagem,
+                   SUM(CASE WHEN f.faixa = 1 THEN od.soma_segundos ELSE 0 END) AS soma_segundos
+            FROM origem_destino_hora od
+            CROSS JOIN LATERAL unnest(od.histograma) WITH ORDINALITY AS f(contagem, faixa)
+            WHERE od.data BETWEEN ? AND ?
+              AND od.hora BETWEEN ? AND ?
+            """);
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(dataInicial), Date.valueOf(dataFinal), horaInicial, horaFinal));
+        if (origem != null) {
+            sql.append(" AND od.praca_origem = ?");
+            args.add(origem);
+        }
+        if (destino != null) {
+            sql.append(" AND od.praca_destino = ?");
+            args.add(destino);
+        }
+        sql.append(" GROUP BY od.praca_origem, od.praca_destino, f.faixa");
+
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> consumer.accept(
+                rs.getString("praca_origem"),
+                rs.getString("praca_destino"),
+                rs.getInt("faixa") - 1,
+                rs.getLong("contagem"),
+                rs.getLong("soma_segundos")), args.toArray());
+    }
+
+    @FunctionalInterface
+    public interface FaixaConsumer {
+        void accept(String origem, String destino, int faixa, long contagem, long somaSegundos);
+    }
+
+    private static Long[] boxed(long[] valores) {
+        Long[] r = new Long[valores.length];
+        for (int i = 0; i < valores.length; i++) r[i] = valores[i];
+        return r;
+    }
+}
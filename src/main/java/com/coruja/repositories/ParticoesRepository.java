@@ -0,0 +1,330 @@
+package com.coruja.repositories;
+
+import com.coruja.dto.RadarsDTO;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Catálogo das partições de radars_cart lido do próprio Postgres (pg_inherits + limites da partição).
+ * Permite direcionar consultas para as partições relevantes de um intervalo de datas
+ * e executa o DDL do gerenciador de partições (criar, anexar, desanexar, remover) e da compactação.
+ */
+@Repository
+public class ParticoesRepository {
+
+    private static final Pattern LIMITES = Pattern.compile(
+            "FOR VALUES FROM \\((MINVALUE|'([0-9-]+)')\\) TO \\((MAXVALUE|'([0-9-]+)')\\)");
+
+    private static final int LOTE_LEITURA = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ParticoesRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param inicio inclusivo; null = MINVALUE
+     * @param fim    exclusivo; null = MAXVALUE
+     */
+    public record Particao(String nome, LocalDate inicio, LocalDate fim, boolean padrao) {
+
+        /**
+         * A partição DEFAULT pode conter qualquer data: sempre é considerada.
+         */
+        public boolean intersecta(LocalDate dataInicial, LocalDate dataFinal) {
+            if (padrao) return true;
+            boolean depoisDoInicio = fim == null || dataInicial == null || dataInicial.isBefore(fim);
+            boolean antesDoFim = inicio == null || dataFinal == null || !dataFinal.isBefore(inicio);
+            return depoisDoInicio && antesDoFim;
+        }
+    }
+
+    /**
+     * Partições de radars_cart, da mais recente para a mais antiga (DEFAULT por último).
+     */
+    public List<Particao> listar() {
+        return jdbcTemplate.query("""
+                SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS limites
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'radars_cart'::regclass
+                """, (rs, i) -> parse(rs.getString("relname"), rs.getString("limites")))
+                .stream()
+                .sorted(Comparator.comparing(Particao::padrao)
+                        .thenComparing(Particao::inicio, Comparator.nullsLast(Comparator.reverseOrder())))
+                .toList();
+    }
+
+    /**
+     * Partição com estimativas do catálogo (reltuples atualizado por ANALYZE/autovacuum) e tamanho em disco.
+     */
+    public record Saude(Particao particao, long linhasEstimadas, long tamanhoBytes) { }
+
+    public List<Saude> saude() {
+        return jdbcTemplate.query("""
+                SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS limites,
+                       GREATEST(c.reltuples, 0)::bigint AS linhas, pg_total_relation_size(c.oid) AS bytes
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'radars_cart'::regclass
+                """, (rs, i) -> new Saude(parse(rs.getString("relname"), rs.getString("limites")),
+                        rs.getLong("linhas"), rs.getLong("bytes")))
+                .stream()
+                .sorted(Comparator.comparing((Saude s) -> s.particao().padrao())
+                        .thenComparing(s -> s.particao().inicio(), Comparator.nullsLast(Comparator.reverseOrder())))
+                .toList();
+    }
+
+    /**
+     * Existe alguma linha na partição em [inicio, fim)? (null = sem limite)
+     */
+    public boolean temLinhas(String particao, LocalDate inicio, LocalDate fim) {
+        StringBuilder sql = new StringBuilder("SELECT EXISTS (SELECT 1 FROM ").append(identificador(particao)).append(" WHERE true");
+        List<Object> args = new ArrayList<>();
+        if (inicio != null) {
+            sql.append(" AND data >= ?");
+            args.add(Date.valueOf(inicio));
+        }
+        if (fim != null) {
+            sql.append(" AND data < ?");
+            args.add(Date.valueOf(fim));
+        }
+        sql.append(")");
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql.toString(), Boolean.class, args.toArray()));
+    }
+
+    /**
+     * Dias distintos presentes na partição (ex: DEFAULT a esvaziar, tabela desanexada a exportar).
+     */
+    public List<LocalDate> diasNaParticao(String particao) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT data FROM " + identificador(particao) + " ORDER BY data", LocalDate.class);
+    }
+
+    /**
+     * Linhas da partição (ou tabela desanexada) no dia; dia null = todas.
+     */
+    public long contarLinhas(String particao, LocalDate dia) {
+        String sql = "SELECT COUNT(*) FROM " + identificador(particao) + (dia == null ? "" : " WHERE data = ?");
+        Long total = dia == null
+                ? jdbcTemplate.queryForObject(sql, Long.class)
+                : jdbcTemplate.queryForObject(sql, Long.class, Date.valueOf(dia));
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Percorre as linhas do dia ordenadas por (placa, hora) sem carregar o dia em memória.
+     * Deve rodar em transação: com autocommit desligado o driver busca em lotes (cursor no servidor).
+     */
+    public void percorrerDia(String particao, LocalDate dia, Consumer<RadarsDTO> consumidor) {
+        String sql = "SELECT " + RadarsLeituraRepository.COLUNAS + " FROM " + identificador(particao)
+                + " r WHERE r.data = ? ORDER BY r.placa COLLATE \"C\", r.hora";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(LOTE_LEITURA);
+            ps.setDate(1, Date.valueOf(dia));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumidor.accept(RadarsLeituraRepository.MAPPER.mapRow(rs, 0)));
+    }
+
+    /**
+     * Cria a partição [inicio, fim) já populada com as linhas dessa faixa que estavam na DEFAULT.
+     * Tabela avulsa -> move as linhas -> ATTACH: a varredura de validação da DEFAULT encontra a faixa vazia.
+     * Deve rodar em transação (as linhas nunca ficam fora de radars_cart para quem lê).
+     * @return linhas movidas da DEFAULT
+     */
+    public int criarMovendoDoPadrao(String nome, LocalDate inicio, LocalDate fim, String padrao) {
+        String tabela = identificador(nome);
+        jdbcTemplate.execute("CREATE TABLE " + tabela + " (LIKE radars_cart INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int movidas = 0;
+        if (padrao != null) {
+            movidas = jdbcTemplate.update("WITH movidas AS (DELETE FROM " + identificador(padrao)
+                    + " WHERE data >= ? AND data < ? RETURNING *) INSERT INTO " + tabela + " SELECT * FROM movidas",
+                    Date.valueOf(inicio), Date.valueOf(fim));
+        }
+        anexar(nome, inicio, fim);
+        return movidas;
+    }
+
+    /**
+     * CHECK NOT VALID com a nova faixa: validado depois sem bloquear escrita, evita a varredura no ATTACH.
+     */
+    public void adicionarLimite(String particao, String constraint, LocalDate inicio, LocalDate fim) {
+        String tabela = identificador(particao);
+        jdbcTemplate.execute("ALTER TABLE " + tabela + " DROP CONSTRAINT IF EXISTS " + identificador(constraint));
+        String condicao = (inicio == null ? "" : "data >= DATE '" + inicio + "' AND ") + "data < DATE '" + fim + "'";
+        jdbcTemplate.execute("ALTER TABLE " + tabela + " ADD CONSTRAINT " + identificador(constraint)
+                + " CHECK (" + condicao + ") NOT VALID");
+    }
+
+    public void validarLimite(String particao, String constraint) {
+        jdbcTemplate.execute("ALTER TABLE " + identificador(particao) + " VALIDATE CONSTRAINT " + identificador(constraint));
+    }
+
+    public void desanexar(String particao) {
+        jdbcTemplate.execute("ALTER TABLE radars_cart DETACH PARTITION " + identificador(particao));
+    }
+
+    public void anexar(String particao, LocalDate inicio, LocalDate fim) {
+        jdbcTemplate.execute("ALTER TABLE radars_cart ATTACH PARTITION " + identificador(particao)
+                + " FOR VALUES FROM (" + limite(inicio, "MINVALUE") + ") TO (" + limite(fim, "MAXVALUE") + ")");
+    }
+
+    public void remover(String particao) {
+        jdbcTemplate.execute("DROP TABLE " + identificador(particao));
+    }
+
+    public long tamanhoBytes(String particao) {
+        Long bytes = jdbcTemplate.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, identificador(particao));
+        return bytes == null ? 0 : bytes;
+    }
+
+    // ==================== COMPACTAÇÃO ====================
+
+    /**
+     * Bloqueia escrita na partição até o fim da transação (leituras continuam).
+     */
+    public void travarEscrita(String particao) {
+        jdbcTemplate.execute("LOCK TABLE " + identificador(particao) + " IN SHARE MODE");
+    }
+
+    /**
+     * Tabela avulsa com as colunas, CHECKs e índices de radars_cart (o ATTACH reaproveita os índices em vez de criá-los).
+     */
+    public void criarCopia(String nome) {
+        jdbcTemplate.execute("CREATE TABLE " + identificador(nome)
+                + " (LIKE radars_cart INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING INDEXES)");
+    }
+
+    /**
+     * Passa a registrar em 'delta' as linhas inseridas, alteradas ou removidas na partição (gatilho de V20).
+     */
+    public void registrarDelta(String particao, String delta, String gatilho) {
+        jdbcTemplate.execute("CREATE TABLE " + identificador(delta) + " (id BIGINT NOT NULL, data DATE NOT NULL)");
+        jdbcTemplate.execute("CREATE TRIGGER " + identificador(gatilho) + " AFTER INSERT OR UPDATE OR DELETE ON "
+                + identificador(particao) + " FOR EACH ROW EXECUTE FUNCTION radares_compactacao_delta('"
+                + delta.replace("'", "''") + "')");
+    }
+
+    /**
+     * Cópia de um dia, sem lock na origem (lote da compactação).
+     * @param ordem colunas do ORDER BY (ex: "data, rodovia, km, hora")
+     * @return linhas copiadas
+     */
+    public int copiarDiaOrdenado(String origem, String destino, LocalDate dia, String ordem) {
+        return jdbcTemplate.update("INSERT INTO " + identificador(destino) + " SELECT * FROM " + identificador(origem)
+                + " WHERE data = ? ORDER BY " + ordem, Date.valueOf(dia));
+    }
+
+    /**
+     * Reaplica na cópia as linhas registradas no delta: remove as versões copiadas e insere as atuais da origem.
+     * @return saldo de linhas (inseridas - removidas)
+     */
+    public int aplicarDelta(String origem, String destino, String delta) {
+        String chaves = "(SELECT DISTINCT id, data FROM " + identificador(delta) + ")";
+        int removidas = jdbcTemplate.update("DELETE FROM " + identificador(destino) + " c USING " + chaves
+                + " d WHERE c.id = d.id AND c.data = d.data");
+        int inseridas = jdbcTemplate.update("INSERT INTO " + identificador(destino) + " SELECT o.* FROM "
+                + identificador(origem) + " o JOIN " + chaves + " d ON o.id = d.id AND o.data = d.data");
+        return inseridas - removidas;
+    }
+
+    /**
+     * Desfaz uma compactação incompleta: gatilho na origem, cópia e delta.
+     */
+    public void descartarCopia(String particao, String copia, String delta, String gatilho) {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + identificador(gatilho) + " ON " + identificador(particao));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + identificador(copia) + ", " + identificador(delta));
+    }
+
+    /**
+     * Replica as FKs de radars_cart na tabela avulsa: no ATTACH elas são reaproveitadas, sem validação sob lock.
+     */
+    public void copiarChavesEstrangeiras(String tabela) {
+        List<String> definicoes = jdbcTemplate.queryForList("""
+                SELECT pg_get_constraintdef(oid) FROM pg_constraint
+                WHERE conrelid = 'radars_cart'::regclass AND contype = 'f'
+                """, String.class);
+        for (String definicao : definicoes) {
+            jdbcTemplate.execute("ALTER TABLE " + identificador(tabela) + " ADD " + definicao);
+        }
+    }
+
+    public void criarBrin(String tabela, String indice) {
+        jdbcTemplate.execute("CREATE INDEX " + identificador(indice) + " ON " + identificador(tabela)
+                + " USING brin (data, hora) WITH (pages_per_range = 32)");
+    }
+
+    public void renomear(String tabela, String novoNome) {
+        jdbcTemplate.execute("ALTER TABLE " + identificador(tabela) + " RENAME TO " + identificador(novoNome));
+    }
+
+    public void renomearIndice(String indice, String novoNome) {
+        jdbcTemplate.execute("ALTER INDEX " + identificador(indice) + " RENAME TO " + identificador(novoNome));
+    }
+
+    /**
+     * VACUUM (FREEZE, ANALYZE) com atraso por custo na própria sessão. Não pode rodar em transação.
+     */
+    public void congelar(String tabela, int atrasoCustoMs) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (Statement st = con.createStatement()) {
+                st.execute("SET vacuum_cost_delay = " + Math.max(0, atrasoCustoMs));
+                try {
+                    st.execute("VACUUM (FREEZE, ANALYZE) " + identificador(tabela));
+                } finally {
+                    st.execute("RESET vacuum_cost_delay");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Trava da manutenção na transação corrente (outra instância no mesmo passo simplesmente pula).
+     */
+    public boolean travarManutencao(long chave) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, chave));
+    }
+
+    /**
+     * Limita a espera por locks do DDL na transação corrente: melhor adiar a manutenção que enfileirar a ingestão.
+     */
+    public void limitarEsperaPorLock(long milissegundos) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + milissegundos + "ms'");
+    }
+
+    private static String limite(LocalDate data, String semLimite) {
+        return data == null ? semLimite : "'" + data + "'";
+    }
+
+    private static String identificador(String nome) {
+        return "\"" + nome.replace("\"", "\"\"") + "\"";
+    }
+
+    static Particao parse(String nome, String limites) {
+        if (limites == null || limites.trim().equalsIgnoreCase("DEFAULT")) {
+            return new Particao(nome, null, null, true);
+        }
+        Matcher m = LIMITES.matcher(limites.trim());
+        if (!m.matches()) {
+            throw new IllegalStateException("Limites de partição não reconhecidos em " + nome + ": " + limites);
+        }
+        LocalDate inicio = m.group(2) == null ? null : LocalDate.parse(m.group(2));
+        LocalDate fim = m.group(4) == null ? null : LocalDate.parse(m.group(4));
+        return new Particao(nome, inicio, fim, false);
+    }
+}
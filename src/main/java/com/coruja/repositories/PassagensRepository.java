@@ -0,0 +1,282 @@
+package com.coruja.repositories;
+
+import com.coruja.dto.RadarsDTO;
+import com.coruja.utils.CursorPassagem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leituras JDBC de passagens brutas (radars_cart) sem carregar entidades.
+ * Todas as consultas filtram por intervalo de data para o planner podar partições.
+ */
+@Repository
+public class PassagensRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PassagensRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Passagem(long id, LocalDate data, LocalTime hora, String placa, String praca,
+                           String rodovia, String km, String sentido, Long localizacaoId) { }
+
+    private static final RowMapper<Passagem> MAPPER = (rs, i) -> new Passagem(
+            rs.getLong("id"),
+            rs.getObject("data", LocalDate.class),
+            rs.getObject("hora", LocalTime.class),
+            rs.getString("placa"),
+            rs.getString("praca"),
+            rs.getString("rodovia"),
+            rs.getString("km"),
+            rs.getString("sentido"),
+            rs.getObject("localizacao_id", Long.class));
+
+    /**
+     * Passagens de uma placa (igualdade exata) em ordem cronológica.
+     * Usa idx_radars_placa_data_hora; duplicatas da ingestão (mesma data/hora/praça) são descartadas.
+     */
+    public List<Passagem> listarPorPlaca(String placa, LocalDate dataInicial, LocalDate dataFinal, int limite) {
+        return listarPorPlaca(placa, dataInicial, dataFinal, null, limite);
+    }
+
+    /**
+     * @param dias se informado, restringe aos dias da lista (ex: dias possíveis segundo os filtros de Bloom)
+     */
+    public List<Passagem> listarPorPlaca(String placa, LocalDate dataInicial, LocalDate dataFinal,
+                                         List<LocalDate> dias, int limite) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT DISTINCT ON (r.data, r.hora, r.praca)
+                       r.id, r.data, r.hora, r.placa, r.praca, r.rodovia, r.km, r.sentido, r.localizacao_id
+                FROM radars_cart r
+                WHERE r.placa = ?
+                  AND r.data BETWEEN ? AND ?
+                """ + (dias == null ? "" : " AND r.data = ANY(?)") + """
+                 ORDER BY r.data, r.hora, r.praca
+                 LIMIT ?
+                """);
+            int i = 1;
+            ps.setString(i++, placa);
+            ps.setDate(i++, Date.valueOf(dataInicial));
+            ps.setDate(i++, Date.valueOf(dataFinal));
+            if (dias != null) {
+                ps.setArray(i++, con.createArrayOf("date", dias.stream().map(Date::valueOf).toArray()));
+            }
+            ps.setInt(i, limite);
+            return ps;
+        }, MAPPER);
+    }
+
+    /**
+     * Janela de uma busca por placa do mais recente para o mais antigo, retomando após o cursor (keyset).
+     * @param exata true = placa = ? (B-Tree); false = ILIKE '%placa%' (GIN de trigramas)
+     * @param dias  se informado, restringe aos dias da lista (filtros de Bloom)
+     */
+    public List<RadarsDTO> listarPorPlacaNaJanela(String placa, boolean exata, LocalDate de, LocalDate ate,
+                                                  List<LocalDate> dias, CursorPassagem cursor, int limite) {
+        String sql = "SELECT DISTINCT ON (r.data, r.hora, r.placa) " + RadarsLeituraRepository.COLUNAS
+                + " FROM radars_cart r WHERE r.data BETWEEN ? AND ?"
+                + (dias != null ? " AND r.data = ANY(?)" : "")
+                + (exata ? " AND r.placa = ?" : " AND r.placa ILIKE CONCAT('%', ?, '%')")
+                + (cursor != null ? RadarsLeituraRepository.aposCursor(cursor) : "")
+                + RadarsLeituraRepository.ORDEM_MAIS_RECENTE + " LIMIT ?";
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = 1;
+            ps.setDate(i++, Date.valueOf(de));
+            ps.setDate(i++, Date.valueOf(ate));
+            if (dias != null) ps.setArray(i++, con.createArrayOf("date", dias.stream().map(Date::valueOf).toArray()));
+            ps.setString(i++, placa);
+            if (cursor != null) i = RadarsLeituraRepository.vincularCursor(ps, i, cursor);
+            ps.setInt(i, limite);
+            return ps;
+        }, RadarsLeituraRepository.MAPPER);
+    }
+
+    /**
+     * Menor e maior data existentes (min/max por partição via índice cronológico).
+     */
+    public LocalDate[] limitesDeData() {
+        return jdbcTemplate.queryForObject("SELECT MIN(data) AS minima, MAX(data) AS maxima FROM radars_cart",
+                (rs, i) -> new LocalDate[]{rs.getObject("minima", LocalDate.class), rs.getObject("maxima", LocalDate.class)});
+    }
+
+    public record Vizinho(String placa, LocalDateTime instante) { }
+
+    /**
+     * Outras placas que passaram na mesma praça em [inicio, fim].
+     * Janelas que cruzam a meia-noite viram uma consulta por dia (cada uma cai em uma única partição).
+     */
+    public List<Vizinho> listarVizinhos(String praca, LocalDateTime inicio, LocalDateTime fim, String placaExcluida) {
+        List<Vizinho> vizinhos = new ArrayList<>();
+        for (LocalDate dia = inicio.toLocalDate(); !dia.isAfter(fim.toLocalDate()); dia = dia.plusDays(1)) {
+            LocalTime de = dia.equals(inicio.toLocalDate()) ? inicio.toLocalTime() : LocalTime.MIN;
+            LocalTime ate = dia.equals(fim.toLocalDate()) ? fim.toLocalTime() : LocalTime.MAX;
+            LocalDate d = dia;
+            vizinhos.addAll(jdbcTemplate.query("""
+                SELECT DISTINCT r.placa, r.hora
+                FROM radars_cart r
+                WHERE r.praca = ?
+                  AND r.data = ?
+                  AND r.hora BETWEEN ? AND ?
+                  AND r.placa <> ?
+                """, (rs, i) -> new Vizinho(rs.getString("placa"), LocalDateTime.of(d, rs.getObject("hora", LocalTime.class))),
+                    praca, Date.valueOf(d), de, ate, placaExcluida));
+        }
+        return vizinhos;
+    }
+
+    /**
+     * Passagens de um conjunto de placas em UMA partição (nome vindo do catálogo do Postgres),
+     * agrupadas por placa e da mais recente para a mais antiga.
+     */
+    public void listarPorPlacasNaParticao(String particao, List<String> placas, LocalDate dataInicial, LocalDate dataFinal,
+                                          PassagemConsumer consumer) {
+        String filtros = filtroPlacas(dataInicial, dataFinal);
+
+        String sql = """
+            SELECT r.id, r.data, r.hora, r.placa, r.praca, r.rodovia, r.km, r.sentido, r.localizacao_id
+            FROM %s r %s
+            ORDER BY r.placa, r.data DESC, r.hora DESC
+            """.formatted(identificador(particao), filtros);
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            vincularPlacas(ps, placas, dataInicial, dataFinal);
+            ps.setFetchSize(2000);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(MAPPER.mapRow(rs, 0)));
+    }
+
+    /**
+     * Resumo por placa em UMA partição: total, primeira e última passagem.
+     */
+    public void resumirPorPlacasNaParticao(String particao, List<String> placas, LocalDate dataInicial, LocalDate dataFinal,
+                                           ResumoConsumer consumer) {
+        String filtros = filtroPlacas(dataInicial, dataFinal);
+        String tabela = identificador(particao);
+
+        String sql = """
+            WITH alvo AS (
+                SELECT r.id, r.data, r.hora, r.placa, r.praca, r.rodovia, r.km, r.sentido, r.localizacao_id
+                FROM %s r %s
+            ),
+            totais AS (SELECT placa, COUNT(*) AS total FROM alvo GROUP BY placa),
+            ultimas AS (SELECT DISTINCT ON (placa) * FROM alvo ORDER BY placa, data DESC, hora DESC),
+            primeiras AS (SELECT DISTINCT ON (placa) * FROM alvo ORDER BY placa, data, hora)
+            SELECT t.total,
+                   u.id, u.data, u.hora, u.placa, u.praca, u.rodovia, u.km, u.sentido, u.localizacao_id,
+                   p.id AS p_id, p.data AS p_data, p.hora AS p_hora, p.praca AS p_praca, p.rodovia AS p_rodovia,
+                   p.km AS p_km, p.sentido AS p_sentido, p.localizacao_id AS p_localizacao_id
+            FROM totais t
+            JOIN ultimas u ON u.placa = t.placa
+            JOIN primeiras p ON p.placa = t.placa
+            """.formatted(tabela, filtros);
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            vincularPlacas(ps, placas, dataInicial, dataFinal);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Passagem ultima = MAPPER.mapRow(rs, 0);
+            Passagem primeira = new Passagem(
+                    rs.getLong("p_id"),
+                    rs.getObject("p_data", LocalDate.class),
+                    rs.getObject("p_hora", LocalTime.class),
+                    ultima.placa(),
+                    rs.getString("p_praca"),
+                    rs.getString("p_rodovia"),
+                    rs.getString("p_km"),
+                    rs.getString("p_sentido"),
+                    rs.getObject("p_localizacao_id", Long.class));
+            consumer.accept(rs.getLong("total"), primeira, ultima);
+        });
+    }
+
+    public record PlacaCandidata(String placa, long total, LocalDateTime ultimaPassagem) { }
+
+    /**
+     * Placas cuja forma normalizada (placa_confusivel) é igual ao valor ou casa com o LIKE.
+     * A expressão precisa ser idêntica à dos índices idx_radars_placa_confusivel*.
+     * O LIMIT corta depois do ranking (trocas confundíveis em relação ao digitado, depois passagens): padrões
+     * amplos devolvem as melhores candidatas, não um subconjunto qualquer.
+     * @param digitado padrão limpo, antes da normalização ('?' e '*' como curingas)
+     */
+    public List<PlacaCandidata> buscarPlacasConfusiveis(String valor, boolean like, String digitado, LocalDate dataInicial,
+                                                        LocalDate dataFinal, int limite) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT r.placa, COUNT(*) AS total, MAX(r.data + r.hora) AS ultima
+            FROM radars_cart r
+            WHERE placa_confusivel(r.placa)""").append(like ? " LIKE ?" : " = ?");
+        List<Object> args = new ArrayList<>(List.of(valor));
+        if (dataInicial != null) {
+            sql.append(" AND r.data >= ?");
+            args.add(Date.valueOf(dataInicial));
+        }
+        if (dataFinal != null) {
+            sql.append(" AND r.data <= ?");
+            args.add(Date.valueOf(dataFinal));
+        }
+        sql.append(" GROUP BY r.placa ORDER BY ");
+        if (digitado.indexOf('*') < 0) {
+            // Curingas só posicionais: conta as posições fixas em que a placa difere do digitado
+            sql.append("""
+                (SELECT COUNT(*) FROM generate_series(1, length(?)) AS i
+                 WHERE substr(?, i, 1) <> '?' AND substr(r.placa, i, 1) <> substr(?, i, 1))""");
+            args.addAll(List.of(digitado, digitado, digitado));
+        } else {
+            // Com '*' as posições não se alinham: a grafia exata digitada vem antes das variantes
+            sql.append("(r.placa NOT LIKE ?)");
+            args.add(digitado.replace('?', '_').replace('*', '%'));
+        }
+        sql.append(", COUNT(*) DESC, r.placa LIMIT ?");
+        args.add(limite);
+
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> new PlacaCandidata(
+                rs.getString("placa"), rs.getLong("total"), rs.getObject("ultima", LocalDateTime.class)), args.toArray());
+    }
+
+    @FunctionalInterface
+    public interface PassagemConsumer {
+        void accept(Passagem passagem);
+    }
+
+    @FunctionalInterface
+    public interface ResumoConsumer {
+        void accept(long total, Passagem primeira, Passagem ultima);
+    }
+
+    private static String filtroPlacas(LocalDate dataInicial, LocalDate dataFinal) {
+        return " WHERE r.placa = ANY(?)"
+                + (dataInicial != null ? " AND r.data >= ?" : "")
+                + (dataFinal != null ? " AND r.data <= ?" : "");
+    }
+
+    private static void vincularPlacas(PreparedStatement ps, List<String> placas, LocalDate dataInicial, LocalDate dataFinal)
+            throws SQLException {
+        int i = 1;
+        ps.setArray(i++, ps.getConnection().createArrayOf("varchar", placas.toArray()));
+        if (dataInicial != null) ps.setDate(i++, Date.valueOf(dataInicial));
+        if (dataFinal != null) ps.setDate(i, Date.valueOf(dataFinal));
+    }
+
+    /**
+     * Nome de tabela entre aspas (vem do catálogo, mas nunca é concatenado cru).
+     */
+    private static String identificador(String nome) {
+        return "\"" + nome.replace("\"", "\"\"") + "\"";
+    }
+}
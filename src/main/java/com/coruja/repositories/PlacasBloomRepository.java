@@ -0,0 +1,113 @@
+package com.coruja.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Persistência dos filtros de Bloom diários de placas (placas_bloom_dia).
+ * A linha do dia é o ponto de sincronização entre a construção e a ingestão atrasada:
+ * ambas escrevem/travam a mesma linha, então nenhuma placa gravada fica fora do filtro.
+ */
+@Repository
+public class PlacasBloomRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PlacasBloomRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Entrada(LocalDate data, long versao, boolean construido) { }
+
+    public record Filtro(long versao, byte[] dados) { }
+
+    /**
+     * Marca os dias como pendentes (dado novo em dia já fechado). Roda na transação da ingestão:
+     * se a construção do dia estiver em andamento, espera ela terminar e a invalida em seguida.
+     */
+    public void invalidar(Collection<LocalDate> dias) {
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO placas_bloom_dia (data) VALUES (?)
+            ON CONFLICT (data) DO UPDATE SET filtro = NULL, total_placas = 0,
+                                             versao = nextval('placas_bloom_versao'), atualizado_em = now()
+            """, new ArrayList<>(dias), 100, (ps, dia) -> ps.setDate(1, Date.valueOf(dia)));
+    }
+
+    /**
+     * Dias fechados no intervalo com passagens e sem filtro válido.
+     */
+    public List<LocalDate> diasPendentes(LocalDate de, LocalDate ate) {
+        return jdbcTemplate.query("""
+            SELECT d::date AS dia
+            FROM generate_series(?::date, ?::date, interval '1 day') d
+            LEFT JOIN placas_bloom_dia b ON b.data = d::date
+            WHERE (b.data IS NULL OR b.filtro IS NULL)
+              AND EXISTS (SELECT 1 FROM radars_cart r WHERE r.data = d::date)
+            ORDER BY d DESC
+            """, (rs, i) -> rs.getObject("dia", LocalDate.class), Date.valueOf(de), Date.valueOf(ate));
+    }
+
+    /**
+     * Cria (se preciso) e trava a linha do dia até o fim da transação.
+     */
+    public void travarDia(LocalDate dia) {
+        jdbcTemplate.update("INSERT INTO placas_bloom_dia (data) VALUES (?) ON CONFLICT (data) DO NOTHING",
+                Date.valueOf(dia));
+        jdbcTemplate.queryForObject("SELECT data FROM placas_bloom_dia WHERE data = ? FOR UPDATE",
+                LocalDate.class, Date.valueOf(dia));
+    }
+
+    public long contarPlacas(LocalDate dia) {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT placa) FROM radars_cart WHERE data = ?", Long.class, Date.valueOf(dia));
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Percorre as placas distintas do dia com cursor (deve rodar em transação).
+     */
+    public void percorrerPlacas(LocalDate dia, Consumer<String> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT DISTINCT placa FROM radars_cart WHERE data = ?");
+            ps.setDate(1, Date.valueOf(dia));
+            ps.setFetchSize(10000);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)));
+    }
+
+    public void gravar(LocalDate dia, byte[] filtro, long totalPlacas) {
+        jdbcTemplate.update("""
+            UPDATE placas_bloom_dia
+            SET filtro = ?, total_placas = ?, versao = nextval('placas_bloom_versao'), atualizado_em = now()
+            WHERE data = ?
+            """, filtro, totalPlacas, Date.valueOf(dia));
+    }
+
+    /**
+     * Catálogo leve (sem os bytes dos filtros) do intervalo, usado para validar as cópias em memória.
+     */
+    public List<Entrada> catalogo(LocalDate de, LocalDate ate) {
+        return jdbcTemplate.query("""
+                SELECT data, versao, filtro IS NOT NULL AS construido FROM placas_bloom_dia
+                WHERE data BETWEEN ? AND ?
+                ORDER BY data
+                """,
+                (rs, i) -> new Entrada(rs.getObject("data", LocalDate.class), rs.getLong("versao"), rs.getBoolean("construido")),
+                Date.valueOf(de), Date.valueOf(ate));
+    }
+
+    public Filtro ler(LocalDate dia) {
+        List<Filtro> filtros = jdbcTemplate.query("SELECT versao, filtro FROM placas_bloom_dia WHERE data = ? AND filtro IS NOT NULL",
+                (rs, i) -> new Filtro(rs.getLong("versao"), rs.getBytes("filtro")), Date.valueOf(dia));
+        return filtros.isEmpty() ? null : filtros.get(0);
+    }
+}
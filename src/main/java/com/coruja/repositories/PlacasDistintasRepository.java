@@ -0,0 +1,139 @@
+package com.coruja.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistência dos sketches HyperLogLog (placas_distintas_hll) e contagem exata para auditoria.
+ */
+@Repository
+public class PlacasDistintasRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PlacasDistintasRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Chave(LocalDate data, int hora, String praca, String sentido) implements Comparable<Chave> {
+        @Override
+        public int compareTo(Chave o) {
+            int c = data.compareTo(o.data);
+            if (c != 0) return c;
+            c = Integer.compare(hora, o.hora);
+            if (c != 0) return c;
+            c = praca.compareTo(o.praca);
+            if (c != 0) return c;
+            return sentido.compareTo(o.sentido);
+        }
+    }
+
+    /**
+     * Garante que as linhas existam (para poderem ser travadas com FOR UPDATE).
+     * Chaves devem vir ordenadas para manter ordem estável de locks entre instâncias.
+     */
+    public void garantirLinhas(List<Chave> chaves, byte[] vazio) {
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO placas_distintas_hll (data, hora, praca, sentido, registros)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (data, hora, praca, sentido) DO NOTHING
+            """, chaves, 500, (ps, k) -> {
+            ps.setDate(1, Date.valueOf(k.data()));
+            ps.setShort(2, (short) k.hora());
+            ps.setString(3, k.praca());
+            ps.setString(4, k.sentido());
+            ps.setBytes(5, vazio);
+        });
+    }
+
+    /**
+     * Lê e trava (FOR UPDATE) os sketches de um dia, apenas para as chaves do lote.
+     */
+    public void travarELer(LocalDate dia, List<Chave> chaves, SketchConsumer consumer) {
+        String sql = """
+            SELECT h.hora, h.praca, h.sentido, h.registros
+            FROM placas_distintas_hll h
+            JOIN unnest(?::smallint[], ?::text[], ?::text[]) AS k(hora, praca, sentido)
+              ON h.hora = k.hora AND h.praca = k.praca AND h.sentido = k.sentido
+            WHERE h.data = ?
+            ORDER BY h.hora, h.praca, h.sentido
+            FOR UPDATE OF h
+            """;
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("smallint", chaves.stream().map(k -> (short) k.hora()).toArray()));
+            ps.setArray(2, con.createArrayOf("text", chaves.stream().map(Chave::praca).toArray()));
+            ps.setArray(3, con.createArrayOf("text", chaves.stream().map(Chave::sentido).toArray()));
+            ps.setDate(4, Date.valueOf(dia));
+            return ps;
+        }, rs -> {
+            consumer.accept(new Chave(dia, rs.getInt("hora"), rs.getString("praca"), rs.getString("sentido")),
+                    rs.getBytes("registros"));
+        });
+    }
+
+    public void atualizar(List<Map.Entry<Chave, byte[]>> sketches) {
+        jdbcTemplate.batchUpdate("""
+            UPDATE placas_distintas_hll SET registros = ?, atualizado_em = now()
+            WHERE data = ? AND hora = ? AND praca = ? AND sentido = ?
+            """, sketches, 500, (ps, e) -> {
+            Chave k = e.getKey();
+            ps.setBytes(1, e.getValue());
+            ps.setDate(2, Date.valueOf(k.data()));
+            ps.setShort(3, (short) k.hora());
+            ps.setString(4, k.praca());
+            ps.setString(5, k.sentido());
+        });
+    }
+
+    public void lerDia(LocalDate dia, SketchConsumer consumer) {
+        jdbcTemplate.query("""
+            SELECT hora, praca, sentido, registros
+            FROM placas_distintas_hll
+            WHERE data = ?
+            """, rs -> {
+            consumer.accept(new Chave(dia, rs.getInt("hora"), rs.getString("praca"), rs.getString("sentido")),
+                    rs.getBytes("registros"));
+        }, Date.valueOf(dia));
+    }
+
+    /**
+     * ✅ AUDITORIA: contagem exata direto de radars_cart (cara; usar com períodos curtos).
+     */
+    public long contarExato(LocalDate dataInicial, LocalDate dataFinal, List<String> pracas, String sentido,
+                            Integer horaInicial, Integer horaFinal) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT COUNT(DISTINCT placa) FROM radars_cart WHERE data BETWEEN ? AND ?");
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(dataInicial), Date.valueOf(dataFinal)));
+        if (pracas != null && !pracas.isEmpty()) {
+            sql.append(" AND UPPER(praca) IN (").append(String.join(",", pracas.stream().map(p -> "?").toList())).append(")");
+            args.addAll(pracas);
+        }
+        if (sentido != null) {
+            sql.append(" AND UPPER(sentido) = ?");
+            args.add(sentido);
+        }
+        if (horaInicial != null) {
+            sql.append(" AND EXTRACT(HOUR FROM hora) >= ?");
+            args.add(horaInicial);
+        }
+        if (horaFinal != null) {
+            sql.append(" AND EXTRACT(HOUR FROM hora) <= ?");
+            args.add(horaFinal);
+        }
+        Long total = jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
+        return total == null ? 0 : total;
+    }
+
+    @FunctionalInterface
+    public interface SketchConsumer {
+        void accept(Chave chave, byte[] registros);
+    }
+}
@@ -0,0 +1,47 @@
+package com.coruja.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Checkpoint dos resumos Space-Saving (placas_frequentes).
+ */
+@Repository
+public class PlacasFrequentesRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PlacasFrequentesRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public byte[] ler(LocalDate data, String praca) {
+        List<byte[]> estado = jdbcTemplate.query(
+                "SELECT estado FROM placas_frequentes WHERE data = ? AND praca = ?",
+                (rs, i) -> rs.getBytes("estado"), Date.valueOf(data), praca);
+        return estado.isEmpty() ? null : estado.get(0);
+    }
+
+    /**
+     * Garante a linha e a trava (FOR UPDATE) para mesclar o delta local com o checkpoint de outras instâncias.
+     */
+    public byte[] travar(LocalDate data, String praca, byte[] vazio) {
+        jdbcTemplate.update("""
+            INSERT INTO placas_frequentes (data, praca, estado) VALUES (?, ?, ?)
+            ON CONFLICT (data, praca) DO NOTHING
+            """, Date.valueOf(data), praca, vazio);
+        return jdbcTemplate.queryForObject(
+                "SELECT estado FROM placas_frequentes WHERE data = ? AND praca = ? FOR UPDATE",
+                byte[].class, Date.valueOf(data), praca);
+    }
+
+    public void gravar(LocalDate data, String praca, byte[] estado) {
+        jdbcTemplate.update(
+                "UPDATE placas_frequentes SET estado = ?, atualizado_em = now() WHERE data = ? AND praca = ?",
+                estado, Date.valueOf(data), praca);
+    }
+}
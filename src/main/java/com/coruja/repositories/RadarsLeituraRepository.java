@@ -0,0 +1,149 @@
+package com.coruja.repositories;
+
+import com.coruja.dto.RadarsDTO;
+import com.coruja.enums.Sentido;
+import com.coruja.utils.CursorPassagem;
+import com.coruja.utils.PodaDias;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * ✅ CAMINHO DE LEITURA SEM ENTIDADES
+ * As buscas selecionam só as colunas exibidas e mapeiam cada linha direto para o record RadarsDTO:
+ * sem contexto de persistência, sem proxy de LocalizacaoRadar e sem cópia entidade -> DTO.
+ * O COUNT só roda quando a página não basta para deduzir o total (PageableExecutionUtils).
+ */
+@Repository
+public class RadarsLeituraRepository {
+
+    static final String COLUNAS = "r.id, r.data, r.hora, r.placa, r.praca, r.rodovia, r.km, r.sentido";
+
+    // Ordem das listagens: mais recente primeiro e, no mesmo instante, placa em ordem crescente (ordem original)
+    static final String ORDEM_MAIS_RECENTE = " ORDER BY r.data DESC, r.hora DESC, r.placa";
+    // Keyset da ordem acima (linhas depois do cursor); parâmetros em vincularCursor
+    static final String APOS_CURSOR = " AND ((r.data, r.hora) < (?, ?) OR ((r.data, r.hora) = (?, ?) AND r.placa > ?))";
+    // Cursor de limite de dia: só dias anteriores
+    static final String ANTES_DO_DIA = " AND r.data < ?";
+
+    static String aposCursor(CursorPassagem cursor) {
+        return cursor.limiteDeDia() ? ANTES_DO_DIA : APOS_CURSOR;
+    }
+
+    static int vincularCursor(PreparedStatement ps, int i, CursorPassagem cursor) throws SQLException {
+        Date data = Date.valueOf(cursor.data());
+        ps.setDate(i++, data);
+        if (cursor.limiteDeDia()) return i;
+        ps.setObject(i++, cursor.hora());
+        ps.setDate(i++, data);
+        ps.setObject(i++, cursor.hora());
+        ps.setString(i++, cursor.placa());
+        return i;
+    }
+
+    static final RowMapper<RadarsDTO> MAPPER = (rs, i) -> new RadarsDTO(
+            rs.getLong("id"),
+            rs.getObject("data", LocalDate.class),
+            rs.getObject("hora", LocalTime.class),
+            rs.getString("placa"),
+            rs.getString("praca"),
+            rs.getString("rodovia"),
+            rs.getString("km"),
+            Sentido.decodificar(rs.getString("sentido")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RadarsLeituraRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @FunctionalInterface
+    private interface Vinculo {
+        int vincular(PreparedStatement ps) throws SQLException;
+    }
+
+    /**
+     * Histórico por trecho de placa (ILIKE '%placa%', GIN de trigramas).
+     */
+    public Page<RadarsDTO> buscarPorPlaca(String placa, Pageable pageable) {
+        return paginar(" FROM radars_cart r WHERE r.placa ILIKE CONCAT('%', ?, '%')",
+                ps -> {
+                    ps.setString(1, placa);
+                    return 2;
+                }, pageable);
+    }
+
+    /**
+     * Placa exata podada pelos filtros de Bloom: dentro da cobertura só os dias possíveis, fora dela todos.
+     */
+    public Page<RadarsDTO> buscarPorPlacaExataNosDias(String placa, PodaDias poda, Pageable pageable) {
+        List<LocalDate> dias = poda.diasPossiveisOrdenados();
+        return paginar(" FROM radars_cart r WHERE r.placa = ? AND (r.data < ? OR r.data > ? OR r.data = ANY(?))",
+                ps -> {
+                    ps.setString(1, placa);
+                    ps.setDate(2, Date.valueOf(poda.inicioCobertura()));
+                    ps.setDate(3, Date.valueOf(poda.fimCobertura()));
+                    ps.setArray(4, ps.getConnection().createArrayOf("date", dias.stream().map(Date::valueOf).toArray()));
+                    return 5;
+                }, pageable);
+    }
+
+    /**
+     * Passagens no raio (metros) de um ponto, no dia e faixa de horário informados.
+     */
+    public Page<RadarsDTO> buscarPorGeolocalizacao(double latitude, double longitude, double raio,
+                                                  LocalDate data, LocalTime horaInicio, LocalTime horaFim,
+                                                  Pageable pageable) {
+        return paginar("""
+                 FROM radars_cart r
+                INNER JOIN localizacao_radar l ON r.localizacao_id = l.id
+                WHERE r.data = ?
+                  AND r.hora BETWEEN ? AND ?
+                  AND ST_DWithin(l.localizacao, ST_SetSRID(ST_MakePoint(?, ?), 4326)::geography, ?)
+                """,
+                ps -> {
+                    ps.setDate(1, Date.valueOf(data));
+                    ps.setObject(2, horaInicio);
+                    ps.setObject(3, horaFim);
+                    ps.setDouble(4, longitude);
+                    ps.setDouble(5, latitude);
+                    ps.setDouble(6, raio);
+                    return 7;
+                }, pageable);
+    }
+
+    /**
+     * Página ordenada do mais recente para o mais antigo sobre o FROM/WHERE informado.
+     */
+    private Page<RadarsDTO> paginar(String fromWhere, Vinculo vinculo, Pageable pageable) {
+        String sql = "SELECT DISTINCT ON (r.data, r.hora, r.placa) " + COLUNAS + fromWhere
+                + " ORDER BY r.data DESC, r.hora DESC, r.placa LIMIT ? OFFSET ?";
+        List<RadarsDTO> conteudo = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = vinculo.vincular(ps);
+            ps.setInt(i++, pageable.getPageSize());
+            ps.setLong(i, pageable.getOffset());
+            return ps;
+        }, MAPPER);
+
+        String sqlContagem = "SELECT COUNT(DISTINCT (r.data, r.hora, r.placa))" + fromWhere;
+        return PageableExecutionUtils.getPage(conteudo, pageable, () -> {
+            Long total = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sqlContagem);
+                vinculo.vincular(ps);
+                return ps;
+            }, rs -> rs.next() ? rs.getLong(1) : 0L);
+            return total == null ? 0 : total;
+        });
+    }
+}
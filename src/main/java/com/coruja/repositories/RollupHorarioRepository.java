@@ -0,0 +1,258 @@
+package com.coruja.repositories;
+
+import com.coruja.dto.SerieHorariaDTO;
+import com.coruja.dto.TotalRollupDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acesso JDBC ao agregado horário (radars_rollup_hora).
+ * Usamos JdbcTemplate puro: upsert em lote e GROUP BY não se beneficiam de entidades.
+ */
+@Repository
+public class RollupHorarioRepository {
+
+    private static final int CHAVE_TRAVA_DIA = 0x726F6C6C; // "roll"
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RollupHorarioRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Chave do agregado. Usada para acumular o lote em memória antes do upsert.
+     */
+    public record Chave(LocalDate data, int hora, String praca, String rodovia, String km, String sentido)
+            implements Comparable<Chave> {
+
+        // Ordem estável das chaves = ordem estável de locks no upsert (evita deadlock entre instâncias)
+        @Override
+        public int compareTo(Chave o) {
+            int c = data.compareTo(o.data);
+            if (c != 0) return c;
+            c = Integer.compare(hora, o.hora);
+            if (c != 0) return c;
+            c = praca.compareTo(o.praca);
+            if (c != 0) return c;
+            c = rodovia.compareTo(o.rodovia);
+            if (c != 0) return c;
+            c = km.compareTo(o.km);
+            if (c != 0) return c;
+            return sentido.compareTo(o.sentido);
+        }
+    }
+
+    /**
+     * ✅ UPSERT INCREMENTAL: soma os totais do lote aos já existentes.
+     * As chaves devem chegar ordenadas.
+     */
+    public void incrementar(List<Map.Entry<Chave, Long>> agregados) {
+        String sql = """
+            INSERT INTO radars_rollup_hora (data, hora, praca, rodovia, km, sentido, total)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (data, hora, praca, rodovia, km, sentido)
+            DO UPDATE SET total = radars_rollup_hora.total + EXCLUDED.total,
+                          atualizado_em = now()
+            """;
+        jdbcTemplate.batchUpdate(sql, agregados, 500, (ps, e) -> {
+            Chave k = e.getKey();
+            ps.setDate(1, Date.valueOf(k.data()));
+            ps.setShort(2, (short) k.hora());
+            ps.setString(3, k.praca());
+            ps.setString(4, k.rodovia());
+            ps.setString(5, k.km());
+            ps.setString(6, k.sentido());
+            ps.setLong(7, e.getValue());
+        });
+    }
+
+    /**
+     * Marca como completos os dias que começaram a ser ingeridos depois da ativação do rollup.
+     */
+    public void marcarDiasIngeridos(Collection<LocalDate> dias) {
+        // Dia já reconstruído que recebe lote tardio volta a ser incremental (o lote pode repetir linhas gravadas)
+        jdbcTemplate.batchUpdate("""
+            UPDATE radars_rollup_dias SET origem = 'INGESTAO', atualizado_em = now()
+            WHERE data = ? AND origem <> 'INGESTAO'
+            """, new ArrayList<>(dias), 100, (ps, dia) -> ps.setDate(1, Date.valueOf(dia)));
+        String sql = """
+            INSERT INTO radars_rollup_dias (data, origem)
+            SELECT ?, 'INGESTAO'
+            WHERE ? > (SELECT valor FROM radars_rollup_controle WHERE chave = 'ativo_desde')
+            ON CONFLICT (data) DO NOTHING
+            """;
+        jdbcTemplate.batchUpdate(sql, new ArrayList<>(dias), 100, (ps, dia) -> {
+            ps.setDate(1, Date.valueOf(dia));
+            ps.setDate(2, Date.valueOf(dia));
+        });
+    }
+
+    /**
+     * Trava do dia até o fim da transação: a ingestão pega a compartilhada (lotes concorrem entre si),
+     * a reconstrução a exclusiva (espera os lotes em curso e segura os novos até recalcular).
+     * Chamar com os dias em ordem crescente (ordem estável de locks).
+     */
+    public void travarDia(LocalDate dia, boolean exclusiva) {
+        jdbcTemplate.query(exclusiva ? "SELECT pg_advisory_xact_lock(?, ?)" : "SELECT pg_advisory_xact_lock_shared(?, ?)",
+                rs -> { }, CHAVE_TRAVA_DIA, (int) dia.toEpochDay());
+    }
+
+    /**
+     * ✅ RECONSTRUÇÃO DE UM DIA (backfill)
+     * Apaga o agregado do dia e recalcula a partir da partição de radars_cart, com o dia travado contra a ingestão.
+     * Conta passagens distintas por (hora, placa), como a busca local (DISTINCT ON (data, hora, placa)).
+     */
+    public int reconstruirDia(LocalDate dia) {
+        Date d = Date.valueOf(dia);
+        travarDia(dia, true);
+        jdbcTemplate.update("DELETE FROM radars_rollup_hora WHERE data = ?", d);
+        int linhas = jdbcTemplate.update("""
+            INSERT INTO radars_rollup_hora (data, hora, praca, rodovia, km, sentido, total)
+            SELECT data, EXTRACT(HOUR FROM hora)::smallint, COALESCE(praca, ''), rodovia, km, sentido,
+                   COUNT(DISTINCT (hora, placa))
+            FROM radars_cart
+            WHERE data = ?
+            GROUP BY 1, 2, 3, 4, 5, 6
+            """, d);
+        jdbcTemplate.update("""
+            INSERT INTO radars_rollup_dias (data, origem) VALUES (?, 'RECONSTRUCAO')
+            ON CONFLICT (data) DO UPDATE SET origem = 'RECONSTRUCAO', atualizado_em = now()
+            """, d);
+        return linhas;
+    }
+
+    /**
+     * Totais do dia por praça e hora (base para o cubo de densidade do mapa).
+     */
+    public void totaisPorPracaHora(LocalDate dia, TotalPracaHoraConsumer consumer) {
+        jdbcTemplate.query("""
+            SELECT praca, hora, SUM(total) AS total
+            FROM radars_rollup_hora
+            WHERE data = ?
+            GROUP BY praca, hora
+            """, rs -> {
+            consumer.accept(rs.getString("praca"), rs.getInt("hora"), rs.getLong("total"));
+        }, Date.valueOf(dia));
+    }
+
+    @FunctionalInterface
+    public interface TotalPracaHoraConsumer {
+        void accept(String praca, int hora, long total);
+    }
+
+    /**
+     * Dia cujo agregado saiu inteiro de uma reconstrução, sem lote incremental depois:
+     * só nele o total bate exatamente com o DISTINCT da busca local (o incremental não vê linhas repetidas entre lotes).
+     */
+    public boolean isDiaExato(LocalDate dia) {
+        Boolean existe = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM radars_rollup_dias WHERE data = ? AND origem = 'RECONSTRUCAO')",
+                Boolean.class, Date.valueOf(dia));
+        return Boolean.TRUE.equals(existe);
+    }
+
+    /**
+     * Dias fechados (antes de {@code ate}) ainda com agregado incremental, mais recentes primeiro.
+     */
+    public List<LocalDate> diasAConsolidar(LocalDate ate, int limite) {
+        return jdbcTemplate.query("""
+            SELECT data FROM radars_rollup_dias
+            WHERE origem = 'INGESTAO' AND data < ?
+            ORDER BY data DESC
+            LIMIT ?
+            """, (rs, i) -> rs.getDate(1).toLocalDate(), Date.valueOf(ate), limite);
+    }
+
+    /**
+     * Dias reconstruídos dentro da janela (relógio do banco): quem guarda totais do dia em memória deve relê-los.
+     * A marca é o início da transação da reconstrução; a janela precisa cobrir a duração dela.
+     */
+    public List<LocalDate> diasReconstruidosNosUltimos(long segundos) {
+        return jdbcTemplate.query("""
+            SELECT data FROM radars_rollup_dias
+            WHERE origem = 'RECONSTRUCAO' AND atualizado_em > now() - make_interval(secs => ?)
+            """, (rs, i) -> rs.getDate(1).toLocalDate(), segundos);
+    }
+
+    /**
+     * Série horária somando todos os pontos que atendem aos filtros (opcionais).
+     */
+    public List<SerieHorariaDTO> serieHoraria(LocalDate dataInicial, LocalDate dataFinal,
+                                              String praca, String rodovia, String sentido) {
+        List<Object> args = new ArrayList<>();
+        String where = filtros(dataInicial, dataFinal, praca, rodovia, sentido, args);
+        return jdbcTemplate.query(
+                "SELECT data, hora, SUM(total) AS total FROM radars_rollup_hora" + where +
+                        " GROUP BY data, hora ORDER BY data, hora",
+                (rs, i) -> new SerieHorariaDTO(rs.getDate("data").toLocalDate(), rs.getInt("hora"), rs.getLong("total")),
+                args.toArray());
+    }
+
+    /**
+     * Totais do período agrupados por praça/rodovia/sentido, do maior para o menor.
+     */
+    public List<TotalRollupDTO> totais(LocalDate dataInicial, LocalDate dataFinal,
+                                       String praca, String rodovia, String sentido) {
+        List<Object> args = new ArrayList<>();
+        String where = filtros(dataInicial, dataFinal, praca, rodovia, sentido, args);
+        return jdbcTemplate.query(
+                "SELECT praca, rodovia, sentido, SUM(total) AS total FROM radars_rollup_hora" + where +
+                        " GROUP BY praca, rodovia, sentido ORDER BY total DESC",
+                (rs, i) -> new TotalRollupDTO(rs.getString("praca"), rs.getString("rodovia"),
+                        rs.getString("sentido"), rs.getLong("total")),
+                args.toArray());
+    }
+
+    /**
+     * Contagem com a MESMA semântica dos filtros da busca-local (rodovia ILIKE, km exato, sentido ILIKE),
+     * restrita a horas cheias [horaInicial, horaFinal].
+     */
+    public long contarBuscaLocal(LocalDate data, int horaInicial, int horaFinal,
+                                 String rodovia, String km, String sentido) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT COALESCE(SUM(total), 0) FROM radars_rollup_hora WHERE data = ? AND hora BETWEEN ? AND ?");
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(data), horaInicial, horaFinal));
+        if (rodovia != null) {
+            sql.append(" AND rodovia ILIKE CONCAT('%', ?, '%')");
+            args.add(rodovia);
+        }
+        if (km != null) {
+            sql.append(" AND km = ?");
+            args.add(km);
+        }
+        if (sentido != null) {
+            sql.append(" AND sentido ILIKE ?");
+            args.add(sentido);
+        }
+        Long total = jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
+        return total == null ? 0 : total;
+    }
+
+    private String filtros(LocalDate dataInicial, LocalDate dataFinal, String praca, String rodovia, String sentido,
+                           List<Object> args) {
+        StringBuilder where = new StringBuilder(" WHERE data BETWEEN ? AND ?");
+        args.add(Date.valueOf(dataInicial));
+        args.add(Date.valueOf(dataFinal));
+        if (praca != null) {
+            where.append(" AND UPPER(praca) = ?");
+            args.add(praca);
+        }
+        if (rodovia != null) {
+            where.append(" AND UPPER(rodovia) = ?");
+            args.add(rodovia);
+        }
+        if (sentido != null) {
+            where.append(" AND UPPER(sentido) = ?");
+            args.add(sentido);
+        }
+        return where.toString();
+    }
+}
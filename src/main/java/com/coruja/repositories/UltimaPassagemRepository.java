@@ -0,0 +1,102 @@
+package com.coruja.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistência da última passagem por placa (ultima_passagem_placa), base do pareamento entre réplicas.
+ */
+@Repository
+public class UltimaPassagemRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UltimaPassagemRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Passagem(String praca, LocalDateTime instante) { }
+
+    /**
+     * Garante as linhas das placas (para poderem ser travadas com FOR UPDATE mesmo na primeira passagem).
+     * Placas ordenadas: ordem estável de locks entre instâncias.
+     */
+    public void garantirPlacas(List<String> placas) {
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                INSERT INTO ultima_passagem_placa (placa)
+                SELECT p FROM unnest(?::text[]) AS p ORDER BY p
+                ON CONFLICT (placa) DO NOTHING
+                """);
+            ps.setArray(1, con.createArrayOf("text", placas.toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Lê e trava (FOR UPDATE, em ordem de placa) as últimas passagens das placas do lote.
+     * Placas sem passagem registrada não aparecem no consumer.
+     */
+    public void travarELer(List<String> placas, PassagemConsumer consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                SELECT placa, praca, instante
+                FROM ultima_passagem_placa
+                WHERE placa = ANY (?::text[])
+                ORDER BY placa
+                FOR UPDATE
+                """);
+            ps.setArray(1, con.createArrayOf("text", placas.toArray()));
+            return ps;
+        }, rs -> {
+            Timestamp instante = rs.getTimestamp("instante");
+            if (instante != null) {
+                consumer.accept(rs.getString("placa"), new Passagem(rs.getString("praca"), instante.toLocalDateTime()));
+            }
+        });
+    }
+
+    public void gravar(List<Map.Entry<String, Passagem>> passagens) {
+        jdbcTemplate.batchUpdate("""
+            UPDATE ultima_passagem_placa SET praca = ?, instante = ?
+            WHERE placa = ?
+            """, passagens, 1000, (ps, e) -> {
+            ps.setString(1, e.getValue().praca());
+            ps.setTimestamp(2, Timestamp.valueOf(e.getValue().instante()));
+            ps.setString(3, e.getKey());
+        });
+    }
+
+    public LocalDateTime maisRecente() {
+        Timestamp t = jdbcTemplate.queryForObject("SELECT max(instante) FROM ultima_passagem_placa", Timestamp.class);
+        return t == null ? null : t.toLocalDateTime();
+    }
+
+    /**
+     * Remove até {@code lote} placas sem passagem desde {@code limite}.
+     * SKIP LOCKED: nunca espera por um lote em ingestão (que trava as mesmas linhas em ordem de placa),
+     * então a limpeza não entra em deadlock com a ingestão; as linhas puladas estão sendo renovadas.
+     */
+    public int removerAnterioresA(LocalDateTime limite, int lote) {
+        return jdbcTemplate.update("""
+            DELETE FROM ultima_passagem_placa
+            WHERE placa IN (
+                SELECT placa FROM ultima_passagem_placa
+                WHERE instante < ? OR instante IS NULL
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            """, Timestamp.valueOf(limite), lote);
+    }
+
+    @FunctionalInterface
+    public interface PassagemConsumer {
+        void accept(String placa, Passagem passagem);
+    }
+}
@@ -1,5 +1,9 @@
 package com.coruja.schedulers;
 
+import com.coruja.coordenacao.ContextoJob;
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.enums.ModoCoordenacao;
+import com.coruja.repositories.JobLeaseRepository;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +18,7 @@ public class LocalizacaoScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(LocalizacaoScheduler.class);
     private static final int BATCH_SIZE = 1000; // Processa 5.000 registros por lote
+    private static final int FATIAS = 4;
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
@@ -29,9 +34,13 @@ public class LocalizacaoScheduler {
      * Executa a cada 5 minutos (300.000 ms).
      * Atualiza a coluna localizacao_id na tabela radars_cart
      * cruzando dados com a tabela localizacao_radar.
+     * Fatiado por id (mod FATIAS): réplicas diferentes vinculam fatias diferentes, e cada UPDATE
+     * confere o lease da fatia (fencing) antes de gravar.
      */
     @Scheduled(fixedRate = 300000) // 5 minutos
+    @JobCoordenado(nome = "vinculo-localizacao", modo = ModoCoordenacao.SHARDABLE, fatias = FATIAS)
     public void vincularLocalizacoes() {
+        ContextoJob contexto = ContextoJob.atual().orElse(null);
         logger.info("Iniciando job de vinculação de localizações Concessionária Cart...");
 
         // QUERY EXPLICADA:
@@ -43,6 +52,7 @@ public class LocalizacaoScheduler {
                 SELECT id, data, rodovia, km
                 FROM radars_cart
                 WHERE localizacao_id IS NULL
+                  AND mod(id, ?) = ?
                 LIMIT ?
             ),
             match_update AS (
@@ -59,8 +69,9 @@ public class LocalizacaoScheduler {
             SET localizacao_id = mu.loc_id
             FROM match_update mu
             WHERE rc.id = mu.radar_id
-              AND rc.data = mu.radar_data;
-        """;
+              AND rc.data = mu.radar_data
+              %s;
+        """.formatted(contexto != null ? "AND " + JobLeaseRepository.CERCA : "");
 
         try {
             long inicio = System.currentTimeMillis();
@@ -68,14 +79,17 @@ public class LocalizacaoScheduler {
             int linhasAfetadas;
 
             do {
-                linhasAfetadas = jdbcTemplate.update(sqlBatch, BATCH_SIZE);
+                linhasAfetadas = contexto != null
+                        ? jdbcTemplate.update(sqlBatch, contexto.fatias(), contexto.fatia(), BATCH_SIZE,
+                                contexto.job(), contexto.fatia(), contexto.token())
+                        : jdbcTemplate.update(sqlBatch, 1, 0, BATCH_SIZE);
                 totalAtualizado += linhasAfetadas;
 
                 if (linhasAfetadas > 0) {
                     logger.debug("Lote processado: {} radares vinculados.", linhasAfetadas);
                     Thread.sleep(50); // Pausa leve para respiro do DB
                 }
-            } while (linhasAfetadas >= BATCH_SIZE);
+            } while (linhasAfetadas >= BATCH_SIZE && (contexto == null || contexto.valido()));
 
             long fim = System.currentTimeMillis();
             if (totalAtualizado > 0) {
@@ -0,0 +1,385 @@
+package com.coruja.services;
+
+import com.coruja.dto.RadarsDTO;
+import com.coruja.repositories.ArquivoRepository;
+import com.coruja.repositories.ArquivoRepository.ArquivoDia;
+import com.coruja.repositories.ParticoesRepository;
+import com.coruja.utils.ArquivoColunar;
+import com.coruja.utils.ArquivoColunar.Indice;
+import com.coruja.utils.BloomFilter;
+import com.coruja.utils.CursorPassagem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ✅ ARQUIVO FRIO DE PASSAGENS
+ * - Exporta partições desanexadas pela retenção para arquivos colunares comprimidos (um por dia),
+ *   cada um relido e conferido (linhas e CRC32) antes de entrar no catálogo.
+ * - O diretório é um volume compartilhado por todas as instâncias (o banco já não tem as linhas): a partida
+ *   confere o marcador do volume contra o registrado no banco e falha se a instância enxerga outro disco.
+ * - Busca por placa nos dias arquivados: placa exata é podada pelo Bloom do .idx de cada arquivo
+ *   (todos em memória, ~1,2 MB por milhão de linhas arquivadas com fpp 0,01, carregados uma vez por entrada
+ *   do catálogo) e pelas faixas de placa dos blocos; trecho de placa varre os arquivos mais recentes.
+ * Os arquivos são lidos em virtual threads, com limite de leituras simultâneas.
+ */
+@Service
+@Slf4j
+public class ArquivoFrioService {
+
+    private static final DateTimeFormatter PASTA = DateTimeFormatter.ofPattern("yyyy/MM");
+    private static final String MARCADOR_VOLUME = ".volume-arquivo-frio";
+    private static final Comparator<RadarsDTO> MAIS_RECENTE_PRIMEIRO =
+            Comparator.comparing(RadarsDTO::data)
+                    .thenComparing(RadarsDTO::hora, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .reversed()
+                    .thenComparing(RadarsDTO::placa, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final ArquivoRepository arquivoRepository;
+    private final ParticoesRepository particoesRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Path diretorio;
+    private final boolean validarVolume;
+    private final double fpp;
+    private final int maxArquivosParcial;
+    private final int maxLinhasBusca;
+    private final int tamanhoOnda;
+    private final Semaphore leiturasSimultaneas;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Bloom das placas (.idx) por entrada do catálogo; vazio = índice ilegível (arquivo nunca podado)
+    private final Map<ArquivoDia, Optional<BloomFilter>> filtros = new ConcurrentHashMap<>();
+    private final Counter arquivosLidos;
+    private final Counter arquivosIlegiveis;
+
+    private volatile List<ArquivoDia> catalogo;
+
+    public ArquivoFrioService(ArquivoRepository arquivoRepository,
+                              ParticoesRepository particoesRepository,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${radares.arquivo.diretorio:./arquivo-frio}") String diretorio,
+                              @Value("${radares.arquivo.fpp:0.01}") double fpp,
+                              @Value("${radares.arquivo.max-arquivos-parcial:31}") int maxArquivosParcial,
+                              @Value("${radares.arquivo.max-linhas-busca:10000}") int maxLinhasBusca,
+                              @Value("${radares.arquivo.leituras-simultaneas:4}") int leiturasSimultaneas,
+                              @Value("${radares.arquivo.validar-volume:true}") boolean validarVolume) {
+        this.arquivoRepository = arquivoRepository;
+        this.particoesRepository = particoesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.diretorio = Path.of(diretorio);
+        this.validarVolume = validarVolume;
+        this.fpp = fpp;
+        this.maxArquivosParcial = maxArquivosParcial;
+        this.maxLinhasBusca = maxLinhasBusca;
+        this.tamanhoOnda = leiturasSimultaneas;
+        this.leiturasSimultaneas = new Semaphore(leiturasSimultaneas);
+        this.arquivosLidos = Counter.builder("radares.arquivo.arquivos_lidos").register(meterRegistry);
+        this.arquivosIlegiveis = Counter.builder("radares.arquivo.arquivos_ilegiveis").register(meterRegistry);
+    }
+
+    /**
+     * Confere o volume e registra os gauges só com a instância pronta (o scrape pode ler o catálogo a qualquer momento).
+     */
+    @PostConstruct
+    void iniciar() {
+        if (validarVolume) conferirVolume();
+        meterRegistry.gauge("radares.arquivo.arquivos", this, s -> s.catalogo().size());
+        meterRegistry.gauge("radares.arquivo.bytes", this, s -> s.catalogo().stream().mapToLong(ArquivoDia::bytes).sum());
+        meterRegistry.gauge("radares.arquivo.bloom_bytes", filtros, f -> f.values().stream()
+                .flatMap(Optional::stream).mapToLong(BloomFilter::tamanhoBytes).sum());
+    }
+
+    /**
+     * ✅ VOLUME COMPARTILHADO
+     * A primeira instância grava um marcador no diretório e o registra no banco; as demais precisam encontrar o
+     * mesmo marcador. Diretório local de cada réplica (ou montagem errada) derruba a partida em vez de
+     * responder históricos incompletos. O arquivo é criado antes do registro (CREATE_NEW): partidas simultâneas
+     * no mesmo volume convergem para o mesmo marcador.
+     */
+    private void conferirVolume() {
+        Path marcador = diretorio.resolve(MARCADOR_VOLUME);
+        try {
+            Files.createDirectories(diretorio);
+            String local;
+            try {
+                local = UUID.randomUUID().toString();
+                Files.writeString(marcador, local, StandardCharsets.US_ASCII, StandardOpenOption.CREATE_NEW);
+            } catch (FileAlreadyExistsException e) {
+                local = lerMarcador(marcador);
+            }
+            String registrado = arquivoRepository.registrarVolume(local);
+            if (!registrado.equals(local)) {
+                throw new IllegalStateException(String.format(
+                        "radares.arquivo.diretorio (%s) não é o volume compartilhado do arquivo frio: marcador %s, esperado %s",
+                        diretorio.toAbsolutePath(), local, registrado));
+            }
+            log.info("🧊 Volume do arquivo frio conferido: {} ({})", diretorio.toAbsolutePath(), registrado);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Diretório do arquivo frio inacessível: " + diretorio.toAbsolutePath(), e);
+        }
+    }
+
+    // ==================== EXPORTAÇÃO ====================
+
+    /**
+     * Exporta os dias ainda não exportados da tabela (partição desanexada). Retomável: dias já no catálogo são pulados.
+     * @return linhas exportadas nesta chamada
+     */
+    public long exportar(String particao) {
+        Set<LocalDate> exportados = arquivoRepository.diasExportados(particao);
+        long linhas = 0;
+        for (LocalDate dia : particoesRepository.diasNaParticao(particao)) {
+            if (!exportados.contains(dia)) linhas += exportarDia(particao, dia);
+        }
+        atualizarCatalogo();
+        return linhas;
+    }
+
+    private long exportarDia(String particao, LocalDate dia) {
+        long esperadas = particoesRepository.contarLinhas(particao, dia);
+        Path arquivo = diretorio.resolve(PASTA.format(dia))
+                .resolve(particao + "_" + DateTimeFormatter.BASIC_ISO_DATE.format(dia) + ".rcol.gz");
+        try {
+            Files.createDirectories(arquivo.getParent());
+            Indice indice;
+            try (ArquivoColunar.Escritor escritor = new ArquivoColunar.Escritor(arquivo, dia, esperadas, fpp)) {
+                transactionTemplate.executeWithoutResult(status ->
+                        particoesRepository.percorrerDia(particao, dia, escritor::adicionar));
+                indice = escritor.concluir();
+            }
+
+            // Conferência: o arquivo relido inteiro e o CRC em disco batem com a tabela e com o índice
+            long relidas = ArquivoColunar.contar(arquivo);
+            long crc = ArquivoColunar.crc32(arquivo);
+            if (indice.linhas() != esperadas || relidas != esperadas || crc != indice.crc32()) {
+                Files.deleteIfExists(arquivo);
+                Files.deleteIfExists(ArquivoColunar.caminhoIndice(arquivo));
+                throw new IllegalStateException(String.format(
+                        "Exportação de %s/%s divergente: tabela=%d, gravadas=%d, relidas=%d", particao, dia, esperadas, indice.linhas(), relidas));
+            }
+
+            arquivoRepository.registrarArquivo(new ArquivoDia(particao, dia, arquivo.toString(), esperadas, Files.size(arquivo), crc));
+            log.info("🧊 {} {} exportado: {} linhas, {} KB", particao, dia, esperadas, Files.size(arquivo) / 1024);
+            return esperadas;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao exportar " + particao + " " + dia, e);
+        }
+    }
+
+    // ==================== BUSCA ====================
+
+    public boolean possuiArquivos() {
+        return !catalogo().isEmpty();
+    }
+
+    /**
+     * Completa a página da busca por placa do banco com os dias arquivados (todos mais antigos que o banco).
+     * Páginas antes da última do banco saem intactas (o total do banco já indica que há página seguinte).
+     * A última página do banco, se termina exatamente no fim dele, ganha +1 no total quando o arquivo tem
+     * a placa: Bloom dos índices para placa exata, leitura limitada a uma linha para trecho de placa.
+     * Na página que alcança o arquivo, o total passa a somar as passagens arquivadas (limitadas a max-linhas-busca).
+     */
+    public Page<RadarsDTO> completar(Page<RadarsDTO> quente, String placa, boolean exata, Pageable pageable) {
+        if (placa == null || !possuiArquivos()) return quente;
+
+        long totalQuente = quente.getTotalElements();
+        long fim = pageable.getOffset() + pageable.getPageSize();
+        if (fim < totalQuente) return quente;
+        if (fim == totalQuente) {
+            if (!temNoArquivo(placa, exata)) return quente;
+            return new PageImpl<>(quente.getContent(), pageable, totalQuente + 1);
+        }
+
+        List<RadarsDTO> frio = buscarPorPlaca(placa, exata, null, null, maxLinhasBusca);
+        if (frio.isEmpty()) return quente;
+
+        List<RadarsDTO> conteudo = new ArrayList<>(quente.getContent());
+        int de = (int) Math.max(0, pageable.getOffset() - totalQuente);
+        int ate = (int) Math.min(frio.size(), fim - totalQuente);
+        if (de < ate) conteudo.addAll(frio.subList(de, ate));
+        return new PageImpl<>(conteudo, pageable, totalQuente + frio.size());
+    }
+
+    /**
+     * Passagens arquivadas da placa, do mais recente para o mais antigo.
+     * @param ate    último dia considerado (null = todos)
+     * @param cursor continua após a última linha entregue (keyset)
+     */
+    public List<RadarsDTO> buscarPorPlaca(String placa, boolean exata, LocalDate ate, CursorPassagem cursor, int limite) {
+        List<ArquivoDia> candidatos = new ArrayList<>();
+        Set<LocalDate> diasVarridos = new HashSet<>();
+        for (ArquivoDia arquivo : catalogo()) {
+            if (ate != null && arquivo.data().isAfter(ate)) continue;
+            if (cursor != null && (cursor.limiteDeDia() ? !arquivo.data().isBefore(cursor.data())
+                    : arquivo.data().isAfter(cursor.data()))) continue;
+            if (exata) {
+                if (!podeConter(arquivo, placa)) continue;
+            } else if (!diasVarridos.contains(arquivo.data()) && diasVarridos.size() >= maxArquivosParcial) {
+                log.debug("🧊 Busca parcial '{}' limitada aos {} dias arquivados mais recentes", placa, maxArquivosParcial);
+                break;
+            }
+            diasVarridos.add(arquivo.data());
+            candidatos.add(arquivo);
+        }
+
+        // Ondas do mais recente para o mais antigo: para quando o limite é atingido
+        List<RadarsDTO> encontradas = new ArrayList<>();
+        for (int i = 0; i < candidatos.size() && encontradas.size() < limite; i += tamanhoOnda) {
+            List<Future<List<RadarsDTO>>> futuros = new ArrayList<>();
+            for (ArquivoDia arquivo : candidatos.subList(i, Math.min(i + tamanhoOnda, candidatos.size()))) {
+                futuros.add(executor.submit(() -> lerArquivo(arquivo, placa, exata)));
+            }
+            for (Future<List<RadarsDTO>> futuro : futuros) {
+                for (RadarsDTO r : aguardar(futuro)) {
+                    if (cursor == null || antesDoCursor(r, cursor)) encontradas.add(r);
+                }
+            }
+        }
+
+        encontradas.sort(MAIS_RECENTE_PRIMEIRO);
+        return encontradas.size() > limite ? new ArrayList<>(encontradas.subList(0, limite)) : encontradas;
+    }
+
+    /**
+     * Placa exata: só os Bloom em memória, sem abrir arquivo. Trecho de placa: a primeira linha encontrada basta.
+     */
+    private boolean temNoArquivo(String placa, boolean exata) {
+        if (!exata) return !buscarPorPlaca(placa, false, null, null, 1).isEmpty();
+        for (ArquivoDia arquivo : catalogo()) {
+            if (podeConter(arquivo, placa)) return true;
+        }
+        return false;
+    }
+
+    private boolean podeConter(ArquivoDia arquivo, String placa) {
+        return filtro(arquivo).map(f -> f.podeConter(placa)).orElse(true);
+    }
+
+    // ==================== CATÁLOGO ====================
+
+    @Scheduled(fixedDelayString = "${radares.arquivo.catalogo-ms:300000}", initialDelayString = "${radares.arquivo.catalogo-delay-ms:300000}")
+    public void atualizarCatalogo() {
+        try {
+            List<ArquivoDia> novo = arquivoRepository.arquivos();
+            catalogo = novo;
+            // Entradas que saíram do catálogo (substituídas por nova exportação) liberam o filtro; as novas são
+            // carregadas aqui, fora do caminho das buscas
+            filtros.keySet().retainAll(new HashSet<>(novo));
+            novo.forEach(this::filtro);
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao ler catálogo do arquivo frio: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private List<ArquivoDia> catalogo() {
+        if (catalogo == null) atualizarCatalogo();
+        return catalogo == null ? List.of() : catalogo;
+    }
+
+    /**
+     * O marcador pode estar sendo escrito por uma partida simultânea: arquivo vazio é relido algumas vezes.
+     */
+    private static String lerMarcador(Path marcador) throws IOException {
+        for (int tentativa = 0; tentativa < 10; tentativa++) {
+            String conteudo = Files.readString(marcador, StandardCharsets.US_ASCII).trim();
+            if (!conteudo.isEmpty()) return conteudo;
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new IllegalStateException("Marcador do volume do arquivo frio vazio: " + marcador);
+    }
+
+    private Optional<BloomFilter> filtro(ArquivoDia arquivo) {
+        return filtros.computeIfAbsent(arquivo, a -> {
+            try {
+                return Optional.of(Indice.ler(Path.of(a.caminho())).placas());
+            } catch (IOException e) {
+                // Sem índice o arquivo não é podado (lido sempre), mas continua pesquisável
+                log.warn("⚠️ Índice ilegível para {}: {}", a.caminho(), e.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * O volume compartilhado é conferido na partida; um arquivo que ainda assim falhe (corrompido, removido à mão)
+     * não derruba a busca: o dia é pulado, com aviso e a métrica radares.arquivo.arquivos_ilegiveis.
+     */
+    private List<RadarsDTO> lerArquivo(ArquivoDia arquivo, String placa, boolean exata) throws InterruptedException {
+        leiturasSimultaneas.acquire();
+        try {
+            arquivosLidos.increment();
+            return ArquivoColunar.ler(Path.of(arquivo.caminho()), placa, exata);
+        } catch (IOException | UncheckedIOException e) {
+            arquivosIlegiveis.increment();
+            log.warn("⚠️ Arquivo frio de {} ilegível, dia ignorado na busca ({}): {}", arquivo.data(), arquivo.caminho(), e.getMessage());
+            return List.of();
+        } finally {
+            leiturasSimultaneas.release();
+        }
+    }
+
+    private static boolean antesDoCursor(RadarsDTO r, CursorPassagem cursor) {
+        int c = r.data().compareTo(cursor.data());
+        if (cursor.limiteDeDia()) return c < 0;
+        if (c == 0 && r.hora() != null) c = r.hora().compareTo(cursor.hora());
+        if (c != 0) return c < 0;
+        // Mesmo instante: placa em ordem crescente (como no banco)
+        return r.placa() != null && r.placa().compareTo(cursor.placa()) > 0;
+    }
+
+    private static <T> T aguardar(Future<T> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Busca no arquivo frio interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na busca no arquivo frio: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
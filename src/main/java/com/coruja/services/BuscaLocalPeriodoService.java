@@ -0,0 +1,167 @@
+package com.coruja.services;
+
+import com.coruja.dto.PageMetadata;
+import com.coruja.dto.RadarPageDTO;
+import com.coruja.dto.RadarsDTO;
+import com.coruja.repositories.BuscaLocalRepository;
+import com.coruja.repositories.BuscaLocalRepository.Filtro;
+import com.coruja.utils.CursorPassagem;
+import com.coruja.utils.KmParser;
+import com.coruja.utils.MesclaOrdenada;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ✅ BUSCA LOCAL POR PERÍODO
+ * O período é quebrado em uma consulta por dia (uma partição e uma faixa do índice cada), executadas em
+ * virtual threads com limite de conexões simultâneas. Os dias são disparados em ondas, do mais recente
+ * para o mais antigo, até a página encher; os resultados são unidos por mescla k-way já ordenada.
+ * Paginação por cursor keyset (data, hora, placa): sem OFFSET e sem COUNT.
+ */
+@Service
+@Slf4j
+public class BuscaLocalPeriodoService {
+
+    private static final Comparator<RadarsDTO> MAIS_RECENTE_PRIMEIRO =
+            Comparator.comparing(RadarsDTO::data)
+                    .thenComparing(RadarsDTO::hora)
+                    .reversed()
+                    .thenComparing(RadarsDTO::placa);
+
+    private final BuscaLocalRepository buscaLocalRepository;
+    private final GestaoRodoviaService gestaoRodoviaService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore consultasSimultaneas;
+    private final int tamanhoOnda;
+    private final int maxDias;
+    private final int maxTamanho;
+
+    public BuscaLocalPeriodoService(BuscaLocalRepository buscaLocalRepository,
+                                    GestaoRodoviaService gestaoRodoviaService,
+                                    @Value("${radares.busca-local.consultas-simultaneas:8}") int consultasSimultaneas,
+                                    @Value("${radares.busca-local.max-dias:31}") int maxDias,
+                                    @Value("${radares.busca-local.max-tamanho:500}") int maxTamanho) {
+        this.buscaLocalRepository = buscaLocalRepository;
+        this.gestaoRodoviaService = gestaoRodoviaService;
+        this.consultasSimultaneas = new Semaphore(consultasSimultaneas);
+        this.tamanhoOnda = consultasSimultaneas;
+        this.maxDias = maxDias;
+        this.maxTamanho = maxTamanho;
+    }
+
+    public RadarPageDTO buscar(LocalDate dataInicial, LocalDate dataFinal,
+                               LocalTime horaInicial, LocalTime horaFinal,
+                               String rodovia, String km, String kmInicial, String kmFinal, String sentido,
+                               int tamanho, String token) {
+        if (dataInicial == null || dataFinal == null) {
+            throw new IllegalArgumentException("Data inicial e final são obrigatórias");
+        }
+        if (dataFinal.isBefore(dataInicial)) {
+            throw new IllegalArgumentException("Data final anterior à data inicial");
+        }
+        if (ChronoUnit.DAYS.between(dataInicial, dataFinal) + 1 > maxDias) {
+            throw new IllegalArgumentException("Período máximo da busca local é de " + maxDias + " dias");
+        }
+        if (tamanho <= 0 || tamanho > maxTamanho) {
+            throw new IllegalArgumentException("Tamanho da página deve estar entre 1 e " + maxTamanho);
+        }
+
+        CursorPassagem cursor = token == null || token.isBlank() ? null : CursorPassagem.decodificar(token);
+        String rodoviaNormalizada = normalize(rodovia);
+        String kmNormalizado = normalize(km);
+        String sentidoNormalizado = normalize(sentido);
+        Integer kmInicialMetros = KmParser.filtro(kmInicial);
+        Integer kmFinalMetros = KmParser.filtro(kmFinal);
+        String rodoviaExata = gestaoRodoviaService.nomeExato(rodoviaNormalizada).orElse(null);
+
+        // Dias do mais recente para o mais antigo; os posteriores ao cursor já foram entregues
+        LocalDate inicio = cursor != null && cursor.data().isBefore(dataFinal) ? cursor.data() : dataFinal;
+        List<LocalDate> dias = new ArrayList<>();
+        for (LocalDate dia = inicio; !dia.isBefore(dataInicial); dia = dia.minusDays(1)) dias.add(dia);
+
+        // Uma linha a mais por dia para saber se existe próxima página
+        int limitePorDia = tamanho + 1;
+        List<List<RadarsDTO>> porDia = new ArrayList<>();
+        int coletadas = 0;
+        int visitados = 0;
+        long t0 = System.currentTimeMillis();
+
+        while (visitados < dias.size() && coletadas <= tamanho) {
+            List<LocalDate> onda = dias.subList(visitados, Math.min(visitados + tamanhoOnda, dias.size()));
+            List<Future<List<RadarsDTO>>> futuros = new ArrayList<>(onda.size());
+            for (LocalDate dia : onda) {
+                CursorPassagem restricao = cursor != null && cursor.data().equals(dia) ? cursor : null;
+                Filtro filtro = new Filtro(dia, horaInicial, horaFinal,
+                        rodoviaExata != null ? rodoviaExata : rodoviaNormalizada, rodoviaExata != null,
+                        kmNormalizado, kmInicialMetros, kmFinalMetros, sentidoNormalizado);
+                futuros.add(executor.submit(() -> consultarDia(filtro, restricao, limitePorDia)));
+            }
+            for (Future<List<RadarsDTO>> futuro : futuros) {
+                List<RadarsDTO> lista = aguardar(futuro);
+                coletadas += lista.size();
+                porDia.add(lista);
+            }
+            visitados += onda.size();
+        }
+
+        List<RadarsDTO> mescladas = MesclaOrdenada.mesclar(porDia, MAIS_RECENTE_PRIMEIRO, limitePorDia);
+        boolean haMais = mescladas.size() > tamanho || visitados < dias.size();
+        List<RadarsDTO> pagina = mescladas.size() > tamanho ? new ArrayList<>(mescladas.subList(0, tamanho)) : mescladas;
+
+        String proximoCursor = null;
+        if (haMais && !pagina.isEmpty()) {
+            RadarsDTO ultima = pagina.get(pagina.size() - 1);
+            proximoCursor = new CursorPassagem(ultima.data(), ultima.hora(), ultima.placa()).codificar();
+        }
+
+        log.info("📅 Busca local {} a {}: {} dias consultados, {} linhas, {} ms",
+                dataInicial, dataFinal, visitados, pagina.size(), System.currentTimeMillis() - t0);
+
+        // Total desconhecido (sem COUNT): -1; a navegação é pelo proximoCursor
+        PageMetadata metadata = new PageMetadata(0, tamanho, -1, -1);
+        return new RadarPageDTO(pagina, metadata, proximoCursor);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private List<RadarsDTO> consultarDia(Filtro filtro, CursorPassagem cursor, int limite) throws InterruptedException {
+        consultasSimultaneas.acquire();
+        try {
+            return buscaLocalRepository.listar(filtro, cursor, 0, limite);
+        } finally {
+            consultasSimultaneas.release();
+        }
+    }
+
+    private static <T> T aguardar(Future<T> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Busca local interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na busca local: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private String normalize(String input) {
+        return input == null || input.isBlank() ? null : input.trim().toUpperCase();
+    }
+}
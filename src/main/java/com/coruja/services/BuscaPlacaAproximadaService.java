@@ -0,0 +1,64 @@
+package com.coruja.services;
+
+import com.coruja.dto.PlacaAproximadaDTO;
+import com.coruja.repositories.PassagensRepository;
+import com.coruja.repositories.PassagensRepository.PlacaCandidata;
+import com.coruja.utils.PlacaConfusivel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ✅ BUSCA DE PLACA TOLERANTE A OCR
+ * O padrão é normalizado com a mesma regra da função SQL placa_confusivel (O/0, I/1, B/8, S/5):
+ * uma única consulta já devolve todas as variantes confundíveis, que são ranqueadas pela
+ * distância de edição em relação ao que foi digitado.
+ */
+@Service
+@Slf4j
+public class BuscaPlacaAproximadaService {
+
+    private static final int MIN_CARACTERES_FIXOS = 3;
+
+    private final PassagensRepository passagensRepository;
+    private final int maxCandidatos;
+
+    public BuscaPlacaAproximadaService(PassagensRepository passagensRepository,
+                                       @Value("${radares.busca-aproximada.max-candidatos:500}") int maxCandidatos) {
+        this.passagensRepository = passagensRepository;
+        this.maxCandidatos = maxCandidatos;
+    }
+
+    public List<PlacaAproximadaDTO> buscar(String padrao, LocalDate dataInicial, LocalDate dataFinal, int limite) {
+        if (padrao == null || padrao.isBlank()) throw new IllegalArgumentException("Padrão de placa é obrigatório");
+        if (dataInicial != null && dataFinal != null && dataFinal.isBefore(dataInicial)) {
+            throw new IllegalArgumentException("Data final anterior à data inicial");
+        }
+
+        String limpo = PlacaConfusivel.limparPadrao(padrao);
+        // Poucos caracteres fixos = sem trigramas úteis = varredura do índice inteiro
+        long fixos = limpo.chars().filter(Character::isLetterOrDigit).count();
+        if (fixos < MIN_CARACTERES_FIXOS) {
+            throw new IllegalArgumentException("O padrão deve ter ao menos " + MIN_CARACTERES_FIXOS + " caracteres fixos");
+        }
+
+        boolean curinga = PlacaConfusivel.temCuringa(limpo);
+        String valor = curinga ? PlacaConfusivel.paraLike(limpo) : PlacaConfusivel.normalizar(limpo);
+        List<PlacaCandidata> candidatas = passagensRepository.buscarPlacasConfusiveis(
+                valor, curinga, limpo, dataInicial, dataFinal, maxCandidatos);
+
+        log.debug("🔎 Busca aproximada '{}' -> '{}': {} placas candidatas", padrao, valor, candidatas.size());
+        return candidatas.stream()
+                .map(c -> new PlacaAproximadaDTO(c.placa(), PlacaConfusivel.distancia(limpo, c.placa()),
+                        c.total(), c.ultimaPassagem()))
+                .sorted(Comparator.comparingInt(PlacaAproximadaDTO::getDistancia)
+                        .thenComparing(Comparator.comparingLong(PlacaAproximadaDTO::getTotalPassagens).reversed())
+                        .thenComparing(PlacaAproximadaDTO::getPlaca))
+                .limit(limite)
+                .toList();
+    }
+}
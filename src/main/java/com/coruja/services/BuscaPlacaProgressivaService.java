@@ -0,0 +1,120 @@
+package com.coruja.services;
+
+import com.coruja.dto.BuscaProgressivaDTO;
+import com.coruja.dto.RadarsDTO;
+import com.coruja.repositories.PassagensRepository;
+import com.coruja.utils.CursorPassagem;
+import com.coruja.utils.PodaDias;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * ✅ BUSCA PROGRESSIVA POR PLACA (MAIS RECENTES PRIMEIRO)
+ * Percorre janelas de data crescentes (1, 7, 30, 90, 365 dias...) a partir do dia mais recente
+ * e para assim que a página enche: sem OFFSET e sem COUNT do histórico inteiro.
+ * Esgotado o banco, continua nos dias do arquivo frio (mais antigos que a retenção).
+ * A continuação é um cursor keyset (data, hora, placa) da última linha entregue, ou um limite de dia
+ * quando o limite de consultas esgota antes de a página encher.
+ */
+@Service
+@Slf4j
+public class BuscaPlacaProgressivaService {
+
+    private static final int[] JANELAS_DIAS = {1, 7, 30, 90, 365};
+    private static final Pattern PLACA_COMPLETA = Pattern.compile("[A-Z0-9]{7}");
+
+    private final PassagensRepository passagensRepository;
+    private final PlacasBloomService placasBloomService;
+    private final ArquivoFrioService arquivoFrioService;
+    private final int maxTamanho;
+    private final int maxConsultas;
+
+    public BuscaPlacaProgressivaService(PassagensRepository passagensRepository,
+                                        PlacasBloomService placasBloomService,
+                                        ArquivoFrioService arquivoFrioService,
+                                        @Value("${radares.busca-progressiva.max-tamanho:200}") int maxTamanho,
+                                        @Value("${radares.busca-progressiva.max-consultas:12}") int maxConsultas) {
+        this.passagensRepository = passagensRepository;
+        this.placasBloomService = placasBloomService;
+        this.arquivoFrioService = arquivoFrioService;
+        this.maxTamanho = maxTamanho;
+        this.maxConsultas = maxConsultas;
+    }
+
+    public BuscaProgressivaDTO buscar(String placa, int tamanho, String token) {
+        if (placa == null || placa.isBlank()) throw new IllegalArgumentException("Placa é obrigatória");
+        if (tamanho <= 0 || tamanho > maxTamanho) {
+            throw new IllegalArgumentException("Tamanho da página deve estar entre 1 e " + maxTamanho);
+        }
+
+        String placaNormalizada = placa.trim().toUpperCase();
+        boolean exata = PLACA_COMPLETA.matcher(placaNormalizada).matches();
+        CursorPassagem cursor = token == null || token.isBlank() ? null : CursorPassagem.decodificar(token);
+
+        LocalDate[] limites = passagensRepository.limitesDeData();
+        boolean temArquivo = arquivoFrioService.possuiArquivos();
+        if (limites[0] == null && !temArquivo) return BuscaProgressivaDTO.builder().content(List.of()).build();
+        LocalDate dataMinima = limites[0];
+        LocalDate ate = cursor == null ? limites[1] : cursor.limiteDeDia() ? cursor.data().minusDays(1) : cursor.data();
+
+        PodaDias poda = exata ? placasBloomService.podar(placaNormalizada) : PodaDias.SEM_COBERTURA;
+
+        List<RadarsDTO> pagina = new ArrayList<>(tamanho);
+        LocalDate varridoAte = ate;
+        int consultas = 0;
+        int janela = 0;
+
+        while (dataMinima != null && pagina.size() < tamanho && !ate.isBefore(dataMinima) && consultas < maxConsultas) {
+            int dias = JANELAS_DIAS[Math.min(janela++, JANELAS_DIAS.length - 1)];
+            LocalDate de = ate.minusDays(dias - 1L);
+            if (de.isBefore(dataMinima)) de = dataMinima;
+
+            List<LocalDate> diasPossiveis = null;
+            if (poda.temCobertura()) {
+                diasPossiveis = de.datesUntil(ate.plusDays(1)).filter(poda::podeConter).toList();
+            }
+            if (diasPossiveis == null || !diasPossiveis.isEmpty()) {
+                // O cursor só restringe a janela que contém o dia dele; as seguintes são estritamente mais antigas
+                CursorPassagem restricao = cursor != null && !cursor.data().isBefore(de) ? cursor : null;
+                pagina.addAll(passagensRepository.listarPorPlacaNaJanela(placaNormalizada, exata, de, ate,
+                        diasPossiveis, restricao, tamanho - pagina.size()));
+                consultas++;
+            }
+            varridoAte = de;
+            ate = de.minusDays(1);
+        }
+
+        // Banco esgotado: o restante vem do arquivo frio, já ordenado e limitado
+        boolean bancoEsgotado = dataMinima == null || ate.isBefore(dataMinima);
+        if (temArquivo && bancoEsgotado && pagina.size() < tamanho && consultas < maxConsultas) {
+            CursorPassagem restricao = cursor != null && (ate == null || !cursor.data().isAfter(ate)) ? cursor : null;
+            List<RadarsDTO> arquivadas = arquivoFrioService.buscarPorPlaca(placaNormalizada, exata, ate, restricao, tamanho - pagina.size());
+            pagina.addAll(arquivadas);
+            consultas++;
+            if (!arquivadas.isEmpty()) varridoAte = arquivadas.get(arquivadas.size() - 1).data();
+        }
+
+        String proximoCursor = null;
+        if (pagina.size() >= tamanho) {
+            RadarsDTO ultima = pagina.get(pagina.size() - 1);
+            proximoCursor = new CursorPassagem(ultima.data(), ultima.hora(), ultima.placa()).codificar();
+        } else if (!bancoEsgotado) {
+            // Limite de consultas atingido sem encher a página: retoma nos dias anteriores ao último varrido
+            proximoCursor = CursorPassagem.antesDoDia(varridoAte).codificar();
+        }
+
+        log.debug("⏩ Busca progressiva {}: {} linhas, {} consultas, varrido até {}", placaNormalizada, pagina.size(), consultas, varridoAte);
+        return BuscaProgressivaDTO.builder()
+                .content(pagina)
+                .proximoCursor(proximoCursor)
+                .varridoAte(varridoAte)
+                .consultas(consultas)
+                .build();
+    }
+}
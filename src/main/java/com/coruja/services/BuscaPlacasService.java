@@ -0,0 +1,175 @@
+package com.coruja.services;
+
+import com.coruja.dto.BuscaPlacasRequestDTO;
+import com.coruja.enums.ModoBuscaPlacas;
+import com.coruja.repositories.ParticoesRepository;
+import com.coruja.repositories.ParticoesRepository.Particao;
+import com.coruja.repositories.PassagensRepository;
+import com.coruja.repositories.PassagensRepository.Passagem;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * ✅ BUSCA DE VÁRIAS PLACAS EM UMA REQUISIÇÃO (WATCHLIST)
+ * As placas são processadas em blocos; para cada bloco roda UMA consulta "placa = ANY(?)" por partição
+ * relevante (catálogo do Postgres), e o resultado de cada bloco é escrito no stream assim que fica pronto.
+ * Memória limitada ao bloco corrente, independente do tamanho da lista.
+ */
+@Service
+@Slf4j
+public class BuscaPlacasService {
+
+    private static final Comparator<Passagem> MAIS_RECENTE_PRIMEIRO =
+            Comparator.comparing(Passagem::data).thenComparing(Passagem::hora).reversed();
+
+    private final PassagensRepository passagensRepository;
+    private final ParticoesRepository particoesRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxPlacas;
+    private final int tamanhoBloco;
+    private final int maxPassagensPorPlaca;
+
+    public BuscaPlacasService(PassagensRepository passagensRepository,
+                              ParticoesRepository particoesRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${radares.busca-placas.max-placas:5000}") int maxPlacas,
+                              @Value("${radares.busca-placas.tamanho-bloco:500}") int tamanhoBloco,
+                              @Value("${radares.busca-placas.max-passagens-por-placa:1000}") int maxPassagensPorPlaca) {
+        this.passagensRepository = passagensRepository;
+        this.particoesRepository = particoesRepository;
+        this.objectMapper = objectMapper;
+        this.maxPlacas = maxPlacas;
+        this.tamanhoBloco = tamanhoBloco;
+        this.maxPassagensPorPlaca = maxPassagensPorPlaca;
+    }
+
+    /**
+     * Requisição validada e normalizada (feito antes de abrir o stream, para erros virarem resposta de erro).
+     */
+    public record Busca(List<String> placas, LocalDate dataInicial, LocalDate dataFinal, ModoBuscaPlacas modo) { }
+
+    public Busca preparar(BuscaPlacasRequestDTO request) {
+        if (request == null || request.getPlacas() == null || request.getPlacas().isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos uma placa");
+        }
+        if (request.getDataInicial() != null && request.getDataFinal() != null
+                && request.getDataFinal().isBefore(request.getDataInicial())) {
+            throw new IllegalArgumentException("Data final anterior à data inicial");
+        }
+
+        // Ordenadas e sem repetição: blocos determinísticos e placas agrupadas na saída
+        TreeSet<String> placas = new TreeSet<>();
+        for (String placa : request.getPlacas()) {
+            if (placa == null) continue;
+            String normalizada = placa.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
+            if (!normalizada.isEmpty() && normalizada.length() <= 7) placas.add(normalizada);
+        }
+        if (placas.isEmpty()) throw new IllegalArgumentException("Nenhuma placa válida informada");
+        if (placas.size() > maxPlacas) {
+            throw new IllegalArgumentException("Máximo de " + maxPlacas + " placas por requisição");
+        }
+
+        ModoBuscaPlacas modo = request.getModo() == null ? ModoBuscaPlacas.COMPLETO : request.getModo();
+        return new Busca(new ArrayList<>(placas), request.getDataInicial(), request.getDataFinal(), modo);
+    }
+
+    public void escrever(Busca busca, OutputStream out) throws IOException {
+        List<Particao> particoes = particoesRepository.listar().stream()
+                .filter(p -> p.intersecta(busca.dataInicial(), busca.dataFinal()))
+                .toList();
+        long inicio = System.currentTimeMillis();
+
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("modo", busca.modo().name());
+            gen.writeObjectField("dataInicial", busca.dataInicial());
+            gen.writeObjectField("dataFinal", busca.dataFinal());
+            gen.writeNumberField("totalPlacas", busca.placas().size());
+            gen.writeArrayFieldStart("resultados");
+
+            for (int i = 0; i < busca.placas().size(); i += tamanhoBloco) {
+                List<String> bloco = busca.placas().subList(i, Math.min(i + tamanhoBloco, busca.placas().size()));
+                if (busca.modo() == ModoBuscaPlacas.RESUMO) {
+                    escreverResumo(gen, bloco, particoes, busca);
+                } else {
+                    escreverCompleto(gen, bloco, particoes, busca);
+                }
+                gen.flush();
+            }
+
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        log.info("📋 Busca de {} placas ({}) em {} partições: {} ms",
+                busca.placas().size(), busca.modo(), particoes.size(), System.currentTimeMillis() - inicio);
+    }
+
+    private void escreverCompleto(JsonGenerator gen, List<String> bloco, List<Particao> particoes, Busca busca)
+            throws IOException {
+        // Por placa, as N mais recentes entre todas as partições (topo do heap = a mais antiga mantida):
+        // a DEFAULT vem por último mas pode ter as datas mais recentes, então o corte só vale depois de ver todas
+        Map<String, PriorityQueue<Passagem>> passagens = new HashMap<>();
+        Map<String, Long> totais = new HashMap<>();
+
+        for (Particao particao : particoes) {
+            passagensRepository.listarPorPlacasNaParticao(particao.nome(), bloco, busca.dataInicial(), busca.dataFinal(), p -> {
+                totais.merge(p.placa(), 1L, Long::sum);
+                PriorityQueue<Passagem> maisRecentes = passagens.computeIfAbsent(p.placa(),
+                        k -> new PriorityQueue<>(MAIS_RECENTE_PRIMEIRO.reversed()));
+                if (maisRecentes.size() < maxPassagensPorPlaca) {
+                    maisRecentes.add(p);
+                } else if (!maisRecentes.isEmpty() && MAIS_RECENTE_PRIMEIRO.compare(p, maisRecentes.peek()) < 0) {
+                    maisRecentes.poll();
+                    maisRecentes.add(p);
+                }
+            });
+        }
+
+        for (String placa : bloco) {
+            PriorityQueue<Passagem> maisRecentes = passagens.get(placa);
+            List<Passagem> lista = maisRecentes == null ? List.of() : new ArrayList<>(maisRecentes);
+            if (lista.size() > 1) lista.sort(MAIS_RECENTE_PRIMEIRO);
+            long total = totais.getOrDefault(placa, 0L);
+
+            gen.writeStartObject();
+            gen.writeStringField("placa", placa);
+            gen.writeNumberField("total", total);
+            gen.writeBooleanField("truncado", total > lista.size());
+            gen.writeObjectField("passagens", lista);
+            gen.writeEndObject();
+        }
+    }
+
+    private void escreverResumo(JsonGenerator gen, List<String> bloco, List<Particao> particoes, Busca busca)
+            throws IOException {
+        Map<String, Long> totais = new HashMap<>();
+        Map<String, Passagem> primeiras = new HashMap<>();
+        Map<String, Passagem> ultimas = new HashMap<>();
+
+        for (Particao particao : particoes) {
+            passagensRepository.resumirPorPlacasNaParticao(particao.nome(), bloco, busca.dataInicial(), busca.dataFinal(),
+                    (total, primeira, ultima) -> {
+                        totais.merge(ultima.placa(), total, Long::sum);
+                        primeiras.merge(ultima.placa(), primeira, (a, b) -> MAIS_RECENTE_PRIMEIRO.compare(a, b) > 0 ? a : b);
+                        ultimas.merge(ultima.placa(), ultima, (a, b) -> MAIS_RECENTE_PRIMEIRO.compare(a, b) <= 0 ? a : b);
+                    });
+        }
+
+        for (String placa : bloco) {
+            gen.writeStartObject();
+            gen.writeStringField("placa", placa);
+            gen.writeNumberField("total", totais.getOrDefault(placa, 0L));
+            gen.writeObjectField("primeiraPassagem", primeiras.get(placa));
+            gen.writeObjectField("ultimaPassagem", ultimas.get(placa));
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.coruja.services;
+
+import com.coruja.events.PassagensPareadasEvent;
+import com.coruja.utils.DetectorClonagem;
+import com.coruja.utils.DetectorClonagem.Alerta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * ✅ DETECÇÃO DE PLACA CLONADA NA INGESTÃO
+ * Avalia no {@link DetectorClonagem} cada par (passagem anterior -> atual) dos lotes confirmados e publica os alertas
+ * em uma routing key dedicada do RabbitMQ. A última passagem de cada placa vem de {@link UltimasPassagensService}
+ * (tabela compartilhada), então a detecção vale com a ingestão dividida entre réplicas.
+ */
+@Service
+@Slf4j
+public class ClonagemService {
+
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.routing.key.clonagem:radares.cart.clonagem}")
+    private String routingKeyClonagem;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final LocalizacaoIndexService localizacaoIndex;
+    private final DetectorClonagem detector;
+    private final Counter alertas;
+
+    public ClonagemService(RabbitTemplate rabbitTemplate,
+                           LocalizacaoIndexService localizacaoIndex,
+                           MeterRegistry meterRegistry,
+                           @Value("${radares.clonagem.velocidade-maxima-kmh:180}") double velocidadeMaximaKmh,
+                           @Value("${radares.clonagem.distancia-minima-km:5}") double distanciaMinimaKm) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.localizacaoIndex = localizacaoIndex;
+        this.detector = new DetectorClonagem(velocidadeMaximaKmh, distanciaMinimaKm);
+        this.alertas = Counter.builder("radares.clonagem.alertas").register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onPassagensPareadas(PassagensPareadasEvent event) {
+        sincronizarLocais();
+
+        for (PassagensPareadasEvent.Par par : event.getPares()) {
+            if (par.pracaAnterior().equals(par.pracaAtual())) continue;
+            localizacaoIndex.porPraca(par.pracaAnterior()).ifPresent(anterior ->
+                    localizacaoIndex.porPraca(par.pracaAtual())
+                            .flatMap(atual -> detector.avaliar(par.placa(),
+                                    anterior.id(), instante(par.instanteAnterior()),
+                                    atual.id(), instante(par.instanteAtual())))
+                            .ifPresent(this::publicarAlerta));
+        }
+    }
+
+    private void sincronizarLocais() {
+        localizacaoIndex.todas().values().stream()
+                .filter(LocalizacaoIndexService.Localizacao::temCoordenadas)
+                .forEach(loc -> detector.registrarLocal(loc.id(), loc.latitude(), loc.longitude()));
+    }
+
+    private void publicarAlerta(Alerta alerta) {
+        alertas.increment();
+        String pracaAnterior = localizacaoIndex.porId(alerta.localizacaoAnterior())
+                .map(LocalizacaoIndexService.Localizacao::praca).orElse("?");
+        String pracaAtual = localizacaoIndex.porId(alerta.localizacaoAtual())
+                .map(LocalizacaoIndexService.Localizacao::praca).orElse("?");
+
+        log.warn("🚨 Possível placa clonada {}: {} -> {} ({} km em {} s; mínimo {} s)",
+                alerta.placa(), pracaAnterior, pracaAtual,
+                String.format("%.1f", alerta.distanciaKm()), alerta.segundosDecorridos(), alerta.segundosMinimos());
+
+        try {
+            String msg = String.format("%s|%s|%s|%s|%s|%s|%.1f|%d|%.0f",
+                    alerta.placa(),
+                    LocalDateTime.ofInstant(Instant.ofEpochSecond(alerta.instanteAnterior()), FUSO), pracaAnterior,
+                    LocalDateTime.ofInstant(Instant.ofEpochSecond(alerta.instanteAtual()), FUSO), pracaAtual,
+                    "CLONAGEM",
+                    alerta.distanciaKm(), alerta.segundosDecorridos(), alerta.velocidadeNecessariaKmh());
+            rabbitTemplate.convertAndSend(exchangeName, routingKeyClonagem, msg);
+        } catch (AmqpException e) {
+            log.warn("⚠️ Falha RabbitMQ (alerta de clonagem) - Placa {}: {}", alerta.placa(), e.getMessage());
+        }
+    }
+
+    private long instante(LocalDateTime instante) {
+        return instante.atZone(FUSO).toEpochSecond();
+    }
+}
@@ -0,0 +1,155 @@
+package com.coruja.services;
+
+import com.coruja.dto.AcompanhanteDTO;
+import com.coruja.dto.ComboioDTO;
+import com.coruja.repositories.PassagensRepository;
+import com.coruja.repositories.PassagensRepository.Passagem;
+import com.coruja.repositories.PassagensRepository.Vizinho;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ✅ DETECÇÃO DE COMBOIO (VEÍCULOS QUE ACOMPANHAM UMA PLACA)
+ * Para cada passagem da placa-alvo, busca quem passou na mesma praça dentro de ±janela segundos.
+ * As buscas por passagem rodam em paralelo em virtual threads; o semáforo limita quantas
+ * ocupam conexão do pool ao mesmo tempo. As placas são pontuadas pelo número de passagens em comum.
+ */
+@Service
+@Slf4j
+public class ComboioService {
+
+    private final PassagensRepository passagensRepository;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore consultasSimultaneas;
+    private final int maxAvistamentos;
+    private final int maxJanelaSegundos;
+    private final int maxDias;
+
+    public ComboioService(PassagensRepository passagensRepository,
+                          @Value("${radares.comboio.consultas-simultaneas:8}") int consultasSimultaneas,
+                          @Value("${radares.comboio.max-avistamentos:500}") int maxAvistamentos,
+                          @Value("${radares.comboio.max-janela-segundos:600}") int maxJanelaSegundos,
+                          @Value("${radares.comboio.max-dias:31}") int maxDias) {
+        this.passagensRepository = passagensRepository;
+        this.consultasSimultaneas = new Semaphore(consultasSimultaneas);
+        this.maxAvistamentos = maxAvistamentos;
+        this.maxJanelaSegundos = maxJanelaSegundos;
+        this.maxDias = maxDias;
+    }
+
+    private record Ocorrencia(int avistamento, String praca, long diferencaSegundos) { }
+
+    public ComboioDTO buscar(String placa, LocalDate dataInicial, LocalDate dataFinal,
+                             int janelaSegundos, int minOcorrencias, int limite) {
+        if (placa == null || placa.isBlank()) throw new IllegalArgumentException("Placa é obrigatória");
+        if (dataInicial == null || dataFinal == null) throw new IllegalArgumentException("Período é obrigatório");
+        if (dataFinal.isBefore(dataInicial)) throw new IllegalArgumentException("dataFinal anterior a dataInicial");
+        if (ChronoUnit.DAYS.between(dataInicial, dataFinal) + 1 > maxDias) {
+            throw new IllegalArgumentException("Período máximo da busca de comboio é de " + maxDias + " dias");
+        }
+        if (janelaSegundos <= 0 || janelaSegundos > maxJanelaSegundos) {
+            throw new IllegalArgumentException("janelaSegundos deve estar entre 1 e " + maxJanelaSegundos);
+        }
+
+        String alvo = placa.trim().toUpperCase();
+        List<Passagem> avistamentos = passagensRepository.listarPorPlaca(alvo, dataInicial, dataFinal, maxAvistamentos + 1);
+        boolean truncado = avistamentos.size() > maxAvistamentos;
+        if (truncado) avistamentos = avistamentos.subList(0, maxAvistamentos);
+
+        // 1. Vizinhos de cada passagem, em paralelo
+        List<Future<List<Vizinho>>> futuros = new ArrayList<>(avistamentos.size());
+        for (Passagem p : avistamentos) {
+            futuros.add(executor.submit(() -> vizinhos(p, alvo, janelaSegundos)));
+        }
+
+        // 2. Agrupa por placa; cada passagem do alvo conta no máximo uma vez por placa
+        Map<String, Map<Integer, Ocorrencia>> porPlaca = new HashMap<>();
+        for (int i = 0; i < futuros.size(); i++) {
+            Passagem p = avistamentos.get(i);
+            LocalDateTime instanteAlvo = LocalDateTime.of(p.data(), p.hora());
+            for (Vizinho v : aguardar(futuros.get(i))) {
+                long diferenca = Math.abs(Duration.between(instanteAlvo, v.instante()).getSeconds());
+                int avistamento = i;
+                porPlaca.computeIfAbsent(v.placa(), k -> new HashMap<>())
+                        .merge(avistamento, new Ocorrencia(avistamento, p.praca(), diferenca),
+                                (a, b) -> a.diferencaSegundos() <= b.diferencaSegundos() ? a : b);
+            }
+        }
+
+        // 3. Pontuação
+        int totalAlvo = avistamentos.size();
+        List<AcompanhanteDTO> acompanhantes = new ArrayList<>();
+        porPlaca.forEach((outra, ocorrencias) -> {
+            if (ocorrencias.size() < minOcorrencias) return;
+            long soma = 0;
+            Set<String> pracas = new TreeSet<>();
+            for (Ocorrencia o : ocorrencias.values()) {
+                soma += o.diferencaSegundos();
+                if (o.praca() != null) pracas.add(o.praca());
+            }
+            acompanhantes.add(AcompanhanteDTO.builder()
+                    .placa(outra)
+                    .avistamentosEmComum(ocorrencias.size())
+                    .percentualDoAlvo(Math.round(ocorrencias.size() * 10000.0 / totalAlvo) / 100.0)
+                    .diferencaMediaSegundos(soma / ocorrencias.size())
+                    .pracas(new ArrayList<>(pracas))
+                    .build());
+        });
+
+        acompanhantes.sort(Comparator.comparingInt(AcompanhanteDTO::getAvistamentosEmComum).reversed()
+                .thenComparingLong(AcompanhanteDTO::getDiferencaMediaSegundos)
+                .thenComparing(AcompanhanteDTO::getPlaca));
+
+        log.debug("🚙 Comboio {}: {} passagens, {} placas candidatas", alvo, totalAlvo, porPlaca.size());
+        return ComboioDTO.builder()
+                .placaAlvo(alvo)
+                .dataInicial(dataInicial)
+                .dataFinal(dataFinal)
+                .janelaSegundos(janelaSegundos)
+                .avistamentosAlvo(totalAlvo)
+                .truncado(truncado)
+                .acompanhantes(acompanhantes.size() > limite ? new ArrayList<>(acompanhantes.subList(0, limite)) : acompanhantes)
+                .build();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private List<Vizinho> vizinhos(Passagem p, String alvo, int janelaSegundos) throws InterruptedException {
+        if (p.praca() == null) return List.of();
+        LocalDateTime instante = LocalDateTime.of(p.data(), p.hora());
+        consultasSimultaneas.acquire();
+        try {
+            return passagensRepository.listarVizinhos(p.praca(),
+                    instante.minusSeconds(janelaSegundos), instante.plusSeconds(janelaSegundos), alvo);
+        } finally {
+            consultasSimultaneas.release();
+        }
+    }
+
+    private static <T> T aguardar(Future<T> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Busca de comboio interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na busca de comboio: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.ContextoJob;
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.repositories.CompactacaoRepository;
+import com.coruja.repositories.ParticoesRepository;
+import com.coruja.repositories.ParticoesRepository.Particao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * ✅ COMPACTAÇÃO DE PARTIÇÕES FECHADAS
+ * As linhas chegam em ordem de ingestão: depois que o período fecha, a partição é reescrita ordenada pela chave
+ * de acesso dominante (busca local: data, rodovia, km, hora), ganha um BRIN em (data, hora) e passa por
+ * VACUUM (FREEZE, ANALYZE). A reescrita é uma cópia ordenada + troca de tabelas:
+ * - a cópia corre dia a dia sem lock na partição antiga; um gatilho registra as linhas escritas enquanto isso;
+ * - na troca, a escrita na partição fica bloqueada só para reaplicar esse delta, e radars_cart apenas no
+ *   DETACH/ATTACH final (com lock_timeout; índices e FKs já prontos).
+ * Roda só na janela fora de pico, uma partição por vez, com pausa entre elas e VACUUM com atraso por custo,
+ * sob o lease "compactacao" (uma réplica por vez, também nas execuções manuais).
+ */
+@Service
+@Slf4j
+public class CompactacaoService {
+
+    private static final long CHAVE_TRAVA = 0x7261646172735F63L; // "radars_c"
+    private static final Pattern ORDEM_VALIDA = Pattern.compile("[a-z_]+( (ASC|DESC))?(, ?[a-z_]+( (ASC|DESC))?)*");
+    private static final String SUFIXO_COPIA = "_compacta";
+    static final String JOB = "compactacao";
+
+    private final ParticoesRepository particoesRepository;
+    private final CompactacaoRepository compactacaoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CoordenacaoJobsService coordenacaoJobsService;
+    private final MeterRegistry meterRegistry;
+    private final String ordem;
+    private final LocalTime janelaInicio;
+    private final LocalTime janelaFim;
+    private final int diasFechamento;
+    private final int diasHistorico;
+    private final int maxParticoes;
+    private final long maxBytes;
+    private final long pausaMs;
+    private final int atrasoVacuumMs;
+    private final long lockTimeoutMs;
+    private final boolean habilitado;
+
+    public CompactacaoService(ParticoesRepository particoesRepository,
+                              CompactacaoRepository compactacaoRepository,
+                              TransactionTemplate transactionTemplate,
+                              CoordenacaoJobsService coordenacaoJobsService,
+                              MeterRegistry meterRegistry,
+                              @Value("${radares.compactacao.ordem:data, rodovia, km, hora}") String ordem,
+                              @Value("${radares.compactacao.janela-inicio:01:00}") String janelaInicio,
+                              @Value("${radares.compactacao.janela-fim:05:00}") String janelaFim,
+                              @Value("${radares.compactacao.dias-fechamento:2}") int diasFechamento,
+                              @Value("${radares.retencao.dias-historico:90}") int diasHistorico,
+                              @Value("${radares.compactacao.max-particoes:1}") int maxParticoes,
+                              @Value("${radares.compactacao.max-bytes:21474836480}") long maxBytes,
+                              @Value("${radares.compactacao.pausa-ms:60000}") long pausaMs,
+                              @Value("${radares.compactacao.atraso-vacuum-ms:2}") int atrasoVacuumMs,
+                              @Value("${radares.compactacao.lock-timeout-ms:5000}") long lockTimeoutMs,
+                              @Value("${radares.compactacao.habilitado:true}") boolean habilitado) {
+        if (!ORDEM_VALIDA.matcher(ordem.trim()).matches()) {
+            throw new IllegalArgumentException("radares.compactacao.ordem inválida: " + ordem);
+        }
+        this.particoesRepository = particoesRepository;
+        this.compactacaoRepository = compactacaoRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.coordenacaoJobsService = coordenacaoJobsService;
+        this.meterRegistry = meterRegistry;
+        this.ordem = ordem.trim();
+        this.janelaInicio = LocalTime.parse(janelaInicio);
+        this.janelaFim = LocalTime.parse(janelaFim);
+        this.diasFechamento = diasFechamento;
+        this.diasHistorico = diasHistorico;
+        this.maxParticoes = maxParticoes;
+        this.maxBytes = maxBytes;
+        this.pausaMs = pausaMs;
+        this.atrasoVacuumMs = atrasoVacuumMs;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.habilitado = habilitado;
+    }
+
+    @Scheduled(cron = "${radares.compactacao.cron:0 10 * * * *}")
+    @JobCoordenado(nome = JOB)
+    public void executarAgendado() {
+        if (habilitado && naJanela()) executar(false);
+    }
+
+    /**
+     * @param forcar ignora a janela fora de pico (execução manual)
+     */
+    public Map<String, Object> executar(boolean forcar) {
+        return coordenacaoJobsService.executarExclusivo(JOB, lease -> compactarFechadas(forcar, lease))
+                .orElseGet(() -> Map.of("ignorada", "Compactação em execução em outra instância"));
+    }
+
+    private Map<String, Object> compactarFechadas(boolean forcar, ContextoJob lease) {
+        LocalDate hoje = LocalDate.now();
+        LocalDate fechadoAte = hoje.minusDays(diasFechamento);
+        LocalDate limiteRetencao = hoje.minusDays(diasHistorico);
+        Set<String> compactadas = compactacaoRepository.compactadas();
+
+        Map<String, Object> resumo = new LinkedHashMap<>();
+        int feitas = 0;
+        for (Particao p : particoesRepository.listar()) {
+            if (feitas >= maxParticoes) break;
+            if (!forcar && !naJanela()) {
+                log.info("⏸️ Compactação interrompida: fora da janela {}-{}", janelaInicio, janelaFim);
+                break;
+            }
+            // Só períodos fechados; os que a retenção vai arquivar em breve não compensam
+            if (p.padrao() || p.fim() == null || p.fim().isAfter(fechadoAte) || !p.fim().isAfter(limiteRetencao)) continue;
+            if (compactadas.contains(CompactacaoRepository.chave(p.nome(), p.inicio(), p.fim()))) continue;
+
+            if (feitas > 0) pausar();
+            resumo.put(p.nome(), compactar(p, lease));
+            feitas++;
+        }
+        log.info("🧱 Compactação: {}", resumo.isEmpty() ? "nada a fazer" : resumo);
+        return resumo;
+    }
+
+    private String compactar(Particao p, ContextoJob lease) {
+        long bytesAntes = particoesRepository.tamanhoBytes(p.nome());
+        long id = compactacaoRepository.iniciar(p, ordem, bytesAntes);
+        if (bytesAntes > maxBytes) {
+            compactacaoRepository.concluir(id, "IGNORADA", null, null, "Maior que radares.compactacao.max-bytes");
+            log.warn("⚠️ {} ({} MB) acima do limite de compactação", p.nome(), bytesAntes / (1024 * 1024));
+            return "IGNORADA";
+        }
+
+        String copia = p.nome() + SUFIXO_COPIA;
+        String delta = copia + "_delta";
+        String gatilho = "trg_" + copia;
+        String brin = "brin_" + copia;
+        long t0 = System.currentTimeMillis();
+        try {
+            // 1. Cópia vazia e registro de delta na origem (transação curta; sobras de execução interrompida saem antes)
+            Boolean preparada = transactionTemplate.execute(status -> {
+                particoesRepository.limitarEsperaPorLock(lockTimeoutMs);
+                if (!particoesRepository.travarManutencao(CHAVE_TRAVA)) return false;
+                particoesRepository.descartarCopia(p.nome(), copia, delta, gatilho);
+                particoesRepository.criarCopia(copia);
+                particoesRepository.registrarDelta(p.nome(), delta, gatilho);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(preparada)) {
+                compactacaoRepository.concluir(id, "IGNORADA", null, null, "Outra instância em manutenção");
+                return "IGNORADA";
+            }
+
+            // 2. Cópia ordenada dia a dia, sem lock na origem (leitura e escrita seguem normais)
+            long linhas = 0;
+            for (LocalDate dia : particoesRepository.diasNaParticao(p.nome())) {
+                coordenacaoJobsService.exigir(lease);
+                linhas += particoesRepository.copiarDiaOrdenado(p.nome(), copia, dia, ordem);
+            }
+
+            // 3. FKs, faixa (CHECK validada) e BRIN prontos antes da troca; só a cópia é tocada
+            particoesRepository.copiarChavesEstrangeiras(copia);
+            String faixa = "chk_" + copia + "_faixa";
+            particoesRepository.adicionarLimite(copia, faixa, p.inicio(), p.fim());
+            particoesRepository.validarLimite(copia, faixa);
+            particoesRepository.criarBrin(copia, brin);
+
+            // 4. Troca: escrita na partição bloqueada só para reaplicar o delta; radars_cart só no DETACH/ATTACH
+            coordenacaoJobsService.exigir(lease);
+            Integer saldo = transactionTemplate.execute(status -> {
+                particoesRepository.limitarEsperaPorLock(lockTimeoutMs);
+                if (!particoesRepository.travarManutencao(CHAVE_TRAVA)) return null;
+                particoesRepository.travarEscrita(p.nome());
+                int n = particoesRepository.aplicarDelta(p.nome(), copia, delta);
+                particoesRepository.desanexar(p.nome());
+                particoesRepository.remover(p.nome());
+                particoesRepository.anexar(copia, p.inicio(), p.fim());
+                particoesRepository.renomear(copia, p.nome());
+                particoesRepository.renomearIndice(brin, "brin_" + p.nome());
+                particoesRepository.descartarCopia(p.nome(), copia, delta, gatilho);
+                return n;
+            });
+            if (saldo == null) {
+                descartar(p, copia, delta, gatilho);
+                compactacaoRepository.concluir(id, "IGNORADA", null, null, "Outra instância em manutenção");
+                return "IGNORADA";
+            }
+            linhas += saldo;
+
+            // 5. Congela e atualiza estatísticas (fora de transação, com atraso por custo)
+            particoesRepository.congelar(p.nome(), atrasoVacuumMs);
+
+            long bytesDepois = particoesRepository.tamanhoBytes(p.nome());
+            compactacaoRepository.concluir(id, "CONCLUIDA", linhas, bytesDepois, null);
+            contar("concluida");
+            log.info("🧱 {} compactada: {} linhas, {} MB -> {} MB, {} ms", p.nome(), linhas,
+                    bytesAntes / (1024 * 1024), bytesDepois / (1024 * 1024), System.currentTimeMillis() - t0);
+            return "CONCLUIDA";
+        } catch (Exception e) {
+            descartar(p, copia, delta, gatilho);
+            compactacaoRepository.concluir(id, "FALHOU", null, null, e.getMessage());
+            contar("falhou");
+            log.warn("⚠️ Falha ao compactar {}: {}", p.nome(), e.getMessage());
+            return "FALHOU";
+        }
+    }
+
+    /**
+     * Remove gatilho, cópia e delta de uma compactação que não chegou à troca (a próxima execução também limpa).
+     */
+    private void descartar(Particao p, String copia, String delta, String gatilho) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                particoesRepository.limitarEsperaPorLock(lockTimeoutMs);
+                particoesRepository.descartarCopia(p.nome(), copia, delta, gatilho);
+            });
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao descartar cópia de {}: {}", p.nome(), e.getMessage());
+        }
+    }
+
+    private boolean naJanela() {
+        LocalTime agora = LocalTime.now();
+        return janelaInicio.isBefore(janelaFim)
+                ? !agora.isBefore(janelaInicio) && agora.isBefore(janelaFim)
+                : !agora.isBefore(janelaInicio) || agora.isBefore(janelaFim); // Janela que cruza a meia-noite
+    }
+
+    private void pausar() {
+        try {
+            Thread.sleep(pausaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void contar(String tipo) {
+        Counter.builder("radares.compactacao.operacoes").tag("tipo", tipo).register(meterRegistry).increment();
+    }
+}
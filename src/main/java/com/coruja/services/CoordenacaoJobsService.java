@@ -0,0 +1,163 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.ContextoJob;
+import com.coruja.repositories.JobLeaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * ✅ COORDENAÇÃO DE JOBS ENTRE INSTÂNCIAS
+ * Leases com prazo em job_lease (o Postgres já compartilhado pelas réplicas faz o papel de coordenador):
+ * - aquisição atômica (INSERT ... ON CONFLICT) com token crescente para fencing;
+ * - renovação em thread virtual a cada ttl/3 enquanto o job roda; falha na renovação marca o lease como perdido;
+ * - liberação ao fim do job, para a próxima execução não esperar o prazo.
+ * Uma réplica que para (crash, deploy) libera o job para as demais em no máximo um ttl.
+ */
+@Service
+@Slf4j
+public class CoordenacaoJobsService {
+
+    private final JobLeaseRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final String instancia;
+    private final long ttlMs;
+
+    // Leases em uso nesta instância -> thread de renovação
+    private final Map<String, Thread> renovacoes = new ConcurrentHashMap<>();
+
+    public CoordenacaoJobsService(JobLeaseRepository repository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${radares.jobs.instancia:}") String instancia,
+                                  @Value("${radares.jobs.lease-ttl-ms:120000}") long ttlMs) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.instancia = instancia.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8)
+                : instancia;
+        this.ttlMs = ttlMs;
+
+        meterRegistry.gauge("radares.jobs.leases.ativos", renovacoes, Map::size);
+        log.info("🤝 Coordenação de jobs: instância {}, lease de {} ms", this.instancia, ttlMs);
+    }
+
+    /**
+     * Identificador desta instância (dono de leases e de arquivos reivindicados).
+     */
+    public String instancia() {
+        return instancia;
+    }
+
+    /**
+     * Tenta obter o lease de (job, fatia) e inicia a renovação. Vazio = outra instância está executando.
+     */
+    public Optional<ContextoJob> adquirir(String job, int fatia, int fatias) {
+        OptionalLong token;
+        try {
+            token = repository.adquirir(job, fatia, instancia, ttlMs);
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao obter lease de {}#{}: {}", job, fatia, e.getMessage());
+            contar(job, "erro");
+            return Optional.empty();
+        }
+        if (token.isEmpty()) {
+            contar(job, "ocupado");
+            return Optional.empty();
+        }
+
+        ContextoJob contexto = new ContextoJob(job, fatia, fatias, token.getAsLong(), new AtomicBoolean(false));
+        renovacoes.put(chave(contexto), Thread.ofVirtual().name("lease-" + chave(contexto)).start(() -> renovar(contexto)));
+        contar(job, "adquirido");
+        return Optional.of(contexto);
+    }
+
+    public void liberar(ContextoJob contexto) {
+        Thread renovacao = renovacoes.remove(chave(contexto));
+        if (renovacao != null) renovacao.interrupt();
+        if (contexto.perdido().get()) return; // Já é de outra instância
+        try {
+            repository.liberar(contexto.job(), contexto.fatia(), contexto.token());
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao liberar lease de {} (expira sozinho): {}", chave(contexto), e.getMessage());
+        }
+    }
+
+    /**
+     * ✅ FENCING antes de efeitos externos: interrompe o job se o lease da thread corrente não é mais válido.
+     * Sem contexto (método chamado fora de um job coordenado), não há o que conferir.
+     */
+    public void exigirLease() {
+        ContextoJob.atual().ifPresent(this::exigir);
+    }
+
+    public void exigir(ContextoJob c) {
+        if (!c.valido() || !repository.valido(c.job(), c.fatia(), c.token())) {
+            c.perdido().set(true);
+            contar(c.job(), "perdido");
+            throw new IllegalStateException("Lease de " + chave(c) + " perdido (token " + c.token() + ")");
+        }
+    }
+
+    /**
+     * ✅ EXECUÇÃO EXCLUSIVA (agendada ou manual)
+     * Dentro de um {@code @JobCoordenado} do mesmo job, reaproveita o lease da thread; fora dele (ex: endpoint
+     * administrativo) obtém e libera o lease em volta da tarefa. Vazio = outra instância está executando.
+     */
+    public <T> Optional<T> executarExclusivo(String job, Function<ContextoJob, T> tarefa) {
+        Optional<ContextoJob> atual = ContextoJob.atual().filter(c -> c.job().equals(job));
+        if (atual.isPresent()) return Optional.ofNullable(tarefa.apply(atual.get()));
+
+        Optional<ContextoJob> lease = adquirir(job, 0, 1);
+        if (lease.isEmpty()) return Optional.empty();
+        try {
+            return Optional.ofNullable(tarefa.apply(lease.get()));
+        } finally {
+            liberar(lease.get());
+        }
+    }
+
+    private void renovar(ContextoJob contexto) {
+        long intervalo = Math.max(1000, ttlMs / 3);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(intervalo);
+                if (!repository.renovar(contexto.job(), contexto.fatia(), contexto.token(), ttlMs)) {
+                    contexto.perdido().set(true);
+                    contar(contexto.job(), "perdido");
+                    log.error("❌ Lease de {} perdido durante a execução (token {})", chave(contexto), contexto.token());
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // Falha transitória: tenta de novo no próximo intervalo (o prazo ainda cobre ~2 tentativas)
+                log.warn("⚠️ Falha ao renovar lease de {}: {}", chave(contexto), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        renovacoes.values().forEach(Thread::interrupt);
+    }
+
+    private static String chave(ContextoJob c) {
+        return c.job() + "#" + c.fatia();
+    }
+
+    private void contar(String job, String resultado) {
+        Counter.builder("radares.jobs.leases").tag("job", job).tag("resultado", resultado).register(meterRegistry).increment();
+    }
+}
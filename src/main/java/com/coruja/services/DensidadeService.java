@@ -0,0 +1,157 @@
+package com.coruja.services;
+
+import com.coruja.dto.DensidadeDTO;
+import com.coruja.entities.Radars;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.RollupHorarioRepository;
+import com.coruja.utils.CacheDias;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ✅ CUBO DE DENSIDADE (localização x hora) PARA O MAPA
+ * - Dias antigos são carregados sob demanda a partir do rollup horário e descartados por LRU.
+ * - Dias já em memória recebem os incrementos da ingestão após o commit (atômico com a carga: incremento
+ *   durante a carga refaz a carga).
+ * - Dias ainda abertos são descartados periodicamente e relidos do rollup: incluem o que outras instâncias gravaram.
+ * - Dias reconstruídos (consolidação ou backfill) também são relidos: o total deixa de contar passagens reentregues.
+ */
+@Service
+@Slf4j
+public class DensidadeService {
+
+    private static final int HORAS_DIA = 24;
+
+    private final RollupHorarioRepository rollupRepository;
+    private final LocalizacaoIndexService localizacaoIndex;
+    private final CacheDias<DiaCubo> cubo;
+    private final int maxDiasConsulta;
+    private final int diasAbertos;
+    private final long janelaReconstrucaoSegundos;
+
+    /**
+     * Um dia do cubo: contagem por hora de cada localização.
+     */
+    static final class DiaCubo {
+        final ConcurrentHashMap<Long, AtomicLongArray> porLocalizacao = new ConcurrentHashMap<>();
+
+        void somar(Long localizacaoId, int hora, long total) {
+            porLocalizacao.computeIfAbsent(localizacaoId, id -> new AtomicLongArray(HORAS_DIA)).addAndGet(hora, total);
+        }
+    }
+
+    public DensidadeService(RollupHorarioRepository rollupRepository,
+                            LocalizacaoIndexService localizacaoIndex,
+                            @Value("${radares.densidade.max-dias-memoria:62}") int maxDiasMemoria,
+                            @Value("${radares.densidade.max-dias-consulta:31}") int maxDiasConsulta,
+                            @Value("${radares.densidade.dias-abertos:2}") int diasAbertos,
+                            @Value("${radares.densidade.recarga-abertos-ms:60000}") long recargaAbertosMs) {
+        this.rollupRepository = rollupRepository;
+        this.localizacaoIndex = localizacaoIndex;
+        this.maxDiasConsulta = maxDiasConsulta;
+        this.diasAbertos = diasAbertos;
+        // Intervalo entre verificações + margem para a transação da reconstrução (marcada no início dela)
+        this.janelaReconstrucaoSegundos = recargaAbertosMs / 1000 + 600;
+        this.cubo = new CacheDias<>(maxDiasMemoria, this::carregarDia);
+    }
+
+    public DensidadeDTO consultar(LocalDate dataInicial, LocalDate dataFinal, int bucketHoras) {
+        if (dataInicial == null || dataFinal == null || dataFinal.isBefore(dataInicial)) {
+            throw new IllegalArgumentException("Período inválido");
+        }
+        if (bucketHoras <= 0 || HORAS_DIA % bucketHoras != 0) {
+            throw new IllegalArgumentException("bucketHoras deve dividir 24 (1, 2, 3, 4, 6, 8, 12 ou 24)");
+        }
+        long dias = ChronoUnit.DAYS.between(dataInicial, dataFinal) + 1;
+        if (dias > maxDiasConsulta) {
+            throw new IllegalArgumentException("Período máximo de " + maxDiasConsulta + " dias");
+        }
+
+        int bucketsPorDia = HORAS_DIA / bucketHoras;
+        int totalBuckets = (int) dias * bucketsPorDia;
+
+        List<DiaCubo> diasCubo = new ArrayList<>();
+        TreeSet<Long> ids = new TreeSet<>();
+        for (LocalDate dia = dataInicial; !dia.isAfter(dataFinal); dia = dia.plusDays(1)) {
+            DiaCubo d = cubo.obter(dia);
+            diasCubo.add(d);
+            ids.addAll(d.porLocalizacao.keySet());
+        }
+
+        List<Long> localizacoes = new ArrayList<>(ids);
+        long[][] contagens = new long[localizacoes.size()][totalBuckets];
+
+        for (int i = 0; i < localizacoes.size(); i++) {
+            Long id = localizacoes.get(i);
+            for (int d = 0; d < diasCubo.size(); d++) {
+                AtomicLongArray horas = diasCubo.get(d).porLocalizacao.get(id);
+                if (horas == null) continue;
+                int base = d * bucketsPorDia;
+                for (int h = 0; h < HORAS_DIA; h++) {
+                    contagens[i][base + h / bucketHoras] += horas.get(h);
+                }
+            }
+        }
+
+        return new DensidadeDTO(dataInicial, dataFinal, bucketHoras, totalBuckets, localizacoes, contagens);
+    }
+
+    /**
+     * Incrementa apenas dias já carregados; os demais serão lidos do rollup quando solicitados.
+     * Mesma deduplicação do rollup horário (data, hora, placa no lote): o incremento é o que o rollup gravou.
+     */
+    @TransactionalEventListener
+    public void onRadarsIngeridos(RadarsIngeridosEvent event) {
+        Map<LocalDate, List<Radars>> porDia = new HashMap<>();
+        Set<String> vistas = new HashSet<>();
+        for (Radars r : event.getRadars()) {
+            if (r.getData() == null || r.getHora() == null) continue;
+            if (!vistas.add(r.getData() + "|" + r.getHora() + "|" + r.getPlaca())) continue;
+            porDia.computeIfAbsent(r.getData(), d -> new ArrayList<>()).add(r);
+        }
+        porDia.forEach((data, radars) -> cubo.atualizarSeCarregado(data, dia -> {
+            for (Radars r : radars) {
+                localizacaoIndex.porPraca(r.getPraca())
+                        .ifPresent(loc -> dia.somar(loc.id(), r.getHora().getHour(), 1));
+            }
+        }));
+    }
+
+    /**
+     * Dias abertos em memória só recebem a ingestão desta instância: relidos do rollup a cada intervalo.
+     * Dias reconstruídos recentemente (em qualquer instância) também.
+     */
+    @Scheduled(fixedDelayString = "${radares.densidade.recarga-abertos-ms:60000}")
+    public void expirarDiasAbertos() {
+        LocalDate primeiroAberto = LocalDate.now().minusDays(diasAbertos);
+        Set<LocalDate> reconstruidos = new HashSet<>(rollupRepository.diasReconstruidosNosUltimos(janelaReconstrucaoSegundos));
+        int descartados = cubo.invalidarSe(dia -> !dia.isBefore(primeiroAberto) || reconstruidos.contains(dia));
+        if (descartados > 0) log.debug("🗺️ {} dias abertos do cubo de densidade descartados para recarga", descartados);
+    }
+
+    private DiaCubo carregarDia(LocalDate dia) {
+        long inicio = System.currentTimeMillis();
+        DiaCubo d = new DiaCubo();
+        rollupRepository.totaisPorPracaHora(dia, (praca, hora, total) ->
+                localizacaoIndex.porPraca(praca).ifPresent(loc -> d.somar(loc.id(), hora, total)));
+        log.debug("🗺️ Cubo de densidade carregado para {} ({} radares) em {} ms",
+                dia, d.porLocalizacao.size(), System.currentTimeMillis() - inicio);
+        return d;
+    }
+
+}
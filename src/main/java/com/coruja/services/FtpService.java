@@ -1,9 +1,17 @@
 package com.coruja.services;
 
 import com.coruja.entities.LocalizacaoRadar;
+import com.coruja.config.IngestaoProperties.Fonte;
 import com.coruja.entities.Radars;
+import com.coruja.enums.DialetoArquivo;
+import com.coruja.enums.EstadoArquivoFtp;
+import com.coruja.repositories.FtpArquivosRepository;
 import com.coruja.repositories.LocalizacaoRadarRepository;
 import com.coruja.repositories.RadarsRepository;
+import com.coruja.utils.LinhaRadarParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPReply;
@@ -11,18 +19,17 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.PrecisionModel;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -32,6 +39,7 @@ import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Slf4j
@@ -39,141 +47,167 @@ public class FtpService {
     private static final Logger logger = LoggerFactory.getLogger(FtpService.class);
     //private static final Logger LOGGER = Logger.getLogger(FtpService.class.getName());
 
-    @Value("${ftp.host}")
-    private String FTP_HOST;
-
-    @Value("${ftp.port}")
-    private int FTP_PORT;
-
-    @Value("${ftp.user}")
-    private String FTP_USER;
-
-    @Value("${ftp.pass}")
-    private String FTP_PASS;
-
-    @Value("${ftp.directory}")
-    private String FTP_DIRECTORY;
-
-    @Value("${ftp.local.directory}")
-    private String LOCAL_DIRECTORY;
-
-    // NOVO: Injeta o valor do intervalo do application.properties
-    @Value("${ftp.schedule.rate.ms}")
-    private long ftpScheduleRateMs;
-
-    private LocalDateTime lastExecutionTime;
-
     private final RadarsService radarsService;
     private final LocalizacaoRadarRepository localizacaoRepository;
-    private final GestaoRodoviaService gestaoRodoviaService;
+    private final CoordenacaoJobsService coordenacaoJobsService;
+    private final FtpArquivosRepository filaArquivos;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
-    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+    // Fila de arquivos compartilhada entre instâncias
+    @Value("${ftp.fila.heartbeat-ttl-ms:120000}")
+    private long heartbeatTtlMs;
 
-    // Regex para capturar os dados da linha. MUITO MAIS ROBUSTO!
-    // Captura 6 grupos: 1=Data, 2=Hora, 3=Placa, 4=Praça/Sentido, 5=Rodovia, 6=KM
-    private static final Pattern LINE_PATTERN = Pattern.compile(
-            "^(\\S+)\\s+(\\S+)\\s+(\\S+)\\s+(.+?)\\s+(SP\\S+)\\s+(KM\\S+)$"
-    );
+    @Value("${ftp.fila.max-tentativas:5}")
+    private int maxTentativas;
 
-    public FtpService(RadarsService radarsService, LocalizacaoRadarRepository localizacaoRepository, GestaoRodoviaService gestaoRodoviaService) {
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+
+    public FtpService(RadarsService radarsService, LocalizacaoRadarRepository localizacaoRepository,
+                      CoordenacaoJobsService coordenacaoJobsService, FtpArquivosRepository filaArquivos,
+                      TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
         this.radarsService = radarsService;
         this.localizacaoRepository = localizacaoRepository;
-        this.gestaoRodoviaService = gestaoRodoviaService;
+        this.coordenacaoJobsService = coordenacaoJobsService;
+        this.filaArquivos = filaArquivos;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
     }
 
-    // AJUSTE: A anotação @Scheduled agora lê o valor do application.properties
-    @Scheduled(fixedRateString = "${ftp.schedule.rate.ms}")
-    public void processarFtp() {
-
-        // Armazenamos a hora de início para um cálculo mais preciso
-        // LocalDateTime horaInicio = LocalDateTime.now();
-        lastExecutionTime = LocalDateTime.now();
-        logger.info("Iniciando verificação de arquivos no FTP às {}...",  lastExecutionTime);
-        //horaInicio.format(DateTimeFormatter.ofPattern("HH:mm:ss"))
-
-        FTPClient ftpClient = new FTPClient();
-
+    /**
+     * ✅ PIPELINE DE UMA FONTE
+     * O agendamento fica em {@link IngestaoMultiFonteService}; aqui estão os passos de uma fonte:
+     * a listagem do FTP só registra os arquivos em ftp_arquivos (idempotente) e cada worker reivindica
+     * um arquivo por vez (SKIP LOCKED) e executa download -> parse -> gravação, com heartbeat.
+     * Atraso acumulado é drenado em paralelo por todas as réplicas e workers.
+     */
+    public void registrarArquivosRemotos(Fonte fonte) throws IOException {
+        FTPClient ftpClient = conectar(fonte);
         try {
-            conectarFTP(ftpClient);
-            Path localPath = Path.of(LOCAL_DIRECTORY);
-            Files.createDirectories(localPath);
-
-            Set<String> arquivosLocais = listarArquivosLocais(localPath);
             String[] arquivosRemotos = ftpClient.listNames();
-
             if (arquivosRemotos == null || arquivosRemotos.length == 0) {
-                logger.info("Nenhum arquivo encontrado no diretório do FTP.");
+                logger.info("[{}] Nenhum arquivo encontrado no diretório do FTP.", fonte.getNome());
                 return;
             }
 
-            // AJUSTE: Definir a data limite para os últimos 2 meses.
-            LocalDate dataLimite = LocalDate.now().minusDays(1);
-            logger.info("Definida data limite para processamento: {}", dataLimite.format(DateTimeFormatter.ISO_LOCAL_DATE));
-
-            List<String> novosArquivos = Arrays.stream(arquivosRemotos)
-                    .filter(arquivo -> !arquivosLocais.contains(arquivo)) // Filtra arquivos que já foram baixados
-                    .filter(arquivo -> isDentroDoPeriodo(arquivo, dataLimite)) // NOVO: Filtra arquivos pela data
-                    .collect(Collectors.toList());
-
-            if (novosArquivos.isEmpty()) {
-                logger.info("Nenhum arquivo novo e dentro do período de 2 meses para processar.");
-                return;
+            // Os que já estão no diretório local (baixados antes da fila existir) entram como CONCLUIDO
+            LocalDate dataLimite = LocalDate.now().minusDays(fonte.getDiasRetroativos());
+            Pattern padraoData = Pattern.compile(fonte.getPadraoData());
+            DateTimeFormatter formatoData = DateTimeFormatter.ofPattern(fonte.getFormatoData());
+            Set<String> arquivosLocais = listarArquivosLocais(diretorioLocal(fonte));
+            Map<String, LocalDate> novos = new HashMap<>();
+            Map<String, LocalDate> jaBaixados = new HashMap<>();
+            for (String arquivo : arquivosRemotos) {
+                Optional<LocalDate> data = extrairDataDoNome(arquivo, padraoData, formatoData);
+                if (data.isEmpty() || data.get().isBefore(dataLimite)) continue;
+                (arquivosLocais.contains(arquivo) ? jaBaixados : novos).put(arquivo, data.get());
             }
 
-            logger.info("Encontrados {} novos arquivos para processar.", novosArquivos.size());
-
-            // Pré-carrega o cache de localizações UMA VEZ antes de processar os arquivos
-            // Isso evita o erro de conexão do banco por excesso de consultas
-            Map<String, LocalizacaoRadar> mapaLocalizacao = carregarMapaLocalizacao();
+            filaArquivos.registrar(fonte.getNome(), jaBaixados, EstadoArquivoFtp.CONCLUIDO.name());
+            int registrados = filaArquivos.registrar(fonte.getNome(), novos, EstadoArquivoFtp.PENDENTE.name());
+            if (registrados > 0) logger.info("[{}] {} novos arquivos na fila de ingestão.", fonte.getNome(), registrados);
+        } finally {
+            desconectarFtp(ftpClient);
+        }
+    }
 
-            // Mapa para acumular descobertas: Rodovia -> Set de KMs únicos
-            // Usamos Set para remover duplicatas automaticamente (ex: km 100 aparece 50 vezes)
-            Map<String, Set<String>> descobertasDoLote = new HashMap<>();
+    /**
+     * Reivindica e ingere o próximo arquivo da fonte.
+     * @return false quando não há arquivo disponível para esta instância
+     */
+    public boolean ingerirProximo(Fonte fonte, FTPClient ftpClient, Map<String, LocalizacaoRadar> mapaLocalizacao,
+                                  Map<String, Set<String>> descobertas) {
+        String instancia = coordenacaoJobsService.instancia();
+        filaArquivos.marcarFalhas(fonte.getNome(), maxTentativas, heartbeatTtlMs);
+        List<String> reivindicado = filaArquivos.reivindicar(fonte.getNome(), instancia, 1, heartbeatTtlMs);
+        if (reivindicado.isEmpty()) return false;
+
+        String nomeArquivo = reivindicado.get(0);
+        Thread heartbeat = iniciarHeartbeat(fonte.getNome(), reivindicado, instancia);
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        try {
+            ingerirArquivo(fonte, ftpClient, nomeArquivo, instancia, mapaLocalizacao, descobertas);
+        } finally {
+            heartbeat.interrupt();
+            amostra.stop(Timer.builder("radares.ingestao.arquivo").tag("fonte", fonte.getNome()).register(meterRegistry));
+        }
+        return true;
+    }
 
-            List<Radars> todosOsRadares = new ArrayList<>();
+    /**
+     * Baixa, processa e grava um arquivo reivindicado. A gravação confere (com a linha travada) que o arquivo
+     * ainda é desta instância: se o heartbeat venceu e outra instância o assumiu, as passagens são descartadas.
+     */
+    private void ingerirArquivo(Fonte fonte, FTPClient ftpClient, String nomeArquivo, String instancia,
+                                Map<String, LocalizacaoRadar> mapaLocalizacao, Map<String, Set<String>> descobertas) {
+        String nomeFonte = fonte.getNome();
+        long inicio = System.currentTimeMillis();
+        try {
+            Optional<Path> arquivoLocal = baixarArquivo(ftpClient, nomeArquivo, diretorioLocal(fonte));
+            if (arquivoLocal.isEmpty()) {
+                filaArquivos.devolver(nomeFonte, nomeArquivo, instancia, "Falha no download");
+                contar(nomeFonte, "devolvido");
+                return;
+            }
 
-            for (String nomeArquivo : novosArquivos) {
-                baixarArquivo(ftpClient, nomeArquivo, localPath).ifPresent(arquivoLocal -> {
-                    logger.info("Processando arquivo: {}", nomeArquivo);
-                    // Passa o mapa carregado para o método de processamento
-                    todosOsRadares.addAll(processarArquivo(arquivoLocal, mapaLocalizacao, descobertasDoLote));
-                });
+            logger.info("[{}] Processando arquivo: {}", nomeFonte, nomeArquivo);
+            List<Radars> radares = processarArquivo(arquivoLocal.get(), fonte, mapaLocalizacao, descobertas);
+
+            Boolean gravado = transactionTemplate.execute(status -> {
+                if (!filaArquivos.confirmarDono(nomeFonte, nomeArquivo, instancia)) return false;
+                radarsService.saveRadars(radares, fonte.concessionariaOuPadrao());
+                filaArquivos.concluir(nomeFonte, nomeArquivo, radares.size());
+                return true;
+            });
+            if (!Boolean.TRUE.equals(gravado)) {
+                logger.warn("[{}] Arquivo {} foi reatribuído a outra instância; resultado descartado.", nomeFonte, nomeArquivo);
+                contar(nomeFonte, "perdido");
+                return;
             }
 
-            // 1. Salva os Radares (Fluxo normal)
-            if (!todosOsRadares.isEmpty()) {
-                logger.info("Salvando {} novos registros de radares no banco de dados.", todosOsRadares.size());
-                radarsService.saveRadars(todosOsRadares);
-                logger.info("Banco de dados atualizado com sucesso.");
-            } else {
-                logger.info("Nenhum registro válido encontrado nos novos arquivos.");
+            contar(nomeFonte, "concluido");
+            Counter.builder("radares.ingestao.linhas").tag("fonte", nomeFonte).register(meterRegistry).increment(radares.size());
+            logger.info("[{}] Arquivo {} gravado: {} registros em {} ms.", nomeFonte, nomeArquivo, radares.size(),
+                    System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            logger.error("[{}] Falha ao ingerir {} (volta para a fila): {}", nomeFonte, nomeArquivo, e.getMessage());
+            try {
+                filaArquivos.devolver(nomeFonte, nomeArquivo, instancia, e.getMessage());
+            } catch (Exception ignorada) {
+                // Sem banco: o heartbeat vence e o arquivo é reatribuído
             }
+            contar(nomeFonte, "falhou");
+        }
+    }
 
-            // 2. Salva as Descobertas de Domínio (Fluxo Novo)
-            if (!descobertasDoLote.isEmpty()) {
-                gestaoRodoviaService.registrarDescobertas(descobertasDoLote);
-            } else {
-                logger.info("Nenhum registro válido encontrado nos novos arquivos.");
+    private Thread iniciarHeartbeat(String fonte, List<String> nomes, String instancia) {
+        long intervalo = Math.max(1000, heartbeatTtlMs / 3);
+        return Thread.ofVirtual().name("heartbeat-ftp-" + fonte).start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(intervalo);
+                    filaArquivos.heartbeat(fonte, nomes, instancia);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.warn("[{}] Falha no heartbeat dos arquivos reivindicados: {}", fonte, e.getMessage());
+                }
             }
+        });
+    }
 
-        } catch (IOException e) {
-            logger.error("Erro de I/O durante o processamento do FTP.", e);
-        } finally {
-            desconectarFtp(ftpClient);
+    private Path diretorioLocal(Fonte fonte) throws IOException {
+        return Files.createDirectories(Path.of(fonte.getDiretorioLocal()));
+    }
 
-            // NOVO: Adiciona o log com a hora da próxima execução
-            // O fixedRate começa a contar a partir do INÍCIO da execução anterior.
-            LocalDateTime proximaExecucao = lastExecutionTime.plus(ftpScheduleRateMs, ChronoUnit.MILLIS);
-            logger.info("Processo finalizado. Próxima execução agendada para: {}",
-                    proximaExecucao.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
-            logger.info("*******************************************\n");
-        }
+    private void contar(String fonte, String resultado) {
+        Counter.builder("radares.ingestao.arquivos").tag("fonte", fonte).tag("resultado", resultado).register(meterRegistry).increment();
     }
 
     // =========================================================================
     // OTIMIZAÇÃO: Carregamento em Memória
     // =========================================================================
-    private Map<String, LocalizacaoRadar> carregarMapaLocalizacao() {
+    public Map<String, LocalizacaoRadar> carregarMapaLocalizacao() {
         try {
             logger.info("🗺️ Carregando cache de localizações do banco...");
             List<LocalizacaoRadar> todasLocs = localizacaoRepository.findAll();
@@ -197,45 +231,15 @@ public class FtpService {
         return input == null ? "" : input.trim().toUpperCase(); // Normalização simples
     }
 
-    @Scheduled(fixedDelay = 1000) // Atualiza a cada segundo
-    public void updateCountdown() {
-        if (lastExecutionTime != null) {
-            long secondsRemaining = 300 - ChronoUnit.SECONDS.between(lastExecutionTime, LocalDateTime.now());
-            if (secondsRemaining > 0) {
-                System.out.printf("\rPróxima execução em: %02d:%02d",
-                        secondsRemaining / 60,
-                        secondsRemaining % 60);
-            } else {
-                System.out.print("\rPróxima execução em: 00:00 - Iniciando...");
-            }
-        }
-    }
-
-    // NOVO: Método auxiliar para verificar se a data do arquivo está no período desejado.
-    private boolean isDentroDoPeriodo(String nomeArquivo, LocalDate dataLimite) {
-        Optional<LocalDate> dataArquivoOpt = extrairDataDoNome(nomeArquivo);
-        if (dataArquivoOpt.isEmpty()) {
-            logger.warn("Não foi possível extrair a data do arquivo '{}'. Ele será ignorado.", nomeArquivo);
-            return false; // Ignora arquivos sem data no nome
-        }
-        // Retorna true se a data do arquivo NÃO for anterior à data limite.
-        boolean dentroDoPeriodo = !dataArquivoOpt.get().isBefore(dataLimite);
-        if (!dentroDoPeriodo) {
-            logger.info("Arquivo '{}' está fora do período de 2 meses. Ignorando.", nomeArquivo);
-        }
-        return dentroDoPeriodo;
-    }
-
     // AJUSTE: Método agora retorna um Optional para tratar melhor os casos de erro.
-    private Optional<LocalDate> extrairDataDoNome(String nomeArquivo) {
+    // Padrão e formato da data vêm da fonte (cada concessionária nomeia os arquivos de um jeito)
+    private Optional<LocalDate> extrairDataDoNome(String nomeArquivo, Pattern pattern, DateTimeFormatter formatter) {
         try {
-            Pattern pattern = Pattern.compile("\\d{2}-\\d{2}-\\d{4}");
             Matcher matcher = pattern.matcher(nomeArquivo);
             if (matcher.find()) {
-                String dataStr = matcher.group();
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-                return Optional.of(LocalDate.parse(dataStr, formatter));
+                return Optional.of(LocalDate.parse(matcher.group(), formatter));
             }
+            logger.warn("Não foi possível extrair a data do arquivo '{}'. Ele será ignorado.", nomeArquivo);
         } catch (DateTimeParseException e) {
             logger.warn("Erro ao extrair data do arquivo {}: {}", nomeArquivo, e.getMessage());
         }
@@ -247,13 +251,15 @@ public class FtpService {
     // =========================================================================
 
     // Método agora recebe o MAPA, evitando consultas ao banco dentro do loop
+    // O dialeto e o charset do arquivo vêm da fonte
     @Transactional
     public List<Radars> processarArquivo(Path arquivoLocal,
+                                         Fonte fonte,
                                          Map<String, LocalizacaoRadar> mapaLocalizacao,
                                          Map<String, Set<String>> acumuladorDescobertas) { // <--- NOVO PARAMETRO
-        try (Stream<String> lines = Files.lines(arquivoLocal, StandardCharsets.ISO_8859_1)) {
+        try (Stream<String> lines = Files.lines(arquivoLocal, Charset.forName(fonte.getCharset()))) {
             return lines
-                    .map(linha -> parseLineWithRegex(linha, mapaLocalizacao, acumuladorDescobertas)) // Passa adiante
+                    .map(linha -> parseLineWithRegex(linha, fonte.getDialeto(), mapaLocalizacao, acumuladorDescobertas)) // Passa adiante
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
         } catch (IOException e) {
@@ -264,57 +270,35 @@ public class FtpService {
 
     /**
      * NOVO MÉTODO DE PARSING
-     * Usa uma Expressão Regular para extrair os dados de forma segura.
+     * Usa uma Expressão Regular para extrair os dados de forma segura (ver LinhaRadarParser).
      */
-    private Radars parseLineWithRegex(String linha, Map<String, LocalizacaoRadar> mapaLocalizacao, Map<String, Set<String>> acumuladorDescobertas) {
+    private Radars parseLineWithRegex(String linha, DialetoArquivo dialeto, Map<String, LocalizacaoRadar> mapaLocalizacao, Map<String, Set<String>> acumuladorDescobertas) {
         // Ignora linhas de cabeçalho, rodapé ou vazias
-        if (linha.trim().isEmpty() || linha.contains("Data_Transação") || linha.startsWith("Changed database") || linha.matches("[-\\s]+") || linha.matches("\\(\\d+ rows affected\\)")) {
-            return null;
-        }
-
-        Matcher matcher = LINE_PATTERN.matcher(linha.trim());
-        if (!matcher.matches()) {
-            logger.warn("Linha não corresponde ao padrão esperado, ignorando: '{}'", linha);
+        if (LinhaRadarParser.isLinhaIgnoravel(linha, dialeto)) {
             return null;
         }
 
         try {
-            String dataStr = matcher.group(1);
-            String horaStr = matcher.group(2);
-            String placaBruta = matcher.group(3);
-            String pracaESentido = matcher.group(4).trim();
-            String rodovia = matcher.group(5);
-            String km = matcher.group(6).replace("KM", "").trim();
-
-            String placa = placaBruta.replaceAll("[^A-Za-z0-9]", "");
-            if (placa.length() > 7) placa = placa.substring(0, 7);
-
-            // Lógica para separar praça e sentido
-            String[] partesPraca = pracaESentido.split("\\s+");
-            String sentido = "N/I";
-            String praca = pracaESentido;
-
-            if (partesPraca.length > 1) {
-                sentido = partesPraca[partesPraca.length - 1];
-                praca = String.join(" ", Arrays.copyOf(partesPraca, partesPraca.length - 1));
+            Optional<LinhaRadarParser.Linha> parsed = LinhaRadarParser.parse(linha, dialeto);
+            if (parsed.isEmpty()) {
+                logger.warn("Linha não corresponde ao padrão esperado, ignorando: '{}'", linha);
+                return null;
             }
-
-            LocalDate data = LocalDate.parse(dataStr, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            LocalTime hora = LocalTime.parse(horaStr, DateTimeFormatter.ofPattern("HH:mm:ss[.SSS]"));
+            LinhaRadarParser.Linha l = parsed.get();
 
             // BUSCA OTIMIZADA: Usa o Map em vez do Repository
             // Isso é 1000x mais rápido e não derruba a conexão
-            LocalizacaoRadar localizacaoDoRadar = mapaLocalizacao.get(normalizeKey(praca));
+            LocalizacaoRadar localizacaoDoRadar = mapaLocalizacao.get(normalizeKey(l.praca()));
 
             // Adiciona ao acumulador. Se a rodovia não existe no mapa, cria.
             // Se já existe, adiciona o km ao Set (que ignora duplicatas).
             if (acumuladorDescobertas != null) {
                 acumuladorDescobertas
-                        .computeIfAbsent(rodovia, k -> new HashSet<>())
-                        .add(km);
+                        .computeIfAbsent(l.rodovia(), k -> ConcurrentHashMap.newKeySet()) // Workers da fonte em paralelo
+                        .add(l.km());
             }
 
-            return new Radars(data, hora, placa, praca, rodovia, km, sentido, localizacaoDoRadar);
+            return new Radars(l.data(), l.hora(), l.placa(), l.praca(), l.rodovia(), l.km(), l.sentido(), localizacaoDoRadar);
 
         } catch (Exception e) {
             logger.error("Erro ao converter dados da linha: '{}'. Causa: {}", linha, e.getMessage());
@@ -323,22 +307,28 @@ public class FtpService {
     }
 
     // Métodos de conexão e download foram levemente ajustados para clareza
-    private void conectarFTP(FTPClient ftpClient) throws IOException {
-        //logger.info("Conectando ao FTP: {}", FTP_HOST);
-        logger.info("Tentando conectar ao FTP com HOST: [{}] e PORTA: [{}]", FTP_HOST, FTP_PORT);
-        ftpClient.connect(FTP_HOST, FTP_PORT);
-        if (!FTPReply.isPositiveCompletion(ftpClient.getReplyCode())) {
-            throw new IOException("Falha ao conectar ao FTP: " + ftpClient.getReplyString());
-        }
-        if (!ftpClient.login(FTP_USER, FTP_PASS)) {
-            throw new IOException("Falha ao logar no FTP: " + ftpClient.getReplyString());
+    // Uma conexão por worker: FTPClient não é thread-safe
+    public FTPClient conectar(Fonte fonte) throws IOException {
+        FTPClient ftpClient = new FTPClient();
+        logger.info("[{}] Conectando ao FTP com HOST: [{}] e PORTA: [{}]", fonte.getNome(), fonte.getHost(), fonte.getPorta());
+        try {
+            ftpClient.connect(fonte.getHost(), fonte.getPorta());
+            if (!FTPReply.isPositiveCompletion(ftpClient.getReplyCode())) {
+                throw new IOException("Falha ao conectar ao FTP: " + ftpClient.getReplyString());
+            }
+            if (!ftpClient.login(fonte.getUsuario(), fonte.getSenha())) {
+                throw new IOException("Falha ao logar no FTP: " + ftpClient.getReplyString());
+            }
+            ftpClient.enterLocalPassiveMode();
+            ftpClient.changeWorkingDirectory(fonte.getDiretorio());
+            return ftpClient;
+        } catch (IOException e) {
+            desconectarFtp(ftpClient);
+            throw e;
         }
-        ftpClient.enterLocalPassiveMode();
-        ftpClient.changeWorkingDirectory(FTP_DIRECTORY);
-        logger.info("Conectado com sucesso.");
     }
 
-    private void desconectarFtp(FTPClient ftpClient) {
+    public void desconectarFtp(FTPClient ftpClient) {
         if (ftpClient != null && ftpClient.isConnected()) {
             try {
                 ftpClient.logout();
@@ -0,0 +1,311 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.dto.SaudeParticaoDTO;
+import com.coruja.enums.GranularidadeParticao;
+import com.coruja.repositories.ParticoesRepository;
+import com.coruja.repositories.ParticoesRepository.Particao;
+import com.coruja.repositories.ParticoesRepository.Saude;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ✅ GERENCIADOR DE PARTIÇÕES DE radars_cart
+ * - Cria partições diárias ou mensais (configurável) com antecedência.
+ * - Recorta online as partições grossas (anuais) que cobrem o futuro: CHECK NOT VALID + VALIDATE (sem bloquear
+ *   escrita) e depois DETACH/ATTACH com a faixa encurtada, sem varredura sob lock. Partições grossas
+ *   inteiramente futuras e vazias são removidas; o passado já gravado fica na partição original.
+ * - Move para partições próprias as linhas que caíram na DEFAULT.
+ * Cada passo roda em transação curta, com lock_timeout e trava consultiva; a manutenção inteira roda sob o
+ * lease "particoes" (uma instância por vez, também nas execuções manuais).
+ */
+@Service
+@Slf4j
+public class GestaoParticoesService {
+
+    private static final long CHAVE_TRAVA = 0x7261646172735F70L; // "radars_p"
+    static final String JOB = "particoes";
+
+    private final ParticoesRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final CoordenacaoJobsService coordenacaoJobsService;
+    private final GranularidadeParticao granularidade;
+    private final int antecedencia;
+    private final long lockTimeoutMs;
+    private final boolean habilitado;
+    private final MeterRegistry meterRegistry;
+
+    // Última leitura do catálogo, exposta nos gauges
+    private final AtomicReference<List<Saude>> ultimaSaude = new AtomicReference<>(List.of());
+
+    public GestaoParticoesService(ParticoesRepository repository,
+                                  TransactionTemplate transactionTemplate,
+                                  CoordenacaoJobsService coordenacaoJobsService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${radares.particoes.granularidade:MENSAL}") GranularidadeParticao granularidade,
+                                  @Value("${radares.particoes.antecedencia:3}") int antecedencia,
+                                  @Value("${radares.particoes.lock-timeout-ms:5000}") long lockTimeoutMs,
+                                  @Value("${radares.particoes.habilitado:true}") boolean habilitado) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.coordenacaoJobsService = coordenacaoJobsService;
+        this.granularidade = granularidade;
+        this.antecedencia = antecedencia;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.habilitado = habilitado;
+        this.meterRegistry = meterRegistry;
+
+        meterRegistry.gauge("radares.particoes.total", ultimaSaude, s -> s.get().size());
+        meterRegistry.gauge("radares.particoes.default.linhas", ultimaSaude, s -> s.get().stream()
+                .filter(x -> x.particao().padrao()).mapToLong(Saude::linhasEstimadas).sum());
+        meterRegistry.gauge("radares.particoes.maior.linhas", ultimaSaude, s -> s.get().stream()
+                .filter(x -> !x.particao().padrao()).mapToLong(Saude::linhasEstimadas).max().orElse(0));
+        meterRegistry.gauge("radares.particoes.dias_cobertos", ultimaSaude,
+                s -> diasCobertos(s.get().stream().map(Saude::particao).toList(), LocalDate.now()));
+    }
+
+    /**
+     * ✅ MANUTENÇÃO (madrugada): DEFAULT -> recorte das grossas -> criação antecipada.
+     */
+    @Scheduled(cron = "${radares.particoes.cron:0 30 3 * * *}")
+    @JobCoordenado(nome = JOB)
+    public void manterAgendado() {
+        if (habilitado) manter();
+    }
+
+    public Map<String, Integer> manter() {
+        return coordenacaoJobsService.executarExclusivo(JOB, lease -> manterParticoes()).orElseGet(() -> {
+            log.info("⏭️ Manutenção de partições em execução em outra instância");
+            return Map.of();
+        });
+    }
+
+    private Map<String, Integer> manterParticoes() {
+        Map<String, Integer> resumo = new LinkedHashMap<>();
+        resumo.put("linhasMovidasDoDefault", evacuarPadrao());
+        resumo.put("particoesRecortadas", recortarGrossas());
+        resumo.put("particoesCriadas", criarFuturas());
+        atualizarSaude();
+        log.info("🗂️ Manutenção de partições ({}): {}", granularidade, resumo);
+        return resumo;
+    }
+
+    @Scheduled(fixedDelayString = "${radares.particoes.saude-ms:600000}", initialDelayString = "${radares.particoes.saude-delay-ms:60000}")
+    public void atualizarSaude() {
+        try {
+            ultimaSaude.set(repository.saude());
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao ler saúde das partições: {}", e.getMessage());
+        }
+    }
+
+    public List<SaudeParticaoDTO> saude() {
+        atualizarSaude();
+        return ultimaSaude.get().stream()
+                .map(s -> SaudeParticaoDTO.builder()
+                        .nome(s.particao().nome())
+                        .inicio(s.particao().inicio())
+                        .fim(s.particao().fim())
+                        .padrao(s.particao().padrao())
+                        .linhasEstimadas(s.linhasEstimadas())
+                        .tamanhoBytes(s.tamanhoBytes())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Linhas da DEFAULT ganham partição própria: o período da granularidade quando ele está livre,
+     * senão só o dia (encaixa entre partições existentes).
+     */
+    private int evacuarPadrao() {
+        List<Particao> particoes = repository.listar();
+        Particao padrao = particoes.stream().filter(Particao::padrao).findFirst().orElse(null);
+        if (padrao == null) return 0;
+
+        int movidas = 0;
+        LocalDate ultimoFim = null;
+        for (LocalDate dia : repository.diasNaParticao(padrao.nome())) {
+            if (ultimoFim != null && dia.isBefore(ultimoFim)) continue; // Já movido junto com o período anterior
+
+            LocalDate inicio = granularidade.inicio(dia);
+            LocalDate fim = granularidade.proximo(inicio);
+            String nome = granularidade.nome(inicio);
+            if (ocupado(particoes, inicio, fim)) {
+                inicio = dia;
+                fim = dia.plusDays(1);
+                nome = GranularidadeParticao.DIARIA.nome(dia);
+            }
+
+            Integer n = emTransacao(nomeFinal(nome), inicio, fim, padrao.nome());
+            if (n == null) continue;
+            movidas += n;
+            ultimoFim = fim;
+            particoes = repository.listar();
+            contar("evacuada");
+            log.info("📦 {} linhas movidas da DEFAULT para {} [{}, {})", n, nome, inicio, fim);
+        }
+        return movidas;
+    }
+
+    /**
+     * Partições mais largas que um período e que avançam além do corte: encurtadas até o corte.
+     */
+    private int recortarGrossas() {
+        LocalDate corte = granularidade.proximo(granularidade.inicio(LocalDate.now().plusDays(1)));
+        int recortadas = 0;
+
+        for (Particao p : repository.listar()) {
+            if (p.padrao() || !grossa(p) || (p.fim() != null && !p.fim().isAfter(corte))) continue;
+            try {
+                if (p.inicio() != null && !p.inicio().isBefore(corte)) {
+                    // Inteiramente futura: vazia é removida e substituída pelas partições finas
+                    if (repository.temLinhas(p.nome(), null, null)) {
+                        log.warn("⚠️ Partição futura {} tem dados; mantida", p.nome());
+                        continue;
+                    }
+                    if (executar(() -> repository.remover(p.nome()))) {
+                        recortadas++;
+                        contar("removida");
+                        log.info("🗑️ Partição grossa futura {} removida", p.nome());
+                    }
+                    continue;
+                }
+
+                if (repository.temLinhas(p.nome(), corte, p.fim())) {
+                    log.warn("⚠️ Partição {} tem dados a partir de {}; recorte adiado", p.nome(), corte);
+                    continue;
+                }
+
+                // 1. Restrição com a nova faixa (ADD rápido) e validação sem bloquear leitura/escrita, em transações
+                //    separadas: o VALIDATE não pode herdar o lock exclusivo do ADD. Falha adia só esta partição
+                String constraint = "chk_" + p.nome() + "_faixa";
+                if (!executar(() -> repository.adicionarLimite(p.nome(), constraint, p.inicio(), corte))
+                        || !executar(() -> repository.validarLimite(p.nome(), constraint))) {
+                    log.warn("⚠️ Restrição de faixa de {} não validada; recorte adiado", p.nome());
+                    continue;
+                }
+
+                // 2. DETACH + ATTACH com a faixa encurtada (a CHECK dispensa a varredura de validação)
+                if (executar(() -> {
+                    repository.desanexar(p.nome());
+                    repository.anexar(p.nome(), p.inicio(), corte);
+                })) {
+                    recortadas++;
+                    contar("recortada");
+                    log.info("✂️ Partição {} recortada para [{}, {})", p.nome(), p.inicio(), corte);
+                }
+            } catch (Exception e) {
+                // Uma partição com problema (ex: lock_timeout na consulta) não impede as demais nem a criação
+                log.warn("⚠️ Falha ao recortar {}: {}", p.nome(), e.getMessage());
+            }
+        }
+        return recortadas;
+    }
+
+    /**
+     * Partições do período corrente até 'antecedencia' períodos à frente.
+     */
+    private int criarFuturas() {
+        List<Particao> particoes = repository.listar();
+        String padrao = particoes.stream().filter(Particao::padrao).map(Particao::nome).findFirst().orElse(null);
+
+        int criadas = 0;
+        LocalDate inicio = granularidade.inicio(LocalDate.now());
+        for (int i = 0; i <= antecedencia; i++, inicio = granularidade.proximo(inicio)) {
+            LocalDate fim = granularidade.proximo(inicio);
+            if (ocupado(particoes, inicio, fim)) continue;
+
+            String nome = granularidade.nome(inicio);
+            if (emTransacao(nomeFinal(nome), inicio, fim, padrao) != null) {
+                criadas++;
+                contar("criada");
+                log.info("🆕 Partição {} criada [{}, {})", nome, inicio, fim);
+            }
+        }
+        return criadas;
+    }
+
+    private Integer emTransacao(String nome, LocalDate inicio, LocalDate fim, String padrao) {
+        try {
+            return transactionTemplate.execute(status -> {
+                repository.limitarEsperaPorLock(lockTimeoutMs);
+                if (!repository.travarManutencao(CHAVE_TRAVA)) return null;
+                return repository.criarMovendoDoPadrao(nome, inicio, fim, padrao);
+            });
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao criar partição {} [{}, {}): {}", nome, inicio, fim, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean executar(Runnable ddl) {
+        try {
+            Boolean ok = transactionTemplate.execute(status -> {
+                repository.limitarEsperaPorLock(lockTimeoutMs);
+                if (!repository.travarManutencao(CHAVE_TRAVA)) return false;
+                ddl.run();
+                return true;
+            });
+            return Boolean.TRUE.equals(ok);
+        } catch (Exception e) {
+            log.warn("⚠️ Falha no DDL de partição: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Mais larga que um período da granularidade (ex: anual, ou MINVALUE/MAXVALUE).
+     */
+    private boolean grossa(Particao p) {
+        if (p.inicio() == null || p.fim() == null) return true;
+        return p.fim().isAfter(granularidade.proximo(granularidade.inicio(p.inicio())));
+    }
+
+    private static boolean ocupado(List<Particao> particoes, LocalDate inicio, LocalDate fim) {
+        return particoes.stream()
+                .filter(p -> !p.padrao())
+                .anyMatch(p -> p.intersecta(inicio, fim.minusDays(1)));
+    }
+
+    /**
+     * Um nome já usado por tabela desanexada (ex: falha no meio de uma execução anterior) ganha sufixo.
+     */
+    private String nomeFinal(String nome) {
+        return repository.listar().stream().anyMatch(p -> p.nome().equals(nome)) ? nome + "_" + System.currentTimeMillis() : nome;
+    }
+
+    /**
+     * Dias contíguos cobertos por partições não-DEFAULT a partir de 'hoje' (alerta quando chega perto de zero).
+     */
+    static long diasCobertos(List<Particao> particoes, LocalDate hoje) {
+        LocalDate cursor = hoje;
+        boolean avancou = true;
+        while (avancou) {
+            avancou = false;
+            for (Particao p : particoes) {
+                if (p.padrao() || !p.intersecta(cursor, cursor)) continue;
+                if (p.fim() == null) return Long.MAX_VALUE;
+                cursor = p.fim();
+                avancou = true;
+                break;
+            }
+        }
+        return ChronoUnit.DAYS.between(hoje, cursor);
+    }
+
+    private void contar(String tipo) {
+        Counter.builder("radares.particoes.operacoes").tag("tipo", tipo).register(meterRegistry).increment();
+    }
+}
@@ -2,145 +2,290 @@ package com.coruja.services;
 
 import com.coruja.dto.KmRodoviaDTO;
 import com.coruja.entities.KmRodovia;
+import com.coruja.entities.Radars;
 import com.coruja.entities.Rodovia;
+import com.coruja.events.DominioAlteradoEvent;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.DominioRodoviaRepository;
+import com.coruja.repositories.DominioRodoviaRepository.KmNovo;
 import com.coruja.repositories.KmRodoviaRepository;
 import com.coruja.repositories.RodoviaRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * ✅ DOMÍNIO DE RODOVIAS E KMs
+ * Listas servidas de um snapshot imutável em memória, identificado pela versão do domínio (tabela dominio_versao).
+ * Toda alteração incrementa a versão na própria transação; após o commit a nova versão é publicada no Redis
+ * (pub/sub) e cada instância recarrega o snapshot só quando a versão avança. Uma verificação periódica da versão
+ * cobre avisos perdidos (Redis fora do ar, instância reconectando).
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class GestaoRodoviaService {
+
+    /**
+     * Snapshot imutável do domínio em uma versão.
+     */
+    record Snapshot(long versao,
+                    List<Rodovia> rodovias,
+                    Map<String, Rodovia> porNome,
+                    Map<Long, List<KmRodoviaDTO>> kmsPorRodovia,
+                    Map<Long, Set<String>> valoresPorRodovia,
+                    Set<String> gravadas) {
+
+        static final Snapshot VAZIO = new Snapshot(-1, List.of(), Map.of(), Map.of(), Map.of(), Set.of());
+
+        static Snapshot de(long versao, List<Rodovia> rodovias, List<KmRodoviaDTO> kms, List<String> gravadas) {
+            List<Rodovia> copias = rodovias.stream()
+                    .map(r -> Rodovia.builder().id(r.getId()).nome(r.getNome()).build())
+                    .toList();
+            Map<String, Rodovia> porNome = copias.stream()
+                    .collect(Collectors.toUnmodifiableMap(Rodovia::getNome, r -> r));
+            Map<Long, List<KmRodoviaDTO>> kmsPorRodovia = kms.stream()
+                    .collect(Collectors.groupingBy(KmRodoviaDTO::getRodoviaId, Collectors.toUnmodifiableList()));
+            Map<Long, Set<String>> valores = kms.stream()
+                    .collect(Collectors.groupingBy(KmRodoviaDTO::getRodoviaId,
+                            Collectors.mapping(KmRodoviaDTO::getValor, Collectors.toUnmodifiableSet())));
+            return new Snapshot(versao, copias, porNome, Map.copyOf(kmsPorRodovia), Map.copyOf(valores), Set.copyOf(gravadas));
+        }
+    }
+
     private final RodoviaRepository rodoviaRepository;
     private final KmRodoviaRepository kmRepository;
+    private final DominioRodoviaRepository dominioRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+    private final String canal;
+
+    private volatile Snapshot snapshot = Snapshot.VAZIO;
 
-    // ✅ Cache Thread-safe de nível de classe para evitar batida no banco e race conditions
-    private final ConcurrentHashMap<String, Rodovia> rodoviaCache = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Long, Set<String>> kmCachePorRodovia = new ConcurrentHashMap<>();
+    public GestaoRodoviaService(RodoviaRepository rodoviaRepository,
+                                KmRodoviaRepository kmRepository,
+                                DominioRodoviaRepository dominioRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                StringRedisTemplate redisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                MeterRegistry meterRegistry,
+                                @Value("${radares.dominio.canal:radares.cart.dominio}") String canal) {
+        this.rodoviaRepository = rodoviaRepository;
+        this.kmRepository = kmRepository;
+        this.dominioRepository = dominioRepository;
+        this.eventPublisher = eventPublisher;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.meterRegistry = meterRegistry;
+        this.canal = canal;
+    }
+
+    /**
+     * Gauge registrado só após a construção: o registro guarda e lê a instância a partir de outra thread.
+     */
+    @PostConstruct
+    void registrarMetricas() {
+        meterRegistry.gauge("radares.dominio.versao", this, s -> s.snapshot.versao());
+    }
+
+    @PostConstruct
+    void assinarAvisos() {
+        listenerContainer.addMessageListener((mensagem, padrao) -> {
+            try {
+                atualizarPara(Long.parseLong(new String(mensagem.getBody(), StandardCharsets.UTF_8)));
+            } catch (Exception e) {
+                log.warn("⚠️ Aviso de domínio ignorado: {}", e.getMessage());
+            }
+        }, new ChannelTopic(canal));
+    }
 
-    //@Cacheable(value = "lista-rodovias")
     public List<Rodovia> listarRodovias() {
-        // Se o cache estiver vazio, tenta carregar do banco
-        if (rodoviaCache.isEmpty()) {
-            log.info("🚚 Cache de rodovias vazio, carregando do banco de dados Cart...");
-            List<Rodovia> doBanco = rodoviaRepository.findAll();
-            doBanco.forEach(r -> rodoviaCache.putIfAbsent(r.getNome(), r));
+        return snapshot().rodovias();
+    }
+
+    /**
+     * ✅ NOME EXATO PARA FILTRO POR IGUALDADE
+     * Devolve o valor gravado quando, entre os valores distintos de radars_cart.rodovia (não o cadastro, que pode
+     * divergir em caixa ou estar incompleto), só ele contém o filtro: nesse caso "rodovia = valor" retorna o mesmo
+     * que "ILIKE '%filtro%'" e usa o B-Tree. O conjunto acompanha a ingestão: valor novo em um lote incrementa a
+     * versão do domínio na mesma transação ({@link #onRadarsIngeridos}), e todas as instâncias recarregam.
+     */
+    public Optional<String> nomeExato(String rodovia) {
+        if (rodovia == null || rodovia.isBlank()) return Optional.empty();
+        String filtro = rodovia.trim().toUpperCase();
+        String exato = null;
+        for (String gravada : snapshot().gravadas()) {
+            String nome = gravada.toUpperCase();
+            if (!nome.contains(filtro)) continue;
+            if (exato != null || !nome.equals(filtro)) return Optional.empty();
+            exato = gravada;
         }
+        return Optional.ofNullable(exato);
+    }
 
-        // Retorna a lista a partir dos valores do cache
-        return new ArrayList<>(rodoviaCache.values());
+    /**
+     * Roda na transação do saveRadars: rodovia ainda não vista em radars_cart invalida o conjunto de todas as
+     * instâncias (versão nova do domínio, publicada após o commit) antes que alguém filtre por igualdade sem ela.
+     */
+    @EventListener
+    public void onRadarsIngeridos(RadarsIngeridosEvent event) {
+        Set<String> gravadas = snapshot().gravadas();
+        Set<String> novas = event.getRadars().stream()
+                .map(Radars::getRodovia)
+                .filter(r -> r != null && !gravadas.contains(r))
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (novas.isEmpty()) return;
+        log.info("🆕 Rodovias novas em radars_cart: {}", novas);
+        alterado();
     }
 
     @Transactional
-    @CacheEvict(value = "lista-rodovias", allEntries = true)
     public Rodovia salvarRodovia(Rodovia rodovia) {
         // Verifica existência para evitar duplicidade
         if (rodoviaRepository.existsByNome(rodovia.getNome())) {
             throw new IllegalArgumentException("Rodovia já existe.");
         }
         Rodovia salva = rodoviaRepository.save(rodovia);
-        rodoviaCache.put(salva.getNome(), salva); // Atualiza cache imediatamente
+        alterado();
         return salva;
     }
 
     @Transactional
     public void deletarRodovia(Long id) {
-        rodoviaRepository.findById(id).ifPresent(r -> rodoviaCache.remove(r.getNome()));
-        kmCachePorRodovia.remove(id);
         rodoviaRepository.deleteById(id);
+        alterado();
     }
 
     // --- KMs ---
-    @Cacheable(value = "lista-kms", key = "#rodoviaId")
     public List<KmRodoviaDTO> listarKmsPorRodovia(Long rodoviaId) {
-        List<KmRodovia> kms = kmRepository.findByRodoviaId(rodoviaId);
-
-        // Converte para DTO antes de cachear/retornar
-        return kms.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return snapshot().kmsPorRodovia().getOrDefault(rodoviaId, List.of());
     }
 
     @Transactional
-    @CacheEvict(value = "lista-kms", key = "#km.rodovia.id")
     public KmRodovia salvarKm(KmRodovia km) {
-        return kmRepository.save(km);
+        KmRodovia salvo = kmRepository.save(km);
+        alterado();
+        return salvo;
     }
 
     @Transactional
-    @CacheEvict(value = "lista-kms", allEntries = true)
     public void deletarKm(Long id){
         kmRepository.deleteById(id);
-    }
-
-    // Método auxiliar de conversão
-    private KmRodoviaDTO toDTO(KmRodovia entity) {
-        return new KmRodoviaDTO(
-                entity.getId(),
-                entity.getValor(),
-                entity.getRodovia().getId()
-        );
+        alterado();
     }
 
     /**
-     * ✅ MÉTODO NOVO: APRENDIZADO EM LOTE
-     * Recebe um Mapa: Chave = Nome da Rodovia, Valor = Lista de KMs encontrados
+     * ✅ APRENDIZADO EM LOTE (SET-BASED)
+     * Recebe um Mapa: Chave = Nome da Rodovia, Valor = Lista de KMs encontrados.
+     * No máximo dois comandos por ciclo, independente do tamanho do lote:
+     * 1. rodovias novas: INSERT ... ON CONFLICT DO NOTHING RETURNING (ids das novas e das existentes);
+     * 2. KMs novos: INSERT ... SELECT unnest(...) ON CONFLICT (rodovia_id, valor) DO NOTHING.
+     * A unicidade é garantida pelo banco; o snapshot só evita reenviar o que já se sabe existir.
      */
     @Transactional
-    @CacheEvict(value = {"lista-rodovias", "lista-kms"}, allEntries = true)
     public void registrarDescobertas(Map<String, Set<String>> descobertas) {
         if (descobertas.isEmpty()) return;
 
         log.info("🧠 Aprendizado de domínio: Processando {} rodovias...", descobertas.size());
+        Snapshot atual = snapshot();
 
-        // 1. Inicialização preguiçosa (Lazy Load) do cache se estiver vazio
-        if (rodoviaCache.isEmpty()) {
-            rodoviaRepository.findAll().forEach(r -> rodoviaCache.put(r.getNome(), r));
+        // 1. Rodovias ainda desconhecidas: um único upsert
+        Map<String, Long> ids = new HashMap<>();
+        atual.porNome().forEach((nome, r) -> ids.put(nome, r.getId()));
+        List<String> rodoviasNovas = descobertas.keySet().stream()
+                .filter(nome -> !ids.containsKey(nome))
+                .toList();
+        if (!rodoviasNovas.isEmpty()) {
+            ids.putAll(dominioRepository.garantirRodovias(rodoviasNovas));
+            log.info("🆕 Rodovias no domínio: {}", rodoviasNovas);
         }
 
-        List<KmRodovia> novosKmsParaSalvar = new ArrayList<>();
-
+        // 2. KMs fora do snapshot: um único upsert
+        List<KmNovo> candidatos = new ArrayList<>();
         descobertas.forEach((nomeRodovia, listaKms) -> {
-            // ✅ Uso de computeIfAbsent para garantir que apenas UMA thread crie a rodovia
-            Rodovia rodovia = rodoviaCache.computeIfAbsent(nomeRodovia, nome -> {
-                log.info("🆕 Registrando nova Rodovia no domínio: {}", nome);
-                return rodoviaRepository.save(Rodovia.builder().nome(nome).build());
-            });
-
-            // 2. Tratamento de KMs com cache local por rodovia
-            Set<String> kmsExistentes = kmCachePorRodovia.computeIfAbsent(rodovia.getId(), id -> {
-                // Se não está no cache, busca do banco ou inicializa
-                return kmRepository.findByRodoviaId(id).stream()
-                        .map(KmRodovia::getValor)
-                        .collect(Collectors.toCollection(HashSet::new));
-            });
-
+            Long rodoviaId = ids.get(nomeRodovia);
+            if (rodoviaId == null) return;
+            Set<String> conhecidos = atual.valoresPorRodovia().getOrDefault(rodoviaId, Set.of());
             for (String valorKm : listaKms) {
-                // ✅ Sincronização fina no set de KMs para evitar duplicatas em novosKmsParaSalvar
-                synchronized (kmsExistentes) {
-                    if (kmsExistentes.add(valorKm)) {
-                        novosKmsParaSalvar.add(KmRodovia.builder()
-                                .valor(valorKm)
-                                .rodovia(rodovia)
-                                .build());
-                    }
-                }
+                if (!conhecidos.contains(valorKm)) candidatos.add(new KmNovo(rodoviaId, valorKm));
             }
         });
+        List<KmNovo> inseridos = candidatos.isEmpty() ? List.of() : dominioRepository.inserirKms(candidatos);
+        if (!inseridos.isEmpty()) {
+            log.info("💾 Sucesso: {} novos KMs adicionados ao domínio.", inseridos.size());
+        }
+
+        // Rodovias/KMs que outra instância já gravou (ainda não no snapshot) também contam: força a recarga
+        if (!rodoviasNovas.isEmpty() || !candidatos.isEmpty()) alterado();
+    }
 
-        // 3. Persistência em lote (Batch) para performance
-        if (!novosKmsParaSalvar.isEmpty()) {
-            kmRepository.saveAll(novosKmsParaSalvar);
-            log.info("💾 Sucesso: {} novos KMs adicionados ao domínio.", novosKmsParaSalvar.size());
+    /**
+     * Após o commit: recarrega o snapshot local e avisa as demais instâncias.
+     */
+    @TransactionalEventListener
+    public void onDominioAlterado(DominioAlteradoEvent event) {
+        atualizarPara(event.getVersao());
+        try {
+            redisTemplate.convertAndSend(canal, String.valueOf(event.getVersao()));
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao publicar versão {} do domínio (demais instâncias recarregam na verificação periódica): {}",
+                    event.getVersao(), e.getMessage());
         }
     }
+
+    /**
+     * Rede de segurança para avisos perdidos: compara a versão do banco com a do snapshot.
+     */
+    @Scheduled(fixedDelayString = "${radares.dominio.verificacao-ms:30000}", initialDelayString = "${radares.dominio.verificacao-ms:30000}")
+    public void verificarVersao() {
+        try {
+            atualizarPara(dominioRepository.versao());
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao verificar versão do domínio: {}", e.getMessage());
+        }
+    }
+
+    private void alterado() {
+        eventPublisher.publishEvent(new DominioAlteradoEvent(dominioRepository.incrementarVersao()));
+    }
+
+    private Snapshot snapshot() {
+        Snapshot atual = snapshot;
+        return atual.versao() >= 0 ? atual : recarregar(0);
+    }
+
+    private void atualizarPara(long versao) {
+        if (snapshot.versao() < versao) recarregar(versao);
+    }
+
+    /**
+     * A versão é lida antes dos dados: o snapshot pode ser mais novo que o rótulo, nunca mais velho.
+     */
+    private synchronized Snapshot recarregar(long versaoMinima) {
+        Snapshot atual = snapshot;
+        if (atual.versao() >= 0 && atual.versao() >= versaoMinima) return atual;
+
+        long versao = dominioRepository.versao();
+        Snapshot novo = Snapshot.de(versao, rodoviaRepository.findAll(), dominioRepository.listarKms(),
+                dominioRepository.rodoviasGravadas());
+        snapshot = novo;
+        log.info("🚚 Domínio carregado (versão {}): {} rodovias, {} com KMs", versao,
+                novo.rodovias().size(), novo.kmsPorRodovia().size());
+        return novo;
+    }
 }
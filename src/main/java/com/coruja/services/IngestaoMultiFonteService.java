@@ -0,0 +1,242 @@
+package com.coruja.services;
+
+import com.coruja.config.IngestaoProperties;
+import com.coruja.config.IngestaoProperties.Fonte;
+import com.coruja.entities.LocalizacaoRadar;
+import com.coruja.repositories.FtpArquivosRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ✅ MOTOR DE INGESTÃO MULTI-FONTE
+ * Um processo atende várias concessionárias (ingestao.fontes). Cada fonte tem a própria varredura
+ * (intervalo com jitter inicial) e até 'concorrencia' workers, cada um com sua conexão FTP.
+ * - Um único agendador em thread virtual dispara as varreduras; o trabalho roda em threads virtuais.
+ * - Justiça entre fontes: cada arquivo exige uma permissão de um semáforo global FIFO
+ *   (ingestao.concorrencia-global), então uma fonte com muito atraso não monopoliza a instância.
+ * - Uma varredura de fonte ainda em andamento não é disparada de novo.
+ * - Todas as réplicas varrem e reivindicam arquivos da fila ftp_arquivos: a vazão cresce com as instâncias.
+ *   O estado que precisa da sequência completa de cada placa (clonagem, origem-destino) pareia pela tabela
+ *   compartilhada de {@link UltimasPassagensService}, não por memória local.
+ * Métricas por fonte: radares.ingestao.arquivos{fonte,resultado}, radares.ingestao.arquivo{fonte} (timer),
+ * radares.ingestao.linhas{fonte}, radares.ingestao.workers{fonte} e radares.ingestao.pendentes{fonte}.
+ */
+@Service
+@Slf4j
+public class IngestaoMultiFonteService {
+
+    // Nome da fonte montada a partir das propriedades legadas ftp.* (linhas antigas de ftp_arquivos)
+    static final String FONTE_LEGADA = "cart";
+
+    private final FtpService ftpService;
+    private final GestaoRodoviaService gestaoRodoviaService;
+    private final FtpArquivosRepository filaArquivos;
+    private final MeterRegistry meterRegistry;
+    private final List<Fonte> fontes;
+    private final Semaphore permissoesGlobais;
+
+    private final ScheduledExecutorService agendador =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("ingestao-agendador").factory());
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, AtomicBoolean> emAndamento = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> workersAtivos = new ConcurrentHashMap<>();
+    private final AtomicReference<Map<String, Long>> pendentes = new AtomicReference<>(Map.of());
+
+    public IngestaoMultiFonteService(FtpService ftpService,
+                                     GestaoRodoviaService gestaoRodoviaService,
+                                     FtpArquivosRepository filaArquivos,
+                                     RadarsService radarsService,
+                                     MeterRegistry meterRegistry,
+                                     IngestaoProperties propriedades,
+                                     @Value("${ftp.host:}") String ftpHost,
+                                     @Value("${ftp.port:21}") int ftpPort,
+                                     @Value("${ftp.user:}") String ftpUser,
+                                     @Value("${ftp.pass:}") String ftpPass,
+                                     @Value("${ftp.directory:/}") String ftpDirectory,
+                                     @Value("${ftp.local.directory:}") String ftpLocalDirectory,
+                                     @Value("${ftp.schedule.rate.ms:300000}") long ftpScheduleRateMs) {
+        this.ftpService = ftpService;
+        this.gestaoRodoviaService = gestaoRodoviaService;
+        this.filaArquivos = filaArquivos;
+        this.meterRegistry = meterRegistry;
+        this.permissoesGlobais = new Semaphore(Math.max(1, propriedades.getConcorrenciaGlobal()), true);
+
+        List<Fonte> configuradas = new ArrayList<>(propriedades.getFontes());
+        if (configuradas.isEmpty() && !ftpHost.isBlank()) {
+            Fonte legada = new Fonte();
+            legada.setNome(FONTE_LEGADA);
+            legada.setConcessionaria(radarsService.concessionariaPadrao());
+            legada.setHost(ftpHost);
+            legada.setPorta(ftpPort);
+            legada.setUsuario(ftpUser);
+            legada.setSenha(ftpPass);
+            legada.setDiretorio(ftpDirectory);
+            legada.setDiretorioLocal(ftpLocalDirectory);
+            legada.setIntervaloMs(ftpScheduleRateMs);
+            configuradas.add(legada);
+        }
+        configuradas.forEach(IngestaoMultiFonteService::validar);
+        if (configuradas.stream().map(Fonte::getNome).distinct().count() < configuradas.size()) {
+            throw new IllegalArgumentException("ingestao.fontes: nomes de fonte repetidos");
+        }
+        this.fontes = configuradas.stream().filter(Fonte::isHabilitada).toList();
+
+        meterRegistry.gauge("radares.ingestao.permissoes.livres", permissoesGlobais, Semaphore::availablePermits);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (fontes.isEmpty()) {
+            log.warn("⚠️ Nenhuma fonte de ingestão configurada (ingestao.fontes ou ftp.*)");
+            return;
+        }
+        for (Fonte fonte : fontes) {
+            emAndamento.put(fonte.getNome(), new AtomicBoolean(false));
+            AtomicInteger workers = new AtomicInteger();
+            workersAtivos.put(fonte.getNome(), workers);
+            meterRegistry.gauge("radares.ingestao.workers", List.of(Tag.of("fonte", fonte.getNome())),
+                    workers, AtomicInteger::get);
+            meterRegistry.gauge("radares.ingestao.pendentes", List.of(Tag.of("fonte", fonte.getNome())),
+                    pendentes, p -> p.get().getOrDefault(fonte.getNome(), 0L));
+
+            // Jitter inicial: fontes com o mesmo intervalo não varrem todas no mesmo instante
+            long atraso = ThreadLocalRandom.current().nextLong(Math.max(1, Math.min(fonte.getIntervaloMs(), 60000)));
+            agendador.scheduleWithFixedDelay(() -> disparar(fonte), atraso, fonte.getIntervaloMs(), TimeUnit.MILLISECONDS);
+        }
+        agendador.scheduleWithFixedDelay(this::atualizarPendentes, 30, 60, TimeUnit.SECONDS);
+        log.info("📡 Ingestão multi-fonte: {} fontes {}, {} arquivos simultâneos no total", fontes.size(),
+                fontes.stream().map(Fonte::getNome).toList(), permissoesGlobais.availablePermits());
+    }
+
+    public List<Fonte> fontes() {
+        return fontes;
+    }
+
+    private void disparar(Fonte fonte) {
+        AtomicBoolean rodando = emAndamento.get(fonte.getNome());
+        if (!rodando.compareAndSet(false, true)) {
+            log.debug("⏭️ [{}] Varredura anterior ainda em andamento", fonte.getNome());
+            return;
+        }
+        executor.submit(() -> {
+            try {
+                varrer(fonte);
+            } catch (Exception e) {
+                log.error("❌ [{}] Falha na varredura: {}", fonte.getNome(), e.getMessage());
+            } finally {
+                rodando.set(false);
+            }
+        });
+    }
+
+    /**
+     * Lista a fonte, drena a fila com até 'concorrencia' workers e registra as descobertas de domínio uma vez.
+     */
+    private void varrer(Fonte fonte) throws Exception {
+        long inicio = System.currentTimeMillis();
+        ftpService.registrarArquivosRemotos(fonte);
+
+        Map<String, LocalizacaoRadar> mapaLocalizacao = ftpService.carregarMapaLocalizacao();
+        Map<String, Set<String>> descobertas = new ConcurrentHashMap<>();
+
+        // invokeAll espera todos os workers: a varredura só termina (e libera 'emAndamento') quando nenhum
+        // worker da fonte está rodando, e as descobertas de todos os arquivos gravados são registradas.
+        List<Callable<Integer>> tarefas = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, fonte.getConcorrencia()); i++) {
+            tarefas.add(() -> trabalhar(fonte, mapaLocalizacao, descobertas));
+        }
+        int arquivos = 0;
+        for (Future<Integer> worker : executor.invokeAll(tarefas)) {
+            try {
+                arquivos += worker.get();
+            } catch (ExecutionException e) {
+                log.warn("⚠️ [{}] Worker interrompido: {}", fonte.getNome(), e.getCause().getMessage());
+            }
+        }
+
+        if (!descobertas.isEmpty()) {
+            gestaoRodoviaService.registrarDescobertas(descobertas);
+        }
+        if (arquivos > 0) {
+            log.info("📡 [{}] {} arquivos em {} ms", fonte.getNome(), arquivos, System.currentTimeMillis() - inicio);
+        }
+    }
+
+    private int trabalhar(Fonte fonte, Map<String, LocalizacaoRadar> mapaLocalizacao, Map<String, Set<String>> descobertas)
+            throws IOException, InterruptedException {
+        AtomicInteger ativos = workersAtivos.get(fonte.getNome());
+        FTPClient ftpClient = ftpService.conectar(fonte);
+        ativos.incrementAndGet();
+        int arquivos = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Uma permissão global por arquivo: fontes diferentes se revezam na fila FIFO
+                permissoesGlobais.acquire();
+                try {
+                    if (!ftpService.ingerirProximo(fonte, ftpClient, mapaLocalizacao, descobertas)) break;
+                    arquivos++;
+                } finally {
+                    permissoesGlobais.release();
+                }
+            }
+        } finally {
+            ativos.decrementAndGet();
+            ftpService.desconectarFtp(ftpClient);
+        }
+        return arquivos;
+    }
+
+    private void atualizarPendentes() {
+        try {
+            pendentes.set(filaArquivos.pendentesPorFonte());
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao ler fila de ingestão: {}", e.getMessage());
+        }
+    }
+
+    private static void validar(Fonte fonte) {
+        if (fonte.getNome() == null || fonte.getNome().isBlank()) {
+            throw new IllegalArgumentException("ingestao.fontes: fonte sem nome");
+        }
+        if (fonte.getHost() == null || fonte.getHost().isBlank()) {
+            throw new IllegalArgumentException("ingestao.fontes[" + fonte.getNome() + "]: host obrigatório");
+        }
+        if (fonte.getDiretorioLocal() == null || fonte.getDiretorioLocal().isBlank()) {
+            throw new IllegalArgumentException("ingestao.fontes[" + fonte.getNome() + "]: diretorio-local obrigatório");
+        }
+        if (fonte.getIntervaloMs() <= 0 || fonte.getConcorrencia() <= 0) {
+            throw new IllegalArgumentException("ingestao.fontes[" + fonte.getNome() + "]: intervalo-ms e concorrencia devem ser positivos");
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        agendador.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,71 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.repositories.BackfillRepository;
+import com.coruja.repositories.PassagensRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * ✅ BACKFILL DE km_metros
+ * Passagens novas recebem km_metros na ingestão; as gravadas antes da V14 são preenchidas aqui,
+ * do dia mais recente para o mais antigo, alguns dias por execução (um UPDATE curto por dia/partição).
+ * O progresso fica no banco: reinícios e outras instâncias continuam de onde parou.
+ */
+@Service
+@Slf4j
+public class KmMetrosBackfillService {
+
+    private static final String TAREFA = "km_metros";
+
+    private final BackfillRepository backfillRepository;
+    private final PassagensRepository passagensRepository;
+    private final int diasPorExecucao;
+    private final long pausaMs;
+    private volatile boolean concluido;
+
+    public KmMetrosBackfillService(BackfillRepository backfillRepository,
+                                   PassagensRepository passagensRepository,
+                                   @Value("${radares.km-metros.backfill.dias-por-execucao:7}") int diasPorExecucao,
+                                   @Value("${radares.km-metros.backfill.pausa-ms:200}") long pausaMs) {
+        this.backfillRepository = backfillRepository;
+        this.passagensRepository = passagensRepository;
+        this.diasPorExecucao = diasPorExecucao;
+        this.pausaMs = pausaMs;
+    }
+
+    @Scheduled(fixedDelayString = "${radares.km-metros.backfill.intervalo-ms:60000}", initialDelayString = "${radares.km-metros.backfill.delay-ms:90000}")
+    @JobCoordenado(nome = "km-metros-backfill")
+    public void preencher() {
+        if (concluido) return;
+
+        LocalDate[] limites = passagensRepository.limitesDeData();
+        if (limites[0] == null) return;
+        LocalDate dia = backfillRepository.progresso(TAREFA).orElse(limites[1]);
+
+        for (int i = 0; i < diasPorExecucao; i++) {
+            if (dia.isBefore(limites[0])) {
+                concluido = true;
+                log.info("📏 Backfill de km_metros concluído");
+                return;
+            }
+            int linhas = backfillRepository.preencherKmMetros(dia);
+            if (linhas > 0) log.debug("📏 km_metros preenchido em {}: {} linhas", dia, linhas);
+            dia = dia.minusDays(1);
+            backfillRepository.salvarProgresso(TAREFA, dia);
+            pausar();
+        }
+    }
+
+    private void pausar() {
+        try {
+            Thread.sleep(pausaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.coruja.services;
+
+import com.coruja.dto.LocalizacaoRadarProjection;
+import com.coruja.repositories.LocalizacaoRadarRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ✅ ÍNDICE EM MEMÓRIA DAS LOCALIZAÇÕES DOS RADARES
+ * Snapshot imutável (id -> coordenadas, praça -> id) trocado atomicamente a cada recarga.
+ * Evita JOIN com localizacao_radar em caminhos quentes (ingestão e mapas).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LocalizacaoIndexService {
+
+    private final LocalizacaoRadarRepository localizacaoRadarRepository;
+
+    private volatile Indice indice;
+
+    public record Localizacao(Long id, String praca, String rodovia, String km, Double latitude, Double longitude) {
+        public boolean temCoordenadas() {
+            return latitude != null && longitude != null;
+        }
+    }
+
+    private record Indice(Map<Long, Localizacao> porId, Map<String, Localizacao> porPraca) { }
+
+    public Optional<Localizacao> porId(Long id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(indice().porId().get(id));
+    }
+
+    /**
+     * Resolve a praça (normalizada com trim + uppercase, como no FtpService).
+     * Se houver mais de uma localização para a mesma praça, vence a de menor id (determinístico).
+     */
+    public Optional<Localizacao> porPraca(String praca) {
+        if (praca == null) return Optional.empty();
+        return Optional.ofNullable(indice().porPraca().get(normalizeKey(praca)));
+    }
+
+    public Map<Long, Localizacao> todas() {
+        return indice().porId();
+    }
+
+    @Scheduled(fixedDelayString = "${radares.localizacoes.recarga-ms:600000}", initialDelayString = "${radares.localizacoes.recarga-ms:600000}")
+    public void recarregar() {
+        try {
+            List<LocalizacaoRadarProjection> todas = localizacaoRadarRepository.findAllLocations();
+            Map<Long, Localizacao> porId = new HashMap<>();
+            Map<String, Localizacao> porPraca = new HashMap<>();
+
+            for (LocalizacaoRadarProjection p : todas) {
+                Localizacao loc = new Localizacao(p.getId(), p.getPraca(), p.getRodovia(), p.getKm(),
+                        p.getLatitude(), p.getLongitude());
+                porId.put(loc.id(), loc);
+                if (loc.praca() != null) {
+                    porPraca.merge(normalizeKey(loc.praca()), loc, (a, b) -> a.id() <= b.id() ? a : b);
+                }
+            }
+
+            indice = new Indice(Collections.unmodifiableMap(porId), Collections.unmodifiableMap(porPraca));
+            log.debug("🗺️ Índice de localizações recarregado: {} registros", porId.size());
+        } catch (Exception e) {
+            log.error("❌ Erro ao recarregar índice de localizações: {}", e.getMessage());
+            if (indice == null) {
+                indice = new Indice(Map.of(), Map.of());
+            }
+        }
+    }
+
+    private Indice indice() {
+        Indice atual = indice;
+        if (atual == null) {
+            synchronized (this) {
+                if (indice == null) recarregar();
+                atual = indice;
+            }
+        }
+        return atual;
+    }
+
+    private String normalizeKey(String input) {
+        return input.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,182 @@
+package com.coruja.services;
+
+import com.coruja.dto.OrigemDestinoDTO;
+import com.coruja.events.PassagensPareadasEvent;
+import com.coruja.repositories.OrigemDestinoRepository;
+import com.coruja.repositories.OrigemDestinoRepository.Acumulado;
+import com.coruja.repositories.OrigemDestinoRepository.Chave;
+import com.coruja.repositories.RollupHorarioRepository;
+import com.coruja.utils.HistogramaViagem;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * ✅ MATRIZ ORIGEM-DESTINO INCREMENTAL
+ * Cada passagem é pareada com a passagem anterior da mesma placa ({@link UltimasPassagensService}, compartilhado
+ * entre as réplicas de ingestão): praças diferentes dentro do intervalo máximo = uma viagem origem -> destino.
+ * As viagens do lote são agregadas por (dia, hora de partida, origem, destino) e somadas à tabela,
+ * com histograma de tempos; a consulta nunca toca em radars_cart.
+ */
+@Service
+@Slf4j
+public class OrigemDestinoService {
+
+    private final OrigemDestinoRepository repository;
+    private final RollupHorarioRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxIntervaloSegundos;
+    private final int maxDiasConsulta;
+
+    public OrigemDestinoService(OrigemDestinoRepository repository,
+                                RollupHorarioRepository rollupRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${radares.od.max-intervalo-minutos:240}") long maxIntervaloMinutos,
+                                @Value("${radares.od.max-dias-consulta:366}") int maxDiasConsulta) {
+        this.repository = repository;
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxIntervaloSegundos = maxIntervaloMinutos * 60;
+        this.maxDiasConsulta = maxDiasConsulta;
+    }
+
+    /**
+     * Roda dentro da transação do saveRadars (mesmo padrão do rollup horário): os pares já vêm formados com as
+     * linhas das placas travadas, então lotes simultâneos (em qualquer réplica) nunca pareiam a mesma passagem
+     * anterior duas vezes, e um lote desfeito leva junto as viagens que somou.
+     */
+    @EventListener
+    public void onPassagensPareadas(PassagensPareadasEvent event) {
+        Map<Chave, Acumulado> agregados = new TreeMap<>();
+        for (PassagensPareadasEvent.Par par : event.getPares()) {
+            if (par.atrasada() || par.pracaAnterior().equals(par.pracaAtual())) continue;
+            long segundos = ChronoUnit.SECONDS.between(par.instanteAnterior(), par.instanteAtual());
+            if (segundos <= 0 || segundos > maxIntervaloSegundos) continue;
+            LocalDateTime partida = par.instanteAnterior();
+            agregados.computeIfAbsent(new Chave(partida.toLocalDate(), partida.getHour(), par.pracaAnterior(), par.pracaAtual()),
+                    k -> new Acumulado()).adicionar(segundos);
+        }
+
+        if (agregados.isEmpty()) return;
+        repository.incrementar(new ArrayList<>(agregados.entrySet()));
+        log.debug("🚗 Origem-destino: {} pares atualizados a partir de {} passagens", agregados.size(), event.getPares().size());
+    }
+
+    /**
+     * ✅ RECONSTRUÇÃO (BACKFILL)
+     * Dia a dia, cada um na sua transação: apaga as viagens com partida no dia e repareia a partir de radars_cart.
+     * Os dias lidos ficam travados com a mesma trava do rollup ({@link RollupHorarioRepository#travarDia}): lotes em
+     * curso terminam antes e os novos esperam, então a ingestão simultânea não é contada em dobro nem perdida.
+     */
+    public int reconstruir(LocalDate dataInicial, LocalDate dataFinal) {
+        validarPeriodo(dataInicial, dataFinal);
+        int totalPares = 0;
+        for (LocalDate dia = dataInicial; !dia.isAfter(dataFinal); dia = dia.plusDays(1)) {
+            LocalDate d = dia;
+            Integer pares = transactionTemplate.execute(status -> reconstruirDia(d));
+            totalPares += pares == null ? 0 : pares;
+            log.info("🔁 Origem-destino reconstruído para {}: {} pares", d, pares);
+        }
+        return totalPares;
+    }
+
+    /**
+     * Matriz do período (horas de partida entre horaInicial e horaFinal), ordenada por volume de viagens.
+     */
+    public List<OrigemDestinoDTO> matriz(LocalDate dataInicial, LocalDate dataFinal,
+                                         Integer horaInicial, Integer horaFinal,
+                                         String origem, String destino) {
+        validarPeriodo(dataInicial, dataFinal);
+        if (ChronoUnit.DAYS.between(dataInicial, dataFinal) + 1 > maxDiasConsulta) {
+            throw new IllegalArgumentException("Período máximo da consulta é de " + maxDiasConsulta + " dias");
+        }
+        int horaDe = horaInicial == null ? 0 : horaInicial;
+        int horaAte = horaFinal == null ? 23 : horaFinal;
+        if (horaDe < 0 || horaAte > 23 || horaAte < horaDe) {
+            throw new IllegalArgumentException("Faixa de horas inválida (0 a 23)");
+        }
+
+        Map<String, long[]> histogramas = new LinkedHashMap<>();
+        Map<String, Long> somas = new HashMap<>();
+        repository.somarPeriodo(dataInicial, dataFinal, horaDe, horaAte, normalize(origem), normalize(destino),
+                (o, d, faixa, contagem, somaSegundos) -> {
+                    String par = o + "\n" + d;
+                    histogramas.computeIfAbsent(par, k -> new long[HistogramaViagem.FAIXAS])[faixa] += contagem;
+                    somas.merge(par, somaSegundos, Long::sum);
+                });
+
+        List<OrigemDestinoDTO> resultado = new ArrayList<>(histogramas.size());
+        histogramas.forEach((par, hist) -> {
+            long viagens = Arrays.stream(hist).sum();
+            if (viagens == 0) return;
+            String[] od = par.split("\n", 2);
+            resultado.add(OrigemDestinoDTO.builder()
+                    .pracaOrigem(od[0])
+                    .pracaDestino(od[1])
+                    .viagens(viagens)
+                    .tempoMedioSegundos(somas.getOrDefault(par, 0L) / viagens)
+                    .tempoMedianoSegundos(HistogramaViagem.quantil(hist, 0.5, maxIntervaloSegundos))
+                    .tempoP85Segundos(HistogramaViagem.quantil(hist, 0.85, maxIntervaloSegundos))
+                    .histograma(hist)
+                    .build());
+        });
+        resultado.sort(Comparator.comparingLong(OrigemDestinoDTO::getViagens).reversed());
+        return resultado;
+    }
+
+    private int reconstruirDia(LocalDate dia) {
+        // Viagens com partida no dia podem chegar depois da meia-noite, até o intervalo máximo
+        LocalDateTime ate = dia.plusDays(1).atStartOfDay().plusSeconds(maxIntervaloSegundos);
+        for (LocalDate d = dia; !d.isAfter(ate.toLocalDate()); d = d.plusDays(1)) {
+            rollupRepository.travarDia(d, true);
+        }
+        repository.apagarDia(dia);
+
+        Map<Chave, Acumulado> agregados = new TreeMap<>();
+        String[] anterior = new String[2];            // placa, praça
+        LocalDateTime[] instanteAnterior = new LocalDateTime[1];
+
+        repository.percorrerPassagens(dia, ate, (placa, data, hora, praca) -> {
+            if (praca == null) return;
+            String pracaNormalizada = normalize(praca);
+            LocalDateTime instante = LocalDateTime.of(data, hora);
+
+            // Só contam viagens com partida no dia reconstruído (a chave é sempre a da origem)
+            if (placa.equals(anterior[0]) && instanteAnterior[0].toLocalDate().equals(dia)) {
+                long segundos = ChronoUnit.SECONDS.between(instanteAnterior[0], instante);
+                if (!pracaNormalizada.equals(anterior[1]) && segundos > 0 && segundos <= maxIntervaloSegundos) {
+                    agregados.computeIfAbsent(new Chave(dia, instanteAnterior[0].getHour(), anterior[1], pracaNormalizada),
+                            k -> new Acumulado()).adicionar(segundos);
+                }
+            }
+            anterior[0] = placa;
+            anterior[1] = pracaNormalizada;
+            instanteAnterior[0] = instante;
+        });
+
+        if (!agregados.isEmpty()) {
+            repository.incrementar(new ArrayList<>(agregados.entrySet()));
+        }
+        return agregados.size();
+    }
+
+    private void validarPeriodo(LocalDate dataInicial, LocalDate dataFinal) {
+        if (dataInicial == null || dataFinal == null) {
+            throw new IllegalArgumentException("Data inicial e final são obrigatórias");
+        }
+        if (dataFinal.isBefore(dataInicial)) {
+            throw new IllegalArgumentException("Data final anterior à data inicial");
+        }
+    }
+
+    private String normalize(String input) {
+        return input == null || input.isBlank() ? null : input.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,162 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.entities.Radars;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.PlacasBloomRepository;
+import com.coruja.repositories.PlacasBloomRepository.Entrada;
+import com.coruja.utils.BloomFilter;
+import com.coruja.utils.CacheDias;
+import com.coruja.utils.PodaDias;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * ✅ FILTROS DE BLOOM DIÁRIOS DE PLACAS
+ * - Construídos para dias fechados (job agendado, 'dias-retroativos'), gravados no banco e mantidos em memória
+ *   (LRU, validados por versão). A poda usa só os 'max-dias-memoria' dias fechados mais recentes, que cabem inteiros
+ *   no LRU: cada busca reaproveita os filtros em vez de recarregá-los do banco, e a memória fica limitada
+ *   a ~1,2 KB por mil placas/dia com fpp 1% (1 milhão de placas/dia x 120 dias = ~144 MB).
+ * - Antes de uma busca de placa exata, descartam os dias em que a placa com certeza não passou.
+ * - Dado atrasado em dia fechado invalida o filtro do dia na mesma transação da ingestão (sem falso negativo).
+ */
+@Service
+@Slf4j
+public class PlacasBloomService {
+
+    private record FiltroCarregado(long versao, BloomFilter filtro) { }
+
+    private final PlacasBloomRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheDias<FiltroCarregado> filtros;
+    private final double fpp;
+    private final int diasFechamento;
+    private final int diasRetroativos;
+    private final int diasPoda;
+
+    public PlacasBloomService(PlacasBloomRepository repository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${radares.bloom.fpp:0.01}") double fpp,
+                              @Value("${radares.bloom.dias-fechamento:2}") int diasFechamento,
+                              @Value("${radares.bloom.dias-retroativos:400}") int diasRetroativos,
+                              @Value("${radares.bloom.max-dias-memoria:120}") int maxDiasMemoria) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.fpp = fpp;
+        this.diasFechamento = diasFechamento;
+        this.diasRetroativos = diasRetroativos;
+        // Janela da poda = capacidade do LRU: maior que ela, o LRU seria esvaziado a cada busca (varredura sequencial)
+        if (maxDiasMemoria < 1 || maxDiasMemoria > diasRetroativos + 1) {
+            throw new IllegalArgumentException("radares.bloom.max-dias-memoria deve estar entre 1 e dias-retroativos + 1 ("
+                    + (diasRetroativos + 1) + "): " + maxDiasMemoria);
+        }
+        this.diasPoda = maxDiasMemoria;
+        this.filtros = new CacheDias<>(maxDiasMemoria, this::carregar);
+    }
+
+    /**
+     * Roda na transação do saveRadars: dias já fechados voltam a pendentes.
+     */
+    @EventListener
+    public void onRadarsIngeridos(RadarsIngeridosEvent event) {
+        LocalDate ultimoFechado = ultimoDiaFechado();
+        Set<LocalDate> atrasados = new TreeSet<>();
+        for (Radars r : event.getRadars()) {
+            if (r.getData() != null && !r.getData().isAfter(ultimoFechado)) atrasados.add(r.getData());
+        }
+        if (atrasados.isEmpty()) return;
+
+        repository.invalidar(atrasados);
+        log.info("🌸 Filtros de Bloom invalidados por dado atrasado: {}", atrasados);
+    }
+
+    /**
+     * ✅ CONSTRUÇÃO DOS DIAS FECHADOS PENDENTES
+     * Cada dia em sua transação, com a linha do dia travada durante a leitura das placas.
+     */
+    @Scheduled(fixedDelayString = "${radares.bloom.construcao-ms:3600000}", initialDelayString = "${radares.bloom.construcao-delay-ms:120000}")
+    @JobCoordenado(nome = "bloom-construcao")
+    public void construirPendentes() {
+        LocalDate ate = ultimoDiaFechado();
+        List<LocalDate> pendentes = repository.diasPendentes(ate.minusDays(diasRetroativos), ate);
+        for (LocalDate dia : pendentes) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> construir(dia));
+            } catch (Exception e) {
+                log.warn("⚠️ Falha ao construir filtro de Bloom de {}: {}", dia, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Dias em que a placa (exata) pode ter passado, segundo os filtros.
+     */
+    public PodaDias podar(String placa) {
+        // Dias anteriores à janela ficam fora da cobertura (sem poda)
+        LocalDate fimJanela = ultimoDiaFechado();
+        List<Entrada> catalogo = repository.catalogo(fimJanela.minusDays(diasPoda - 1L), fimJanela);
+        if (catalogo.isEmpty()) return PodaDias.SEM_COBERTURA;
+
+        LocalDate inicio = catalogo.get(0).data();
+        LocalDate fim = catalogo.get(catalogo.size() - 1).data();
+        Map<LocalDate, Entrada> porDia = new HashMap<>();
+        catalogo.forEach(e -> porDia.put(e.data(), e));
+
+        Set<LocalDate> possiveis = new HashSet<>();
+        int descartados = 0;
+        for (LocalDate dia = inicio; !dia.isAfter(fim); dia = dia.plusDays(1)) {
+            Entrada entrada = porDia.get(dia);
+            BloomFilter filtro = entrada == null || !entrada.construido() ? null : filtroAtual(entrada);
+            // Sem filtro válido (dia sem linha, pendente ou invalidado agora) = possível
+            if (filtro == null || filtro.podeConter(placa)) {
+                possiveis.add(dia);
+            } else {
+                descartados++;
+            }
+        }
+
+        log.debug("🌸 Placa {}: {} dias possíveis, {} descartados ({} a {})", placa, possiveis.size(), descartados, inicio, fim);
+        return new PodaDias(inicio, fim, possiveis);
+    }
+
+    private void construir(LocalDate dia) {
+        repository.travarDia(dia);
+        long total = repository.contarPlacas(dia);
+        BloomFilter filtro = BloomFilter.criar(total, fpp);
+        repository.percorrerPlacas(dia, filtro::adicionar);
+        repository.gravar(dia, filtro.serializar(), total);
+        log.info("🌸 Filtro de Bloom de {}: {} placas, {} KB", dia, total, filtro.tamanhoBytes() / 1024);
+    }
+
+    /**
+     * Cópia em memória, recarregada se a versão no banco mudou (outra instância reconstruiu ou invalidou).
+     */
+    private BloomFilter filtroAtual(Entrada entrada) {
+        FiltroCarregado carregado = filtros.obterSeCarregado(entrada.data());
+        if (carregado == null || carregado.versao() != entrada.versao()) {
+            filtros.invalidar(entrada.data());
+            carregado = filtros.obter(entrada.data());
+        }
+        if (carregado == null) {
+            filtros.invalidar(entrada.data());
+            return null;
+        }
+        return carregado.filtro();
+    }
+
+    private FiltroCarregado carregar(LocalDate dia) {
+        PlacasBloomRepository.Filtro filtro = repository.ler(dia);
+        return filtro == null ? null : new FiltroCarregado(filtro.versao(), BloomFilter.desserializar(filtro.dados()));
+    }
+
+    private LocalDate ultimoDiaFechado() {
+        return LocalDate.now().minusDays(diasFechamento);
+    }
+}
@@ -0,0 +1,258 @@
+package com.coruja.services;
+
+import com.coruja.dto.PlacasDistintasDTO;
+import com.coruja.entities.Radars;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.PlacasDistintasRepository;
+import com.coruja.repositories.PlacasDistintasRepository.Chave;
+import com.coruja.utils.CacheDias;
+import com.coruja.utils.HyperLogLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * ✅ PLACAS DISTINTAS (VEÍCULOS ÚNICOS) COM HYPERLOGLOG
+ * - Ingestão: um sketch por (praça, sentido, dia, hora), mesclado ao persistido na mesma transação.
+ * - Consulta: mescla sketches em memória (dias carregados sob demanda, LRU) — sem COUNT(DISTINCT).
+ *   Dia inteiro usa o sketch diário já mesclado por (praça, sentido): um ano custa ~365 mesclas por praça, não ~8.760.
+ *   Só faixas parciais de hora recorrem aos sketches horários (~4 KB cada: ~10 MB/dia com 200 praças×sentidos).
+ * - Auditoria: contagem exata continua disponível direto na tabela.
+ */
+@Service
+@Slf4j
+public class PlacasDistintasService {
+
+    private static final byte[] SKETCH_VAZIO = new HyperLogLog().serializar();
+
+    private final PlacasDistintasRepository repository;
+    private final CacheDias<Map<Chave, HyperLogLog>> diasEmMemoria;
+    private final CacheDias<Map<ChaveDia, HyperLogLog>> diasConsolidados;
+    private final int maxDiasConsulta;
+    private final int diasAbertos;
+
+    public PlacasDistintasService(PlacasDistintasRepository repository,
+                                  @Value("${radares.placas-distintas.max-dias-memoria:7}") int maxDiasMemoria,
+                                  @Value("${radares.placas-distintas.max-dias-consolidados:92}") int maxDiasConsolidados,
+                                  @Value("${radares.placas-distintas.max-dias-consulta:366}") int maxDiasConsulta,
+                                  @Value("${radares.placas-distintas.dias-abertos:2}") int diasAbertos) {
+        this.repository = repository;
+        this.maxDiasConsulta = maxDiasConsulta;
+        this.diasAbertos = diasAbertos;
+        this.diasEmMemoria = new CacheDias<>(maxDiasMemoria, this::carregarDia);
+        this.diasConsolidados = new CacheDias<>(maxDiasConsolidados, this::carregarDiaConsolidado);
+    }
+
+    /**
+     * Mescla o lote nos sketches persistidos (linhas travadas com FOR UPDATE: seguro com várias instâncias).
+     */
+    @EventListener
+    public void onRadarsIngeridos(RadarsIngeridosEvent event) {
+        Map<LocalDate, TreeMap<Chave, HyperLogLog>> porDia = sketchesDoLote(event.getRadars());
+
+        porDia.forEach((dia, sketches) -> {
+            List<Chave> chaves = new ArrayList<>(sketches.keySet());
+            repository.garantirLinhas(chaves, SKETCH_VAZIO);
+
+            Map<Chave, byte[]> mesclados = new TreeMap<>();
+            repository.travarELer(dia, chaves, (chave, registros) -> {
+                HyperLogLog persistido = HyperLogLog.desserializar(registros);
+                persistido.mesclar(sketches.get(chave));
+                mesclados.put(chave, persistido.serializar());
+            });
+            repository.atualizar(new ArrayList<>(mesclados.entrySet()));
+        });
+    }
+
+    /**
+     * Após o commit, atualiza os dias já em memória (os demais serão lidos do banco quando pedidos).
+     */
+    @TransactionalEventListener
+    public void atualizarMemoria(RadarsIngeridosEvent event) {
+        sketchesDoLote(event.getRadars()).forEach((dia, sketches) -> {
+            diasEmMemoria.atualizarSeCarregado(dia, emMemoria ->
+                    sketches.forEach((chave, sketch) -> mesclarEm(emMemoria, chave, sketch)));
+            diasConsolidados.atualizarSeCarregado(dia, consolidado ->
+                    sketches.forEach((chave, sketch) -> mesclarEm(consolidado, ChaveDia.de(chave), sketch)));
+        });
+    }
+
+    /**
+     * Dias abertos em memória só recebem a ingestão desta instância (as demais réplicas gravam no banco):
+     * descartados a cada intervalo para serem relidos dos sketches persistidos, como no cubo de densidade.
+     */
+    @Scheduled(fixedDelayString = "${radares.placas-distintas.recarga-abertos-ms:60000}")
+    public void expirarDiasAbertos() {
+        LocalDate primeiroAberto = LocalDate.now().minusDays(diasAbertos);
+        int descartados = diasEmMemoria.invalidarSe(dia -> !dia.isBefore(primeiroAberto))
+                + diasConsolidados.invalidarSe(dia -> !dia.isBefore(primeiroAberto));
+        if (descartados > 0) log.debug("🔢 {} dias abertos de placas distintas descartados para recarga", descartados);
+    }
+
+    /**
+     * ✅ ESTIMATIVA DE VEÍCULOS ÚNICOS
+     * Une qualquer período e conjunto de praças (sem praças = todas).
+     */
+    public PlacasDistintasDTO estimar(LocalDate dataInicial, LocalDate dataFinal, List<String> pracas, String sentido,
+                                      Integer horaInicial, Integer horaFinal) {
+        validar(dataInicial, dataFinal);
+        Set<String> filtroPracas = normalizarPracas(pracas);
+        String filtroSentido = normalize(sentido);
+        int horaDe = horaInicial == null ? 0 : horaInicial;
+        int horaAte = horaFinal == null ? 23 : horaFinal;
+
+        HyperLogLog uniao = new HyperLogLog();
+        int mesclados = 0;
+        boolean diaInteiro = horaDe <= 0 && horaAte >= 23;
+
+        for (LocalDate dia = dataInicial; !dia.isAfter(dataFinal); dia = dia.plusDays(1)) {
+            if (diaInteiro) {
+                for (Map.Entry<ChaveDia, HyperLogLog> e : diasConsolidados.obter(dia).entrySet()) {
+                    if (!aceita(e.getKey().praca(), e.getKey().sentido(), filtroPracas, filtroSentido)) continue;
+                    mesclarNa(uniao, e.getValue());
+                    mesclados++;
+                }
+                continue;
+            }
+            for (Map.Entry<Chave, HyperLogLog> e : diasEmMemoria.obter(dia).entrySet()) {
+                Chave k = e.getKey();
+                if (k.hora() < horaDe || k.hora() > horaAte) continue;
+                if (!aceita(k.praca(), k.sentido(), filtroPracas, filtroSentido)) continue;
+                mesclarNa(uniao, e.getValue());
+                mesclados++;
+            }
+        }
+
+        long estimativa = uniao.estimar();
+        double margem = 2 * HyperLogLog.ERRO_PADRAO * estimativa;
+
+        return PlacasDistintasDTO.builder()
+                .dataInicial(dataInicial)
+                .dataFinal(dataFinal)
+                .pracas(new ArrayList<>(filtroPracas))
+                .sentido(filtroSentido)
+                .placasDistintas(estimativa)
+                .exato(false)
+                .erroRelativo(HyperLogLog.ERRO_PADRAO)
+                .limiteInferior95(Math.max(0, Math.round(estimativa - margem)))
+                .limiteSuperior95(Math.round(estimativa + margem))
+                .sketchesMesclados(mesclados)
+                .build();
+    }
+
+    /**
+     * ✅ RECONTAGEM EXATA (AUDITORIA)
+     */
+    public PlacasDistintasDTO contarExato(LocalDate dataInicial, LocalDate dataFinal, List<String> pracas, String sentido,
+                                          Integer horaInicial, Integer horaFinal) {
+        validar(dataInicial, dataFinal);
+        Set<String> filtroPracas = normalizarPracas(pracas);
+        String filtroSentido = normalize(sentido);
+
+        long total = repository.contarExato(dataInicial, dataFinal, new ArrayList<>(filtroPracas), filtroSentido,
+                horaInicial, horaFinal);
+
+        return PlacasDistintasDTO.builder()
+                .dataInicial(dataInicial)
+                .dataFinal(dataFinal)
+                .pracas(new ArrayList<>(filtroPracas))
+                .sentido(filtroSentido)
+                .placasDistintas(total)
+                .exato(true)
+                .limiteInferior95(total)
+                .limiteSuperior95(total)
+                .build();
+    }
+
+    private Map<LocalDate, TreeMap<Chave, HyperLogLog>> sketchesDoLote(List<Radars> radars) {
+        Map<LocalDate, TreeMap<Chave, HyperLogLog>> porDia = new HashMap<>();
+        for (Radars r : radars) {
+            if (r.getData() == null || r.getHora() == null || r.getPlaca() == null) continue;
+            Chave chave = new Chave(r.getData(), r.getHora().getHour(),
+                    r.getPraca() == null ? "" : r.getPraca(), r.getSentido());
+            porDia.computeIfAbsent(r.getData(), d -> new TreeMap<>())
+                    .computeIfAbsent(chave, k -> new HyperLogLog())
+                    .adicionar(r.getPlaca());
+        }
+        return porDia;
+    }
+
+    private Map<Chave, HyperLogLog> carregarDia(LocalDate dia) {
+        Map<Chave, HyperLogLog> sketches = new ConcurrentHashMap<>();
+        repository.lerDia(dia, (chave, registros) -> sketches.put(chave, HyperLogLog.desserializar(registros)));
+        log.debug("🔢 Sketches HLL carregados para {}: {}", dia, sketches.size());
+        return sketches;
+    }
+
+    /**
+     * Sketch diário por (praça, sentido): união das 24 horas, mesclada uma única vez na carga.
+     */
+    private Map<ChaveDia, HyperLogLog> carregarDiaConsolidado(LocalDate dia) {
+        Map<ChaveDia, HyperLogLog> sketches = new ConcurrentHashMap<>();
+        repository.lerDia(dia, (chave, registros) ->
+                mesclarEm(sketches, ChaveDia.de(chave), HyperLogLog.desserializar(registros)));
+        log.debug("🔢 Sketches HLL diários carregados para {}: {}", dia, sketches.size());
+        return sketches;
+    }
+
+    private static <K> void mesclarEm(Map<K, HyperLogLog> destino, K chave, HyperLogLog sketch) {
+        destino.compute(chave, (k, atual) -> {
+            if (atual == null) {
+                HyperLogLog copia = new HyperLogLog();
+                copia.mesclar(sketch);
+                return copia;
+            }
+            synchronized (atual) {
+                atual.mesclar(sketch);
+            }
+            return atual;
+        });
+    }
+
+    private static void mesclarNa(HyperLogLog uniao, HyperLogLog sketch) {
+        synchronized (sketch) {
+            uniao.mesclar(sketch);
+        }
+    }
+
+    private boolean aceita(String praca, String sentido, Set<String> filtroPracas, String filtroSentido) {
+        if (!filtroPracas.isEmpty() && !filtroPracas.contains(normalize(praca))) return false;
+        return filtroSentido == null || filtroSentido.equals(normalize(sentido));
+    }
+
+    private void validar(LocalDate dataInicial, LocalDate dataFinal) {
+        if (dataInicial == null || dataFinal == null || dataFinal.isBefore(dataInicial)) {
+            throw new IllegalArgumentException("Período inválido");
+        }
+        if (ChronoUnit.DAYS.between(dataInicial, dataFinal) + 1 > maxDiasConsulta) {
+            throw new IllegalArgumentException("Período máximo de " + maxDiasConsulta + " dias");
+        }
+    }
+
+    private Set<String> normalizarPracas(List<String> pracas) {
+        if (pracas == null) return Set.of();
+        return pracas.stream()
+                .map(this::normalize)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private String normalize(String input) {
+        return input == null || input.isBlank() ? null : input.trim().toUpperCase();
+    }
+
+    private record ChaveDia(String praca, String sentido) {
+        static ChaveDia de(Chave chave) {
+            return new ChaveDia(chave.praca(), chave.sentido());
+        }
+    }
+}
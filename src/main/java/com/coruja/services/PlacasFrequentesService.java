@@ -0,0 +1,149 @@
+package com.coruja.services;
+
+import com.coruja.dto.PlacaFrequenteDTO;
+import com.coruja.entities.Radars;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.PlacasFrequentesRepository;
+import com.coruja.utils.SpaceSaving;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ✅ PLACAS MAIS FREQUENTES (HEAVY HITTERS) POR DIA E POR PRAÇA
+ * - A ingestão atualiza apenas DELTAS em memória (Space-Saving, capacidade configurável).
+ * - O checkpoint mescla cada delta no resumo persistido com a linha travada (várias instâncias somam, não sobrescrevem).
+ * - A consulta lê o checkpoint (uma linha) e soma o delta local ainda não gravado.
+ */
+@Service
+@Slf4j
+public class PlacasFrequentesService {
+
+    public static final String TODAS_PRACAS = "*";
+
+    private record Escopo(LocalDate data, String praca) { }
+
+    private final PlacasFrequentesRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacidade;
+    private final int maxEscopos;
+    private final byte[] resumoVazio;
+
+    private final ConcurrentHashMap<Escopo, SpaceSaving> deltas = new ConcurrentHashMap<>();
+
+    public PlacasFrequentesService(PlacasFrequentesRepository repository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${radares.placas-frequentes.capacidade:1000}") int capacidade,
+                                   @Value("${radares.placas-frequentes.max-escopos-memoria:500}") int maxEscopos) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.capacidade = capacidade;
+        this.maxEscopos = maxEscopos;
+        this.resumoVazio = new SpaceSaving(capacidade).serializar();
+    }
+
+    @TransactionalEventListener
+    public void onRadarsIngeridos(RadarsIngeridosEvent event) {
+        for (Radars r : event.getRadars()) {
+            if (r.getData() == null || r.getPlaca() == null) continue;
+            acumular(new Escopo(r.getData(), TODAS_PRACAS), r.getPlaca());
+            if (r.getPraca() != null) {
+                acumular(new Escopo(r.getData(), normalize(r.getPraca())), r.getPlaca());
+            }
+        }
+
+        // Limite de memória: muitos escopos abertos (ex: backfill de vários dias) forçam o checkpoint
+        if (deltas.size() > maxEscopos) {
+            log.info("🏆 {} escopos de placas frequentes em memória, antecipando checkpoint", deltas.size());
+            checkpoint();
+        }
+    }
+
+    /**
+     * ✅ CHECKPOINT PERIÓDICO
+     * Cada delta é retirado do mapa de forma atômica e mesclado no banco em transação própria.
+     */
+    @Scheduled(fixedDelayString = "${radares.placas-frequentes.checkpoint-ms:60000}")
+    public synchronized void checkpoint() {
+        if (deltas.isEmpty()) return;
+
+        List<Escopo> escopos = new ArrayList<>(deltas.keySet());
+        escopos.sort(Comparator.comparing(Escopo::data).thenComparing(Escopo::praca));
+
+        int gravados = 0;
+        for (Escopo escopo : escopos) {
+            SpaceSaving delta = deltas.remove(escopo);
+            if (delta == null || delta.isVazio()) continue;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    SpaceSaving persistido = SpaceSaving.desserializar(
+                            repository.travar(escopo.data(), escopo.praca(), resumoVazio), capacidade);
+                    persistido.mesclar(delta);
+                    repository.gravar(escopo.data(), escopo.praca(), persistido.serializar());
+                });
+                gravados++;
+            } catch (Exception e) {
+                // Devolve o delta para a próxima tentativa (somando ao que chegou nesse meio tempo)
+                log.warn("⚠️ Falha no checkpoint de placas frequentes {} / {}: {}", escopo.data(), escopo.praca(), e.getMessage());
+                deltas.merge(escopo, delta, (atual, antigo) -> {
+                    atual.mesclar(antigo);
+                    return atual;
+                });
+            }
+        }
+        log.debug("🏆 Checkpoint de placas frequentes: {} escopos gravados", gravados);
+    }
+
+    @PreDestroy
+    public void aoDesligar() {
+        checkpoint();
+    }
+
+    /**
+     * ✅ TOP-N PLACAS DE UM DIA (praça opcional: sem praça = dia inteiro)
+     */
+    public List<PlacaFrequenteDTO> topN(LocalDate data, String praca, int n) {
+        if (data == null) throw new IllegalArgumentException("Data é obrigatória");
+        if (n <= 0) throw new IllegalArgumentException("n deve ser positivo");
+
+        Escopo escopo = new Escopo(data, praca == null || praca.isBlank() ? TODAS_PRACAS : normalize(praca));
+        SpaceSaving resumo = SpaceSaving.desserializar(repository.ler(escopo.data(), escopo.praca()), capacidade);
+
+        // Soma o que ainda não foi gravado (cópia feita sob o lock do bin do mapa)
+        byte[][] deltaLocal = new byte[1][];
+        deltas.computeIfPresent(escopo, (k, delta) -> {
+            deltaLocal[0] = delta.serializar();
+            return delta;
+        });
+        if (deltaLocal[0] != null) {
+            resumo.mesclar(SpaceSaving.desserializar(deltaLocal[0], capacidade));
+        }
+
+        return resumo.topN(n).stream()
+                .map(item -> new PlacaFrequenteDTO(item.chave(), item.contagem(), item.erro()))
+                .toList();
+    }
+
+    private void acumular(Escopo escopo, String placa) {
+        // compute() segura o lock do bin: a retirada no checkpoint nunca perde incrementos
+        deltas.compute(escopo, (k, delta) -> {
+            SpaceSaving atual = delta == null ? new SpaceSaving(capacidade) : delta;
+            atual.adicionar(placa);
+            return atual;
+        });
+    }
+
+    private String normalize(String input) {
+        return input.trim().toUpperCase();
+    }
+}
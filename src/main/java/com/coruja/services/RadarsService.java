@@ -1,12 +1,20 @@
 package com.coruja.services;
 
+import com.coruja.coordenacao.JobCoordenado;
 import com.coruja.dto.*;
 import com.coruja.entities.Radars;
-import com.coruja.enums.Sentido;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.BuscaLocalRepository;
+import com.coruja.repositories.BuscaLocalRepository.Filtro;
 import com.coruja.repositories.LocalizacaoRadarRepository;
+import com.coruja.repositories.RadarsLeituraRepository;
 import com.coruja.repositories.RadarsRepository;
 import com.coruja.specifications.RadarsSpecification;
+import com.coruja.utils.KmParser;
+import com.coruja.utils.PodaDias;
+import com.coruja.utils.SingleFlight;
 import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.AmqpException;
@@ -15,23 +23,27 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
@@ -46,34 +58,80 @@ public class RadarsService {
     private final RadarsRepository radarsRepository;
     private final RabbitTemplate rabbitTemplate;
     private final LocalizacaoRadarRepository localizacaoRadarRepository;
+    private final RollupHorarioService rollupHorarioService;
+    private final PlacasBloomService placasBloomService;
+    private final BuscaLocalRepository buscaLocalRepository;
+    private final RadarsLeituraRepository radarsLeituraRepository;
+    private final GestaoRodoviaService gestaoRodoviaService;
+    private final ArquivoFrioService arquivoFrioService;
+    private final ApplicationEventPublisher eventPublisher;
+    // Leituras disparadas dentro do SingleFlight: a conexão só é tomada por quem executa a consulta
+    private final TransactionTemplate leituraTemplate;
     // Thread Pool para tarefas assíncronas (RabbitMQ e Cache)
     private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
     // ✅ Cache thread-safe para metadados frequentes (ex: nomes de praças)
     private final ConcurrentHashMap<String, String> normalizeCache = new ConcurrentHashMap<>();
 
-    // ✅ LIMITE DE DADOS HISTÓRICOS (últimos 90 dias)
-    private static final int DIAS_HISTORICO = 90;
-
-    public  RadarsService(RadarsRepository radarsRepository, RabbitTemplate rabbitTemplate, LocalizacaoRadarRepository localizacaoRadarRepository) {
+    private static final Pattern PLACA_COMPLETA = Pattern.compile("[A-Z0-9]{7}");
+
+    // ✅ Coalescência de buscas idênticas concorrentes (protege o pool do Hikari em incidentes)
+    private final SingleFlight<String, RadarPageDTO> buscaLocalEmVoo;
+    private final SingleFlight<String, List<LocalizacaoRadarProjection>> localizacoesEmVoo;
+
+    public  RadarsService(RadarsRepository radarsRepository, RabbitTemplate rabbitTemplate, LocalizacaoRadarRepository localizacaoRadarRepository,
+                          RollupHorarioService rollupHorarioService, PlacasBloomService placasBloomService,
+                          BuscaLocalRepository buscaLocalRepository, RadarsLeituraRepository radarsLeituraRepository,
+                          GestaoRodoviaService gestaoRodoviaService, ArquivoFrioService arquivoFrioService,
+                          ApplicationEventPublisher eventPublisher,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${radares.singleflight.max-chaves:256}") int singleFlightMaxChaves,
+                          @Value("${radares.singleflight.timeout-ms:30000}") long singleFlightTimeoutMs) {
         this.radarsRepository = radarsRepository;
         this.rabbitTemplate = rabbitTemplate;
         this.localizacaoRadarRepository = localizacaoRadarRepository;
+        this.rollupHorarioService = rollupHorarioService;
+        this.placasBloomService = placasBloomService;
+        this.buscaLocalRepository = buscaLocalRepository;
+        this.radarsLeituraRepository = radarsLeituraRepository;
+        this.gestaoRodoviaService = gestaoRodoviaService;
+        this.arquivoFrioService = arquivoFrioService;
+        this.eventPublisher = eventPublisher;
+        this.leituraTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.leituraTemplate.setReadOnly(true);
+
+        Duration timeout = Duration.ofMillis(singleFlightTimeoutMs);
+        this.buscaLocalEmVoo = new SingleFlight<>("busca-local", singleFlightMaxChaves, timeout, meterRegistry);
+        this.localizacoesEmVoo = new SingleFlight<>("all-locations", singleFlightMaxChaves, timeout, meterRegistry);
     }
 
     /**
-     * Busca por PLACA: Retorna histórico completo
+     * Busca por PLACA: Retorna histórico completo (banco + arquivo frio)
+     * Leitura JDBC direto para DTO (sem transação JPA nem entidades gerenciadas).
      */
-    @Transactional(readOnly = true)
     //@Cacheable(value = "busca-placa", key = "#placa + '-' + #pageable.pageNumber")
     public Page<RadarsDTO> buscarPorPlaca(String placa, Pageable pageable) {
-        return radarsRepository.findAllByPlaca(normalize(placa), pageable)
-                .map(this::converterParaDTO);
+        String placaNormalizada = normalize(placa);
+
+        // Placa completa: ILIKE '%X%' em coluna de 7 caracteres equivale a igualdade, e os filtros de Bloom
+        // dizem em quais dias ela pode ter passado
+        boolean exata = placaNormalizada != null && PLACA_COMPLETA.matcher(placaNormalizada).matches();
+        Page<RadarsDTO> quente = null;
+        if (exata) {
+            PodaDias poda = placasBloomService.podar(placaNormalizada);
+            if (poda.temCobertura()) {
+                quente = radarsLeituraRepository.buscarPorPlacaExataNosDias(placaNormalizada, poda, pageable);
+            }
+        }
+        if (quente == null) quente = radarsLeituraRepository.buscarPorPlaca(placaNormalizada, pageable);
+
+        // Dias além da retenção estão no arquivo frio (todos mais antigos que o banco)
+        return arquivoFrioService.completar(quente, placaNormalizada, exata, pageable);
     }
 
     /**
      * Busca por LOCAL: Filtros pré-definidos
      */
-    @Transactional(readOnly = true)
     // Cache mais curto aqui pois dados do dia mudam ou parâmetros variam muito
     //@Cacheable(value = "busca-local", key = "{#data, #rodovia, #km, #pageable.pageNumber}", unless = "#result.isEmpty()")
     public RadarPageDTO buscarPorLocal(
@@ -82,24 +140,64 @@ public class RadarsService {
             LocalTime horaFinal,
             String rodovia,
             String km,
+            String kmInicial,
+            String kmFinal,
             String sentido,
             Pageable pageable) {
 
-        log.info("🔎 Executando query no Banco: Data={}, Rodovia={}, Sentido={}", data, rodovia, sentido);
-
-        Page<Radars> page = radarsRepository.findByLocalFilter(
-                data, // placa (não usamos na busca por local)
-                horaInicial,
-                horaFinal,
-                null,
-                normalize(rodovia),
-                normalize(km),
-                sentido, // Passa o sentido tratado
-                pageable
-
-        );
+        String rodoviaNormalizada = normalize(rodovia);
+        String kmNormalizado = normalize(km);
+        String sentidoNormalizado = normalize(sentido);
+        Integer kmInicialMetros = KmParser.filtro(kmInicial);
+        Integer kmFinalMetros = KmParser.filtro(kmFinal);
+
+        // Chave normalizada: requisições equivalentes caem na mesma execução
+        String chave = String.join("|",
+                String.valueOf(data), String.valueOf(horaInicial), String.valueOf(horaFinal),
+                String.valueOf(rodoviaNormalizada), String.valueOf(kmNormalizado), String.valueOf(sentidoNormalizado),
+                String.valueOf(kmInicialMetros), String.valueOf(kmFinalMetros),
+                String.valueOf(pageable.getPageNumber()), String.valueOf(pageable.getPageSize()),
+                pageable.getSort().toString());
+
+        return buscaLocalEmVoo.executar(chave, () -> {
+            // Rodovia cadastrada (e não contida em outra) vira igualdade; senão ILIKE parcial
+            String rodoviaExata = gestaoRodoviaService.nomeExato(rodoviaNormalizada).orElse(null);
+            Filtro filtro = new Filtro(data, horaInicial, horaFinal,
+                    rodoviaExata != null ? rodoviaExata : rodoviaNormalizada, rodoviaExata != null,
+                    kmNormalizado, kmInicialMetros, kmFinalMetros, sentidoNormalizado);
+            log.info("🔎 Executando query no Banco: Data={}, Rodovia={}, Sentido={}, Formato={}",
+                    data, rodovia, sentido, BuscaLocalRepository.descrever(filtro));
+
+            List<RadarsDTO> linhas = buscaLocalRepository.listar(filtro, null, pageable.getOffset(), pageable.getPageSize());
+
+            // Dia consolidado e filtros alinhados ao rollup horário: total exato sem COUNT sobre radars_cart (o rollup não tem faixa de KM)
+            boolean comFaixaKm = kmInicialMetros != null || kmFinalMetros != null;
+            OptionalLong totalRollup = comFaixaKm ? OptionalLong.empty() : rollupHorarioService.contarBuscaLocal(
+                    data, horaInicial, horaFinal, rodoviaNormalizada, kmNormalizado, sentidoNormalizado);
+            long total = totalRollup.isPresent() ? totalRollup.getAsLong() : buscaLocalRepository.contar(filtro);
+
+            return convertToPageDTO(linhas, pageable, total);
+        });
+    }
 
-        return convertToPageDTO(page);
+    /**
+     * ✅ DIAGNÓSTICO DA BUSCA LOCAL
+     * Formato dos filtros, SQL gerado e plano do Postgres (EXPLAIN, ou EXPLAIN ANALYZE se 'analisar').
+     */
+    public PlanoConsultaDTO planoBuscaLocal(LocalDate data, LocalTime horaInicial, LocalTime horaFinal,
+                                            String rodovia, String km, String kmInicial, String kmFinal,
+                                            String sentido, int tamanho, boolean analisar) {
+        String rodoviaNormalizada = normalize(rodovia);
+        String rodoviaExata = gestaoRodoviaService.nomeExato(rodoviaNormalizada).orElse(null);
+        Filtro filtro = new Filtro(data, horaInicial, horaFinal,
+                rodoviaExata != null ? rodoviaExata : rodoviaNormalizada, rodoviaExata != null,
+                normalize(km), KmParser.filtro(kmInicial), KmParser.filtro(kmFinal), normalize(sentido));
+
+        return PlanoConsultaDTO.builder()
+                .formato(BuscaLocalRepository.descrever(filtro))
+                .sql(buscaLocalRepository.sql(filtro))
+                .plano(buscaLocalRepository.explicar(filtro, tamanho, analisar))
+                .build();
     }
 
 
@@ -107,7 +205,6 @@ public class RadarsService {
     /**
      * ✅ BUSCA GEOESPACIAL OTIMIZADA
      */
-    @Transactional(readOnly = true)
     @Timed(value = "radares.busca.geo", histogram = true)
     public Page<RadarsDTO> buscarPorGeolocalizacao(
             Double latitude, Double longitude, Double raio,
@@ -120,11 +217,9 @@ public class RadarsService {
 
         double raioMetros = (raio != null) ? raio : 15000.0;
 
-        Page<Radars> resultado = radarsRepository.findByGeolocalizacaoOtimizada(
+        return radarsLeituraRepository.buscarPorGeolocalizacao(
                 latitude, longitude, raioMetros, data, horaInicio, horaFim, pageable
         );
-
-        return resultado.map(this::converterParaDTO);
     }
 
 
@@ -136,9 +231,11 @@ public class RadarsService {
             value = "mapa-radares-cart",
             unless = "#result == null || #result.isEmpty()"
     )
-    @Transactional(readOnly = true)
     public List<LocalizacaoRadarProjection> listarTodasLocalizacoes() {
-        return localizacaoRadarRepository.findAllLocations();
+        // Cache frio (ou expirado): vários acessos simultâneos disparam apenas uma consulta. A transação fica
+        // dentro do loader: as chamadas coalescidas esperam sem segurar conexão do pool
+        return localizacoesEmVoo.executar("todas",
+                () -> leituraTemplate.execute(status -> localizacaoRadarRepository.findAllLocations()));
     }
 
     /**
@@ -146,15 +243,26 @@ public class RadarsService {
      */
     @Transactional
     public void saveRadars(List<Radars> radarsList) {
+        saveRadars(radarsList, concessionariaPadrao());
+    }
+
+    /**
+     * @param concessionaria nome enviado nas mensagens do RabbitMQ (uma por fonte de ingestão)
+     */
+    @Transactional
+    public void saveRadars(List<Radars> radarsList, String concessionaria) {
         if (radarsList == null || radarsList.isEmpty()) return;
 
         // Salva em batch para performance
         List<Radars> saved = radarsRepository.saveAll(radarsList);
         log.info("💾 Salvos {} registros", saved.size());
 
+        // Agregados derivados (rollups etc.) são atualizados na mesma transação
+        eventPublisher.publishEvent(new RadarsIngeridosEvent(saved));
+
         // Publica no RabbitMQ de forma assíncrona
         CompletableFuture.runAsync(() ->
-                        saved.forEach(this::enviarMensagemParaRabbitMQ),
+                        saved.forEach(radar -> enviarMensagemParaRabbitMQ(radar, concessionaria)),
                 executorService
         );
 
@@ -167,7 +275,8 @@ public class RadarsService {
      * Roda às 3:00 AM todos os dias
      */
     @Scheduled(cron = "0 0 3 * * *")
-    @CacheEvict(value = {"radars-search", "radars-placa", "opcoes-filtro-cart", "lista-rodovias", "lista-kms"}, allEntries = true)
+    @JobCoordenado(nome = "limpeza-cache") // Cache no Redis é compartilhado: basta uma réplica
+    @CacheEvict(value = {"radars-search", "radars-placa", "opcoes-filtro-cart"}, allEntries = true)
     public void limparCacheDiario() {
         log.info("🧹 Limpeza diária de cache executada");
     }
@@ -176,7 +285,7 @@ public class RadarsService {
 
     // ==================== MÉTODOS AUXILIARES ====================
 
-    private void enviarMensagemParaRabbitMQ(Radars radar) {
+    private void enviarMensagemParaRabbitMQ(Radars radar, String concessionaria) {
         if (!isValidRadar(radar)) return;
 
         LocalDateTime dataHoraRadar = LocalDateTime.of(radar.getData(), radar.getHora());
@@ -187,7 +296,7 @@ public class RadarsService {
         }
 
         try {
-            String msg = formatMessage(radar);
+            String msg = formatMessage(radar, concessionaria);
             rabbitTemplate.convertAndSend(exchangeName, routingKey, msg);
         } catch (AmqpException e) {
             log.warn("⚠️ Falha RabbitMQ - Placa {}: {}", radar.getPlaca(), e.getMessage());
@@ -203,8 +312,15 @@ public class RadarsService {
                 && radar.getHora() != null && radar.getPlaca() != null;
     }
 
-    private String formatMessage(Radars radar) {
-        String concessionaria = routingKey.split("\\.")[1].toUpperCase();
+    /**
+     * Concessionária da fonte legada (ftp.*): segundo segmento da routing key (radares.cart -> CART).
+     */
+    public String concessionariaPadrao() {
+        String[] partes = routingKey.split("\\.");
+        return (partes.length > 1 ? partes[1] : partes[0]).toUpperCase();
+    }
+
+    private String formatMessage(Radars radar, String concessionaria) {
         return String.format("%s|%s|%s|%s|%s|%s|%s|%s",
                 concessionaria, radar.getData(), radar.getHora(), radar.getPlaca(),
                 radar.getPraca(), radar.getRodovia(), radar.getKm(), radar.getSentido());
@@ -220,53 +336,12 @@ public class RadarsService {
     }
 
     /**
-     * Converte Page<Entity> para RadarPageDTO (Estrutura paginada para JSON)
+     * Monta o RadarPageDTO (estrutura paginada para JSON) a partir da página e do total
      */
-    private RadarPageDTO convertToPageDTO(Page<Radars> page) {
-        List<RadarsDTO> content = page.getContent().stream()
-                .map(this::converterParaDTOBuscaLocal) // ✅ Reutiliza o conversor centralizado
-                .collect(Collectors.toList());
-
-        PageMetadata metadata = new PageMetadata(
-                page.getNumber(),
-                page.getSize(),
-                page.getTotalElements(),
-                page.getTotalPages()
-        );
+    private RadarPageDTO convertToPageDTO(List<RadarsDTO> content, Pageable pageable, long totalElements) {
+        int size = pageable.getPageSize();
+        int totalPages = size == 0 ? 1 : (int) Math.ceil((double) totalElements / size);
 
-        return new RadarPageDTO(content, metadata);
-    }
-
-    private RadarsDTO converterParaDTOBuscaLocal(Radars radars) {
-        RadarsDTO dto = new RadarsDTO();
-        dto.setId(radars.getId());
-        dto.setData(radars.getData());
-        dto.setHora(radars.getHora());
-        dto.setPlaca(radars.getPlaca());
-        dto.setPraca(radars.getPraca());
-        dto.setRodovia(radars.getRodovia());
-        dto.setKm(radars.getKm());
-
-        // Conversão Segura de String -> Enum
-        try {
-            dto.setSentido(Sentido.fromString(radars.getSentido()));
-        } catch (Exception e) {
-            dto.setSentido(Sentido.NAO_IDENTIFICADO);
-        }
-
-        return dto;
-    }
-
-    private RadarsDTO converterParaDTO(Radars radars) {
-        return RadarsDTO.builder()
-                .id(radars.getId())
-                .data(radars.getData())
-                .hora(radars.getHora())
-                .placa(radars.getPlaca())
-                .praca(radars.getPraca())
-                .rodovia(radars.getRodovia())
-                .km(radars.getKm())
-                .sentido(Sentido.fromString(radars.getSentido()))
-                .build();
+        return new RadarPageDTO(content, new PageMetadata(pageable.getPageNumber(), size, totalElements, totalPages));
     }
 }
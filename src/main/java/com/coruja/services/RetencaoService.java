@@ -0,0 +1,164 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.ContextoJob;
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.enums.EstadoArquivamento;
+import com.coruja.repositories.ArquivoRepository;
+import com.coruja.repositories.ArquivoRepository.ParticaoArquivada;
+import com.coruja.repositories.ParticoesRepository;
+import com.coruja.repositories.ParticoesRepository.Particao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ✅ RETENÇÃO DE radars_cart
+ * Partições cuja faixa inteira é mais antiga que 'dias-historico' saem do banco quente em três passos:
+ * 1. DETACH (transação curta, registrada no catálogo na mesma transação);
+ * 2. exportação para o arquivo frio, dia a dia, com conferência de linhas e CRC;
+ * 3. DROP da tabela só depois que a soma dos dias exportados bate com a contagem da tabela.
+ * Cada passo é retomável: uma falha deixa a partição no estado anterior e a próxima execução continua dali.
+ * A sequência inteira (desanexar -> exportar -> conferir -> remover) roda sob o lease "retencao": duas réplicas
+ * nunca exportam nem removem a mesma partição; o lease é conferido de novo antes de cada DROP.
+ */
+@Service
+@Slf4j
+public class RetencaoService {
+
+    private static final long CHAVE_TRAVA = 0x7261646172735F72L; // "radars_r"
+    static final String JOB = "retencao";
+
+    private final ParticoesRepository particoesRepository;
+    private final ArquivoRepository arquivoRepository;
+    private final ArquivoFrioService arquivoFrioService;
+    private final TransactionTemplate transactionTemplate;
+    private final CoordenacaoJobsService coordenacaoJobsService;
+    private final MeterRegistry meterRegistry;
+    private final int diasHistorico;
+    private final long lockTimeoutMs;
+    private final boolean habilitado;
+
+    public RetencaoService(ParticoesRepository particoesRepository,
+                           ArquivoRepository arquivoRepository,
+                           ArquivoFrioService arquivoFrioService,
+                           TransactionTemplate transactionTemplate,
+                           CoordenacaoJobsService coordenacaoJobsService,
+                           MeterRegistry meterRegistry,
+                           @Value("${radares.retencao.dias-historico:90}") int diasHistorico,
+                           @Value("${radares.retencao.lock-timeout-ms:5000}") long lockTimeoutMs,
+                           @Value("${radares.retencao.habilitado:true}") boolean habilitado) {
+        this.particoesRepository = particoesRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.arquivoFrioService = arquivoFrioService;
+        this.transactionTemplate = transactionTemplate;
+        this.coordenacaoJobsService = coordenacaoJobsService;
+        this.meterRegistry = meterRegistry;
+        this.diasHistorico = diasHistorico;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.habilitado = habilitado;
+    }
+
+    @Scheduled(cron = "${radares.retencao.cron:0 0 4 * * *}")
+    @JobCoordenado(nome = JOB)
+    public void executarAgendado() {
+        if (habilitado) executar();
+    }
+
+    public Map<String, Object> executar() {
+        return coordenacaoJobsService.executarExclusivo(JOB, this::executar)
+                .orElseGet(() -> Map.of("ignorada", "Retenção em execução em outra instância"));
+    }
+
+    private Map<String, Object> executar(ContextoJob lease) {
+        LocalDate limite = LocalDate.now().minusDays(diasHistorico);
+        Map<String, Object> resumo = new LinkedHashMap<>();
+        resumo.put("limite", limite);
+        resumo.put("particoesDesanexadas", desanexarExpiradas(limite));
+
+        int exportadas = 0;
+        int removidas = 0;
+        long linhas = 0;
+        for (ParticaoArquivada p : arquivoRepository.pendentes()) {
+            try {
+                if (p.estado() == EstadoArquivamento.DESANEXADA) {
+                    linhas += arquivoFrioService.exportar(p.nome());
+                    conferirExportacao(p.nome());
+                    exportadas++;
+                }
+                coordenacaoJobsService.exigir(lease);
+                remover(p.nome());
+                removidas++;
+            } catch (Exception e) {
+                log.error("❌ Retenção da partição {} interrompida (retomada na próxima execução): {}", p.nome(), e.getMessage());
+            }
+        }
+
+        resumo.put("particoesExportadas", exportadas);
+        resumo.put("particoesRemovidas", removidas);
+        resumo.put("linhasExportadas", linhas);
+        log.info("🧊 Retenção ({} dias): {}", diasHistorico, resumo);
+        return resumo;
+    }
+
+    /**
+     * Partições inteiramente anteriores ao limite (fim exclusivo <= limite) saem de radars_cart.
+     */
+    private int desanexarExpiradas(LocalDate limite) {
+        int desanexadas = 0;
+        for (Particao p : particoesRepository.listar()) {
+            if (p.padrao() || p.fim() == null || p.fim().isAfter(limite)) continue;
+            try {
+                Boolean ok = transactionTemplate.execute(status -> {
+                    particoesRepository.limitarEsperaPorLock(lockTimeoutMs);
+                    if (!particoesRepository.travarManutencao(CHAVE_TRAVA)) return false;
+                    particoesRepository.desanexar(p.nome());
+                    arquivoRepository.registrarDesanexada(p);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(ok)) {
+                    desanexadas++;
+                    contar("desanexada");
+                    log.info("✂️ Partição {} [{}, {}) desanexada para arquivamento", p.nome(), p.inicio(), p.fim());
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Falha ao desanexar {}: {}", p.nome(), e.getMessage());
+            }
+        }
+        return desanexadas;
+    }
+
+    private void conferirExportacao(String particao) {
+        long naTabela = particoesRepository.contarLinhas(particao, null);
+        long exportadas = arquivoRepository.linhasExportadas(particao);
+        if (naTabela != exportadas) {
+            throw new IllegalStateException("Tabela tem " + naTabela + " linhas e o arquivo " + exportadas);
+        }
+        arquivoRepository.atualizarEstado(particao, EstadoArquivamento.EXPORTADA, exportadas);
+        contar("exportada");
+    }
+
+    private void remover(String particao) {
+        transactionTemplate.executeWithoutResult(status -> {
+            particoesRepository.limitarEsperaPorLock(lockTimeoutMs);
+            if (!particoesRepository.travarManutencao(CHAVE_TRAVA)) {
+                throw new IllegalStateException("Outra instância em manutenção de " + particao);
+            }
+            particoesRepository.remover(particao);
+            arquivoRepository.atualizarEstado(particao, EstadoArquivamento.REMOVIDA, arquivoRepository.linhasExportadas(particao));
+        });
+        contar("removida");
+        log.info("🗑️ Partição {} removida do banco (dados no arquivo frio)", particao);
+    }
+
+    private void contar(String tipo) {
+        Counter.builder("radares.retencao.operacoes").tag("tipo", tipo).register(meterRegistry).increment();
+    }
+}
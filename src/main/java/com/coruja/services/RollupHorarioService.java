@@ -0,0 +1,153 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.dto.SerieHorariaDTO;
+import com.coruja.dto.TotalRollupDTO;
+import com.coruja.entities.Radars;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.RollupHorarioRepository;
+import com.coruja.repositories.RollupHorarioRepository.Chave;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+@Service
+@Slf4j
+public class RollupHorarioService {
+
+    private final RollupHorarioRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int diasPorConsolidacao;
+
+    public RollupHorarioService(RollupHorarioRepository rollupRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${radares.rollup.consolidacao.dias-por-execucao:7}") int diasPorConsolidacao) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.diasPorConsolidacao = diasPorConsolidacao;
+    }
+
+    /**
+     * ✅ ATUALIZAÇÃO INCREMENTAL
+     * Roda dentro da transação do saveRadars: o agregado só é gravado se o lote também for.
+     * Agrega o lote em memória e faz um único upsert por chave (sem reler radars_cart).
+     * Passagens repetidas no lote (data, hora, placa) contam uma vez, como na busca local e na reconstrução.
+     */
+    @EventListener
+    public void onRadarsIngeridos(RadarsIngeridosEvent event) {
+        Map<Chave, Long> agregados = new TreeMap<>();
+        Set<LocalDate> dias = new TreeSet<>();
+        Set<String> vistas = new HashSet<>();
+
+        for (Radars r : event.getRadars()) {
+            if (r.getData() == null || r.getHora() == null) continue;
+            if (!vistas.add(r.getData() + "|" + r.getHora() + "|" + r.getPlaca())) continue;
+            Chave chave = new Chave(r.getData(), r.getHora().getHour(),
+                    r.getPraca() == null ? "" : r.getPraca(), r.getRodovia(), r.getKm(), r.getSentido());
+            agregados.merge(chave, 1L, Long::sum);
+            dias.add(r.getData());
+        }
+
+        if (agregados.isEmpty()) return;
+
+        // Dia em reconstrução: espera ela terminar (a reconstrução, por sua vez, espera os lotes em curso)
+        dias.forEach(dia -> rollupRepository.travarDia(dia, false));
+        rollupRepository.incrementar(new ArrayList<>(agregados.entrySet()));
+        rollupRepository.marcarDiasIngeridos(dias);
+        log.debug("📊 Rollup horário: {} chaves atualizadas a partir de {} registros", agregados.size(), event.getRadars().size());
+    }
+
+    /**
+     * ✅ RECONSTRUÇÃO (BACKFILL)
+     * Recalcula dia a dia, cada dia na sua própria transação (não segura locks no período inteiro).
+     */
+    public int reconstruir(LocalDate dataInicial, LocalDate dataFinal) {
+        validarPeriodo(dataInicial, dataFinal);
+        int totalChaves = 0;
+        for (LocalDate dia = dataInicial; !dia.isAfter(dataFinal); dia = dia.plusDays(1)) {
+            LocalDate d = dia;
+            Integer chaves = transactionTemplate.execute(status -> rollupRepository.reconstruirDia(d));
+            totalChaves += chaves == null ? 0 : chaves;
+            log.info("🔁 Rollup reconstruído para {}: {} chaves", d, chaves);
+        }
+        return totalChaves;
+    }
+
+    /**
+     * ✅ CONSOLIDAÇÃO DOS DIAS FECHADOS
+     * O incremental não enxerga linhas repetidas entre lotes (reentrega de arquivo, retry do consumidor).
+     * Dias já encerrados são recalculados uma vez a partir de radars_cart e passam a ter total exato;
+     * um lote tardio devolve o dia ao incremental e ele entra de novo na fila.
+     */
+    @Scheduled(fixedDelayString = "${radares.rollup.consolidacao.intervalo-ms:3600000}",
+            initialDelayString = "${radares.rollup.consolidacao.delay-ms:300000}")
+    @JobCoordenado(nome = "rollup-consolidacao")
+    public void consolidarDiasFechados() {
+        for (LocalDate dia : rollupRepository.diasAConsolidar(LocalDate.now(), diasPorConsolidacao)) {
+            Integer chaves = transactionTemplate.execute(status -> rollupRepository.reconstruirDia(dia));
+            log.info("🔁 Rollup consolidado para {}: {} chaves", dia, chaves);
+        }
+    }
+
+    public List<SerieHorariaDTO> serieHoraria(LocalDate dataInicial, LocalDate dataFinal,
+                                              String praca, String rodovia, String sentido) {
+        validarPeriodo(dataInicial, dataFinal);
+        return rollupRepository.serieHoraria(dataInicial, dataFinal, normalize(praca), normalize(rodovia), normalize(sentido));
+    }
+
+    public List<TotalRollupDTO> totais(LocalDate dataInicial, LocalDate dataFinal,
+                                       String praca, String rodovia, String sentido) {
+        validarPeriodo(dataInicial, dataFinal);
+        return rollupRepository.totais(dataInicial, dataFinal, normalize(praca), normalize(rodovia), normalize(sentido));
+    }
+
+    /**
+     * ✅ CONTAGEM EXATA PARA A BUSCA-LOCAL
+     * Só responde quando os filtros coincidem com as dimensões do rollup:
+     * dia consolidado (reconstruído, sem lote incremental depois) e intervalo de horas cheias (HH:00:00 até HH:59:59).
+     * Caso contrário (inclusive no dia corrente) retorna vazio e o chamador usa o COUNT tradicional.
+     */
+    public OptionalLong contarBuscaLocal(LocalDate data, LocalTime horaInicial, LocalTime horaFinal,
+                                         String rodovia, String km, String sentido) {
+        if (data == null) return OptionalLong.empty();
+
+        int horaDe = 0;
+        int horaAte = 23;
+        if (horaInicial != null) {
+            if (horaInicial.getMinute() != 0 || horaInicial.getSecond() != 0 || horaInicial.getNano() != 0) {
+                return OptionalLong.empty();
+            }
+            horaDe = horaInicial.getHour();
+        }
+        if (horaFinal != null) {
+            if (horaFinal.getMinute() != 59 || horaFinal.getSecond() != 59) {
+                return OptionalLong.empty();
+            }
+            horaAte = horaFinal.getHour();
+        }
+
+        if (!rollupRepository.isDiaExato(data)) return OptionalLong.empty();
+
+        return OptionalLong.of(rollupRepository.contarBuscaLocal(data, horaDe, horaAte, rodovia, km, sentido));
+    }
+
+    private void validarPeriodo(LocalDate dataInicial, LocalDate dataFinal) {
+        if (dataInicial == null || dataFinal == null) {
+            throw new IllegalArgumentException("Data inicial e final são obrigatórias");
+        }
+        if (dataFinal.isBefore(dataInicial)) {
+            throw new IllegalArgumentException("Data final anterior à data inicial");
+        }
+    }
+
+    private String normalize(String input) {
+        return input == null || input.isBlank() ? null : input.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,131 @@
+package com.coruja.services;
+
+import com.coruja.dto.PontoTrajetoriaDTO;
+import com.coruja.dto.TrajetoriaDTO;
+import com.coruja.repositories.PassagensRepository;
+import com.coruja.repositories.PassagensRepository.Passagem;
+import com.coruja.utils.Geo;
+import com.coruja.utils.PodaDias;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ✅ TRAJETÓRIA DE UMA PLACA
+ * Uma única consulta (placa exata + intervalo de datas, com poda de partições) e cálculo dos trechos
+ * em memória, com coordenadas do índice de localizações (sem JOIN com localizacao_radar).
+ */
+@Service
+@Slf4j
+public class TrajetoriaService {
+
+    private final PassagensRepository passagensRepository;
+    private final LocalizacaoIndexService localizacaoIndex;
+    private final PlacasBloomService placasBloomService;
+    private final int maxPassagens;
+    private final int maxDias;
+
+    public TrajetoriaService(PassagensRepository passagensRepository,
+                             LocalizacaoIndexService localizacaoIndex,
+                             PlacasBloomService placasBloomService,
+                             @Value("${radares.trajetoria.max-passagens:5000}") int maxPassagens,
+                             @Value("${radares.trajetoria.max-dias:366}") int maxDias) {
+        this.passagensRepository = passagensRepository;
+        this.localizacaoIndex = localizacaoIndex;
+        this.placasBloomService = placasBloomService;
+        this.maxPassagens = maxPassagens;
+        this.maxDias = maxDias;
+    }
+
+    public TrajetoriaDTO trajetoria(String placa, LocalDate dataInicial, LocalDate dataFinal) {
+        if (placa == null || placa.isBlank()) throw new IllegalArgumentException("Placa é obrigatória");
+        if (dataInicial == null || dataFinal == null) throw new IllegalArgumentException("Período é obrigatório");
+        if (dataFinal.isBefore(dataInicial)) throw new IllegalArgumentException("dataFinal anterior a dataInicial");
+        if (ChronoUnit.DAYS.between(dataInicial, dataFinal) + 1 > maxDias) {
+            throw new IllegalArgumentException("Período máximo da trajetória é de " + maxDias + " dias");
+        }
+
+        String placaNormalizada = placa.trim().toUpperCase();
+        // Filtros de Bloom: só visita os dias em que a placa pode ter passado
+        PodaDias poda = placasBloomService.podar(placaNormalizada);
+        List<LocalDate> dias = null;
+        if (poda.temCobertura()) {
+            dias = dataInicial.datesUntil(dataFinal.plusDays(1)).filter(poda::podeConter).toList();
+        }
+
+        // Busca um a mais que o limite só para saber se houve truncamento
+        List<Passagem> passagens = dias != null && dias.isEmpty() ? List.of()
+                : passagensRepository.listarPorPlaca(placaNormalizada, dataInicial, dataFinal, dias, maxPassagens + 1);
+        boolean truncado = passagens.size() > maxPassagens;
+        if (truncado) passagens = passagens.subList(0, maxPassagens);
+
+        List<PontoTrajetoriaDTO> pontos = new ArrayList<>(passagens.size());
+        double distanciaTotal = 0;
+        PontoTrajetoriaDTO anterior = null;
+
+        for (Passagem p : passagens) {
+            Optional<LocalizacaoIndexService.Localizacao> loc = localizar(p);
+            PontoTrajetoriaDTO ponto = PontoTrajetoriaDTO.builder()
+                    .data(p.data())
+                    .hora(p.hora())
+                    .praca(p.praca())
+                    .rodovia(p.rodovia())
+                    .km(p.km())
+                    .sentido(p.sentido())
+                    .localizacaoId(loc.map(LocalizacaoIndexService.Localizacao::id).orElse(p.localizacaoId()))
+                    .latitude(loc.map(LocalizacaoIndexService.Localizacao::latitude).orElse(null))
+                    .longitude(loc.map(LocalizacaoIndexService.Localizacao::longitude).orElse(null))
+                    .build();
+
+            if (anterior != null) {
+                long segundos = Duration.between(
+                        LocalDateTime.of(anterior.getData(), anterior.getHora()),
+                        LocalDateTime.of(p.data(), p.hora())).getSeconds();
+                ponto.setSegundosDesdeAnterior(segundos);
+
+                if (anterior.getLatitude() != null && ponto.getLatitude() != null) {
+                    double km = Geo.distanciaKm(anterior.getLatitude(), anterior.getLongitude(),
+                            ponto.getLatitude(), ponto.getLongitude());
+                    ponto.setDistanciaKm(arredondar(km));
+                    if (segundos > 0) ponto.setVelocidadeMediaKmh(arredondar(km / (segundos / 3600.0)));
+                    distanciaTotal += km;
+                }
+            }
+            pontos.add(ponto);
+            anterior = ponto;
+        }
+
+        log.debug("🧭 Trajetória {}: {} passagens ({} a {})", placaNormalizada, pontos.size(), dataInicial, dataFinal);
+        return TrajetoriaDTO.builder()
+                .placa(placaNormalizada)
+                .dataInicial(dataInicial)
+                .dataFinal(dataFinal)
+                .totalPassagens(pontos.size())
+                .truncado(truncado)
+                .distanciaTotalKm(arredondar(distanciaTotal))
+                .pontos(pontos)
+                .build();
+    }
+
+    /**
+     * Prefere o vínculo gravado na passagem; sem ele, resolve pela praça.
+     */
+    private Optional<LocalizacaoIndexService.Localizacao> localizar(Passagem p) {
+        Optional<LocalizacaoIndexService.Localizacao> loc = localizacaoIndex.porId(p.localizacaoId())
+                .filter(LocalizacaoIndexService.Localizacao::temCoordenadas);
+        return loc.isPresent() ? loc : localizacaoIndex.porPraca(p.praca())
+                .filter(LocalizacaoIndexService.Localizacao::temCoordenadas);
+    }
+
+    private static double arredondar(double valor) {
+        return Math.round(valor * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,121 @@
+package com.coruja.services;
+
+import com.coruja.coordenacao.JobCoordenado;
+import com.coruja.entities.Radars;
+import com.coruja.events.PassagensPareadasEvent;
+import com.coruja.events.PassagensPareadasEvent.Par;
+import com.coruja.events.RadarsIngeridosEvent;
+import com.coruja.repositories.RollupHorarioRepository;
+import com.coruja.repositories.UltimaPassagemRepository;
+import com.coruja.repositories.UltimaPassagemRepository.Passagem;
+import com.coruja.utils.PlacaCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * ✅ PAREAMENTO DE PASSAGENS ENTRE RÉPLICAS
+ * A ingestão é dividida entre todas as instâncias (fila ftp_arquivos), então a passagem anterior de uma placa
+ * pode ter sido gravada em outra JVM. A última passagem de cada placa fica em ultima_passagem_placa:
+ * - Dentro da transação do lote, as linhas das placas são travadas (FOR UPDATE, em ordem de placa) e lidas;
+ *   lotes concorrentes com a mesma placa se serializam e o segundo já vê a passagem do primeiro.
+ * - Cada passagem é pareada com a anterior (do banco ou do próprio lote) e a última avança na mesma transação:
+ *   rollback do lote desfaz o avanço, sem passagens fantasmas.
+ * - Os pares saem em {@link PassagensPareadasEvent} para origem-destino (mesma transação) e clonagem (após o commit).
+ */
+@Service
+@Slf4j
+public class UltimasPassagensService {
+
+    private static final int LOTE_LIMPEZA = 10000;
+
+    private final UltimaPassagemRepository repository;
+    private final RollupHorarioRepository rollupRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long retencaoSegundos;
+
+    public UltimasPassagensService(UltimaPassagemRepository repository,
+                                   RollupHorarioRepository rollupRepository,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${radares.clonagem.ociosidade-horas:12}") long ociosidadeClonagemHoras,
+                                   @Value("${radares.od.max-intervalo-minutos:240}") long maxIntervaloOdMinutos) {
+        this.repository = repository;
+        this.rollupRepository = rollupRepository;
+        this.eventPublisher = eventPublisher;
+        // A placa fica enquanto algum consumidor ainda pode formar par com ela
+        this.retencaoSegundos = Math.max(ociosidadeClonagemHoras * 3600, maxIntervaloOdMinutos * 60);
+    }
+
+    @EventListener
+    public void onRadarsIngeridos(RadarsIngeridosEvent event) {
+        // Em ordem cronológica dentro do lote (os arquivos não garantem ordem)
+        List<Radars> ordenados = event.getRadars().stream()
+                .filter(r -> r.getData() != null && r.getHora() != null && r.getPraca() != null && !r.getPraca().isBlank())
+                .filter(r -> r.getPlaca() != null && PlacaCodec.codificar(r.getPlaca()) != 0)
+                .sorted(Comparator.comparing(Radars::getData).thenComparing(Radars::getHora))
+                .toList();
+        if (ordenados.isEmpty()) return;
+
+        // Dias do lote com a trava compartilhada antes de qualquer escrita: a reconstrução da origem-destino
+        // (exclusiva nos mesmos dias) espera este lote e os pares deste lote esperam por ela
+        ordenados.stream().map(Radars::getData).distinct().sorted()
+                .forEach(dia -> rollupRepository.travarDia(dia, false));
+
+        List<String> placas = ordenados.stream().map(Radars::getPlaca).distinct().sorted().toList();
+        repository.garantirPlacas(placas);
+        Map<String, Passagem> ultimas = new HashMap<>();
+        repository.travarELer(placas, ultimas::put);
+
+        List<Par> pares = new ArrayList<>();
+        Map<String, Passagem> avancadas = new TreeMap<>();
+        for (Radars r : ordenados) {
+            Passagem atual = new Passagem(normalize(r.getPraca()), LocalDateTime.of(r.getData(), r.getHora()));
+            Passagem anterior = ultimas.get(r.getPlaca());
+            if (anterior != null) {
+                pares.add(new Par(r.getPlaca(), anterior.praca(), anterior.instante(), atual.praca(), atual.instante()));
+                // Passagem atrasada (mais antiga que a registrada) não substitui a última
+                if (atual.instante().isBefore(anterior.instante())) continue;
+            }
+            ultimas.put(r.getPlaca(), atual);
+            avancadas.put(r.getPlaca(), atual);
+        }
+
+        repository.gravar(new ArrayList<>(avancadas.entrySet()));
+        if (!pares.isEmpty()) {
+            eventPublisher.publishEvent(new PassagensPareadasEvent(pares));
+        }
+        log.debug("🔗 {} passagens pareadas, {} placas avançadas", pares.size(), avancadas.size());
+    }
+
+    /**
+     * Descarta placas sem passagem há mais que a retenção (não formam mais par em nenhum consumidor).
+     * A retenção conta a partir da passagem mais recente gravada (tempo do evento); o relógio só limita
+     * datas futuras vindas de arquivo corrompido.
+     */
+    @Scheduled(fixedDelayString = "${radares.ultimas-passagens.limpeza-ms:3600000}")
+    @JobCoordenado(nome = "ultimas-passagens-limpeza")
+    public void removerOciosas() {
+        LocalDateTime maisRecente = repository.maisRecente();
+        if (maisRecente == null) return;
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime limite = (maisRecente.isAfter(agora) ? agora : maisRecente).minusSeconds(retencaoSegundos);
+
+        int removidas = 0;
+        int lote;
+        do {
+            lote = repository.removerAnterioresA(limite, LOTE_LIMPEZA);
+            removidas += lote;
+        } while (lote == LOTE_LIMPEZA);
+        log.info("🧹 Últimas passagens: {} placas ociosas removidas (sem passagem desde {})", removidas, limite);
+    }
+
+    private String normalize(String input) {
+        return input == null || input.isBlank() ? null : input.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,331 @@
+package com.coruja.utils;
+
+import com.coruja.dto.RadarsDTO;
+import com.coruja.enums.Sentido;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ✅ ARQUIVO COLUNAR DE PASSAGENS (CAMADA FRIA)
+ * Um arquivo GZIP por partição e dia, com as linhas ordenadas por (placa, hora) e gravadas em blocos.
+ * Dentro do bloco os valores vêm coluna a coluna: placa primeiro, praça/rodovia/km com dicionário do bloco,
+ * hora em segundos do dia e sentido pelo ordinal. O cabeçalho do bloco traz a menor e a maior placa:
+ * na busca por placa exata, blocos fora da faixa são pulados sem decodificar nada.
+ * Ao lado fica o índice (.idx): total de linhas, hora mínima/máxima, CRC32 do arquivo e Bloom das placas.
+ */
+public final class ArquivoColunar {
+
+    private static final int MAGICO = 0x52434F4C;        // "RCOL"
+    private static final int MAGICO_INDICE = 0x52494458; // "RIDX"
+    private static final byte VERSAO_FORMATO = 1;
+    private static final String NULO = "\u0000";
+
+    public static final int LINHAS_POR_BLOCO = 65_536;
+
+    private ArquivoColunar() {
+    }
+
+    /**
+     * Conteúdo do .idx de um arquivo.
+     */
+    public record Indice(LocalDate data, long linhas, LocalTime horaMinima, LocalTime horaMaxima,
+                         long crc32, BloomFilter placas) {
+
+        public static Indice ler(Path arquivo) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(caminhoIndice(arquivo))))) {
+                if (in.readInt() != MAGICO_INDICE || in.readByte() != VERSAO_FORMATO) {
+                    throw new IOException("Índice de arquivo frio inválido: " + caminhoIndice(arquivo));
+                }
+                LocalDate data = LocalDate.ofEpochDay(in.readInt());
+                long linhas = in.readLong();
+                LocalTime horaMinima = hora(in.readInt());
+                LocalTime horaMaxima = hora(in.readInt());
+                long crc32 = in.readLong();
+                byte[] bloom = new byte[in.readInt()];
+                in.readFully(bloom);
+                return new Indice(data, linhas, horaMinima, horaMaxima, crc32, BloomFilter.desserializar(bloom));
+            }
+        }
+
+        private void gravar(Path arquivo) throws IOException {
+            Path temporario = Files.createTempFile(arquivo.getParent(), arquivo.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporario)))) {
+                out.writeInt(MAGICO_INDICE);
+                out.writeByte(VERSAO_FORMATO);
+                out.writeInt((int) data.toEpochDay());
+                out.writeLong(linhas);
+                out.writeInt(segundos(horaMinima));
+                out.writeInt(segundos(horaMaxima));
+                out.writeLong(crc32);
+                byte[] bloom = placas.serializar();
+                out.writeInt(bloom.length);
+                out.write(bloom);
+            }
+            Files.move(temporario, caminhoIndice(arquivo), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    public static Path caminhoIndice(Path arquivo) {
+        return arquivo.resolveSibling(arquivo.getFileName() + ".idx");
+    }
+
+    /**
+     * Grava um dia. As linhas devem chegar ordenadas por (placa, hora); o arquivo só aparece no caminho final
+     * (movido de um temporário) em {@link #concluir()}. Fechar sem concluir descarta o temporário.
+     */
+    public static final class Escritor implements Closeable {
+
+        private final Path arquivo;
+        private final Path temporario;
+        private final LocalDate data;
+        private final CheckedOutputStream checksum;
+        private final DataOutputStream out;
+        private final BloomFilter placas;
+        private final List<RadarsDTO> bloco = new ArrayList<>(LINHAS_POR_BLOCO);
+        private long linhas;
+        private int horaMinima = Integer.MAX_VALUE;
+        private int horaMaxima = -1;
+        private boolean concluido;
+
+        public Escritor(Path arquivo, LocalDate data, long linhasEsperadas, double fpp) {
+            try {
+                this.arquivo = arquivo;
+                this.data = data;
+                this.temporario = Files.createTempFile(arquivo.getParent(), arquivo.getFileName().toString(), ".tmp");
+                this.checksum = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temporario)), new CRC32());
+                this.out = new DataOutputStream(new GZIPOutputStream(checksum, 1 << 16));
+                this.placas = BloomFilter.criar(linhasEsperadas, fpp);
+                out.writeInt(MAGICO);
+                out.writeByte(VERSAO_FORMATO);
+                out.writeInt((int) data.toEpochDay());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void adicionar(RadarsDTO linha) {
+            bloco.add(linha);
+            if (linha.placa() != null) placas.adicionar(linha.placa());
+            if (linha.hora() != null) {
+                horaMinima = Math.min(horaMinima, linha.hora().toSecondOfDay());
+                horaMaxima = Math.max(horaMaxima, linha.hora().toSecondOfDay());
+            }
+            linhas++;
+            if (bloco.size() == LINHAS_POR_BLOCO) gravarBloco();
+        }
+
+        public Indice concluir() {
+            try {
+                if (!bloco.isEmpty()) gravarBloco();
+                out.writeInt(0); // Fim dos blocos
+                out.close();
+                Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                Indice indice = new Indice(data, linhas,
+                        horaMaxima < 0 ? null : LocalTime.ofSecondOfDay(horaMinima),
+                        horaMaxima < 0 ? null : LocalTime.ofSecondOfDay(horaMaxima),
+                        checksum.getChecksum().getValue(), placas);
+                indice.gravar(arquivo);
+                concluido = true;
+                return indice;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (concluido) return;
+            try {
+                out.close();
+                Files.deleteIfExists(temporario);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void gravarBloco() {
+            try {
+                String menor = null;
+                String maior = null;
+                ByteArrayOutputStream colunas = new ByteArrayOutputStream(bloco.size() * 24);
+                DataOutputStream c = new DataOutputStream(colunas);
+
+                for (RadarsDTO r : bloco) {
+                    String placa = texto(r.placa());
+                    c.writeUTF(placa);
+                    if (menor == null || placa.compareTo(menor) < 0) menor = placa;
+                    if (maior == null || placa.compareTo(maior) > 0) maior = placa;
+                }
+                for (RadarsDTO r : bloco) c.writeLong(r.id() == null ? 0 : r.id());
+                for (RadarsDTO r : bloco) c.writeInt(segundos(r.hora()));
+                escreverDicionario(c, bloco.stream().map(RadarsDTO::praca).toList());
+                escreverDicionario(c, bloco.stream().map(RadarsDTO::rodovia).toList());
+                escreverDicionario(c, bloco.stream().map(RadarsDTO::km).toList());
+                for (RadarsDTO r : bloco) c.writeByte(r.sentido() == null ? -1 : r.sentido().ordinal());
+                c.flush();
+
+                out.writeInt(bloco.size());
+                out.writeUTF(menor);
+                out.writeUTF(maior);
+                out.writeInt(colunas.size());
+                colunas.writeTo(out);
+                bloco.clear();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Passagens do arquivo cuja placa é igual a (exata) ou contém o valor informado.
+     */
+    public static List<RadarsDTO> ler(Path arquivo, String placa, boolean exata) throws IOException {
+        List<RadarsDTO> encontradas = new ArrayList<>();
+        try (DataInputStream in = abrir(arquivo)) {
+            LocalDate data = LocalDate.ofEpochDay(in.readInt());
+            int n;
+            while ((n = in.readInt()) > 0) {
+                String menor = in.readUTF();
+                String maior = in.readUTF();
+                int tamanho = in.readInt();
+                if (exata && (placa.compareTo(menor) < 0 || placa.compareTo(maior) > 0)) {
+                    in.skipNBytes(tamanho);
+                    continue;
+                }
+                lerBloco(in, n, data, placa, exata, encontradas);
+            }
+        }
+        return encontradas;
+    }
+
+    /**
+     * Relê o arquivo inteiro decodificando todas as colunas (conferência da exportação).
+     */
+    public static long contar(Path arquivo) throws IOException {
+        long linhas = 0;
+        try (DataInputStream in = abrir(arquivo)) {
+            LocalDate data = LocalDate.ofEpochDay(in.readInt());
+            List<RadarsDTO> descartadas = new ArrayList<>();
+            int n;
+            while ((n = in.readInt()) > 0) {
+                in.readUTF();
+                in.readUTF();
+                in.readInt();
+                lerBloco(in, n, data, null, false, descartadas);
+                linhas += descartadas.size();
+                descartadas.clear();
+            }
+        }
+        return linhas;
+    }
+
+    public static long crc32(Path arquivo) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(arquivo)), crc)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return crc.getValue();
+    }
+
+    private static DataInputStream abrir(Path arquivo) throws IOException {
+        InputStream bruto = new BufferedInputStream(Files.newInputStream(arquivo));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(bruto, 1 << 16)));
+        if (in.readInt() != MAGICO || in.readByte() != VERSAO_FORMATO) {
+            in.close();
+            throw new IOException("Arquivo frio inválido: " + arquivo);
+        }
+        return in;
+    }
+
+    /**
+     * Decodifica um bloco; com placa != null só materializa as linhas que casam.
+     */
+    private static void lerBloco(DataInputStream in, int n, LocalDate data, String placa, boolean exata,
+                                 List<RadarsDTO> destino) throws IOException {
+        String[] placas = new String[n];
+        boolean[] selecionadas = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            placas[i] = in.readUTF();
+            selecionadas[i] = placa == null || (exata ? placas[i].equals(placa) : placas[i].contains(placa));
+        }
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) ids[i] = in.readLong();
+        int[] horas = new int[n];
+        for (int i = 0; i < n; i++) horas[i] = in.readInt();
+        String[] pracas = lerDicionario(in, n);
+        String[] rodovias = lerDicionario(in, n);
+        String[] kms = lerDicionario(in, n);
+        Sentido[] sentidos = Sentido.values();
+
+        for (int i = 0; i < n; i++) {
+            byte sentido = in.readByte();
+            if (!selecionadas[i]) continue;
+            destino.add(new RadarsDTO(ids[i], data, hora(horas[i]), valor(placas[i]), pracas[i], rodovias[i], kms[i],
+                    sentido < 0 ? null : sentidos[sentido]));
+        }
+    }
+
+    private static void escreverDicionario(DataOutputStream out, List<String> valores) throws IOException {
+        Map<String, Integer> dicionario = new HashMap<>();
+        List<String> ordem = new ArrayList<>();
+        int[] codigos = new int[valores.size()];
+        for (int i = 0; i < codigos.length; i++) {
+            String v = texto(valores.get(i));
+            codigos[i] = dicionario.computeIfAbsent(v, k -> {
+                ordem.add(k);
+                return ordem.size() - 1;
+            });
+        }
+        out.writeInt(ordem.size());
+        for (String v : ordem) out.writeUTF(v);
+        for (int codigo : codigos) out.writeInt(codigo);
+    }
+
+    private static String[] lerDicionario(DataInputStream in, int n) throws IOException {
+        String[] dicionario = new String[in.readInt()];
+        for (int i = 0; i < dicionario.length; i++) dicionario[i] = valor(in.readUTF());
+        String[] valores = new String[n];
+        for (int i = 0; i < n; i++) valores[i] = dicionario[in.readInt()];
+        return valores;
+    }
+
+    private static String texto(String valor) {
+        return valor == null ? NULO : valor;
+    }
+
+    private static String valor(String texto) {
+        return NULO.equals(texto) ? null : texto;
+    }
+
+    private static int segundos(LocalTime hora) {
+        return hora == null ? -1 : hora.toSecondOfDay();
+    }
+
+    private static LocalTime hora(int segundos) {
+        return segundos < 0 ? null : LocalTime.ofSecondOfDay(segundos);
+    }
+}
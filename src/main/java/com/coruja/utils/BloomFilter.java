@@ -0,0 +1,79 @@
+package com.coruja.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ✅ FILTRO DE BLOOM
+ * Pertinência aproximada: "não contém" é sempre correto; "pode conter" erra com probabilidade ~fpp.
+ * k funções de hash por hashing duplo sobre um único hash de 64 bits (HyperLogLog.hash64).
+ */
+public final class BloomFilter {
+
+    private static final byte VERSAO_FORMATO = 1;
+
+    private final long[] bits;
+    private final long totalBits;
+    private final int funcoes;
+
+    private BloomFilter(long[] bits, int funcoes) {
+        this.bits = bits;
+        this.totalBits = (long) bits.length * 64;
+        this.funcoes = funcoes;
+    }
+
+    /**
+     * Dimensiona para {@code elementos} com taxa de falso positivo {@code fpp}.
+     */
+    public static BloomFilter criar(long elementos, double fpp) {
+        if (fpp <= 0 || fpp >= 1) throw new IllegalArgumentException("fpp deve estar entre 0 e 1");
+        long n = Math.max(1, elementos);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        int palavras = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+        return new BloomFilter(new long[palavras], k);
+    }
+
+    public void adicionar(String valor) {
+        long h = HyperLogLog.hash64(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= funcoes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, totalBits);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean podeConter(String valor) {
+        long h = HyperLogLog.hash64(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= funcoes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, totalBits);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long tamanhoBytes() {
+        return (long) bits.length * 8;
+    }
+
+    public byte[] serializar() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + bits.length * 8);
+        buffer.put(VERSAO_FORMATO).putInt(funcoes).putInt(bits.length);
+        for (long palavra : bits) buffer.putLong(palavra);
+        return buffer.array();
+    }
+
+    public static BloomFilter desserializar(byte[] dados) {
+        ByteBuffer buffer = ByteBuffer.wrap(dados);
+        byte versao = buffer.get();
+        if (versao != VERSAO_FORMATO) {
+            throw new IllegalArgumentException("Versão de filtro de Bloom não suportada: " + versao);
+        }
+        int funcoes = buffer.getInt();
+        long[] bits = new long[buffer.getInt()];
+        for (int i = 0; i < bits.length; i++) bits[i] = buffer.getLong();
+        return new BloomFilter(bits, funcoes);
+    }
+}
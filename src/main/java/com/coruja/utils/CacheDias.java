@@ -0,0 +1,140 @@
+package com.coruja.utils;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache LRU de estruturas em memória indexadas por dia.
+ * - Dias são carregados sob demanda (fora do lock, para não serializar consultas ao banco).
+ *   Uma alteração do dia durante a carga ({@link #atualizarSeCarregado}) descarta o resultado e a carga é refeita:
+ *   o que foi lido pode não conter a alteração, e ela não seria aplicada depois.
+ * - Acima de {@code maxDias}, o dia menos acessado é descartado (com callback opcional, ex: checkpoint).
+ */
+public class CacheDias<V> {
+
+    private final int maxDias;
+    private final Function<LocalDate, V> carregador;
+    private final BiConsumer<LocalDate, V> aoRemover;
+    private final LinkedHashMap<LocalDate, V> dias;
+    // Cargas em andamento por dia (guardado pelo lock do cache)
+    private final Map<LocalDate, Carga> cargas = new HashMap<>();
+
+    private static final int MAX_TENTATIVAS = 3;
+
+    private static final class Carga {
+        int emAndamento;
+        long alteracoes;
+    }
+
+    public CacheDias(int maxDias, Function<LocalDate, V> carregador) {
+        this(maxDias, carregador, (dia, valor) -> { });
+    }
+
+    public CacheDias(int maxDias, Function<LocalDate, V> carregador, BiConsumer<LocalDate, V> aoRemover) {
+        this.maxDias = maxDias;
+        this.carregador = carregador;
+        this.aoRemover = aoRemover;
+        this.dias = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, V> maisAntigo) {
+                if (size() > CacheDias.this.maxDias) {
+                    CacheDias.this.aoRemover.accept(maisAntigo.getKey(), maisAntigo.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retorna o dia, carregando-o se necessário.
+     * Em corrida entre duas cargas do mesmo dia, prevalece a primeira que entrou no cache. Carga alterada no meio
+     * é refeita; após {@value #MAX_TENTATIVAS} tentativas o valor é devolvido sem entrar no cache.
+     */
+    public V obter(LocalDate dia) {
+        for (int tentativa = 1; ; tentativa++) {
+            Carga carga;
+            long alteracoesAntes;
+            synchronized (this) {
+                V existente = dias.get(dia);
+                if (existente != null) return existente;
+                carga = cargas.computeIfAbsent(dia, d -> new Carga());
+                carga.emAndamento++;
+                alteracoesAntes = carga.alteracoes;
+            }
+
+            V carregado;
+            try {
+                carregado = carregador.apply(dia);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    concluirCarga(dia, carga);
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                concluirCarga(dia, carga);
+                V existente = dias.get(dia);
+                if (existente != null) return existente;
+                if (carga.alteracoes == alteracoesAntes) {
+                    dias.put(dia, carregado);
+                    return carregado;
+                }
+                if (tentativa >= MAX_TENTATIVAS) return carregado;
+            }
+        }
+    }
+
+    /**
+     * Aplica a alteração ao dia em memória, sob o lock do cache (a alteração deve ser curta).
+     * Dia fora da memória não é carregado; se estiver sendo carregado, a carga é refeita.
+     */
+    public synchronized void atualizarSeCarregado(LocalDate dia, Consumer<V> alteracao) {
+        V existente = dias.get(dia);
+        if (existente != null) {
+            alteracao.accept(existente);
+            return;
+        }
+        Carga carga = cargas.get(dia);
+        if (carga != null) carga.alteracoes++;
+    }
+
+    /**
+     * Descarta os dias que atendem ao filtro (ex: dias ainda abertos, para relê-los do banco).
+     */
+    public synchronized int invalidarSe(Predicate<LocalDate> filtro) {
+        int antes = dias.size();
+        dias.keySet().removeIf(filtro);
+        return antes - dias.size();
+    }
+
+    private void concluirCarga(LocalDate dia, Carga carga) {
+        if (--carga.emAndamento == 0) cargas.remove(dia);
+    }
+
+    /**
+     * Retorna o dia apenas se já estiver em memória (sem carregar).
+     */
+    public synchronized V obterSeCarregado(LocalDate dia) {
+        return dias.get(dia);
+    }
+
+    public synchronized void invalidar(LocalDate dia) {
+        dias.remove(dia);
+    }
+
+    public synchronized Map<LocalDate, V> snapshot() {
+        return new LinkedHashMap<>(dias);
+    }
+
+    public synchronized int tamanho() {
+        return dias.size();
+    }
+}
@@ -0,0 +1,44 @@
+package com.coruja.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Token de continuação (keyset) para listagens ordenadas por (data DESC, hora DESC, placa ASC).
+ * Opaco para o cliente: base64 de "data|hora|placa" da última linha entregue,
+ * ou "data||" para retomar antes do dia inteiro (sem linha de referência, ex: limite de consultas atingido).
+ */
+public record CursorPassagem(LocalDate data, LocalTime hora, String placa) {
+
+    /**
+     * Cursor de limite de dia: a continuação são as linhas de dias anteriores a {@code dia}.
+     */
+    public static CursorPassagem antesDoDia(LocalDate dia) {
+        return new CursorPassagem(dia, null, null);
+    }
+
+    public boolean limiteDeDia() {
+        return hora == null;
+    }
+
+    public String codificar() {
+        String bruto = limiteDeDia() ? data + "||" : data + "|" + hora + "|" + placa;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorPassagem decodificar(String token) {
+        try {
+            String bruto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] partes = bruto.split("\\|", 3);
+            if (partes.length != 3) throw new IllegalArgumentException("Cursor inválido");
+            // Linha real sempre tem placa: sem placa é limite de dia (inclusive tokens antigos "data|00:00|")
+            if (partes[2].isEmpty()) return antesDoDia(LocalDate.parse(partes[0]));
+            return new CursorPassagem(LocalDate.parse(partes[0]), LocalTime.parse(partes[1]), partes[2]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
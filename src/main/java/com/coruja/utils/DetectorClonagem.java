@@ -0,0 +1,167 @@
+package com.coruja.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ✅ DETECTOR DE PLACA CLONADA (VIAGEM FISICAMENTE IMPOSSÍVEL)
+ * Para cada passagem, compara com a última passagem da mesma placa:
+ * se a distância entre os radares exige velocidade acima do limite configurado, gera um alerta.
+ * - Última passagem em {@link UltimaPassagemMap} (memória limitada, placas ociosas descartadas) em {@link #registrar},
+ *   ou guardada pelo chamador e passada a {@link #avaliar} (ingestão dividida entre réplicas).
+ * - Tempo mínimo por par de radares calculado uma vez e guardado em matriz.
+ * Classe sem dependências de Spring para poder ser exercitada em replay de arquivos históricos.
+ */
+public final class DetectorClonagem {
+
+    public record Alerta(String placa,
+                         long localizacaoAnterior, long instanteAnterior,
+                         long localizacaoAtual, long instanteAtual,
+                         double distanciaKm, long segundosDecorridos, long segundosMinimos) {
+
+        public double velocidadeNecessariaKmh() {
+            return segundosDecorridos <= 0 ? Double.POSITIVE_INFINITY : distanciaKm / (segundosDecorridos / 3600.0);
+        }
+    }
+
+    private final double velocidadeMaximaKmh;
+    private final double distanciaMinimaKm;
+    private final UltimaPassagemMap ultimas;
+
+    // Índice interno dos radares (id da localização -> posição nos arrays de coordenadas)
+    private final Map<Long, Integer> indicePorLocalizacao = new HashMap<>();
+    private long[] localizacaoPorIndice = new long[64];
+    private double[] latitudes = new double[64];
+    private double[] longitudes = new double[64];
+    private int totalLocais;
+
+    // Matriz de tempo mínimo (segundos) entre pares; -1 = ainda não calculado
+    private int[] tempoMinimoPar = new int[0];
+    private float[] distanciaPar = new float[0];
+    private int dimensaoMatriz;
+
+    /**
+     * Detector só de avaliação ({@link #avaliar}): a última passagem de cada placa fica com o chamador.
+     */
+    public DetectorClonagem(double velocidadeMaximaKmh, double distanciaMinimaKm) {
+        this(velocidadeMaximaKmh, distanciaMinimaKm, 0);
+    }
+
+    public DetectorClonagem(double velocidadeMaximaKmh, double distanciaMinimaKm, int maxPlacas) {
+        this.velocidadeMaximaKmh = velocidadeMaximaKmh;
+        this.distanciaMinimaKm = distanciaMinimaKm;
+        this.ultimas = new UltimaPassagemMap(Math.min(maxPlacas, 1 << 16), maxPlacas);
+    }
+
+    /**
+     * Registra (ou atualiza as coordenadas de) um radar.
+     */
+    public synchronized void registrarLocal(long localizacaoId, double latitude, double longitude) {
+        Integer existente = indicePorLocalizacao.get(localizacaoId);
+        if (existente != null) {
+            if (latitudes[existente] != latitude || longitudes[existente] != longitude) {
+                latitudes[existente] = latitude;
+                longitudes[existente] = longitude;
+                dimensaoMatriz = 0; // coordenadas mudaram: recalcula a matriz sob demanda
+            }
+            return;
+        }
+        if (totalLocais == latitudes.length) {
+            int nova = totalLocais * 2;
+            localizacaoPorIndice = Arrays.copyOf(localizacaoPorIndice, nova);
+            latitudes = Arrays.copyOf(latitudes, nova);
+            longitudes = Arrays.copyOf(longitudes, nova);
+        }
+        localizacaoPorIndice[totalLocais] = localizacaoId;
+        latitudes[totalLocais] = latitude;
+        longitudes[totalLocais] = longitude;
+        indicePorLocalizacao.put(localizacaoId, totalLocais);
+        totalLocais++;
+    }
+
+    /**
+     * Processa uma passagem.
+     * @param instanteSegundos epoch em segundos (passagens levemente fora de ordem são toleradas)
+     * @return alerta se a viagem desde a última passagem for impossível
+     */
+    public synchronized Optional<Alerta> registrar(String placa, long localizacaoId, long instanteSegundos) {
+        long codigo = PlacaCodec.codificar(placa);
+        Integer local = indicePorLocalizacao.get(localizacaoId);
+        if (codigo == 0 || local == null) return Optional.empty();
+
+        Optional<Alerta> alerta = Optional.empty();
+        int slot = ultimas.localizar(codigo);
+        if (slot >= 0) {
+            int localAnterior = ultimas.local(slot);
+            long instanteAnterior = ultimas.tempo(slot);
+            alerta = avaliar(placa, localAnterior, instanteAnterior, local, instanteSegundos);
+            // Passagem atrasada (mais antiga que a registrada) não substitui a última
+            if (instanteSegundos < instanteAnterior) return alerta;
+        }
+
+        ultimas.registrar(codigo, local, instanteSegundos);
+        return alerta;
+    }
+
+    /**
+     * Avalia um par já formado por quem guarda a última passagem fora do detector
+     * (ex: a tabela ultima_passagem_placa, compartilhada entre réplicas). Não altera o mapa interno.
+     * @return alerta se a viagem entre as duas passagens for impossível
+     */
+    public synchronized Optional<Alerta> avaliar(String placa,
+                                                 long localizacaoAnterior, long instanteAnterior,
+                                                 long localizacaoAtual, long instanteAtual) {
+        Integer anterior = indicePorLocalizacao.get(localizacaoAnterior);
+        Integer atual = indicePorLocalizacao.get(localizacaoAtual);
+        if (anterior == null || atual == null) return Optional.empty();
+        return avaliar(placa, anterior, instanteAnterior, atual, instanteAtual);
+    }
+
+    private Optional<Alerta> avaliar(String placa, int localAnterior, long instanteAnterior, int local, long instante) {
+        if (localAnterior == local) return Optional.empty();
+        long decorridos = Math.abs(instante - instanteAnterior);
+        int minimo = tempoMinimo(localAnterior, local);
+        if (minimo <= 0 || decorridos >= minimo) return Optional.empty();
+        return Optional.of(new Alerta(placa,
+                localizacaoPorIndice[localAnterior], instanteAnterior,
+                localizacaoPorIndice[local], instante,
+                distancia(localAnterior, local), decorridos, minimo));
+    }
+
+    /**
+     * Descarta placas sem passagem desde {@code limiteSegundos}.
+     */
+    public synchronized int removerOciosas(long limiteSegundos) {
+        return ultimas.removerOciosas(limiteSegundos);
+    }
+
+    public synchronized int placasEmMemoria() {
+        return ultimas.tamanho();
+    }
+
+    private int tempoMinimo(int a, int b) {
+        garantirMatriz();
+        int i = a * dimensaoMatriz + b;
+        if (tempoMinimoPar[i] < 0) {
+            double km = Geo.distanciaKm(latitudes[a], longitudes[a], latitudes[b], longitudes[b]);
+            distanciaPar[i] = (float) km;
+            // Pares próximos demais (mesmo pórtico / praças vizinhas) nunca geram alerta
+            tempoMinimoPar[i] = km < distanciaMinimaKm ? 0 : (int) Math.ceil(km / velocidadeMaximaKmh * 3600);
+        }
+        return tempoMinimoPar[i];
+    }
+
+    private double distancia(int a, int b) {
+        return distanciaPar[a * dimensaoMatriz + b];
+    }
+
+    private void garantirMatriz() {
+        if (dimensaoMatriz >= totalLocais && dimensaoMatriz > 0) return;
+        dimensaoMatriz = Math.max(totalLocais, 1);
+        tempoMinimoPar = new int[dimensaoMatriz * dimensaoMatriz];
+        distanciaPar = new float[dimensaoMatriz * dimensaoMatriz];
+        Arrays.fill(tempoMinimoPar, -1);
+    }
+}
@@ -0,0 +1,50 @@
+package com.coruja.utils;
+
+/**
+ * Histograma de tempos de viagem com faixas fixas (mais finas nos tempos curtos).
+ * Faixas fixas permitem somar histogramas de horas/dias diferentes elemento a elemento (no banco ou em memória).
+ */
+public final class HistogramaViagem {
+
+    // Limite superior (exclusivo) de cada faixa, em segundos; a última faixa é aberta
+    private static final int[] LIMITES = {
+            60, 120, 180, 300, 420, 600, 900, 1200, 1800, 2700, 3600, 5400, 7200, 10800, 14400
+    };
+
+    public static final int FAIXAS = LIMITES.length + 1;
+
+    private HistogramaViagem() {
+    }
+
+    public static int faixa(long segundos) {
+        for (int i = 0; i < LIMITES.length; i++) {
+            if (segundos < LIMITES[i]) return i;
+        }
+        return LIMITES.length;
+    }
+
+    /**
+     * Quantil estimado por interpolação linear dentro da faixa.
+     * @param maximoSegundos limite usado para fechar a última faixa (intervalo máximo de viagem)
+     * @return segundos, ou -1 se o histograma estiver vazio
+     */
+    public static long quantil(long[] histograma, double q, long maximoSegundos) {
+        long total = 0;
+        for (long c : histograma) total += c;
+        if (total == 0) return -1;
+
+        double alvo = q * total;
+        long acumulado = 0;
+        for (int i = 0; i < histograma.length; i++) {
+            if (histograma[i] == 0) continue;
+            if (acumulado + histograma[i] >= alvo) {
+                long inicio = i == 0 ? 0 : LIMITES[i - 1];
+                long fim = i < LIMITES.length ? LIMITES[i] : Math.max(maximoSegundos, inicio);
+                double fracao = (alvo - acumulado) / histograma[i];
+                return Math.round(inicio + fracao * (fim - inicio));
+            }
+            acumulado += histograma[i];
+        }
+        return LIMITES[LIMITES.length - 1];
+    }
+}
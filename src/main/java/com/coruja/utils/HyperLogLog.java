@@ -0,0 +1,143 @@
+package com.coruja.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * ✅ HYPERLOGLOG PARA CONTAGEM APROXIMADA DE PLACAS DISTINTAS
+ * - 2^12 registradores de 1 byte (4 KB em memória; bem menos serializado, pois é comprimido).
+ * - Erro relativo padrão ≈ 1,04 / √4096 ≈ 1,6%.
+ * - Mesclável: a união de quaisquer períodos/praças é o máximo registrador a registrador.
+ */
+public final class HyperLogLog {
+
+    public static final int PRECISAO = 12;
+    public static final int REGISTRADORES = 1 << PRECISAO;
+    public static final double ERRO_PADRAO = 1.04 / Math.sqrt(REGISTRADORES);
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTRADORES);
+    private static final byte VERSAO_FORMATO = 1;
+
+    private final byte[] registradores;
+
+    public HyperLogLog() {
+        this.registradores = new byte[REGISTRADORES];
+    }
+
+    private HyperLogLog(byte[] registradores) {
+        this.registradores = registradores;
+    }
+
+    public void adicionar(String valor) {
+        adicionarHash(hash64(valor));
+    }
+
+    public void adicionarHash(long hash) {
+        int indice = (int) (hash >>> (64 - PRECISAO));
+        // Posição do primeiro bit 1 nos bits restantes (+1), limitada ao tamanho útil
+        long resto = (hash << PRECISAO) | (1L << (PRECISAO - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(resto) + 1);
+        if (rank > registradores[indice]) {
+            registradores[indice] = rank;
+        }
+    }
+
+    public void mesclar(HyperLogLog outro) {
+        for (int i = 0; i < REGISTRADORES; i++) {
+            if (outro.registradores[i] > registradores[i]) {
+                registradores[i] = outro.registradores[i];
+            }
+        }
+    }
+
+    public long estimar() {
+        double soma = 0;
+        int zeros = 0;
+        for (byte r : registradores) {
+            soma += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double estimativa = ALPHA * REGISTRADORES * REGISTRADORES / soma;
+
+        // Correção para cardinalidades pequenas (linear counting)
+        if (estimativa <= 2.5 * REGISTRADORES && zeros > 0) {
+            estimativa = REGISTRADORES * Math.log((double) REGISTRADORES / zeros);
+        }
+        return Math.round(estimativa);
+    }
+
+    public boolean isVazio() {
+        for (byte r : registradores) {
+            if (r != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Formato: [versão][registradores comprimidos com Deflate].
+     * Sketches de horas/praças pouco movimentadas têm muitos zeros e comprimem para poucas centenas de bytes.
+     */
+    public byte[] serializar() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(registradores);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+            out.write(VERSAO_FORMATO);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static HyperLogLog desserializar(byte[] dados) {
+        if (dados == null || dados.length == 0) return new HyperLogLog();
+        if (dados[0] != VERSAO_FORMATO) {
+            throw new IllegalArgumentException("Versão de HyperLogLog não suportada: " + dados[0]);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(dados, 1, dados.length - 1);
+            byte[] registradores = new byte[REGISTRADORES];
+            int lidos = 0;
+            while (lidos < REGISTRADORES && !inflater.finished()) {
+                int n = inflater.inflate(registradores, lidos, REGISTRADORES - lidos);
+                if (n == 0 && inflater.needsInput()) break;
+                lidos += n;
+            }
+            if (lidos != REGISTRADORES) {
+                throw new IllegalArgumentException("HyperLogLog corrompido: " + lidos + " registradores");
+            }
+            return new HyperLogLog(registradores);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("HyperLogLog corrompido", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Hash 64 bits (FNV-1a seguido do finalizador do MurmurHash3 para espalhar os bits altos).
+     */
+    public static long hash64(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.US_ASCII)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,42 @@
+package com.coruja.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converte o KM textual dos radares em posição inteira em metros:
+ * "590" -> 590000, "110+500" -> 110500 (metros após o marco), "110.5"/"110,5" -> 110500 (fração do km).
+ * Mesma regra da função SQL radares_km_metros (V14), usada no backfill.
+ */
+public final class KmParser {
+
+    private static final Pattern KM = Pattern.compile("^(?:KM)?\\s*(\\d{1,4})(?:\\s*([+.,])\\s*(\\d{1,3}))?$");
+
+    private KmParser() {
+    }
+
+    /**
+     * @return metros, ou null se o texto não for um KM reconhecível
+     */
+    public static Integer metros(String km) {
+        if (km == null) return null;
+        Matcher m = KM.matcher(km.trim().toUpperCase());
+        if (!m.matches()) return null;
+
+        int metros = Integer.parseInt(m.group(1)) * 1000;
+        if (m.group(2) == null) return metros;
+        String resto = m.group(3);
+        // "+500" são metros; ".5" é fração do km (5 -> 500)
+        return metros + Integer.parseInt("+".equals(m.group(2)) ? resto : (resto + "00").substring(0, 3));
+    }
+
+    /**
+     * Valor de filtro informado pelo usuário: vazio = sem filtro, texto inválido = erro.
+     */
+    public static Integer filtro(String km) {
+        if (km == null || km.isBlank()) return null;
+        Integer metros = metros(km);
+        if (metros == null) throw new IllegalArgumentException("KM inválido: " + km);
+        return metros;
+    }
+}
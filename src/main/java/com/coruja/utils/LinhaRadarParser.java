@@ -0,0 +1,113 @@
+package com.coruja.utils;
+
+import com.coruja.enums.DialetoArquivo;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser de uma linha do arquivo de passagens da concessionária.
+ * Isolado do FtpService para ser reutilizado (ex: replay de arquivos históricos nos testes).
+ * Os métodos sem dialeto usam o export do SQL Server (layout original da Cart).
+ */
+public final class LinhaRadarParser {
+
+    // Regex para capturar os dados da linha. MUITO MAIS ROBUSTO!
+    // Captura 6 grupos: 1=Data, 2=Hora, 3=Placa, 4=Praça/Sentido, 5=Rodovia, 6=KM
+    private static final Pattern LINE_PATTERN = Pattern.compile(
+            "^(\\S+)\\s+(\\S+)\\s+(\\S+)\\s+(.+?)\\s+(SP\\S+)\\s+(KM\\S+)$"
+    );
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm:ss[.SSS]");
+    private static final DateTimeFormatter FORMATO_DATA_CSV = DateTimeFormatter.ofPattern("[yyyy-MM-dd][dd/MM/yyyy]");
+    private static final Pattern SEPARADOR_CSV = Pattern.compile(";");
+
+    public record Linha(LocalDate data, LocalTime hora, String placa, String praca,
+                        String rodovia, String km, String sentido) { }
+
+    private LinhaRadarParser() {
+    }
+
+    /**
+     * Linhas de cabeçalho, rodapé ou vazias do export do SQL Server.
+     */
+    public static boolean isLinhaIgnoravel(String linha) {
+        return linha.trim().isEmpty() || linha.contains("Data_Transação") || linha.startsWith("Changed database")
+                || linha.matches("[-\\s]+") || linha.matches("\\(\\d+ rows affected\\)");
+    }
+
+    public static boolean isLinhaIgnoravel(String linha, DialetoArquivo dialeto) {
+        return switch (dialeto) {
+            case SQLSERVER_EXPORT -> isLinhaIgnoravel(linha);
+            case CSV -> linha.isBlank() || linha.regionMatches(true, 0, "data;", 0, 5);
+        };
+    }
+
+    public static Optional<Linha> parse(String linha, DialetoArquivo dialeto) {
+        return switch (dialeto) {
+            case SQLSERVER_EXPORT -> parse(linha);
+            case CSV -> parseCsv(linha);
+        };
+    }
+
+    /**
+     * @return vazio se a linha não corresponde ao layout esperado
+     * @throws RuntimeException se a linha casa com o layout mas data/hora são inválidas
+     */
+    public static Optional<Linha> parse(String linha) {
+        Matcher matcher = LINE_PATTERN.matcher(linha.trim());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+
+        String dataStr = matcher.group(1);
+        String horaStr = matcher.group(2);
+        String placaBruta = matcher.group(3);
+        String pracaESentido = matcher.group(4).trim();
+        String rodovia = matcher.group(5);
+        String km = matcher.group(6).replace("KM", "").trim();
+
+        String placa = placaBruta.replaceAll("[^A-Za-z0-9]", "");
+        if (placa.length() > 7) placa = placa.substring(0, 7);
+
+        // Lógica para separar praça e sentido
+        String[] partesPraca = pracaESentido.split("\\s+");
+        String sentido = "N/I";
+        String praca = pracaESentido;
+
+        if (partesPraca.length > 1) {
+            sentido = partesPraca[partesPraca.length - 1];
+            praca = String.join(" ", Arrays.copyOf(partesPraca, partesPraca.length - 1));
+        }
+
+        LocalDate data = LocalDate.parse(dataStr, FORMATO_DATA);
+        LocalTime hora = LocalTime.parse(horaStr, FORMATO_HORA);
+
+        return Optional.of(new Linha(data, hora, placa, praca, rodovia, km, sentido));
+    }
+
+    /**
+     * data;hora;placa;praca;sentido;rodovia;km (KM com ou sem o prefixo "KM").
+     */
+    private static Optional<Linha> parseCsv(String linha) {
+        String[] campos = SEPARADOR_CSV.split(linha.trim(), -1);
+        if (campos.length != 7) {
+            return Optional.empty();
+        }
+
+        String placa = campos[2].replaceAll("[^A-Za-z0-9]", "").toUpperCase();
+        if (placa.length() > 7) placa = placa.substring(0, 7);
+        String sentido = campos[4].isBlank() ? "N/I" : campos[4].trim();
+        String km = campos[6].trim().toUpperCase().replace("KM", "").trim();
+
+        LocalDate data = LocalDate.parse(campos[0].trim(), FORMATO_DATA_CSV);
+        LocalTime hora = LocalTime.parse(campos[1].trim(), FORMATO_HORA);
+
+        return Optional.of(new Linha(data, hora, placa, campos[3].trim(), campos[5].trim(), km, sentido));
+    }
+}
@@ -0,0 +1,35 @@
+package com.coruja.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Mescla k listas já ordenadas em uma só (heap com a cabeça de cada lista), parando no limite.
+ * Custo O(n log k) e nenhuma reordenação do conjunto inteiro.
+ */
+public final class MesclaOrdenada {
+
+    private MesclaOrdenada() { }
+
+    private record Cabeca<T>(T valor, Iterator<T> resto) { }
+
+    public static <T> List<T> mesclar(List<List<T>> listas, Comparator<? super T> ordem, int limite) {
+        PriorityQueue<Cabeca<T>> heap = new PriorityQueue<>(Math.max(1, listas.size()),
+                (a, b) -> ordem.compare(a.valor(), b.valor()));
+        for (List<T> lista : listas) {
+            Iterator<T> it = lista.iterator();
+            if (it.hasNext()) heap.add(new Cabeca<>(it.next(), it));
+        }
+
+        List<T> resultado = new ArrayList<>(Math.min(limite, 1024));
+        while (!heap.isEmpty() && resultado.size() < limite) {
+            Cabeca<T> menor = heap.poll();
+            resultado.add(menor.valor());
+            if (menor.resto().hasNext()) heap.add(new Cabeca<>(menor.resto().next(), menor.resto()));
+        }
+        return resultado;
+    }
+}
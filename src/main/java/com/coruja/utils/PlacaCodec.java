@@ -0,0 +1,53 @@
+package com.coruja.utils;
+
+/**
+ * Empacota uma placa (até 7 caracteres alfanuméricos) em um long: 6 bits por caractere.
+ * Evita milhões de Strings em estruturas de memória indexadas por placa.
+ * O valor 0 nunca é gerado para uma placa válida (usado como "vazio" em tabelas hash).
+ */
+public final class PlacaCodec {
+
+    public static final int TAMANHO_MAXIMO = 7;
+    private static final int BITS = 6;
+
+    private PlacaCodec() {
+    }
+
+    /**
+     * @return código da placa, ou 0 se a placa for vazia/inválida
+     */
+    public static long codificar(String placa) {
+        if (placa == null || placa.isEmpty() || placa.length() > TAMANHO_MAXIMO) return 0;
+        long codigo = 0;
+        for (int i = 0; i < placa.length(); i++) {
+            int valor = valorDe(Character.toUpperCase(placa.charAt(i)));
+            if (valor < 0) return 0;
+            codigo = (codigo << BITS) | valor;
+        }
+        return codigo;
+    }
+
+    public static String decodificar(long codigo) {
+        char[] buffer = new char[TAMANHO_MAXIMO];
+        int n = 0;
+        while (codigo != 0 && n < TAMANHO_MAXIMO) {
+            buffer[n++] = caractereDe((int) (codigo & 0x3F));
+            codigo >>>= BITS;
+        }
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = n - 1; i >= 0; i--) sb.append(buffer[i]);
+        return sb.toString();
+    }
+
+    // 1..10 = '0'..'9', 11..36 = 'A'..'Z' (0 fica reservado)
+    private static int valorDe(char c) {
+        if (c >= '0' && c <= '9') return 1 + (c - '0');
+        if (c >= 'A' && c <= 'Z') return 11 + (c - 'A');
+        return -1;
+    }
+
+    private static char caractereDe(int valor) {
+        if (valor >= 1 && valor <= 10) return (char) ('0' + valor - 1);
+        return (char) ('A' + valor - 11);
+    }
+}
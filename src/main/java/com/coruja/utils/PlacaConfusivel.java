@@ -0,0 +1,74 @@
+package com.coruja.utils;
+
+/**
+ * Normalização de placas para caracteres que o OCR confunde (O/0, I/1, B/8, S/5)
+ * e distância de edição com curingas posicionais ('?' = um caractere, '*' = qualquer sequência).
+ * normalizar() deve produzir exatamente o mesmo resultado da função SQL placa_confusivel().
+ */
+public final class PlacaConfusivel {
+
+    private static final String DE = "OIBS";
+    private static final String PARA = "0185";
+
+    private PlacaConfusivel() {
+    }
+
+    public static String normalizar(String placa) {
+        String maiuscula = placa.toUpperCase();
+        StringBuilder sb = new StringBuilder(maiuscula.length());
+        for (int i = 0; i < maiuscula.length(); i++) {
+            char c = maiuscula.charAt(i);
+            int j = DE.indexOf(c);
+            sb.append(j >= 0 ? PARA.charAt(j) : c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Limpa o padrão digitado: mantém letras, dígitos e curingas; sequências de '*' viram uma só.
+     */
+    public static String limparPadrao(String padrao) {
+        String limpo = padrao.toUpperCase().replaceAll("[^A-Z0-9?*]", "").replaceAll("\\*+", "*");
+        if (limpo.isEmpty() || limpo.equals("*")) {
+            throw new IllegalArgumentException("Padrão de placa vazio");
+        }
+        return limpo;
+    }
+
+    public static boolean temCuringa(String padrao) {
+        return padrao.indexOf('?') >= 0 || padrao.indexOf('*') >= 0;
+    }
+
+    /**
+     * Converte o padrão (já limpo) em LIKE sobre a placa normalizada.
+     */
+    public static String paraLike(String padrao) {
+        return normalizar(padrao).replace('?', '_').replace('*', '%');
+    }
+
+    /**
+     * Distância de edição entre o padrão digitado (antes da normalização) e a placa encontrada.
+     * Curingas casam sem custo; troca entre caracteres confundíveis custa 1 (como qualquer troca),
+     * para que a grafia exata digitada fique à frente das variantes.
+     */
+    public static int distancia(String padrao, String placa) {
+        int n = padrao.length();
+        int m = placa.length();
+        int[][] d = new int[n + 1][m + 1];
+        for (int j = 1; j <= m; j++) d[0][j] = j;
+        for (int i = 1; i <= n; i++) {
+            char p = padrao.charAt(i - 1);
+            d[i][0] = p == '*' ? d[i - 1][0] : d[i - 1][0] + 1;
+            for (int j = 1; j <= m; j++) {
+                if (p == '*') {
+                    // '*' consome zero ou mais caracteres
+                    d[i][j] = Math.min(d[i - 1][j], d[i][j - 1]);
+                } else {
+                    int troca = (p == '?' || p == placa.charAt(j - 1)) ? 0 : 1;
+                    d[i][j] = Math.min(d[i - 1][j - 1] + troca, Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1));
+                }
+            }
+        }
+        return d[n][m];
+    }
+}
@@ -0,0 +1,32 @@
+package com.coruja.utils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resultado da consulta aos filtros de Bloom para uma placa.
+ * Dias dentro da cobertura [inicio, fim] só podem conter a placa se estiverem em {@code diasPossiveis}
+ * (que inclui os dias pendentes, sem filtro); fora da cobertura, tudo é possível.
+ */
+public record PodaDias(LocalDate inicioCobertura, LocalDate fimCobertura, Set<LocalDate> diasPossiveis) {
+
+    public static final PodaDias SEM_COBERTURA = new PodaDias(null, null, Set.of());
+
+    public boolean temCobertura() {
+        return inicioCobertura != null;
+    }
+
+    public boolean podeConter(LocalDate dia) {
+        if (!temCobertura() || dia.isBefore(inicioCobertura) || dia.isAfter(fimCobertura)) return true;
+        return diasPossiveis.contains(dia);
+    }
+
+    public List<LocalDate> diasPossiveisOrdenados() {
+        List<LocalDate> dias = new ArrayList<>(diasPossiveis);
+        Collections.sort(dias);
+        return dias;
+    }
+}
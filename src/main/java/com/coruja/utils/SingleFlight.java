@@ -0,0 +1,87 @@
+package com.coruja.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * ✅ COALESCÊNCIA DE REQUISIÇÕES (SINGLE-FLIGHT)
+ * Requisições concorrentes com a mesma chave compartilham UMA única execução.
+ * A primeira thread (líder) executa a consulta; as demais aguardam o mesmo resultado.
+ * - Limitado: acima de {@code maxChaves} chaves em voo, executa sem coalescer (não cresce sem limite).
+ * - Timeout: quem espera desiste após {@code timeout}, sem afetar o líder.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> emVoo = new ConcurrentHashMap<>();
+    private final int maxChaves;
+    private final Duration timeout;
+
+    private final Counter execucoes;
+    private final Counter coalescidas;
+    private final Counter semCoalescer;
+    private final Counter timeouts;
+
+    public SingleFlight(String nome, int maxChaves, Duration timeout, MeterRegistry registry) {
+        this.maxChaves = maxChaves;
+        this.timeout = timeout;
+        this.execucoes = Counter.builder("radares.singleflight.execucoes").tag("operacao", nome).register(registry);
+        this.coalescidas = Counter.builder("radares.singleflight.coalescidas").tag("operacao", nome).register(registry);
+        this.semCoalescer = Counter.builder("radares.singleflight.sem_coalescer").tag("operacao", nome).register(registry);
+        this.timeouts = Counter.builder("radares.singleflight.timeouts").tag("operacao", nome).register(registry);
+        registry.gauge("radares.singleflight.em_voo", Tags.of("operacao", nome), emVoo, ConcurrentHashMap::size);
+    }
+
+    public V executar(K chave, Supplier<V> fonte) {
+        // Proteção de memória: se já há chaves demais em voo, não coalesce
+        if (emVoo.size() >= maxChaves && !emVoo.containsKey(chave)) {
+            semCoalescer.increment();
+            return fonte.get();
+        }
+
+        CompletableFuture<V> novo = new CompletableFuture<>();
+        CompletableFuture<V> existente = emVoo.putIfAbsent(chave, novo);
+
+        if (existente == null) {
+            // Líder: executa e publica o resultado para quem estiver esperando
+            execucoes.increment();
+            try {
+                V resultado = fonte.get();
+                novo.complete(resultado);
+                return resultado;
+            } catch (RuntimeException | Error e) {
+                novo.completeExceptionally(e);
+                throw e;
+            } finally {
+                emVoo.remove(chave, novo);
+            }
+        }
+
+        coalescidas.increment();
+        try {
+            return existente.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new IllegalStateException("Tempo de espera excedido aguardando consulta idêntica em andamento", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera interrompida", e);
+        }
+    }
+
+    public int emVoo() {
+        return emVoo.size();
+    }
+}
@@ -0,0 +1,199 @@
+package com.coruja.utils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ✅ SPACE-SAVING: TOP-N ITENS MAIS FREQUENTES EM MEMÓRIA LIMITADA
+ * Mantém no máximo {@code capacidade} contadores. Quando cheio, o item novo herda o menor contador (+1)
+ * e registra esse valor como erro máximo. Garantias:
+ * - todo item com frequência real > N / capacidade está no resumo;
+ * - contagem real ∈ [contagem - erro, contagem].
+ * Implementado com min-heap indexado: O(log k) por atualização.
+ */
+public final class SpaceSaving {
+
+    private static final int VERSAO_FORMATO = 1;
+
+    public record Item(String chave, long contagem, long erro) { }
+
+    private final int capacidade;
+    private final String[] chaves;
+    private final long[] contagens;
+    private final long[] erros;
+    private final int[] heap;      // heap[i] = slot; min-heap por contagem
+    private final int[] posicao;   // posicao[slot] = índice no heap
+    private final Map<String, Integer> slots;
+    private int tamanho;
+    private long total;
+
+    public SpaceSaving(int capacidade) {
+        if (capacidade <= 0) throw new IllegalArgumentException("Capacidade deve ser positiva");
+        this.capacidade = capacidade;
+        this.chaves = new String[capacidade];
+        this.contagens = new long[capacidade];
+        this.erros = new long[capacidade];
+        this.heap = new int[capacidade];
+        this.posicao = new int[capacidade];
+        this.slots = new HashMap<>(capacidade * 2);
+    }
+
+    public void adicionar(String chave) {
+        adicionar(chave, 1, 0);
+    }
+
+    public void adicionar(String chave, long incremento, long erroIncremento) {
+        total += incremento;
+        Integer slot = slots.get(chave);
+        if (slot != null) {
+            contagens[slot] += incremento;
+            erros[slot] += erroIncremento;
+            descer(posicao[slot]);
+            return;
+        }
+
+        if (tamanho < capacidade) {
+            int novo = tamanho;
+            chaves[novo] = chave;
+            contagens[novo] = incremento;
+            erros[novo] = erroIncremento;
+            heap[tamanho] = novo;
+            posicao[novo] = tamanho;
+            tamanho++;
+            slots.put(chave, novo);
+            subir(posicao[novo]);
+            return;
+        }
+
+        // Cheio: substitui o item de menor contagem (raiz do heap)
+        int minimo = heap[0];
+        long contagemMinima = contagens[minimo];
+        slots.remove(chaves[minimo]);
+        chaves[minimo] = chave;
+        contagens[minimo] = contagemMinima + incremento;
+        erros[minimo] = contagemMinima + erroIncremento;
+        slots.put(chave, minimo);
+        descer(0);
+    }
+
+    /**
+     * Soma outro resumo a este (resultado continua limitado à capacidade deste).
+     */
+    public void mesclar(SpaceSaving outro) {
+        for (int i = 0; i < outro.tamanho; i++) {
+            int slot = outro.heap[i];
+            adicionar(outro.chaves[slot], outro.contagens[slot], outro.erros[slot]);
+        }
+        // adicionar() já somou as contagens dos itens; o total deve refletir o fluxo inteiro do outro
+        total += outro.total - somaContagens(outro);
+    }
+
+    public List<Item> topN(int n) {
+        List<Item> itens = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            int slot = heap[i];
+            itens.add(new Item(chaves[slot], contagens[slot], erros[slot]));
+        }
+        itens.sort(Comparator.comparingLong(Item::contagem).reversed().thenComparing(Item::chave));
+        return itens.size() > n ? new ArrayList<>(itens.subList(0, n)) : itens;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    public boolean isVazio() {
+        return tamanho == 0;
+    }
+
+    public byte[] serializar() {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(tamanho * 24 + 16);
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSAO_FORMATO);
+            out.writeLong(total);
+            out.writeInt(tamanho);
+            for (int i = 0; i < tamanho; i++) {
+                int slot = heap[i];
+                out.writeUTF(chaves[slot]);
+                out.writeLong(contagens[slot]);
+                out.writeLong(erros[slot]);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static SpaceSaving desserializar(byte[] dados, int capacidade) {
+        SpaceSaving resumo = new SpaceSaving(capacidade);
+        if (dados == null || dados.length == 0) return resumo;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(dados))) {
+            int versao = in.readByte();
+            if (versao != VERSAO_FORMATO) {
+                throw new IllegalArgumentException("Versão de Space-Saving não suportada: " + versao);
+            }
+            long total = in.readLong();
+            int n = in.readInt();
+            long soma = 0;
+            for (int i = 0; i < n; i++) {
+                String chave = in.readUTF();
+                long contagem = in.readLong();
+                long erro = in.readLong();
+                resumo.adicionar(chave, contagem, erro);
+                soma += contagem;
+            }
+            resumo.total += total - soma;
+            return resumo;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long somaContagens(SpaceSaving resumo) {
+        long soma = 0;
+        for (int i = 0; i < resumo.tamanho; i++) {
+            soma += resumo.contagens[resumo.heap[i]];
+        }
+        return soma;
+    }
+
+    private void subir(int i) {
+        while (i > 0) {
+            int pai = (i - 1) / 2;
+            if (contagens[heap[i]] >= contagens[heap[pai]]) break;
+            trocar(i, pai);
+            i = pai;
+        }
+    }
+
+    private void descer(int i) {
+        while (true) {
+            int esquerda = 2 * i + 1;
+            int direita = esquerda + 1;
+            int menor = i;
+            if (esquerda < tamanho && contagens[heap[esquerda]] < contagens[heap[menor]]) menor = esquerda;
+            if (direita < tamanho && contagens[heap[direita]] < contagens[heap[menor]]) menor = direita;
+            if (menor == i) return;
+            trocar(i, menor);
+            i = menor;
+        }
+    }
+
+    private void trocar(int a, int b) {
+        int slotA = heap[a];
+        int slotB = heap[b];
+        heap[a] = slotB;
+        heap[b] = slotA;
+        posicao[slotB] = a;
+        posicao[slotA] = b;
+    }
+}
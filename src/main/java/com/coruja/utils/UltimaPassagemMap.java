@@ -0,0 +1,148 @@
+package com.coruja.utils;
+
+import java.util.Arrays;
+
+/**
+ * ✅ ÚLTIMA PASSAGEM POR PLACA (TABELA HASH PRIMITIVA)
+ * Endereçamento aberto com arrays paralelos: placa (long, ver PlacaCodec) -> (local, instante em segundos).
+ * 20 bytes por slot, sem objetos por entrada. Com carga máxima de 0,6 e capacidade em potência de dois,
+ * N placas ocupam de 33 a 67 bytes cada: 1,2 milhão = 2^21 slots = 42 MB; 5 milhões = 2^24 slots = 335 MB
+ * (mais a tabela nova durante um redimensionamento).
+ * Não é thread-safe: o chamador sincroniza.
+ */
+public final class UltimaPassagemMap {
+
+    private static final long VAZIO = 0L;
+    private static final double CARGA_MAXIMA = 0.6;
+
+    private final int maxEntradas;
+    private long[] chaves;
+    private long[] tempos;
+    private int[] locais;
+    private int mascara;
+    private int tamanho;
+
+    public UltimaPassagemMap(int capacidadeInicial, int maxEntradas) {
+        this.maxEntradas = maxEntradas;
+        alocar(potenciaDeDois(Math.max(16, (int) (capacidadeInicial / CARGA_MAXIMA))));
+    }
+
+    /**
+     * @return slot da placa, ou -1 se ausente
+     */
+    public int localizar(long placa) {
+        int i = indice(placa);
+        while (chaves[i] != VAZIO) {
+            if (chaves[i] == placa) return i;
+            i = (i + 1) & mascara;
+        }
+        return -1;
+    }
+
+    public long tempo(int slot) {
+        return tempos[slot];
+    }
+
+    public int local(int slot) {
+        return locais[slot];
+    }
+
+    /**
+     * Insere ou sobrescreve. Se o limite de entradas for atingido, descarta as ~25% mais antigas antes.
+     */
+    public void registrar(long placa, int local, long tempo) {
+        if (placa == VAZIO) throw new IllegalArgumentException("Placa inválida");
+        int slot = localizar(placa);
+        if (slot >= 0) {
+            tempos[slot] = tempo;
+            locais[slot] = local;
+            return;
+        }
+
+        if (tamanho >= maxEntradas) {
+            removerMaisAntigas(0.25);
+        }
+        if (tamanho + 1 > chaves.length * CARGA_MAXIMA) {
+            redimensionar(chaves.length * 2);
+        }
+
+        int i = indice(placa);
+        while (chaves[i] != VAZIO) {
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = placa;
+        tempos[i] = tempo;
+        locais[i] = local;
+        tamanho++;
+    }
+
+    /**
+     * Remove placas sem passagem desde {@code limiteTempo}.
+     * @return quantidade removida
+     */
+    public int removerOciosas(long limiteTempo) {
+        int antes = tamanho;
+        reconstruir(chaves.length, limiteTempo);
+        return antes - tamanho;
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    private void removerMaisAntigas(double fracao) {
+        // Estima o percentil de tempo por amostragem (evita ordenar a tabela inteira)
+        int amostras = Math.min(tamanho, 4096);
+        long[] amostra = new long[amostras];
+        int passo = Math.max(1, chaves.length / amostras);
+        int n = 0;
+        for (int i = 0; i < chaves.length && n < amostras; i += passo) {
+            if (chaves[i] != VAZIO) amostra[n++] = tempos[i];
+        }
+        if (n == 0) return;
+        Arrays.sort(amostra, 0, n);
+        long limite = amostra[Math.min(n - 1, (int) (n * fracao))];
+        reconstruir(chaves.length, limite + 1);
+    }
+
+    private void redimensionar(int novaCapacidade) {
+        reconstruir(novaCapacidade, Long.MIN_VALUE);
+    }
+
+    private void reconstruir(int capacidade, long limiteTempo) {
+        long[] chavesAntigas = chaves;
+        long[] temposAntigos = tempos;
+        int[] locaisAntigos = locais;
+        alocar(capacidade);
+        for (int j = 0; j < chavesAntigas.length; j++) {
+            long chave = chavesAntigas[j];
+            if (chave == VAZIO || temposAntigos[j] < limiteTempo) continue;
+            int i = indice(chave);
+            while (chaves[i] != VAZIO) {
+                i = (i + 1) & mascara;
+            }
+            chaves[i] = chave;
+            tempos[i] = temposAntigos[j];
+            locais[i] = locaisAntigos[j];
+            tamanho++;
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        tempos = new long[capacidade];
+        locais = new int[capacidade];
+        mascara = capacidade - 1;
+        tamanho = 0;
+    }
+
+    private int indice(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+
+    private static int potenciaDeDois(int n) {
+        int p = Integer.highestOneBit(n);
+        return p == n ? n : p << 1;
+    }
+}
@@ -0,0 +1,15 @@
+-- Busca de placa tolerante a erros de OCR (O/0, I/1, B/8, S/5).
+-- placa_confusivel() leva cada par confundível ao mesmo caractere; os índices de expressão são mantidos
+-- pelo próprio Postgres a cada INSERT (sem coluna nova nem backfill da tabela particionada).
+-- IMPORTANTE: manter em sincronia com PlacaConfusivel.normalizar() (Java).
+CREATE OR REPLACE FUNCTION placa_confusivel(p TEXT) RETURNS TEXT
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE
+AS $$ SELECT translate(upper(p), 'OIBS', '0185') $$;
+
+-- Igualdade (padrão sem curinga) e prefixo
+CREATE INDEX IF NOT EXISTS idx_radars_placa_confusivel
+    ON radars_cart (placa_confusivel(placa) text_pattern_ops, data);
+
+-- Curingas em qualquer posição (LIKE com '_' e '%')
+CREATE INDEX IF NOT EXISTS idx_radars_placa_confusivel_trgm
+    ON radars_cart USING GIN (placa_confusivel(placa) gin_trgm_ops);
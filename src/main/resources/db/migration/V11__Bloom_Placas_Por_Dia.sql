@@ -0,0 +1,12 @@
+-- Filtro de Bloom das placas de cada dia FECHADO: responde "a placa com certeza NÃO passou neste dia".
+-- filtro NULL = dia pendente (ainda não construído ou invalidado por dado atrasado).
+-- versao muda a cada construção/invalidação: instâncias comparam com a cópia em memória.
+CREATE SEQUENCE placas_bloom_versao;
+
+CREATE TABLE placas_bloom_dia (
+    data DATE PRIMARY KEY,
+    filtro BYTEA,
+    total_placas BIGINT NOT NULL DEFAULT 0,
+    versao BIGINT NOT NULL DEFAULT nextval('placas_bloom_versao'),
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now()
+);
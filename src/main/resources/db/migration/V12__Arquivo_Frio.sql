@@ -0,0 +1,25 @@
+-- Partições retiradas de radars_cart pela retenção.
+-- estado: DESANEXADA (fora de radars_cart, ainda no banco) -> EXPORTADA (arquivos conferidos) -> REMOVIDA (DROP feito).
+CREATE TABLE arquivo_particoes (
+    nome TEXT PRIMARY KEY,
+    inicio DATE,
+    fim DATE,
+    estado VARCHAR(16) NOT NULL,
+    linhas BIGINT NOT NULL DEFAULT 0,
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Um arquivo colunar por partição e dia (dado atrasado pode gerar um segundo arquivo para o mesmo dia).
+-- Só entra aqui depois de relido e conferido contra a contagem da partição.
+CREATE TABLE arquivo_dias (
+    particao TEXT NOT NULL,
+    data DATE NOT NULL,
+    caminho TEXT NOT NULL,
+    linhas BIGINT NOT NULL,
+    bytes BIGINT NOT NULL,
+    crc32 BIGINT NOT NULL,
+    criado_em TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (particao, data)
+);
+
+CREATE INDEX idx_arquivo_dias_data ON arquivo_dias (data DESC);
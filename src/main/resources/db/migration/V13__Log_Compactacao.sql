@@ -0,0 +1,18 @@
+-- Histórico da compactação de partições fechadas (reescrita ordenada + BRIN + VACUUM FREEZE ANALYZE).
+-- status: EM_ANDAMENTO, CONCLUIDA, FALHOU, IGNORADA.
+CREATE TABLE compactacao_log (
+    id BIGSERIAL PRIMARY KEY,
+    particao TEXT NOT NULL,
+    inicio DATE,
+    fim DATE,
+    ordem TEXT NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    linhas BIGINT,
+    bytes_antes BIGINT,
+    bytes_depois BIGINT,
+    iniciado_em TIMESTAMP NOT NULL DEFAULT now(),
+    concluido_em TIMESTAMP,
+    erro TEXT
+);
+
+CREATE INDEX idx_compactacao_log_particao ON compactacao_log (particao, iniciado_em DESC);
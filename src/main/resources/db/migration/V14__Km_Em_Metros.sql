@@ -0,0 +1,34 @@
+-- KM textual ("590", "110+500", "110.5") convertido em metros inteiros, para ordenar e filtrar por faixa.
+-- Mesma regra de KmParser (Java), que preenche a coluna na ingestão.
+CREATE OR REPLACE FUNCTION radares_km_metros(km TEXT) RETURNS INTEGER
+LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$
+    SELECT CASE
+               WHEN m IS NULL THEN NULL
+               WHEN m[2] IS NULL THEN m[1]::int * 1000
+               WHEN m[2] = '+' THEN m[1]::int * 1000 + m[3]::int
+               ELSE m[1]::int * 1000 + rpad(m[3], 3, '0')::int
+           END
+    FROM (SELECT regexp_match(upper(trim(km)), '^(?:KM)?\s*(\d{1,4})(?:\s*([+.,])\s*(\d{1,3}))?$') AS m) x
+$$;
+
+-- Coluna nula sem default: ALTER instantâneo, sem reescrever radars_cart.
+-- As passagens já gravadas são preenchidas em lotes por dia (KmMetrosBackfillService).
+ALTER TABLE radars_cart ADD COLUMN IF NOT EXISTS km_metros INTEGER;
+ALTER TABLE kms_rodovia ADD COLUMN IF NOT EXISTS km_metros INTEGER;
+ALTER TABLE localizacao_radar ADD COLUMN IF NOT EXISTS km_metros INTEGER;
+
+-- Tabelas de domínio são pequenas: preenchidas aqui mesmo
+UPDATE kms_rodovia SET km_metros = radares_km_metros(valor) WHERE km_metros IS NULL;
+UPDATE localizacao_radar SET km_metros = radares_km_metros(km) WHERE km_metros IS NULL;
+
+-- Faixa de KM de uma rodovia em um dia (busca local) e listas de KM ordenadas
+CREATE INDEX IF NOT EXISTS idx_radars_rodovia_data_km_metros ON radars_cart (rodovia, data, km_metros, hora);
+CREATE INDEX IF NOT EXISTS idx_kms_rodovia_km_metros ON kms_rodovia (rodovia_id, km_metros);
+CREATE INDEX IF NOT EXISTS idx_localizacao_rodovia_km_metros ON localizacao_radar (rodovia, km_metros);
+
+-- Progresso de tarefas de manutenção em lotes (retomadas após reinício)
+CREATE TABLE IF NOT EXISTS manutencao_progresso (
+    tarefa TEXT PRIMARY KEY,
+    ate DATE,
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now()
+);
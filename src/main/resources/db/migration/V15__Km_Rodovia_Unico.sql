@@ -0,0 +1,9 @@
+-- Um KM por rodovia: remove duplicatas gravadas por execuções concorrentes do aprendizado de domínio
+-- (fica a linha mais antiga) e passa a garantir a unicidade no banco (alvo do ON CONFLICT).
+DELETE FROM kms_rodovia k
+USING kms_rodovia d
+WHERE d.rodovia_id = k.rodovia_id
+  AND d.valor = k.valor
+  AND d.id < k.id;
+
+ALTER TABLE kms_rodovia ADD CONSTRAINT uq_kms_rodovia_rodovia_valor UNIQUE (rodovia_id, valor);
@@ -0,0 +1,9 @@
+-- Versão do domínio (rodovias e KMs): incrementada na mesma transação de cada alteração.
+-- Cada instância guarda um snapshot em memória e só recarrega quando a versão muda
+-- (aviso via Redis pub/sub após o commit, com verificação periódica como rede de segurança).
+CREATE TABLE IF NOT EXISTS dominio_versao (
+    id SMALLINT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    versao BIGINT NOT NULL
+);
+
+INSERT INTO dominio_versao (id, versao) VALUES (1, 1) ON CONFLICT (id) DO NOTHING;
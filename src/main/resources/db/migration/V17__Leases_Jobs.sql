@@ -0,0 +1,13 @@
+-- Leases de jobs agendados: uma linha por (job, fatia). Quem detém o lease é a única instância
+-- que executa aquela fatia até 'expira_em' (renovado enquanto o job roda).
+-- 'token' cresce a cada aquisição (fencing): escritas protegidas conferem o token, então uma
+-- instância que perdeu o lease (pausa longa, rede) não consegue mais gravar.
+CREATE TABLE IF NOT EXISTS job_lease (
+    job TEXT NOT NULL,
+    fatia INTEGER NOT NULL,
+    dono TEXT NOT NULL,
+    token BIGINT NOT NULL,
+    adquirido_em TIMESTAMPTZ NOT NULL DEFAULT now(),
+    expira_em TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (job, fatia)
+);
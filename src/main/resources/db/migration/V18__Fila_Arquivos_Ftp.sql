@@ -0,0 +1,19 @@
+-- Fila de arquivos do FTP compartilhada pelas instâncias: cada arquivo é reivindicado por uma instância
+-- (FOR UPDATE SKIP LOCKED), que mantém 'heartbeat_em' atualizado enquanto baixa/processa/grava.
+-- Heartbeat vencido = instância morta: o arquivo volta a ser reivindicável por qualquer outra.
+CREATE TABLE IF NOT EXISTS ftp_arquivos (
+    nome TEXT PRIMARY KEY,
+    data_arquivo DATE,
+    estado TEXT NOT NULL DEFAULT 'PENDENTE',
+    dono TEXT,
+    heartbeat_em TIMESTAMPTZ,
+    tentativas INTEGER NOT NULL DEFAULT 0,
+    linhas INTEGER,
+    erro TEXT,
+    descoberto_em TIMESTAMPTZ NOT NULL DEFAULT now(),
+    concluido_em TIMESTAMPTZ
+);
+
+-- Reivindicação: pendentes/abandonados, do arquivo mais antigo para o mais novo
+CREATE INDEX IF NOT EXISTS idx_ftp_arquivos_fila ON ftp_arquivos (data_arquivo, nome)
+    WHERE estado IN ('PENDENTE', 'EM_PROCESSAMENTO');
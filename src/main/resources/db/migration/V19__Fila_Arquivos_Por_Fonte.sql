@@ -0,0 +1,11 @@
+-- Fila de arquivos por fonte de ingestão: nomes iguais em FTPs diferentes são arquivos diferentes.
+-- Linhas existentes pertencem à fonte legada "cart" (propriedades ftp.*).
+ALTER TABLE ftp_arquivos ADD COLUMN IF NOT EXISTS fonte TEXT NOT NULL DEFAULT 'cart';
+ALTER TABLE ftp_arquivos ALTER COLUMN fonte DROP DEFAULT;
+
+ALTER TABLE ftp_arquivos DROP CONSTRAINT IF EXISTS ftp_arquivos_pkey;
+ALTER TABLE ftp_arquivos ADD PRIMARY KEY (fonte, nome);
+
+DROP INDEX IF EXISTS idx_ftp_arquivos_fila;
+CREATE INDEX IF NOT EXISTS idx_ftp_arquivos_fila ON ftp_arquivos (fonte, data_arquivo, nome)
+    WHERE estado IN ('PENDENTE', 'EM_PROCESSAMENTO');
@@ -0,0 +1,15 @@
+-- Linhas alteradas numa partição enquanto a compactação a copia sem lock.
+-- O gatilho (criado só durante a cópia) grava (id, data) na tabela de delta passada como argumento;
+-- na troca, sob lock, só essas linhas são reaplicadas na cópia.
+CREATE OR REPLACE FUNCTION radares_compactacao_delta() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        EXECUTE format('INSERT INTO %I (id, data) VALUES ($1, $2)', TG_ARGV[0]) USING OLD.id, OLD.data;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        EXECUTE format('INSERT INTO %I (id, data) VALUES ($1, $2)', TG_ARGV[0]) USING NEW.id, NEW.data;
+    END IF;
+    RETURN NULL;
+END;
+$$;
@@ -0,0 +1,10 @@
+-- Última passagem de cada placa, compartilhada por todas as réplicas de ingestão.
+-- O pareamento (origem-destino e clonagem) trava as linhas das placas do lote na transação do insert:
+-- lotes concorrentes, na mesma ou em outra instância, se serializam por placa e um rollback desfaz o avanço.
+CREATE TABLE ultima_passagem_placa (
+    placa VARCHAR(7) NOT NULL,
+    praca VARCHAR(255),                  -- Normalizada (trim + maiúsculas); nula só antes do primeiro avanço
+    instante TIMESTAMP,
+
+    CONSTRAINT pk_ultima_passagem_placa PRIMARY KEY (placa)
+) WITH (fillfactor = 80);
@@ -0,0 +1,9 @@
+-- Marcador do volume compartilhado do arquivo frio (radares.arquivo.diretorio).
+-- A primeira instância registra o marcador gravado no diretório; as demais só partem se encontrarem o mesmo.
+CREATE TABLE arquivo_volume (
+    id SMALLINT PRIMARY KEY DEFAULT 1,
+    marcador TEXT NOT NULL,
+    criado_em TIMESTAMP NOT NULL DEFAULT now(),
+
+    CONSTRAINT ck_arquivo_volume_unico CHECK (id = 1)
+);
@@ -0,0 +1,30 @@
+-- 1. Agregado horário de passagens (alimentado incrementalmente pela ingestão)
+-- Chave: dia + hora + ponto de medição. Evita varrer radars_cart para estatísticas.
+CREATE TABLE radars_rollup_hora (
+    data DATE NOT NULL,
+    hora SMALLINT NOT NULL,
+    praca VARCHAR(255) NOT NULL,
+    rodovia VARCHAR(255) NOT NULL,
+    km VARCHAR(255) NOT NULL,
+    sentido VARCHAR(255) NOT NULL,
+    total BIGINT NOT NULL DEFAULT 0,
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now(),
+
+    CONSTRAINT pk_radars_rollup_hora PRIMARY KEY (data, hora, praca, rodovia, km, sentido),
+    CONSTRAINT ck_radars_rollup_hora CHECK (hora BETWEEN 0 AND 23)
+);
+
+-- 2. Dias cujo rollup é completo (contagens exatas podem ser servidas a partir dele)
+-- origem: INGESTAO (dia inteiro ingerido após a criação do rollup) ou RECONSTRUCAO (backfill)
+CREATE TABLE radars_rollup_dias (
+    data DATE PRIMARY KEY,
+    origem VARCHAR(20) NOT NULL,
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- 3. Marco de ativação: dias até esta data precisam de reconstrução para serem considerados completos
+CREATE TABLE radars_rollup_controle (
+    chave VARCHAR(50) PRIMARY KEY,
+    valor DATE NOT NULL
+);
+INSERT INTO radars_rollup_controle (chave, valor) VALUES ('ativo_desde', CURRENT_DATE);
@@ -0,0 +1,13 @@
+-- Sketches HyperLogLog de placas distintas por praça, sentido, dia e hora.
+-- Construídos na ingestão e mesclados sob demanda para qualquer período / conjunto de praças.
+CREATE TABLE placas_distintas_hll (
+    data DATE NOT NULL,
+    hora SMALLINT NOT NULL,
+    praca VARCHAR(255) NOT NULL,
+    sentido VARCHAR(255) NOT NULL,
+    registros BYTEA NOT NULL,
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now(),
+
+    CONSTRAINT pk_placas_distintas_hll PRIMARY KEY (data, hora, praca, sentido),
+    CONSTRAINT ck_placas_distintas_hll CHECK (hora BETWEEN 0 AND 23)
+);
@@ -0,0 +1,10 @@
+-- Checkpoint dos resumos Space-Saving (placas mais frequentes) por dia e praça.
+-- praca = '*' guarda o resumo do dia inteiro (todas as praças).
+CREATE TABLE placas_frequentes (
+    data DATE NOT NULL,
+    praca VARCHAR(255) NOT NULL,
+    estado BYTEA NOT NULL,
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now(),
+
+    CONSTRAINT pk_placas_frequentes PRIMARY KEY (data, praca)
+);
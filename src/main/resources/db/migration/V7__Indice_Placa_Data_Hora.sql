@@ -0,0 +1,4 @@
+-- Índice B-Tree para buscas por placa EXATA em ordem cronológica (trajetória, buscas em lote).
+-- O GIN (pg_trgm) atende LIKE '%ABC%', mas não entrega as linhas já ordenadas por data/hora.
+-- Percorrido nos dois sentidos: serve tanto ORDER BY data, hora quanto data DESC, hora DESC.
+CREATE INDEX IF NOT EXISTS idx_radars_placa_data_hora ON radars_cart (placa, data, hora);
@@ -0,0 +1,16 @@
+-- Matriz origem-destino entre praças, por hora de partida.
+-- Cada viagem = duas passagens consecutivas da mesma placa em praças diferentes, dentro do intervalo máximo.
+-- histograma: contagem de viagens por faixa de tempo (limites fixos em HistogramaViagem); permite quantis sem dados brutos.
+CREATE TABLE origem_destino_hora (
+    data DATE NOT NULL,                  -- Data da passagem de origem
+    hora SMALLINT NOT NULL,              -- Hora da passagem de origem
+    praca_origem VARCHAR(255) NOT NULL,
+    praca_destino VARCHAR(255) NOT NULL,
+    viagens BIGINT NOT NULL DEFAULT 0,
+    soma_segundos BIGINT NOT NULL DEFAULT 0,
+    histograma BIGINT[] NOT NULL,
+    atualizado_em TIMESTAMP NOT NULL DEFAULT now(),
+
+    CONSTRAINT pk_origem_destino_hora PRIMARY KEY (data, hora, praca_origem, praca_destino),
+    CONSTRAINT ck_origem_destino_hora CHECK (hora BETWEEN 0 AND 23)
+);
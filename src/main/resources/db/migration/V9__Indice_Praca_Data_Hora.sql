@@ -0,0 +1,3 @@
+-- Índice para "quem passou nesta praça entre HH:MM:SS e HH:MM:SS" (detecção de comboio).
+-- placa incluída no índice para a consulta ser atendida sem visitar a tabela (index-only scan).
+CREATE INDEX IF NOT EXISTS idx_radars_praca_data_hora ON radars_cart (praca, data, hora) INCLUDE (placa);
@@ -0,0 +1,130 @@
+package com.coruja.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replay de arquivos de passagens no detector de placa clonada.
+ * Por padrão usa a amostra em src/test/resources/replay; para reproduzir arquivos históricos:
+ *   mvn test -Dtest=DetectorClonagemReplayTest -Dreplay.dir=/caminho/arquivos -Dreplay.pracas=/caminho/pracas.csv
+ */
+class DetectorClonagemReplayTest {
+
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+
+    @Test
+    void amostraGeraAlertaSomenteParaViagemImpossivel() throws IOException {
+        List<DetectorClonagem.Alerta> alertas;
+        try (InputStream pracas = recurso("replay/pracas.csv");
+             InputStream passagens = recurso("replay/passagens-exemplo.txt")) {
+            alertas = replay(lerPracas(pracas), List.of(lerLinhas(passagens)));
+        }
+
+        // ITAPEVI -> BOTUCATU (~190 km) em 20 min é impossível; os demais trajetos são plausíveis
+        assertEquals(1, alertas.size());
+        assertEquals("ABC1D23", alertas.get(0).placa());
+        assertTrue(alertas.get(0).velocidadeNecessariaKmh() > 180);
+    }
+
+    @Test
+    void replayDeArquivosHistoricos() throws IOException {
+        String dir = System.getProperty("replay.dir");
+        String pracasCsv = System.getProperty("replay.pracas");
+        if (dir == null || pracasCsv == null) return;
+
+        Map<String, double[]> pracas;
+        try (InputStream in = Files.newInputStream(Path.of(pracasCsv))) {
+            pracas = lerPracas(in);
+        }
+        List<List<String>> arquivos = new ArrayList<>();
+        try (Stream<Path> caminhos = Files.list(Path.of(dir))) {
+            for (Path p : caminhos.filter(Files::isRegularFile).sorted().toList()) {
+                try (InputStream in = Files.newInputStream(p)) {
+                    arquivos.add(lerLinhas(in));
+                }
+            }
+        }
+
+        assertFalse(arquivos.isEmpty(), "Nenhum arquivo em " + dir);
+        // Todo alerta precisa ser de fato uma viagem impossível entre praças distintas e distantes
+        for (DetectorClonagem.Alerta alerta : replay(pracas, arquivos)) {
+            assertNotEquals(alerta.localizacaoAnterior(), alerta.localizacaoAtual(), alerta::toString);
+            assertTrue(alerta.distanciaKm() >= 5, alerta::toString);
+            assertTrue(alerta.segundosDecorridos() < alerta.segundosMinimos(), alerta::toString);
+            assertTrue(alerta.velocidadeNecessariaKmh() > 180, alerta::toString);
+        }
+    }
+
+    /**
+     * Mesmo fluxo do ClonagemService: cada arquivo é um lote, processado em ordem cronológica.
+     */
+    private List<DetectorClonagem.Alerta> replay(Map<String, double[]> pracas, List<List<String>> arquivos) {
+        DetectorClonagem detector = new DetectorClonagem(180, 5, 1_000_000);
+        Map<String, Long> ids = new HashMap<>();
+        pracas.forEach((praca, coord) -> {
+            long id = ids.size() + 1;
+            ids.put(praca, id);
+            detector.registrarLocal(id, coord[0], coord[1]);
+        });
+
+        List<DetectorClonagem.Alerta> alertas = new ArrayList<>();
+        for (List<String> arquivo : arquivos) {
+            List<LinhaRadarParser.Linha> lote = arquivo.stream()
+                    .filter(l -> !LinhaRadarParser.isLinhaIgnoravel(l))
+                    .flatMap(l -> LinhaRadarParser.parse(l).stream())
+                    .sorted(Comparator.comparing(LinhaRadarParser.Linha::data).thenComparing(LinhaRadarParser.Linha::hora))
+                    .toList();
+            for (LinhaRadarParser.Linha linha : lote) {
+                Long id = ids.get(linha.praca().trim().toUpperCase());
+                if (id == null) continue;
+                long instante = linha.data().atTime(linha.hora()).atZone(FUSO).toEpochSecond();
+                detector.registrar(linha.placa(), id, instante).ifPresent(alertas::add);
+            }
+        }
+        return alertas;
+    }
+
+    private static Map<String, double[]> lerPracas(InputStream in) {
+        Map<String, double[]> pracas = new HashMap<>();
+        for (String linha : lerLinhas(in)) {
+            if (linha.isBlank() || linha.startsWith("#")) continue;
+            String[] partes = linha.split(";");
+            pracas.put(partes[0].trim().toUpperCase(),
+                    new double[]{Double.parseDouble(partes[1].trim()), Double.parseDouble(partes[2].trim())});
+        }
+        return pracas;
+    }
+
+    /**
+     * Mesmo charset padrão da ingestão (ingestao.fontes[n].charset): os arquivos das concessionárias são ISO-8859-1.
+     */
+    private static List<String> lerLinhas(InputStream in) {
+        try {
+            return new String(in.readAllBytes(), StandardCharsets.ISO_8859_1).lines().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream recurso(String nome) {
+        return DetectorClonagemReplayTest.class.getClassLoader().getResourceAsStream(nome);
+    }
+}